@@ -1,6 +1,15 @@
+import audio.AudioEngine;
 import bagel.*;
+import leaderboard.LeaderboardRecorder;
+import monitor.GameMetrics;
 import scene.SceneManager;
+import schedule.FrameScheduler;
+import telemetry.TelemetryRecorder;
+import texture.TextureCache;
+import utils.AssetWarmup;
 import utils.PropertiesLoader;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -12,6 +21,18 @@ import java.util.Properties;
 public class ShadowMario extends AbstractGame {
 	private final Image BACKGROUND_IMAGE;
 	private final SceneManager sceneManager = new SceneManager();
+	private final TelemetryRecorder telemetry;
+	private final LeaderboardRecorder leaderboard;
+	private final GameMetrics metrics;
+	private final AudioEngine audio;
+	// Shortest frame while nothing on screen is changing
+	private final long idleFrameNanos;
+
+	// Startup measurement, reported after the first frame when --measure-startup is passed
+	private AssetWarmup warmup;
+	private long mainStartNanos;
+	private boolean measureStartup = false;
+	private boolean firstFrameShown = false;
 
 	/**
 	 * Create a new ShadowMario game
@@ -24,37 +45,126 @@ public class ShadowMario extends AbstractGame {
 			  messageProps.getProperty("title"));
 
 		BACKGROUND_IMAGE = new Image(gameProps.getProperty("backgroundImage"));
+		idleFrameNanos = Long.parseLong(gameProps.getProperty("idle.frameMillis")) * 1_000_000L;
 
+		telemetry = TelemetryRecorder.startFromProperties(sceneManager);
+		leaderboard = LeaderboardRecorder.startFromProperties(sceneManager);
+		audio = AudioEngine.startFromProperties(sceneManager);
+		metrics = new GameMetrics(sceneManager).register();
+		if (!sceneManager.getInputQueue().installKeyCallback()) {
+			System.err.println("Could not record key events, falling back to polling");
+		}
+		// Overlap simulating levels with drawing when there is a spare core
+		if (Boolean.parseBoolean(gameProps.getProperty("pipeline.enabled"))
+				&& Runtime.getRuntime().availableProcessors() > 1) {
+			sceneManager.startPipeline();
+		}
 		sceneManager.setScene(SceneManager.SceneId.START);
 	}
 
 	/**
 	 * The entry point for the program.
+	 * Assets are warmed up on worker threads while the window opens.
+	 * Pass --measure-startup to print the time to the first frame and exit.
 	 */
 	public static void main(String[] args) {
+		long mainStartNanos = System.nanoTime();
+		AssetWarmup warmup = AssetWarmup.start();
+
 		Properties gameProps = PropertiesLoader.getGameProperties();
 		Properties messageProps = PropertiesLoader.getMessageProperties();
 		ShadowMario game = new ShadowMario(gameProps, messageProps);
+		game.warmup = warmup;
+		game.mainStartNanos = mainStartNanos;
+		game.measureStartup = Arrays.asList(args).contains("--measure-startup");
 		game.run();
+		game.close();
+	}
+
+	/**
+	 * Release resources once the window has closed
+	 */
+	private void close() {
+		sceneManager.close();
+		if (telemetry != null) {
+			telemetry.close();
+		}
+		if (leaderboard != null) {
+			leaderboard.close();
+		}
+		audio.close();
 	}
 
 	/**
 	 * Performs a state update of the selected level.
 	 * Allows the game to exit when the escape key is pressed.
 	 * Handle screen navigation between levels and instruction pages here.
+	 * While the game is idle, each frame is stretched out so the same frame is not drawn at full speed.
 	 * @param input user input
 	 */
 	@Override
 	protected void update(Input input) {
+		long frameStart = System.nanoTime();
+
 		// Close window
 		if (input.wasPressed(Keys.ESCAPE)){
 			Window.close();
 		}
 
+		// Start timing the frame, and schedule texture loading and eviction before anything is drawn
+		FrameScheduler scheduler = sceneManager.getScheduler();
+		scheduler.beginFrame();
+		TextureCache.update(scheduler);
+
 		// Refresh screen
 		BACKGROUND_IMAGE.draw(Window.getWidth()/2.0, Window.getHeight()/2.0);
 
 		// Update the current scene
 		sceneManager.update(input);
+
+		if (!firstFrameShown) {
+			firstFrameShown = true;
+			if (measureStartup) {
+				reportStartup();
+			}
+		}
+
+		// Queue decoded music
+		audio.update();
+
+		// Run deferred work in the time left in the frame
+		scheduler.runUntilBudget();
+		metrics.endFrame();
+
+		if (sceneManager.isIdle()) {
+			throttle(frameStart);
+		}
+	}
+
+	/**
+	 * Sleep for the rest of an idle frame
+	 * @param frameStart when the frame started, from System.nanoTime
+	 */
+	private void throttle(long frameStart) {
+		long remaining = idleFrameNanos - (System.nanoTime() - frameStart);
+		if (remaining <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Print how long it took to show the first frame, then close the window
+	 */
+	private void reportStartup() {
+		double mainMillis = (System.nanoTime() - mainStartNanos) / 1e6;
+		long jvmMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		System.out.printf("First frame: %.1f ms after main, %d ms after JVM start (asset warmup %.1f ms)%n",
+			mainMillis, jvmMillis, warmup.getMillis());
+		Window.close();
 	}
 }
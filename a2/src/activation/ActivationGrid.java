@@ -0,0 +1,98 @@
+package activation;
+
+import java.util.Arrays;
+
+/**
+ * Finds the objects that may be near the camera without looking at the rest of the level.
+ * Each object is added with the horizontal span it can ever occupy, and is stored in every fixed-width cell
+ * that span covers. A query only visits the cells under the queried span, so its cost depends on
+ * how many objects are nearby rather than the length of the level.
+ * Objects are identified by an id chosen by the caller, and queries return ids in ascending order.
+ * @author Michael Ren
+ */
+public class ActivationGrid {
+  private static final int CELL_WIDTH = 256;
+  private static final int INITIAL_CELL_CAPACITY = 8;
+
+  private int[][] cells = new int[0][];
+  private int[] cellSizes = new int[0];
+
+  // Result of the last query
+  private int[] found = new int[64];
+  private int foundCount = 0;
+
+  /**
+   * Get the cell containing an x position. Positions before 0 share the first cell.
+   * @param x x position
+   * @return cell index
+   */
+  private static int cellOf(double x) {
+    return Math.max(0, (int) Math.floor(x / CELL_WIDTH));
+  }
+
+  /**
+   * Add an object
+   * @param id the object's id, at least 0
+   * @param left leftmost x position the object can occupy
+   * @param right rightmost x position the object can occupy
+   */
+  public void add(int id, double left, double right) {
+    int last = cellOf(right);
+    if (last >= cells.length) {
+      int length = Math.max(last + 1, cells.length * 2);
+      cells = Arrays.copyOf(cells, length);
+      cellSizes = Arrays.copyOf(cellSizes, length);
+    }
+
+    for (int cell = cellOf(left); cell <= last; cell++) {
+      if (cells[cell] == null) {
+        cells[cell] = new int[INITIAL_CELL_CAPACITY];
+      } else if (cellSizes[cell] == cells[cell].length) {
+        cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+      }
+      cells[cell][cellSizes[cell]++] = id;
+    }
+  }
+
+  /**
+   * Find the objects whose span may overlap a horizontal span.
+   * The result may include objects just outside the span, so callers should check each object.
+   * @param left left edge of the span
+   * @param right right edge of the span
+   * @return number of ids found, read with get
+   */
+  public int find(double left, double right) {
+    foundCount = 0;
+    int last = Math.min(cellOf(right), cells.length - 1);
+    for (int cell = cellOf(left); cell <= last; cell++) {
+      int size = cellSizes[cell];
+      if (foundCount + size > found.length) {
+        found = Arrays.copyOf(found, Math.max(found.length * 2, foundCount + size));
+      }
+      if (size > 0) {
+        System.arraycopy(cells[cell], 0, found, foundCount, size);
+        foundCount += size;
+      }
+    }
+
+    // Sort and drop objects that span several cells
+    Arrays.sort(found, 0, foundCount);
+    int unique = 0;
+    for (int i = 0; i < foundCount; i++) {
+      if (unique == 0 || found[i] != found[unique - 1]) {
+        found[unique++] = found[i];
+      }
+    }
+    foundCount = unique;
+    return foundCount;
+  }
+
+  /**
+   * Get an id found by the last query
+   * @param index index in [0, count), in ascending id order
+   * @return the id
+   */
+  public int get(int index) {
+    return found[index];
+  }
+}
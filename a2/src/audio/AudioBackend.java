@@ -0,0 +1,35 @@
+package audio;
+
+/**
+ * Plays sound effects and queued music. All methods are called from the game thread and must not block.
+ * @author Michael Ren
+ */
+public interface AudioBackend {
+  /**
+   * Start playing a sound effect on a free voice
+   * @param sound the sound to play
+   */
+  public void play(Sound sound);
+
+  /**
+   * Check if there is room to queue more music
+   * @return true if queueMusic can be called
+   */
+  public boolean wantsMusic();
+
+  /**
+   * Queue music to play after the music already queued. The samples are copied, so the chunk can be reused.
+   * @param chunk the decoded music
+   */
+  public void queueMusic(PcmChunk chunk);
+
+  /**
+   * Do the backend's work for one frame
+   */
+  public void update();
+
+  /**
+   * Stop playing and release the backend's resources
+   */
+  public void close();
+}
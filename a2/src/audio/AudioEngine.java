@@ -0,0 +1,171 @@
+package audio;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import collectable.Coin;
+import entity.Boss;
+import event.EventListener;
+import event.GameEvent;
+import scene.SceneManager;
+import utils.PropertiesLoader;
+
+/**
+ * Plays sound effects for gameplay events from the event bus, and streams music.
+ * Events are collected as they are published, from whichever thread updates the level,
+ * and the effects are started by the main thread in the next update.
+ * Music is decoded on a background thread, and each frame any decoded chunks are handed to the backend
+ * if it has room, so the game thread never waits on audio I/O.
+ * @author Michael Ren
+ */
+public class AudioEngine implements EventListener {
+  private static final int CHUNK_SAMPLES = 8192;
+  private static final Sound[] SOUNDS = Sound.values();
+
+  private final SceneManager sceneManager;
+  private final AudioBackend backend;
+  private final MusicStreamer music;
+  // Sounds from events since the last update, one bit per sound. Events may come from the simulation thread.
+  private final AtomicInteger pendingSounds = new AtomicInteger();
+
+  /**
+   * Create a new audio engine and subscribe to the event bus
+   * @param sceneManager the scene manager, used for its event bus
+   * @param backend the backend to play audio with
+   * @param musicOpener opens the music stream, or null for no music
+   */
+  public AudioEngine(SceneManager sceneManager, AudioBackend backend, Callable<PcmStream> musicOpener) {
+    this.sceneManager = sceneManager;
+    this.backend = backend;
+    music = musicOpener == null ? null : new MusicStreamer(musicOpener, CHUNK_SAMPLES);
+    sceneManager.getEventBus().subscribe(this);
+  }
+
+  /**
+   * Start audio with the backend set in app.properties.
+   * Falls back to playing nothing if the sound device or output file cannot be opened.
+   * Must be called on the main thread.
+   * @param sceneManager the scene manager
+   * @return the audio engine
+   */
+  public static AudioEngine startFromProperties(SceneManager sceneManager) {
+    String type = PropertiesLoader.getGameProperty("audio.backend");
+    int voices = Integer.parseInt(PropertiesLoader.getGameProperty("audio.voices"));
+    float effectsVolume = Float.parseFloat(PropertiesLoader.getGameProperty("audio.effectsVolume"));
+    float musicVolume = Float.parseFloat(PropertiesLoader.getGameProperty("audio.musicVolume"));
+
+    AudioBackend backend = null;
+    if ("openal".equals(type)) {
+      try {
+        backend = OpenAlAudioBackend.open(voices, effectsVolume, musicVolume, CHUNK_SAMPLES);
+      } catch (RuntimeException | LinkageError e) {
+        e.printStackTrace();
+      }
+      if (backend == null) {
+        System.err.println("Could not open a sound device, playing without sound");
+      }
+    } else if ("file".equals(type)) {
+      try {
+        backend = new FileAudioBackend(Paths.get(PropertiesLoader.getGameProperty("audio.output")), voices,
+          effectsVolume, musicVolume);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (backend == null) {
+      // Nothing would be heard, so do not decode music either
+      return new AudioEngine(sceneManager, new NullAudioBackend(), null);
+    }
+
+    String musicFile = PropertiesLoader.getGameProperty("audio.music");
+    Callable<PcmStream> musicOpener;
+    if (musicFile == null || musicFile.isEmpty()) {
+      musicOpener = SynthMusic::new;
+    } else {
+      Path path = Paths.get(musicFile);
+      musicOpener = () -> new WavStream(path, CHUNK_SAMPLES);
+    }
+    return new AudioEngine(sceneManager, backend, musicOpener);
+  }
+
+  /**
+   * Play the sound effect for an event, if it has one
+   * @param event the event
+   */
+  @Override
+  public void onEvent(GameEvent event) {
+    switch (event.getType()) {
+      case PICKUP:
+        if (event.getSourceType() == Coin.class) {
+          queue(Sound.COIN);
+        }
+        break;
+      case JUMP:
+        queue(Sound.JUMP);
+        break;
+      case SHOOT:
+        queue(Sound.SHOOT);
+        break;
+      case DAMAGE:
+        queue(Sound.DAMAGE);
+        break;
+      case DEATH:
+        if (event.getSourceType() == Boss.class) {
+          queue(Sound.BOSS_DEATH);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Queue a sound to start in the next update. The same sound queued twice in one frame only plays once.
+   * @param sound the sound
+   */
+  private void queue(Sound sound) {
+    int bit = 1 << sound.ordinal();
+    pendingSounds.accumulateAndGet(bit, (pending, added) -> pending | added);
+  }
+
+  /**
+   * Start queued sounds, pass decoded music to the backend and update it. Called once per frame on the main thread.
+   */
+  public void update() {
+    int pending = pendingSounds.getAndSet(0);
+    for (Sound sound : SOUNDS) {
+      if ((pending & (1 << sound.ordinal())) != 0) {
+        backend.play(sound);
+      }
+    }
+    backend.update();
+    if (music != null) {
+      PcmChunk chunk;
+      while (backend.wantsMusic() && (chunk = music.poll()) != null) {
+        backend.queueMusic(chunk);
+        music.release(chunk);
+      }
+    }
+  }
+
+  /**
+   * Stop playing and release the backend
+   */
+  public void close() {
+    sceneManager.getEventBus().unsubscribe(this);
+    if (music != null) {
+      music.close();
+    }
+    backend.close();
+  }
+
+  /**
+   * Get the backend audio is played with
+   * @return the backend
+   */
+  public AudioBackend getBackend() {
+    return backend;
+  }
+}
@@ -0,0 +1,212 @@
+package audio;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixes audio in software and writes it to a mono 16-bit WAV file, for running without a sound device.
+ * Exactly one frame of audio is mixed per update, so the output only depends on the game's frames
+ * and can be compared between runs. Mixed frames are written by a background thread; if it falls
+ * too far behind, frames are dropped rather than stalling the game.
+ * @author Michael Ren
+ */
+public class FileAudioBackend implements AudioBackend {
+  private static final int SAMPLE_RATE = Sound.SAMPLE_RATE;
+  private static final int FRAMES_PER_SECOND = 60;
+  private static final int HEADER_BYTES = 44;
+  private static final int BLOCK_COUNT = 64;
+  private static final int MUSIC_CAPACITY = SAMPLE_RATE * 2;
+  private static final int MUSIC_LOW_WATER = SAMPLE_RATE / 2;
+  private static final long POLL_MILLIS = 10;
+  private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+  private final Path path;
+  private final float effectsVolume;
+  private final float musicVolume;
+
+  // Software voices, each playing a sound from a position
+  private final Sound[] voiceSounds;
+  private final int[] voicePositions;
+  private final VoicePool voices;
+
+  // Music resampled to mono at SAMPLE_RATE, in a ring
+  private final short[] music = new short[MUSIC_CAPACITY];
+  private int musicStart = 0;
+  private int musicCount = 0;
+
+  private long frame = 0;
+  private long droppedFrames = 0;
+  private final ArrayBlockingQueue<PcmChunk> free = new ArrayBlockingQueue<>(BLOCK_COUNT);
+  private final ArrayBlockingQueue<PcmChunk> mixed = new ArrayBlockingQueue<>(BLOCK_COUNT);
+  private final Thread writer;
+  private volatile boolean closing = false;
+  private volatile long writtenSamples = 0;
+
+  /**
+   * Create the output file and start the writer thread
+   * @param path the WAV file to write
+   * @param voiceCount number of sound effects that can play at once
+   * @param effectsVolume gain of sound effects, between 0 and 1
+   * @param musicVolume gain of music, between 0 and 1
+   * @throws IOException if the file could not be created
+   */
+  public FileAudioBackend(Path path, int voiceCount, float effectsVolume, float musicVolume) throws IOException {
+    this.path = path;
+    this.effectsVolume = effectsVolume;
+    this.musicVolume = musicVolume;
+    voiceSounds = new Sound[voiceCount];
+    voicePositions = new int[voiceCount];
+    voices = new VoicePool(voiceCount, voice -> voiceSounds[voice] != null);
+
+    for (int i = 0; i < BLOCK_COUNT; i++) {
+      free.add(new PcmChunk(SAMPLE_RATE / FRAMES_PER_SECOND + 1));
+    }
+    OutputStream out = new BufferedOutputStream(Files.newOutputStream(path));
+    // Sizes in the header are filled in on close
+    out.write(new byte[HEADER_BYTES]);
+    writer = new Thread(() -> write(out), "audio-file-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Write mixed frames until the backend is closed and every frame has been written
+   * @param out the file, positioned after the header
+   */
+  private void write(OutputStream out) {
+    byte[] bytes = new byte[free.peek().getSamples().length * 2];
+    try (out) {
+      while (!closing || !mixed.isEmpty()) {
+        PcmChunk block = mixed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (block == null) {
+          continue;
+        }
+        short[] samples = block.getSamples();
+        for (int i = 0; i < block.getCount(); i++) {
+          bytes[2 * i] = (byte) samples[i];
+          bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        out.write(bytes, 0, block.getCount() * 2);
+        writtenSamples += block.getCount();
+        free.offer(block);
+      }
+    } catch (InterruptedException e) {
+      // Stopped without finishing
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public void play(Sound sound) {
+    int voice = voices.acquire();
+    voiceSounds[voice] = sound;
+    voicePositions[voice] = 0;
+  }
+
+  @Override
+  public boolean wantsMusic() {
+    return musicCount < MUSIC_LOW_WATER;
+  }
+
+  @Override
+  public void queueMusic(PcmChunk chunk) {
+    // Mix the channels down and resample to the output rate, dropping whatever does not fit
+    short[] samples = chunk.getSamples();
+    int channels = chunk.getChannels();
+    int frames = chunk.getCount() / channels;
+    double step = (double) chunk.getSampleRate() / SAMPLE_RATE;
+    for (double position = 0; position < frames && musicCount < MUSIC_CAPACITY; position += step) {
+      int index = (int) position * channels;
+      int sum = 0;
+      for (int channel = 0; channel < channels; channel++) {
+        sum += samples[index + channel];
+      }
+      music[(musicStart + musicCount) % MUSIC_CAPACITY] = (short) (sum / channels);
+      musicCount++;
+    }
+  }
+
+  @Override
+  public void update() {
+    PcmChunk block = free.poll();
+    int count = (int) ((frame + 1) * SAMPLE_RATE / FRAMES_PER_SECOND - frame * SAMPLE_RATE / FRAMES_PER_SECOND);
+    frame++;
+
+    short[] out = block == null ? null : block.getSamples();
+    for (int i = 0; i < count; i++) {
+      double sample = 0;
+      if (musicCount > 0) {
+        sample += music[musicStart] * musicVolume;
+        musicStart = (musicStart + 1) % MUSIC_CAPACITY;
+        musicCount--;
+      }
+      for (int voice = 0; voice < voiceSounds.length; voice++) {
+        Sound sound = voiceSounds[voice];
+        if (sound != null) {
+          sample += sound.getSamples()[voicePositions[voice]++] * effectsVolume;
+          if (voicePositions[voice] == sound.getSamples().length) {
+            voiceSounds[voice] = null;
+          }
+        }
+      }
+      if (out != null) {
+        out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+      }
+    }
+
+    if (block == null) {
+      droppedFrames++;
+    } else {
+      block.set(count, 1, SAMPLE_RATE);
+      mixed.offer(block);
+    }
+  }
+
+  @Override
+  public void close() {
+    closing = true;
+    try {
+      writer.join(STOP_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (droppedFrames > 0) {
+      System.err.println("Audio file writer dropped " + droppedFrames + " frames");
+    }
+
+    // Fill in the header now that the size is known
+    long dataBytes = writtenSamples * 2;
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.writeInt(0x52494646); // RIFF
+      file.writeInt(Integer.reverseBytes((int) (HEADER_BYTES - 8 + dataBytes)));
+      file.writeInt(0x57415645); // WAVE
+      file.writeInt(0x666d7420); // fmt
+      file.writeInt(Integer.reverseBytes(16));
+      file.writeShort(Short.reverseBytes((short) 1)); // PCM
+      file.writeShort(Short.reverseBytes((short) 1)); // Mono
+      file.writeInt(Integer.reverseBytes(SAMPLE_RATE));
+      file.writeInt(Integer.reverseBytes(SAMPLE_RATE * 2));
+      file.writeShort(Short.reverseBytes((short) 2));
+      file.writeShort(Short.reverseBytes((short) 16));
+      file.writeInt(0x64617461); // data
+      file.writeInt(Integer.reverseBytes((int) dataBytes));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Get the number of frames that were mixed but not written because the writer fell behind
+   * @return number of frames
+   */
+  public long getDroppedFrames() {
+    return droppedFrames;
+  }
+}
@@ -0,0 +1,101 @@
+package audio;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes music on a background thread into two reusable chunks, so one chunk can be decoded
+ * while the other is being played. The game thread polls for decoded chunks and releases them
+ * once their samples have been copied, and never waits for the decoder.
+ * The music loops by reopening the stream when it ends.
+ * @author Michael Ren
+ */
+public class MusicStreamer {
+  private static final int CHUNK_COUNT = 2;
+
+  private final ArrayBlockingQueue<PcmChunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+  private final ArrayBlockingQueue<PcmChunk> decoded = new ArrayBlockingQueue<>(CHUNK_COUNT);
+  private final Callable<PcmStream> opener;
+  private final Thread thread;
+
+  /**
+   * Start decoding music
+   * @param opener opens the music stream, called again each time the music loops
+   * @param chunkSamples number of samples in each chunk
+   */
+  public MusicStreamer(Callable<PcmStream> opener, int chunkSamples) {
+    this.opener = opener;
+    for (int i = 0; i < CHUNK_COUNT; i++) {
+      free.add(new PcmChunk(chunkSamples));
+    }
+    thread = new Thread(this::decode, "music-decoder");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Decode chunks as they are released, until the streamer is closed
+   */
+  private void decode() {
+    PcmStream stream = null;
+    try {
+      while (true) {
+        PcmChunk chunk = free.take();
+        int count = -1;
+        boolean opened = false;
+        while (count < 0) {
+          if (stream == null) {
+            if (opened) {
+              System.err.println("Music stream is empty, stopping music");
+              return;
+            }
+            stream = opener.call();
+            opened = true;
+          }
+          count = stream.read(chunk.getSamples());
+          if (count < 0) {
+            stream.close();
+            stream = null;
+          }
+        }
+        chunk.set(count, stream.getChannels(), stream.getSampleRate());
+        decoded.put(chunk);
+      }
+    } catch (InterruptedException e) {
+      // Closed
+    } catch (Exception e) {
+      e.printStackTrace();
+    } finally {
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
+  /**
+   * Take the next decoded chunk without waiting. Called from the game thread.
+   * @return the chunk, or null if none is ready
+   */
+  public PcmChunk poll() {
+    return decoded.poll();
+  }
+
+  /**
+   * Give a chunk back to be decoded into again. Called from the game thread.
+   * @param chunk a chunk returned by poll
+   */
+  public void release(PcmChunk chunk) {
+    free.offer(chunk);
+  }
+
+  /**
+   * Stop decoding
+   */
+  public void close() {
+    thread.interrupt();
+  }
+}
@@ -0,0 +1,51 @@
+package audio;
+
+/**
+ * Backend that plays nothing, for running without a sound device.
+ * Counts what would have been played, and discards music as fast as it is decoded.
+ * @author Michael Ren
+ */
+public class NullAudioBackend implements AudioBackend {
+  private final long[] playCounts = new long[Sound.values().length];
+  private long musicSamples = 0;
+
+  @Override
+  public void play(Sound sound) {
+    playCounts[sound.ordinal()]++;
+  }
+
+  @Override
+  public boolean wantsMusic() {
+    return true;
+  }
+
+  @Override
+  public void queueMusic(PcmChunk chunk) {
+    musicSamples += chunk.getCount();
+  }
+
+  @Override
+  public void update() {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Get the number of times a sound has been played
+   * @param sound the sound
+   * @return number of times played
+   */
+  public long getPlayCount(Sound sound) {
+    return playCounts[sound.ordinal()];
+  }
+
+  /**
+   * Get the number of music samples queued
+   * @return number of samples over all channels
+   */
+  public long getMusicSamples() {
+    return musicSamples;
+  }
+}
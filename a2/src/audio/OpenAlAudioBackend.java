@@ -0,0 +1,169 @@
+package audio;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALC10;
+
+/**
+ * Plays audio through OpenAL.
+ * Each sound effect is uploaded to its own buffer once, and played on a pooled source, so playing an effect
+ * only rebinds a buffer. Music plays on a separate source with two buffers: while one is playing,
+ * the other is refilled with the next decoded chunk as soon as OpenAL has finished with it.
+ * @author Michael Ren
+ */
+public class OpenAlAudioBackend implements AudioBackend {
+  private static final int MUSIC_BUFFER_COUNT = 2;
+
+  private final long device;
+  private final long context;
+  private final int[] sources;
+  private final VoicePool voices;
+  private final int[] soundBuffers = new int[Sound.values().length];
+  private final int musicSource;
+  private final int[] musicBuffers = new int[MUSIC_BUFFER_COUNT];
+  // Music buffers not queued on the music source, used as a stack
+  private final int[] freeMusicBuffers = new int[MUSIC_BUFFER_COUNT];
+  private int freeMusicCount = 0;
+  private boolean musicStarted = false;
+  private long musicUnderruns = 0;
+  private final ShortBuffer upload;
+
+  /**
+   * Open the default sound device
+   * @param voiceCount number of sources for sound effects
+   * @param effectsVolume gain of sound effects, between 0 and 1
+   * @param musicVolume gain of music, between 0 and 1
+   * @param chunkSamples largest number of samples in a music chunk
+   * @return the backend, or null if there is no sound device
+   */
+  public static OpenAlAudioBackend open(int voiceCount, float effectsVolume, float musicVolume, int chunkSamples) {
+    long device = ALC10.alcOpenDevice((ByteBuffer) null);
+    if (device == 0) {
+      return null;
+    }
+    long context = ALC10.alcCreateContext(device, (IntBuffer) null);
+    if (context == 0) {
+      ALC10.alcCloseDevice(device);
+      return null;
+    }
+    ALC10.alcMakeContextCurrent(context);
+    AL.createCapabilities(ALC.createCapabilities(device));
+    return new OpenAlAudioBackend(device, context, voiceCount, effectsVolume, musicVolume, chunkSamples);
+  }
+
+  /**
+   * Create the sources and buffers on an open device
+   * @param device the device handle
+   * @param context the current context handle
+   * @param voiceCount number of sources for sound effects
+   * @param effectsVolume gain of sound effects
+   * @param musicVolume gain of music
+   * @param chunkSamples largest number of samples in a music chunk
+   */
+  private OpenAlAudioBackend(long device, long context, int voiceCount, float effectsVolume, float musicVolume,
+      int chunkSamples) {
+    this.device = device;
+    this.context = context;
+
+    int uploadSize = chunkSamples;
+    for (Sound sound : Sound.values()) {
+      uploadSize = Math.max(uploadSize, sound.getSamples().length);
+    }
+    upload = BufferUtils.createShortBuffer(uploadSize);
+
+    for (Sound sound : Sound.values()) {
+      int buffer = AL10.alGenBuffers();
+      upload.clear();
+      upload.put(sound.getSamples()).flip();
+      AL10.alBufferData(buffer, AL10.AL_FORMAT_MONO16, upload, Sound.SAMPLE_RATE);
+      soundBuffers[sound.ordinal()] = buffer;
+    }
+
+    sources = new int[voiceCount];
+    for (int i = 0; i < voiceCount; i++) {
+      sources[i] = AL10.alGenSources();
+      AL10.alSourcef(sources[i], AL10.AL_GAIN, effectsVolume);
+    }
+    voices = new VoicePool(voiceCount, voice -> AL10.alGetSourcei(sources[voice], AL10.AL_SOURCE_STATE) == AL10.AL_PLAYING);
+
+    musicSource = AL10.alGenSources();
+    AL10.alSourcef(musicSource, AL10.AL_GAIN, musicVolume);
+    for (int i = 0; i < MUSIC_BUFFER_COUNT; i++) {
+      musicBuffers[i] = AL10.alGenBuffers();
+      freeMusicBuffers[freeMusicCount++] = musicBuffers[i];
+    }
+  }
+
+  @Override
+  public void play(Sound sound) {
+    int source = sources[voices.acquire()];
+    AL10.alSourceStop(source);
+    AL10.alSourcei(source, AL10.AL_BUFFER, soundBuffers[sound.ordinal()]);
+    AL10.alSourcePlay(source);
+  }
+
+  @Override
+  public boolean wantsMusic() {
+    return freeMusicCount > 0;
+  }
+
+  @Override
+  public void queueMusic(PcmChunk chunk) {
+    int buffer = freeMusicBuffers[--freeMusicCount];
+    upload.clear();
+    upload.put(chunk.getSamples(), 0, chunk.getCount()).flip();
+    int format = chunk.getChannels() == 2 ? AL10.AL_FORMAT_STEREO16 : AL10.AL_FORMAT_MONO16;
+    AL10.alBufferData(buffer, format, upload, chunk.getSampleRate());
+    AL10.alSourceQueueBuffers(musicSource, buffer);
+
+    // The source stops by itself if it runs out of queued music, so restart it
+    if (AL10.alGetSourcei(musicSource, AL10.AL_SOURCE_STATE) != AL10.AL_PLAYING) {
+      if (musicStarted) {
+        musicUnderruns++;
+      }
+      musicStarted = true;
+      AL10.alSourcePlay(musicSource);
+    }
+  }
+
+  @Override
+  public void update() {
+    // Reclaim music buffers that have finished playing
+    int processed = AL10.alGetSourcei(musicSource, AL10.AL_BUFFERS_PROCESSED);
+    for (int i = 0; i < processed; i++) {
+      freeMusicBuffers[freeMusicCount++] = AL10.alSourceUnqueueBuffers(musicSource);
+    }
+  }
+
+  @Override
+  public void close() {
+    AL10.alSourceStop(musicSource);
+    AL10.alDeleteSources(musicSource);
+    for (int source : sources) {
+      AL10.alSourceStop(source);
+      AL10.alDeleteSources(source);
+    }
+    for (int buffer : musicBuffers) {
+      AL10.alDeleteBuffers(buffer);
+    }
+    for (int buffer : soundBuffers) {
+      AL10.alDeleteBuffers(buffer);
+    }
+    ALC10.alcMakeContextCurrent(0);
+    ALC10.alcDestroyContext(context);
+    ALC10.alcCloseDevice(device);
+  }
+
+  /**
+   * Get the number of times the music ran out before the next chunk was queued
+   * @return number of underruns
+   */
+  public long getMusicUnderruns() {
+    return musicUnderruns;
+  }
+}
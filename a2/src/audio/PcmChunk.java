@@ -0,0 +1,64 @@
+package audio;
+
+/**
+ * A reusable chunk of decoded music, passed from the decoder thread to the game thread and back
+ * @author Michael Ren
+ */
+public class PcmChunk {
+  private final short[] samples;
+  private int count = 0;
+  private int channels = 1;
+  private int sampleRate = Sound.SAMPLE_RATE;
+
+  /**
+   * Create an empty chunk
+   * @param capacity largest number of samples the chunk can hold
+   */
+  public PcmChunk(int capacity) {
+    samples = new short[capacity];
+  }
+
+  /**
+   * Get the sample array, of which the first getCount samples are valid
+   * @return interleaved 16-bit samples
+   */
+  public short[] getSamples() {
+    return samples;
+  }
+
+  /**
+   * Get the number of valid samples
+   * @return number of samples over all channels
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Get the number of interleaved channels
+   * @return 1 for mono, 2 for stereo
+   */
+  public int getChannels() {
+    return channels;
+  }
+
+  /**
+   * Get the number of samples per second for each channel
+   * @return sample rate in Hz
+   */
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Describe the samples held in the chunk
+   * @param count number of valid samples
+   * @param channels number of interleaved channels
+   * @param sampleRate sample rate in Hz
+   */
+  void set(int count, int channels, int sampleRate) {
+    this.count = count;
+    this.channels = channels;
+    this.sampleRate = sampleRate;
+  }
+}
@@ -0,0 +1,30 @@
+package audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of decoded 16-bit PCM samples, read a chunk at a time
+ * @author Michael Ren
+ */
+public interface PcmStream extends Closeable {
+  /**
+   * Get the number of samples per second for each channel
+   * @return sample rate in Hz
+   */
+  public int getSampleRate();
+
+  /**
+   * Get the number of interleaved channels
+   * @return 1 for mono, 2 for stereo
+   */
+  public int getChannels();
+
+  /**
+   * Decode the next samples
+   * @param buffer array to decode into
+   * @return number of samples decoded, or -1 at the end of the stream
+   * @throws IOException if the stream could not be read
+   */
+  public int read(short[] buffer) throws IOException;
+}
@@ -0,0 +1,55 @@
+package audio;
+
+import java.util.Random;
+
+/**
+ * Sound effects played by the game.
+ * There are no sound assets, so each effect is synthesized once as a short 16-bit mono tone sweeping
+ * from one frequency to another, or as noise, with a linear fade out.
+ * @author Michael Ren
+ */
+public enum Sound {
+  COIN(988, 1976, 120, false),
+  JUMP(220, 660, 150, false),
+  SHOOT(880, 220, 120, false),
+  DAMAGE(0, 0, 200, true),
+  BOSS_DEATH(440, 55, 800, false);
+
+  public static final int SAMPLE_RATE = 22050;
+  private static final double AMPLITUDE = 0.3 * Short.MAX_VALUE;
+  private static final long NOISE_SEED = 42;
+
+  private final short[] samples;
+
+  /**
+   * Synthesize a sound effect
+   * @param startHz frequency at the start of the sound
+   * @param endHz frequency at the end of the sound
+   * @param millis length of the sound
+   * @param noise true for noise instead of a square wave
+   */
+  Sound(double startHz, double endHz, int millis, boolean noise) {
+    samples = new short[SAMPLE_RATE * millis / 1000];
+    Random random = new Random(NOISE_SEED);
+    double phase = 0;
+    for (int i = 0; i < samples.length; i++) {
+      double t = (double) i / samples.length;
+      double wave;
+      if (noise) {
+        wave = random.nextDouble() * 2 - 1;
+      } else {
+        phase += (startHz + (endHz - startHz) * t) / SAMPLE_RATE;
+        wave = phase % 1 < 0.5 ? 1 : -1;
+      }
+      samples[i] = (short) (wave * AMPLITUDE * (1 - t));
+    }
+  }
+
+  /**
+   * Get the sound's samples at SAMPLE_RATE. The array is shared and must not be modified.
+   * @return mono 16-bit samples
+   */
+  public short[] getSamples() {
+    return samples;
+  }
+}
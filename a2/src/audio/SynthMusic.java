@@ -0,0 +1,65 @@
+package audio;
+
+/**
+ * A short synthesized theme that loops forever, played when no music file is set in app.properties.
+ * Generated a chunk at a time like any other stream, so it exercises the same streaming path as a file.
+ * @author Michael Ren
+ */
+public class SynthMusic implements PcmStream {
+  private static final int SAMPLE_RATE = Sound.SAMPLE_RATE;
+  private static final int SAMPLES_PER_NOTE = SAMPLE_RATE / 6;
+  private static final double AMPLITUDE = 0.15 * Short.MAX_VALUE;
+  // MIDI note numbers, 0 is a rest
+  private static final int[] MELODY = {
+    76, 76, 0, 76, 0, 72, 76, 0, 79, 0, 0, 0, 67, 0, 0, 0,
+    72, 0, 0, 67, 0, 0, 64, 0, 0, 69, 0, 71, 0, 70, 69, 0,
+  };
+  private static final int[] BASS = {48, 48, 43, 43, 48, 48, 43, 43};
+
+  private long position = 0;
+  private double melodyPhase = 0;
+  private double bassPhase = 0;
+
+  /**
+   * Get the frequency of a MIDI note
+   * @param note the note number
+   * @return frequency in Hz
+   */
+  private static double frequency(int note) {
+    return 440 * Math.pow(2, (note - 69) / 12.0);
+  }
+
+  @Override
+  public int getSampleRate() {
+    return SAMPLE_RATE;
+  }
+
+  @Override
+  public int getChannels() {
+    return 1;
+  }
+
+  @Override
+  public int read(short[] buffer) {
+    for (int i = 0; i < buffer.length; i++, position++) {
+      int step = (int) (position / SAMPLES_PER_NOTE);
+      double t = (double) (position % SAMPLES_PER_NOTE) / SAMPLES_PER_NOTE;
+
+      double sample = 0;
+      int note = MELODY[step % MELODY.length];
+      if (note != 0) {
+        melodyPhase = (melodyPhase + frequency(note) / SAMPLE_RATE) % 1;
+        sample += (melodyPhase < 0.5 ? 1 : -1) * (1 - t);
+      }
+      bassPhase = (bassPhase + frequency(BASS[step / 4 % BASS.length]) / SAMPLE_RATE) % 1;
+      sample += (4 * Math.abs(bassPhase - 0.5) - 1) * 0.8;
+
+      buffer[i] = (short) (sample * AMPLITUDE);
+    }
+    return buffer.length;
+  }
+
+  @Override
+  public void close() {
+  }
+}
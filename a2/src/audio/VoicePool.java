@@ -0,0 +1,52 @@
+package audio;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Chooses which of a fixed set of voices plays the next sound effect.
+ * A voice that has finished playing is reused first; if every voice is busy,
+ * the one that started longest ago is cut off, since it is the closest to finishing.
+ * @author Michael Ren
+ */
+public class VoicePool {
+  private final long[] startOrder;
+  private final IntPredicate isPlaying;
+  private long started = 0;
+
+  /**
+   * Create a new pool
+   * @param size number of voices
+   * @param isPlaying checks if a voice is still playing
+   */
+  public VoicePool(int size, IntPredicate isPlaying) {
+    startOrder = new long[size];
+    this.isPlaying = isPlaying;
+  }
+
+  /**
+   * Choose a voice for a new sound, and mark it as the most recently started
+   * @return the voice index
+   */
+  public int acquire() {
+    int voice = 0;
+    for (int i = 0; i < startOrder.length; i++) {
+      if (!isPlaying.test(i)) {
+        voice = i;
+        break;
+      }
+      if (startOrder[i] < startOrder[voice]) {
+        voice = i;
+      }
+    }
+    startOrder[voice] = ++started;
+    return voice;
+  }
+
+  /**
+   * Get the number of voices
+   * @return number of voices
+   */
+  public int size() {
+    return startOrder.length;
+  }
+}
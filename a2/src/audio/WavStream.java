@@ -0,0 +1,163 @@
+package audio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams 16-bit PCM samples from a WAV file, reading only as much of the file as each chunk needs
+ * @author Michael Ren
+ */
+public class WavStream implements PcmStream {
+  // Chunk tags as big endian ints
+  private static final int RIFF = 0x52494646;
+  private static final int WAVE = 0x57415645;
+  private static final int FMT = 0x666d7420;
+  private static final int DATA = 0x64617461;
+  private static final int FORMAT_PCM = 1;
+  private static final int BITS_PER_SAMPLE = 16;
+
+  private final DataInputStream in;
+  private final int sampleRate;
+  private final int channels;
+  private final byte[] bytes;
+  private long remainingBytes;
+
+  /**
+   * Open a WAV file and read its header
+   * @param path the file
+   * @param chunkSamples largest number of samples read at once
+   * @throws IOException if the file could not be read or is not mono or stereo 16-bit PCM
+   */
+  public WavStream(Path path, int chunkSamples) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+    bytes = new byte[chunkSamples * 2];
+    try {
+      if (readTag() != RIFF) {
+        throw new IOException("Not a WAV file: " + path);
+      }
+      readIntLE(); // File size
+      if (readTag() != WAVE) {
+        throw new IOException("Not a WAV file: " + path);
+      }
+
+      // Skip chunks until the data, reading the format on the way
+      int format = 0;
+      int rate = 0;
+      int channelCount = 0;
+      int bits = 0;
+      while (true) {
+        int tag = readTag();
+        long size = readIntLE() & 0xFFFFFFFFL;
+        if (tag == FMT) {
+          format = readShortLE();
+          channelCount = readShortLE();
+          rate = readIntLE();
+          skip(6);
+          bits = readShortLE();
+          skip(size - 16 + (size & 1));
+        } else if (tag == DATA) {
+          remainingBytes = size;
+          break;
+        } else {
+          skip(size + (size & 1));
+        }
+      }
+      if (format != FORMAT_PCM || bits != BITS_PER_SAMPLE || channelCount < 1 || channelCount > 2) {
+        throw new IOException("Only mono or stereo 16-bit PCM WAV files are supported: " + path);
+      }
+      sampleRate = rate;
+      channels = channelCount;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Read a four character tag
+   * @return the tag as a big endian int
+   * @throws IOException if the file could not be read
+   */
+  private int readTag() throws IOException {
+    return in.readInt();
+  }
+
+  /**
+   * Skip bytes in the file
+   * @param count number of bytes to skip
+   * @throws IOException if the file ends first
+   */
+  private void skip(long count) throws IOException {
+    while (count > 0) {
+      long skipped = in.skip(count);
+      if (skipped <= 0) {
+        if (in.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      count -= skipped;
+    }
+  }
+
+  /**
+   * Read a little endian int
+   * @return the value
+   * @throws IOException if the file could not be read
+   */
+  private int readIntLE() throws IOException {
+    return Integer.reverseBytes(in.readInt());
+  }
+
+  /**
+   * Read a little endian unsigned short
+   * @return the value
+   * @throws IOException if the file could not be read
+   */
+  private int readShortLE() throws IOException {
+    return Short.toUnsignedInt(Short.reverseBytes(in.readShort()));
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public int getChannels() {
+    return channels;
+  }
+
+  @Override
+  public int read(short[] buffer) throws IOException {
+    if (remainingBytes <= 0) {
+      return -1;
+    }
+    int length = (int) Math.min(Math.min(buffer.length, bytes.length / 2) * 2L, remainingBytes);
+    length -= length % (2 * channels);
+    if (length == 0) {
+      return -1;
+    }
+    try {
+      in.readFully(bytes, 0, length);
+    } catch (EOFException e) {
+      // Truncated file, treat as the end of the stream
+      remainingBytes = 0;
+      return -1;
+    }
+    remainingBytes -= length;
+    for (int i = 0; i < length / 2; i++) {
+      buffer[i] = (short) ((bytes[2 * i] & 0xFF) | (bytes[2 * i + 1] << 8));
+    }
+    return length / 2;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -1,6 +1,6 @@
 package camera;
 
-import bagel.Window;
+import utils.PropertiesLoader;
 
 /**
  * Camera class to represent the camera in the game.
@@ -9,8 +9,9 @@ import bagel.Window;
  * @author Michael Ren
  */
 public class Camera {
-  private static final double width = Window.getWidth();
-  private static final double height = Window.getHeight();
+  // Read from app.properties rather than the window, so levels can also be simulated and rendered without one
+  private static final double width = Double.parseDouble(PropertiesLoader.getGameProperty("windowWidth"));
+  private static final double height = Double.parseDouble(PropertiesLoader.getGameProperty("windowHeight"));
   private double x;
   private double y;
   private boolean useBoundary = false;
@@ -62,6 +63,17 @@ public class Camera {
     }
   }
 
+  /**
+   * Check if a horizontal span is within a margin of the camera's view
+   * @param x x position of the centre of the span
+   * @param halfWidth half the width of the span
+   * @param margin distance outside the view that still counts, 0 for the view itself
+   * @return true if the span overlaps the view expanded by the margin
+   */
+  public boolean isNear(double x, double halfWidth, double margin) {
+    return x + halfWidth >= this.x - margin && x - halfWidth <= this.x + width + margin;
+  }
+
   /**
    * Get the y position of the camera
    * @return y position
@@ -1,8 +1,9 @@
 package collectable;
 
-import bagel.Input;
 import camera.Camera;
+import core.ObjectType;
 import entity.Player;
+import input.KeyState;
 import utils.PropertiesLoader;
 
 /**
@@ -14,6 +15,7 @@ public class Coin extends Item {
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.coin.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.coin.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.coin.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
 
   /**
    * Create a new coin
@@ -21,7 +23,7 @@ public class Coin extends Item {
    * @param y y position
    */
   public Coin(double x, double y) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
   }
 
   /**
@@ -30,7 +32,7 @@ public class Coin extends Item {
    * @param camera camera object
    */
   @Override
-  public void update(Input input, Camera camera) {
+  public void update(KeyState input, Camera camera) {
     super.update(input, camera);
   }
 
@@ -1,5 +1,6 @@
 package collectable;
 
+import core.ObjectType;
 import entity.Player;
 import utils.PropertiesLoader;
 
@@ -13,6 +14,7 @@ public class DoubleScorePowerUp extends Item {
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.doubleScore.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.doubleScore.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.doubleScore.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
 
   /**
    * Create a new double score power up item
@@ -20,7 +22,7 @@ public class DoubleScorePowerUp extends Item {
    * @param y y position
    */
   public DoubleScorePowerUp(double x, double y) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
   }
 
   /**
@@ -1,5 +1,6 @@
 package collectable;
 
+import core.ObjectType;
 import entity.Player;
 import utils.PropertiesLoader;
 
@@ -14,6 +15,7 @@ public class InvinciblePowerUp extends Item {
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.invinciblePower.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.invinciblePower.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.invinciblePower.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
 
   /**
    * Create a new invincible power up item
@@ -21,7 +23,7 @@ public class InvinciblePowerUp extends Item {
    * @param y y position
    */
   public InvinciblePowerUp(double x, double y) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
   }
 
   /**
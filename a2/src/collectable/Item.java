@@ -1,40 +1,54 @@
 package collectable;
 
-import bagel.Input;
-import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
 import entity.Player;
+import event.EventType;
+import level.Level;
+import save.StateReader;
+import save.StateWriter;
+import tween.Animated;
+import tween.Easing;
+import utils.PropertiesLoader;
 
 /**
  * Item represents a class of game objects that can be collected by the player,
  * and provides a animation when collected.
+ * The animation runs on the level's tween engine, and its speed and easing are set in app.properties.
  * @author Michael Ren
  */
-public abstract class Item extends GameObject implements Collectable<Player> {
-  private int COLLECT_ANIMATION_SPEED = 10; // As specified in project specs
+public abstract class Item extends GameObject implements Collectable<Player>, Animated {
+  // Average pixels per tick, 10 as specified in project specs
+  private static final double COLLECT_ANIMATION_SPEED =
+      Double.parseDouble(PropertiesLoader.getGameProperty("animation.collect.speed"));
+  private static final Easing COLLECT_ANIMATION_EASING =
+      Easing.valueOf(PropertiesLoader.getGameProperty("animation.collect.easing"));
   private boolean isConsumed = false;
+  // First tick of the collect animation, or -1 if the item has not been collected
+  private long collectTick = -1;
+  private double collectY;
 
   /**
    * Create a new item
    * @param x x position
    * @param y y position
-   * @param radius radius of the item
-   * @param speed scroll speed
-   * @param imageSrc image file path
+   * @param type the item type
    */
-  public Item(double x, double y, double radius, double speed, String imageSrc) {
-    super(x, y, radius, speed, imageSrc);
+  public Item(double x, double y, ObjectType type) {
+    super(x, y, type);
   }
 
   /**
-   * Animate item position when collected.
-   * Flag item for deletion when it goes off screen.
+   * Animate item position when collected, from where it was collected to off the top of the screen.
+   * Remove the item from the level when it goes off screen.
+   * @param level the level, whose tween engine runs the animation
+   * @param passed ticks of the animation already passed
    */
-  private void collectAnimation() {
-    if (getY() + getHeight() < 0)
-      setCanRemove(true);
-    else
-      setY(getY() - COLLECT_ANIMATION_SPEED);
+  private void startCollectAnimation(Level level, int passed) {
+    double end = -getHeight();
+    int ticks = (int) Math.ceil((collectY - end) / COLLECT_ANIMATION_SPEED);
+    level.getTweens().start(this, Y, collectY, end, ticks, passed, COLLECT_ANIMATION_EASING,
+      () -> level.removeGameObject(this));
   }
 
   /**
@@ -44,6 +58,11 @@ public abstract class Item extends GameObject implements Collectable<Player> {
   @Override
   public void collect(Player player) {
     isConsumed = true;
+    Level level = player.getLevel();
+    collectTick = level.getTweens().getTick();
+    collectY = getY();
+    startCollectAnimation(level, 0);
+    player.getLevel().getEventBus().publish(EventType.PICKUP, getClass(), getX(), getY(), 0);
   }
 
   /**
@@ -60,15 +79,37 @@ public abstract class Item extends GameObject implements Collectable<Player> {
   }
 
   /**
-   * Update the item's position and animation
-   * @param input user input
-   * @param camera camera object
+   * Write the item's state
+   * @param out the state writer
    */
   @Override
-  public void update(Input input, Camera camera) {
-    super.update(input, camera);
-    if (isConsumed) {
-      collectAnimation();
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeBoolean(isConsumed);
+    out.writeLong(collectTick);
+    out.writeDouble(collectY);
+  }
+
+  /**
+   * Restore the item's state
+   * @param in the state reader
+   */
+  @Override
+  public void readState(StateReader in) {
+    super.readState(in);
+    isConsumed = in.readBoolean();
+    collectTick = in.readLong();
+    collectY = in.readDouble();
+  }
+
+  /**
+   * Continue the collect animation if the item was part way through it
+   * @param level the level
+   */
+  @Override
+  public void restoreTweens(Level level) {
+    if (isConsumed && !getCanRemove() && collectTick >= 0) {
+      startCollectAnimation(level, (int) (level.getTweens().getTick() - collectTick));
     }
   }
 }
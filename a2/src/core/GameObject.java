@@ -1,47 +1,52 @@
 package core;
-import bagel.Image;
-import bagel.Input;
 import bagel.util.Point;
 import camera.Camera;
+import input.KeyState;
+import save.StateReader;
+import save.StateWriter;
+import texture.Texture;
+import texture.TextureCache;
+import tween.TweenTarget;
 
 /**
  * Base class for all game objects in the game.
  * Handles collision detection and resolution
  * @author Michael Ren
  */
-public abstract class GameObject {
-  private final double RADIUS;
-  private final double SPEED;
-  private Image IMAGE = null;
+public abstract class GameObject implements TweenTarget {
+  // Skip drawing objects outside the camera's view, can be turned off to compare frame times
+  private static volatile boolean cullingEnabled = true;
+  private final ObjectType type;
   private double x;
   private double y;
   private boolean canRemove = false;
 
   /**
-   * Create a new game object without an image
+   * Create a new game object
    * @param x x position
    * @param y y position
-   * @param radius radius of the object, -1 if radius is not specified
-   * @param speed speed of the object for camera movement
+   * @param type the constant properties shared by objects of this type
    */
-  public GameObject(double x, double y, double radius, double speed) {
+  public GameObject(double x, double y, ObjectType type) {
     this.x = x;
     this.y = y;
-    this.RADIUS = radius;
-    this.SPEED = speed;
+    this.type = type;
   }
 
   /**
-   * Create a new game object with an image
-   * @param x x position
-   * @param y y position
-   * @param radius radius of the object, -1 if radius is not specified
-   * @param speed speed of the object for camera movement
-   * @param imageSrc image file path
+   * Check if objects outside the camera's view are skipped when drawing
+   * @return true if culling is enabled
+   */
+  public static boolean isCullingEnabled() {
+    return cullingEnabled;
+  }
+
+  /**
+   * Turn culling of objects outside the camera's view on or off
+   * @param enabled true to skip drawing objects outside the view
    */
-  public GameObject(double x, double y, double radius, double speed, String imageSrc) {
-    this(x, y, radius, speed);
-    this.IMAGE = new Image(imageSrc);
+  public static void setCullingEnabled(boolean enabled) {
+    cullingEnabled = enabled;
   }
 
   /**
@@ -52,14 +57,24 @@ public abstract class GameObject {
   private boolean collideRect(GameObject object) {
     double w1 = getWidth();
     double h1 = getHeight();
-    double x1 = getX() - w1 / 2;
-    double y1 = getY() - h1 / 2;
-    
     double w2 = object.getWidth();
     double h2 = object.getHeight();
-    double x2 = object.getX() - w2 / 2;
-    double y2 = object.getY() - h2 / 2;
+    return collideRect(getX() - w1 / 2, getY() - h1 / 2, w1, h1, object.getX() - w2 / 2, object.getY() - h2 / 2, w2, h2);
+  }
 
+  /**
+   * Calculate collision between two rectangles given by their top left corners and sizes
+   * @param x1 left edge of the first rectangle
+   * @param y1 top edge of the first rectangle
+   * @param w1 width of the first rectangle
+   * @param h1 height of the first rectangle
+   * @param x2 left edge of the second rectangle
+   * @param y2 top edge of the second rectangle
+   * @param w2 width of the second rectangle
+   * @param h2 height of the second rectangle
+   * @return true if there is a collision, false otherwise
+   */
+  public static boolean collideRect(double x1, double y1, double w1, double h1, double x2, double y2, double w2, double h2) {
     return (((x1 <= x2 && x1 + w1 >= x2) || (x1 <= x2 + w2 && x1 + w1 >= x2 + w2) || (x1 <= x2 && x1 + w1 >= x2 + w2)) &&
         ((y1 <= y2 && y1 + h1 >= y2) || (y1 <= y2 + h2 && y1 + h1 >= y2 + h2) || (y1 >= y2 && y1 + h1 <= y2 + h2) || (y2 >= y1 && y2 + h2 <= y1 + h1)));
   }
@@ -102,12 +117,56 @@ public abstract class GameObject {
 
   /**
    * Draw the game object
+   * @param camera the camera object
+   */
+  public void draw(Camera camera) {
+    if (type.getImage() != null)
+      drawTexture(type.getImage(), camera);
+  }
+
+  /**
+   * Draw a texture at the object's position if it is on screen.
+   * If it is only within the prefetch margin, the texture is requested so it is loaded before it scrolls into view.
+   * @param texture the texture to draw
+   * @param camera the camera object
+   */
+  protected void drawTexture(Texture texture, Camera camera) {
+    double halfWidth = texture.getWidth() / 2;
+    if (!cullingEnabled || camera.isNear(x, halfWidth, 0)) {
+      texture.draw(x - camera.getX(), y - camera.getY());
+    } else if (camera.isNear(x, halfWidth, TextureCache.getPrefetchMargin())) {
+      texture.request();
+    }
+  }
+
+  /**
+   * Update the game object, which draws it by default
    * @param input user input
    * @param camera the camera object
    */
-  public void update(Input input, Camera camera) {
-    if (IMAGE != null)
-      IMAGE.draw(x - camera.getX(), y - camera.getY());
+  public void update(KeyState input, Camera camera) {
+    draw(camera);
+  }
+
+  /**
+   * Write the object's mutable state, so it can be saved and restored later.
+   * Subclasses with extra state override this and call super first.
+   * @param out the state writer
+   */
+  public void writeState(StateWriter out) {
+    out.writeDouble(x);
+    out.writeDouble(y);
+    out.writeBoolean(canRemove);
+  }
+
+  /**
+   * Restore state written by writeState, in the same order it was written
+   * @param in the state reader
+   */
+  public void readState(StateReader in) {
+    x = in.readDouble();
+    y = in.readDouble();
+    canRemove = in.readBoolean();
   }
 
   /**
@@ -142,12 +201,26 @@ public abstract class GameObject {
     this.y = y;
   }
 
+  /**
+   * Set the x or y position to a tween's current value
+   * @param property TweenTarget.X or TweenTarget.Y
+   * @param value new position
+   */
+  @Override
+  public void applyTween(int property, double value) {
+    if (property == X) {
+      setX(value);
+    } else {
+      setY(value);
+    }
+  }
+
   /**
    * Get the width of the game object (based on image width)
    * @return width in pixels
    */
   public double getWidth() {
-    return IMAGE.getWidth();
+    return type.getImage().getWidth();
   }
 
   /**
@@ -155,7 +228,23 @@ public abstract class GameObject {
    * @return height in pixels
    */
   public double getHeight() {
-    return IMAGE.getHeight();
+    return type.getImage().getHeight();
+  }
+
+  /**
+   * Get the x position the object stays near, used to find objects near the camera
+   * @return x position
+   */
+  public double getAnchorX() {
+    return x;
+  }
+
+  /**
+   * Get the furthest the object can move horizontally from its anchor
+   * @return distance in pixels, 0 for objects that do not move horizontally
+   */
+  public double getReach() {
+    return 0;
   }
 
   /**
@@ -163,7 +252,7 @@ public abstract class GameObject {
    * @return radius as a double
    */
   public double getRadius() {
-    return RADIUS;
+    return type.getRadius();
   }
 
   /**
@@ -171,7 +260,15 @@ public abstract class GameObject {
    * @return speed as a double
    */
   public double getSpeed() {
-    return SPEED;
+    return type.getSpeed();
+  }
+
+  /**
+   * Get the constant properties shared by objects of this type
+   * @return the object type
+   */
+  public ObjectType getType() {
+    return type;
   }
 
   /**
@@ -0,0 +1,83 @@
+package core;
+
+import texture.Texture;
+import texture.TextureCache;
+
+/**
+ * Constant properties shared by every game object of one type.
+ * Each game object class creates one of these, so instances only store their mutable state.
+ * @author Michael Ren
+ */
+public final class ObjectType {
+  private final double radius;
+  private final double speed;
+  private final Texture image;
+  private final Texture leftImage;
+  private final Texture rightImage;
+
+  /**
+   * Create a type with a single image
+   * @param radius radius of the object, -1 to use rect based collision
+   * @param speed speed of the object for camera movement
+   * @param imageSrc image file path
+   */
+  public ObjectType(double radius, double speed, String imageSrc) {
+    this(radius, speed, imageSrc, imageSrc);
+  }
+
+  /**
+   * Create a type with images for facing left and right.
+   * The left image is used for size if there is one, otherwise the right image.
+   * @param radius radius of the object, -1 to use rect based collision
+   * @param speed speed of the object for camera movement
+   * @param leftImageSrc image file path when facing left, or null
+   * @param rightImageSrc image file path when facing right, or null
+   */
+  public ObjectType(double radius, double speed, String leftImageSrc, String rightImageSrc) {
+    this.radius = radius;
+    this.speed = speed;
+    leftImage = leftImageSrc == null ? null : TextureCache.get(leftImageSrc);
+    rightImage = rightImageSrc == null ? null : TextureCache.get(rightImageSrc);
+    image = leftImage != null ? leftImage : rightImage;
+  }
+
+  /**
+   * Get the radius
+   * @return radius, -1 if rect based collision is used
+   */
+  public double getRadius() {
+    return radius;
+  }
+
+  /**
+   * Get the speed for camera movement
+   * @return speed as a double
+   */
+  public double getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Get the image used for drawing and size
+   * @return the texture
+   */
+  public Texture getImage() {
+    return image;
+  }
+
+  /**
+   * Get the image used when facing left
+   * @return the texture, or null
+   */
+  public Texture getLeftImage() {
+    return leftImage;
+  }
+
+  /**
+   * Get the image used when facing right
+   * @return the texture, or null
+   */
+  public Texture getRightImage() {
+    return rightImage;
+  }
+}
@@ -0,0 +1,176 @@
+package core;
+
+import camera.Camera;
+import input.KeyState;
+import save.StateReader;
+import save.StateWriter;
+import utils.GameRandom;
+
+/**
+ * A game object that moves back and forth around its starting position,
+ * changing direction once it passes the maximum displacement.
+ * The movement only depends on the number of ticks, so an object that slept while far from the camera
+ * can be caught up in one step. Positions are always computed from the phase of the patrol,
+ * so catching up gives exactly the same result as stepping every tick.
+ * @author Michael Ren
+ */
+public abstract class PatrollingObject extends GameObject {
+  private double initialX;
+  private int direction;
+  private long tick = 0;
+
+  /**
+   * Create a new patrolling object, starting in a random direction
+   * @param x x position
+   * @param y y position
+   * @param type the constant properties shared by objects of this type
+   * @param random the level's random numbers, which choose the starting direction
+   */
+  public PatrollingObject(double x, double y, ObjectType type, GameRandom random) {
+    super(x, y, type);
+    initialX = x;
+    direction = random.nextBoolean() ? 1 : -1;
+  }
+
+  /**
+   * Get the distance moved per tick
+   * @return speed in pixels per tick
+   */
+  protected abstract double getPatrolSpeed();
+
+  /**
+   * Get the displacement after which the object turns around
+   * @return maximum displacement in pixels
+   */
+  protected abstract double getPatrolRange();
+
+  /**
+   * Get the number of steps from the leftmost turning point to the rightmost one.
+   * The object turns on the first step past the range, so the turning points are one step past it.
+   * @return number of steps, always even
+   */
+  private long getStepsPerSide() {
+    return 2 * ((long) Math.floor(getPatrolRange() / getPatrolSpeed()) + 1);
+  }
+
+  /**
+   * Get the patrol phase a number of ticks from now.
+   * The patrol is a cycle of 2n phases: phase i in [0, n) is step i from the left turning point moving right,
+   * and phase n + i is step n - i moving left.
+   * @param ticks number of ticks ahead
+   * @return the phase
+   */
+  private long getPhaseAfter(long ticks) {
+    long steps = getStepsPerSide();
+    long half = steps / 2;
+
+    // Find the current phase, clamping positions that are off the patrol
+    long step = Math.max(0, Math.min(steps, Math.round((getX() - initialX) / getPatrolSpeed()) + half));
+    long phase = direction > 0 ? step : (2 * steps - step) % (2 * steps);
+    return (phase + ticks) % (2 * steps);
+  }
+
+  /**
+   * Get the x position at a patrol phase
+   * @param phase the phase
+   * @return x position
+   */
+  private double getPhaseX(long phase) {
+    long steps = getStepsPerSide();
+    long step = phase < steps ? phase : 2 * steps - phase;
+    return initialX + (step - steps / 2) * getPatrolSpeed();
+  }
+
+  /**
+   * Move the object forward by a number of ticks
+   * @param ticks number of ticks to move
+   */
+  private void advance(long ticks) {
+    long phase = getPhaseAfter(ticks);
+    direction = phase < getStepsPerSide() ? 1 : -1;
+    setX(getPhaseX(phase));
+    tick += ticks;
+  }
+
+  /**
+   * Get where the object is at a level tick, without moving it.
+   * A sleeping object is still where it fell asleep, but this is where it will be once caught up.
+   * @param tick the level tick
+   * @return x position
+   */
+  public double getXAt(long tick) {
+    return tick > this.tick ? getPhaseX(getPhaseAfter(tick - this.tick)) : getX();
+  }
+
+  /**
+   * Bring the object up to date after sleeping
+   * @param tick the level tick the object should be at
+   */
+  public void catchUp(long tick) {
+    if (tick > this.tick) {
+      advance(tick - this.tick);
+    }
+  }
+
+  /**
+   * Set the level tick the object is at, without moving it.
+   * Used when an object joins a level that has already started.
+   * @param tick the level tick
+   */
+  public void setTick(long tick) {
+    this.tick = tick;
+  }
+
+  /**
+   * Draw the object, then move it one tick along its patrol
+   * @param input user input
+   * @param camera camera object
+   */
+  @Override
+  public void update(KeyState input, Camera camera) {
+    super.update(input, camera);
+    advance(1);
+  }
+
+  /**
+   * Write the patrol state
+   * @param out the state writer
+   */
+  @Override
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeDouble(initialX);
+    out.writeByte(direction);
+    out.writeLong(tick);
+  }
+
+  /**
+   * Restore the patrol state
+   * @param in the state reader
+   */
+  @Override
+  public void readState(StateReader in) {
+    super.readState(in);
+    initialX = in.readDouble();
+    direction = in.readByte();
+    tick = in.readLong();
+  }
+
+  /**
+   * Get the starting position, which the object never moves far from
+   * @return x position
+   */
+  @Override
+  public double getAnchorX() {
+    return initialX;
+  }
+
+  /**
+   * Get the furthest the object can move from its starting position
+   * @return distance in pixels
+   */
+  @Override
+  public double getReach() {
+    return getStepsPerSide() / 2 * getPatrolSpeed();
+  }
+}
@@ -0,0 +1,448 @@
+package ecs;
+
+import java.util.Arrays;
+import save.StateReader;
+import save.StateWriter;
+
+/**
+ * An archetype stores every entity that has exactly the same set of components.
+ * Component data is kept in parallel primitive arrays (one column per field),
+ * so systems iterate over contiguous memory instead of following object references.
+ * Columns of components that are not part of the archetype are left null.
+ * @author Michael Ren
+ */
+public class Archetype {
+  // Timer slots, each row with a TIMER component has TIMER_SLOTS ints
+  public static final int TIMER_SLOTS = 3;
+  public static final int TIMER_DOUBLE_SCORE = 0;
+  public static final int TIMER_INVINCIBLE = 1;
+  public static final int TIMER_SHOOT = 2;
+
+  // Per row flag bits
+  public static final byte FLAG_REMOVED = 1;
+  public static final byte FLAG_FACING_LEFT = 1 << 1;
+  public static final byte FLAG_ON_PLATFORM = 1 << 2;
+  public static final byte FLAG_CONSUMED = 1 << 3;
+  public static final byte FLAG_CAN_DAMAGE = 1 << 4;
+  public static final byte FLAG_FROM_PLAYER = 1 << 5;
+
+  // Contact bits written by the collision system
+  public static final byte CONTACT_PLAYER = 1;
+  public static final byte CONTACT_BOSS = 1 << 1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  final int mask;
+  int size = 0;
+  private int capacity = INITIAL_CAPACITY;
+
+  // Always present
+  byte[] kind = new byte[INITIAL_CAPACITY];
+  byte[] flags = new byte[INITIAL_CAPACITY];
+
+  // POSITION
+  double[] x;
+  double[] y;
+
+  // VELOCITY
+  double[] vx;
+  double[] vy;
+
+  // COLLIDER, radius is -1 for rect based collision
+  double[] radius;
+  double[] halfWidth;
+  double[] halfHeight;
+  double[] contactDamage;
+  byte[] contact;
+
+  // SPRITE
+  int[] sprite;
+
+  // HEALTH
+  double[] health;
+
+  // TIMER
+  int[] timers;
+
+  // PATROL, patrolSpeed is signed by the current direction
+  double[] originX;
+  double[] patrolRange;
+  double[] patrolSpeed;
+
+  /**
+   * Create an empty archetype for the given component mask
+   * @param mask the components every entity in this archetype has
+   */
+  public Archetype(int mask) {
+    this.mask = mask;
+    if (has(Component.POSITION)) {
+      x = new double[capacity];
+      y = new double[capacity];
+    }
+    if (has(Component.VELOCITY)) {
+      vx = new double[capacity];
+      vy = new double[capacity];
+    }
+    if (has(Component.COLLIDER)) {
+      radius = new double[capacity];
+      halfWidth = new double[capacity];
+      halfHeight = new double[capacity];
+      contactDamage = new double[capacity];
+      contact = new byte[capacity];
+    }
+    if (has(Component.SPRITE)) {
+      sprite = new int[capacity];
+    }
+    if (has(Component.HEALTH)) {
+      health = new double[capacity];
+    }
+    if (has(Component.TIMER)) {
+      timers = new int[capacity * TIMER_SLOTS];
+    }
+    if (has(Component.PATROL)) {
+      originX = new double[capacity];
+      patrolRange = new double[capacity];
+      patrolSpeed = new double[capacity];
+    }
+  }
+
+  /**
+   * Check if this archetype has a component
+   * @param component the component to check
+   * @return true if every entity in the archetype has the component
+   */
+  public boolean has(Component component) {
+    return (mask & component.mask()) != 0;
+  }
+
+  /**
+   * Check if this archetype has all components in a mask
+   * @param required mask of required components
+   * @return true if all required components are present
+   */
+  public boolean hasAll(int required) {
+    return (mask & required) == required;
+  }
+
+  /**
+   * Append a new zeroed row
+   * @param kind the kind of the new entity
+   * @return the row index of the new entity
+   */
+  int add(Kind kind) {
+    if (size == capacity) {
+      grow();
+    }
+    int row = size++;
+    this.kind[row] = (byte) kind.ordinal();
+    flags[row] = 0;
+    if (contact != null) {
+      contact[row] = 0;
+    }
+    if (timers != null) {
+      Arrays.fill(timers, row * TIMER_SLOTS, (row + 1) * TIMER_SLOTS, 0);
+    }
+    return row;
+  }
+
+  /**
+   * Remove a row by moving the last row into its place
+   * @param row the row to remove
+   * @return the index the last row was moved from, or -1 if no row was moved
+   */
+  int swapRemove(int row) {
+    int last = --size;
+    if (row == last) {
+      return -1;
+    }
+    kind[row] = kind[last];
+    flags[row] = flags[last];
+    if (x != null) {
+      x[row] = x[last];
+      y[row] = y[last];
+    }
+    if (vx != null) {
+      vx[row] = vx[last];
+      vy[row] = vy[last];
+    }
+    if (radius != null) {
+      radius[row] = radius[last];
+      halfWidth[row] = halfWidth[last];
+      halfHeight[row] = halfHeight[last];
+      contactDamage[row] = contactDamage[last];
+      contact[row] = contact[last];
+    }
+    if (sprite != null) {
+      sprite[row] = sprite[last];
+    }
+    if (health != null) {
+      health[row] = health[last];
+    }
+    if (timers != null) {
+      System.arraycopy(timers, last * TIMER_SLOTS, timers, row * TIMER_SLOTS, TIMER_SLOTS);
+    }
+    if (originX != null) {
+      originX[row] = originX[last];
+      patrolRange[row] = patrolRange[last];
+      patrolSpeed[row] = patrolSpeed[last];
+    }
+    return last;
+  }
+
+  /**
+   * Double the capacity of every column
+   */
+  private void grow() {
+    capacity *= 2;
+    kind = Arrays.copyOf(kind, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    if (x != null) {
+      x = Arrays.copyOf(x, capacity);
+      y = Arrays.copyOf(y, capacity);
+    }
+    if (vx != null) {
+      vx = Arrays.copyOf(vx, capacity);
+      vy = Arrays.copyOf(vy, capacity);
+    }
+    if (radius != null) {
+      radius = Arrays.copyOf(radius, capacity);
+      halfWidth = Arrays.copyOf(halfWidth, capacity);
+      halfHeight = Arrays.copyOf(halfHeight, capacity);
+      contactDamage = Arrays.copyOf(contactDamage, capacity);
+      contact = Arrays.copyOf(contact, capacity);
+    }
+    if (sprite != null) {
+      sprite = Arrays.copyOf(sprite, capacity);
+    }
+    if (health != null) {
+      health = Arrays.copyOf(health, capacity);
+    }
+    if (timers != null) {
+      timers = Arrays.copyOf(timers, capacity * TIMER_SLOTS);
+    }
+    if (originX != null) {
+      originX = Arrays.copyOf(originX, capacity);
+      patrolRange = Arrays.copyOf(patrolRange, capacity);
+      patrolSpeed = Arrays.copyOf(patrolSpeed, capacity);
+    }
+  }
+
+  /**
+   * Write every row, one column at a time
+   * @param out the writer
+   */
+  void writeState(StateWriter out) {
+    out.writeInt(size);
+    for (int row = 0; row < size; row++) {
+      out.writeByte(kind[row]);
+    }
+    for (int row = 0; row < size; row++) {
+      out.writeByte(flags[row]);
+    }
+    writeColumn(out, x);
+    writeColumn(out, y);
+    writeColumn(out, vx);
+    writeColumn(out, vy);
+    writeColumn(out, radius);
+    writeColumn(out, halfWidth);
+    writeColumn(out, halfHeight);
+    writeColumn(out, contactDamage);
+    if (contact != null) {
+      for (int row = 0; row < size; row++) {
+        out.writeByte(contact[row]);
+      }
+    }
+    if (sprite != null) {
+      for (int row = 0; row < size; row++) {
+        out.writeInt(sprite[row]);
+      }
+    }
+    writeColumn(out, health);
+    if (timers != null) {
+      for (int i = 0; i < size * TIMER_SLOTS; i++) {
+        out.writeInt(timers[i]);
+      }
+    }
+    writeColumn(out, originX);
+    writeColumn(out, patrolRange);
+    writeColumn(out, patrolSpeed);
+  }
+
+  /**
+   * Replace every row with rows written by writeState
+   * @param in the reader
+   */
+  void readState(StateReader in) {
+    size = in.readInt();
+    while (capacity < size) {
+      grow();
+    }
+    for (int row = 0; row < size; row++) {
+      kind[row] = (byte) in.readByte();
+    }
+    for (int row = 0; row < size; row++) {
+      flags[row] = (byte) in.readByte();
+    }
+    readColumn(in, x);
+    readColumn(in, y);
+    readColumn(in, vx);
+    readColumn(in, vy);
+    readColumn(in, radius);
+    readColumn(in, halfWidth);
+    readColumn(in, halfHeight);
+    readColumn(in, contactDamage);
+    if (contact != null) {
+      for (int row = 0; row < size; row++) {
+        contact[row] = (byte) in.readByte();
+      }
+    }
+    if (sprite != null) {
+      for (int row = 0; row < size; row++) {
+        sprite[row] = in.readInt();
+      }
+    }
+    readColumn(in, health);
+    if (timers != null) {
+      for (int i = 0; i < size * TIMER_SLOTS; i++) {
+        timers[i] = in.readInt();
+      }
+    }
+    readColumn(in, originX);
+    readColumn(in, patrolRange);
+    readColumn(in, patrolSpeed);
+  }
+
+  /**
+   * Write the used part of a column, if the archetype has it
+   * @param out the writer
+   * @param column the column, or null
+   */
+  private void writeColumn(StateWriter out, double[] column) {
+    if (column != null) {
+      for (int row = 0; row < size; row++) {
+        out.writeDouble(column[row]);
+      }
+    }
+  }
+
+  /**
+   * Read the used part of a column, if the archetype has it
+   * @param in the reader
+   * @param column the column, or null
+   */
+  private void readColumn(StateReader in, double[] column) {
+    if (column != null) {
+      for (int row = 0; row < size; row++) {
+        column[row] = in.readDouble();
+      }
+    }
+  }
+
+  /**
+   * Check if a row has a flag set
+   * @param row the row index
+   * @param flag the flag bit
+   * @return true if the flag is set
+   */
+  boolean hasFlag(int row, byte flag) {
+    return (flags[row] & flag) != 0;
+  }
+
+  /**
+   * Set or clear a flag on a row
+   * @param row the row index
+   * @param flag the flag bit
+   * @param value true to set, false to clear
+   */
+  void setFlag(int row, byte flag, boolean value) {
+    flags[row] = (byte) (value ? flags[row] | flag : flags[row] & ~flag);
+  }
+
+  /**
+   * Get the kind of the entity in a row
+   * @param row the row index
+   * @return the kind
+   */
+  public Kind getKind(int row) {
+    return Kind.of(kind[row]);
+  }
+
+  /**
+   * Get the x position of a row
+   * @param row the row index
+   * @return x position
+   */
+  public double getX(int row) {
+    return x[row];
+  }
+
+  /**
+   * Get the y position of a row
+   * @param row the row index
+   * @return y position
+   */
+  public double getY(int row) {
+    return y[row];
+  }
+
+  /**
+   * Get the x velocity of a row
+   * @param row the row index
+   * @return x velocity, 0 if the archetype has no velocity
+   */
+  public double getVelocityX(int row) {
+    return vx == null ? 0 : vx[row];
+  }
+
+  /**
+   * Get the y velocity of a row
+   * @param row the row index
+   * @return y velocity, 0 if the archetype has no velocity
+   */
+  public double getVelocityY(int row) {
+    return vy == null ? 0 : vy[row];
+  }
+
+  /**
+   * Get the health of a row
+   * @param row the row index
+   * @return health, 0 if the archetype has no health
+   */
+  public double getHealth(int row) {
+    return health == null ? 0 : health[row];
+  }
+
+  /**
+   * Check if a row is an item that has been collected
+   * @param row the row index
+   * @return true if the item has been collected
+   */
+  public boolean isConsumed(int row) {
+    return hasFlag(row, FLAG_CONSUMED);
+  }
+
+  /**
+   * Check if a row is a fireball shot by the player
+   * @param row the row index
+   * @return true if the player shot the fireball
+   */
+  public boolean isFromPlayer(int row) {
+    return hasFlag(row, FLAG_FROM_PLAYER);
+  }
+
+  /**
+   * Get the number of entities in this archetype
+   * @return the number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the component mask of this archetype
+   * @return the component mask
+   */
+  public int getMask() {
+    return mask;
+  }
+}
@@ -0,0 +1,131 @@
+package ecs;
+
+/**
+ * Detects collisions with the player (and between fireballs and the boss),
+ * storing the result in each collider's contact bits for later systems.
+ * Landing on platforms and reaching the flag are resolved here directly.
+ * @author Michael Ren
+ */
+public class CollisionSystem implements GameSystem {
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.COLLIDER);
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.POSITION, Component.COLLIDER, Component.HEALTH);
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.COLLIDER, Component.POSITION, Component.VELOCITY, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Check every collider against the player and boss
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    Archetype player = world.getPlayerArchetype();
+    if (player == null) {
+      return;
+    }
+    int playerRow = world.getPlayerRow();
+    Archetype boss = world.getBossArchetype();
+    int bossRow = world.getBossRow();
+
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      for (int row = 0; row < archetype.size; row++) {
+        archetype.contact[row] = 0;
+        if (archetype == player && row == playerRow) {
+          continue;
+        }
+
+        if (collides(archetype, row, player, playerRow)) {
+          archetype.contact[row] |= Archetype.CONTACT_PLAYER;
+          resolvePlayerContact(world, archetype, row, player, playerRow);
+        }
+        if (boss != null && archetype.getKind(row) == Kind.FIREBALL && collides(archetype, row, boss, bossRow)) {
+          archetype.contact[row] |= Archetype.CONTACT_BOSS;
+        }
+      }
+    }
+  }
+
+  /**
+   * Check if two colliders overlap.
+   * Use circle-based collision if radius is defined for both, else use rectangle-based collision.
+   * @param a the first archetype
+   * @param aRow row in the first archetype
+   * @param b the second archetype
+   * @param bRow row in the second archetype
+   * @return true if there is a collision
+   */
+  static boolean collides(Archetype a, int aRow, Archetype b, int bRow) {
+    double dx = a.x[aRow] - b.x[bRow];
+    double dy = a.y[aRow] - b.y[bRow];
+    if (a.radius[aRow] >= 0 && b.radius[bRow] >= 0) {
+      double range = a.radius[aRow] + b.radius[bRow];
+      return dx * dx + dy * dy < range * range;
+    }
+    return Math.abs(dx) <= a.halfWidth[aRow] + b.halfWidth[bRow]
+      && Math.abs(dy) <= a.halfHeight[aRow] + b.halfHeight[bRow];
+  }
+
+  /**
+   * Resolve collisions that only move the player or change world state
+   * @param world the world
+   * @param archetype the archetype of the object the player collided with
+   * @param row the row of the object
+   * @param player the player's archetype
+   * @param playerRow the player's row
+   */
+  private void resolvePlayerContact(World world, Archetype archetype, int row, Archetype player, int playerRow) {
+    switch (archetype.getKind(row)) {
+      case PLATFORM:
+        land(world, archetype, row, player, playerRow);
+        break;
+      case FLYING_PLATFORM:
+        // Only land if the player is above the platform and jumping from a lower platform,
+        // so the player does not glitch up when colliding from the sides.
+        if (player.y[playerRow] + player.halfHeight[playerRow] <= archetype.y[row]
+            && world.getPreviousPlatformY() >= archetype.y[row]) {
+          land(world, archetype, row, player, playerRow);
+        }
+        break;
+      case END_FLAG:
+        world.setReachedFlag(true);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Land the player on top of a platform, unless the player is jumping upwards or has died
+   * @param world the world
+   * @param platform the platform's archetype
+   * @param row the platform's row
+   * @param player the player's archetype
+   * @param playerRow the player's row
+   */
+  private void land(World world, Archetype platform, int row, Archetype player, int playerRow) {
+    if (player.vy[playerRow] < 0 || player.health[playerRow] <= 0) {
+      return;
+    }
+    player.y[playerRow] = platform.y[row] - platform.halfHeight[row] - player.halfHeight[playerRow];
+    player.vy[playerRow] = 0;
+    player.setFlag(playerRow, Archetype.FLAG_ON_PLATFORM, true);
+    world.setPreviousPlatformY(platform.y[row]);
+  }
+}
@@ -0,0 +1,46 @@
+package ecs;
+
+/**
+ * Components that an ECS entity can have.
+ * Each component maps to a bit, so an entity's layout (and a system's read/write set)
+ * can be described as a single int mask.
+ * @author Michael Ren
+ */
+public enum Component {
+  POSITION,
+  VELOCITY,
+  COLLIDER,
+  SPRITE,
+  HEALTH,
+  TIMER,
+  PATROL,
+  // Not stored per entity, world level player stats (score, flag reached, input)
+  STATS,
+  // The flags byte every entity has (facing, removed, consumed, ...), shared by several systems
+  FLAGS,
+  // Not stored per entity, the world's queue of fireballs to spawn at the end of the tick
+  SPAWNS,
+  // Not stored per entity, the world's random number generator
+  RANDOM;
+
+  /**
+   * Get the bit mask of this component
+   * @return mask with only this component's bit set
+   */
+  public int mask() {
+    return 1 << ordinal();
+  }
+
+  /**
+   * Combine several components into one mask
+   * @param components the components to combine
+   * @return mask with each component's bit set
+   */
+  public static int maskOf(Component... components) {
+    int mask = 0;
+    for (Component component : components) {
+      mask |= component.mask();
+    }
+    return mask;
+  }
+}
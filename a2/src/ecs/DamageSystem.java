@@ -0,0 +1,87 @@
+package ecs;
+
+/**
+ * Applies damage from slimes and fireballs that touched the player or the boss.
+ * The player does not take damage while invincible, and each slime can only damage the player once.
+ * @author Michael Ren
+ */
+public class DamageSystem implements GameSystem {
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.COLLIDER);
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.COLLIDER, Component.TIMER, Component.FLAGS);
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.HEALTH, Component.FLAGS);
+  }
+
+  /**
+   * Apply damage for every damaging contact
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    Archetype player = world.getPlayerArchetype();
+    if (player == null) {
+      return;
+    }
+    int playerRow = world.getPlayerRow();
+    boolean playerCanTakeDamage = player.timers[playerRow * Archetype.TIMER_SLOTS + Archetype.TIMER_INVINCIBLE] <= 0;
+    Archetype boss = world.getBossArchetype();
+    int bossRow = world.getBossRow();
+
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      for (int row = 0; row < archetype.size; row++) {
+        byte contact = archetype.contact[row];
+        if (contact == 0) {
+          continue;
+        }
+
+        Kind kind = archetype.getKind(row);
+        boolean hitPlayer = (contact & Archetype.CONTACT_PLAYER) != 0;
+        if (kind == Kind.ENEMY) {
+          if (hitPlayer && playerCanTakeDamage && archetype.hasFlag(row, Archetype.FLAG_CAN_DAMAGE)) {
+            takeDamage(player, playerRow, archetype.contactDamage[row]);
+            archetype.setFlag(row, Archetype.FLAG_CAN_DAMAGE, false);
+          }
+        } else if (kind == Kind.FIREBALL) {
+          // Fireballs never damage the entity that shot them
+          boolean fromPlayer = archetype.hasFlag(row, Archetype.FLAG_FROM_PLAYER);
+          if (hitPlayer && !fromPlayer) {
+            if (playerCanTakeDamage) {
+              takeDamage(player, playerRow, archetype.contactDamage[row]);
+            }
+            archetype.setFlag(row, Archetype.FLAG_REMOVED, true);
+          } else if ((contact & Archetype.CONTACT_BOSS) != 0 && fromPlayer) {
+            takeDamage(boss, bossRow, archetype.contactDamage[row]);
+            archetype.setFlag(row, Archetype.FLAG_REMOVED, true);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Decrease health, which cannot go below 0
+   * @param archetype the archetype of the entity
+   * @param row the row of the entity
+   * @param amount the amount of damage
+   */
+  private void takeDamage(Archetype archetype, int row, double amount) {
+    archetype.health[row] = Math.max(0, archetype.health[row] - amount);
+  }
+}
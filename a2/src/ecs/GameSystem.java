@@ -0,0 +1,45 @@
+package ecs;
+
+/**
+ * A system runs once per tick over every archetype that has the components it needs.
+ * Systems declare which components they read and write,
+ * so the scheduler can run systems that do not conflict at the same time.
+ * @author Michael Ren
+ */
+public interface GameSystem {
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  public int reads();
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  public int writes();
+
+  /**
+   * Check if the system must run on the thread that called the scheduler (e.g. rendering)
+   * @return true if the system must run on the calling thread
+   */
+  public default boolean requiresMainThread() {
+    return false;
+  }
+
+  /**
+   * Run the system for one tick
+   * @param world the world to update
+   */
+  public void run(World world);
+
+  /**
+   * Check if this system can run at the same time as another system.
+   * Two systems conflict if either writes a component the other reads or writes.
+   * @param other the other system
+   * @return true if there is no conflict
+   */
+  public default boolean canRunWith(GameSystem other) {
+    return (writes() & (other.reads() | other.writes())) == 0 && (other.writes() & reads()) == 0;
+  }
+}
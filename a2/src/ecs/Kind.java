@@ -0,0 +1,31 @@
+package ecs;
+
+/**
+ * The type of an ECS entity.
+ * Names match the object types used in the level csv files.
+ * @author Michael Ren
+ */
+public enum Kind {
+  PLAYER,
+  PLATFORM,
+  ENEMY,
+  COIN,
+  INVINCIBLE_POWER,
+  DOUBLE_SCORE,
+  FLYING_PLATFORM,
+  ENEMY_BOSS,
+  END_FLAG,
+  FIREBALL;
+
+  // Cached because values() allocates a new array on every call
+  private static final Kind[] VALUES = values();
+
+  /**
+   * Get a kind from its ordinal
+   * @param ordinal the ordinal as stored in an archetype
+   * @return the kind
+   */
+  public static Kind of(int ordinal) {
+    return VALUES[ordinal];
+  }
+}
@@ -0,0 +1,146 @@
+package ecs;
+
+import utils.PropertiesLoader;
+
+/**
+ * Moves every entity with a velocity.
+ * Applies the player's controls and jump physics, moves fireballs,
+ * plays the death animations of the player and boss, and keeps the camera on the player.
+ * @author Michael Ren
+ */
+public class MovementSystem implements GameSystem {
+  private static final double PLAYER_SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.platform.speed"));
+  private static final double VIEW_WIDTH = Double.parseDouble(PropertiesLoader.getGameProperty("windowWidth"));
+  private static final double VIEW_HEIGHT = Double.parseDouble(PropertiesLoader.getGameProperty("windowHeight"));
+  // Same speed as the level's death animation, always linear and without a hop
+  private static final double DEATH_ANIMATION_SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("animation.death.speed"));
+
+  // Values below are specified in project specs
+  private static final int GRAVITY = 1;
+  private static final int JUMP_SPEED = 20;
+
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.VELOCITY);
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.VELOCITY, Component.HEALTH, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.POSITION, Component.VELOCITY, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Move all entities with a velocity
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      for (int row = 0; row < archetype.size; row++) {
+        switch (archetype.getKind(row)) {
+          case PLAYER:
+            movePlayer(world, archetype, row);
+            break;
+          case ENEMY_BOSS:
+            if (archetype.health[row] <= 0 && !playDeathAnimation(archetype, row)) {
+              world.setBossDeathComplete(true);
+            }
+            break;
+          case FIREBALL:
+            moveFireball(world, archetype, row);
+            break;
+          default:
+            archetype.x[row] += archetype.vx[row];
+            archetype.y[row] += archetype.vy[row];
+            break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Move an entity off the bottom of the screen
+   * @param archetype the archetype
+   * @param row the row
+   * @return true if the animation is still running, false once the entity is off screen
+   */
+  private boolean playDeathAnimation(Archetype archetype, int row) {
+    if (archetype.y[row] - archetype.halfHeight[row] * 2 < VIEW_HEIGHT) {
+      archetype.y[row] += DEATH_ANIMATION_SPEED;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Apply controls and jump physics to the player, and move the camera
+   * @param world the world
+   * @param archetype the player's archetype
+   * @param row the player's row
+   */
+  private void movePlayer(World world, Archetype archetype, int row) {
+    if (archetype.health[row] <= 0) {
+      if (!playDeathAnimation(archetype, row)) {
+        world.setPlayerDeathComplete(true);
+      }
+      return;
+    }
+
+    // Horizontal controls, the player cannot move off the level
+    double halfWidth = archetype.halfWidth[row];
+    if (world.isDown(World.INPUT_LEFT)) {
+      archetype.x[row] = Math.max(archetype.x[row] - PLAYER_SPEED, halfWidth);
+      archetype.setFlag(row, Archetype.FLAG_FACING_LEFT, true);
+    } else if (world.isDown(World.INPUT_RIGHT)) {
+      archetype.x[row] = Math.min(archetype.x[row] + PLAYER_SPEED, world.getLevelWidth() - halfWidth);
+      archetype.setFlag(row, Archetype.FLAG_FACING_LEFT, false);
+    }
+
+    // Jump only if on a platform
+    if (world.wasPressed(World.INPUT_JUMP) && archetype.hasFlag(row, Archetype.FLAG_ON_PLATFORM)) {
+      archetype.setFlag(row, Archetype.FLAG_ON_PLATFORM, false);
+      archetype.vy[row] = -JUMP_SPEED;
+    }
+
+    // Keep the camera at a fixed offset from the player, within the level
+    double cameraX = archetype.x[row] - world.getCameraOffset();
+    world.setCameraX(Math.max(0, Math.min(cameraX, world.getLevelWidth() - VIEW_WIDTH)));
+
+    // Update jump motion, and accelerate when falling
+    archetype.y[row] += archetype.vy[row];
+    if (!archetype.hasFlag(row, Archetype.FLAG_ON_PLATFORM)) {
+      archetype.vy[row] += GRAVITY;
+    }
+
+    // The collision system sets this again if the player is still on a platform
+    archetype.setFlag(row, Archetype.FLAG_ON_PLATFORM, false);
+  }
+
+  /**
+   * Move a fireball, and remove it once it leaves the screen in the direction it is travelling
+   * @param world the world
+   * @param archetype the fireball archetype
+   * @param row the fireball's row
+   */
+  private void moveFireball(World world, Archetype archetype, int row) {
+    archetype.x[row] += archetype.vx[row];
+    double x = archetype.x[row];
+    double cameraX = world.getCameraX();
+    if (archetype.vx[row] < 0 && x < cameraX || archetype.vx[row] > 0 && x > cameraX + VIEW_WIDTH) {
+      archetype.setFlag(row, Archetype.FLAG_REMOVED, true);
+    }
+  }
+}
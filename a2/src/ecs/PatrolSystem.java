@@ -0,0 +1,51 @@
+package ecs;
+
+/**
+ * Moves patrolling entities (slimes and flying platforms) back and forth around their starting position,
+ * changing direction once they pass the maximum displacement.
+ * @author Michael Ren
+ */
+public class PatrolSystem implements GameSystem {
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.PATROL);
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.PATROL.mask();
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.POSITION, Component.PATROL);
+  }
+
+  /**
+   * Step every patrol
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      double[] x = archetype.x;
+      double[] originX = archetype.originX;
+      double[] range = archetype.patrolRange;
+      double[] speed = archetype.patrolSpeed;
+      for (int row = 0; row < archetype.size; row++) {
+        x[row] += speed[row];
+        if (Math.abs(x[row] - originX[row]) > range[row]) {
+          speed[row] = -speed[row];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package ecs;
+
+import utils.PropertiesLoader;
+
+/**
+ * Collects items the player touched and plays their collect animation.
+ * @author Michael Ren
+ */
+public class PickupSystem implements GameSystem {
+  private static final int COIN_VALUE = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.coin.value"));
+  private static final int DOUBLE_SCORE_FRAMES = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.doubleScore.maxFrames"));
+  private static final int INVINCIBLE_FRAMES = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.invinciblePower.maxFrames"));
+  // Same speed as the level's collect animation, always linear so every peer of a match stays in step
+  private static final double COLLECT_ANIMATION_SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("animation.collect.speed"));
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.COLLIDER);
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.COLLIDER, Component.FLAGS);
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.POSITION, Component.TIMER, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Collect touched items and animate collected items off the top of the screen
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    Archetype player = world.getPlayerArchetype();
+    if (player == null) {
+      return;
+    }
+    int timerBase = world.getPlayerRow() * Archetype.TIMER_SLOTS;
+
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      for (int row = 0; row < archetype.size; row++) {
+        Kind kind = archetype.getKind(row);
+        if (kind != Kind.COIN && kind != Kind.DOUBLE_SCORE && kind != Kind.INVINCIBLE_POWER) {
+          continue;
+        }
+
+        if (!archetype.hasFlag(row, Archetype.FLAG_CONSUMED) && (archetype.contact[row] & Archetype.CONTACT_PLAYER) != 0) {
+          archetype.setFlag(row, Archetype.FLAG_CONSUMED, true);
+          if (kind == Kind.COIN) {
+            boolean doubleScore = player.timers[timerBase + Archetype.TIMER_DOUBLE_SCORE] > 0;
+            world.addScore(doubleScore ? COIN_VALUE * 2 : COIN_VALUE);
+          } else if (kind == Kind.DOUBLE_SCORE) {
+            player.timers[timerBase + Archetype.TIMER_DOUBLE_SCORE] = DOUBLE_SCORE_FRAMES;
+          } else {
+            player.timers[timerBase + Archetype.TIMER_INVINCIBLE] = INVINCIBLE_FRAMES;
+          }
+        }
+
+        if (archetype.hasFlag(row, Archetype.FLAG_CONSUMED)) {
+          if (archetype.y[row] + archetype.halfHeight[row] * 2 < 0) {
+            archetype.setFlag(row, Archetype.FLAG_REMOVED, true);
+          } else {
+            archetype.y[row] -= COLLECT_ANIMATION_SPEED;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package ecs;
+
+import bagel.Image;
+import utils.PropertiesLoader;
+
+/**
+ * Draws every entity with a sprite, relative to the camera.
+ * Must run on the thread that owns the window.
+ * @author Michael Ren
+ */
+public class RenderSystem implements GameSystem {
+  private static final int REQUIRED = Component.maskOf(Component.POSITION, Component.SPRITE);
+
+  // Indexed by sprite id (the kind's ordinal), left images are only different for the player
+  private final Image[] rightImages = new Image[Kind.values().length];
+  private final Image[] leftImages = new Image[Kind.values().length];
+
+  /**
+   * Create a new render system, loading one image per kind
+   */
+  public RenderSystem() {
+    setImage(Kind.PLAYER, "gameObjects.player.imageRight", "gameObjects.player.imageLeft");
+    setImage(Kind.PLATFORM, "gameObjects.platform.image", null);
+    setImage(Kind.ENEMY, "gameObjects.enemy.image", null);
+    setImage(Kind.COIN, "gameObjects.coin.image", null);
+    setImage(Kind.INVINCIBLE_POWER, "gameObjects.invinciblePower.image", null);
+    setImage(Kind.DOUBLE_SCORE, "gameObjects.doubleScore.image", null);
+    setImage(Kind.FLYING_PLATFORM, "gameObjects.flyingPlatform.image", null);
+    setImage(Kind.ENEMY_BOSS, "gameObjects.enemyBoss.image", null);
+    setImage(Kind.END_FLAG, "gameObjects.endFlag.image", null);
+    setImage(Kind.FIREBALL, "gameObjects.fireball.image", null);
+  }
+
+  /**
+   * Load the images for a kind
+   * @param kind the kind
+   * @param rightName name of the right facing (or only) image property
+   * @param leftName name of the left facing image property, or null to use the right image
+   */
+  private void setImage(Kind kind, String rightName, String leftName) {
+    Image right = new Image(PropertiesLoader.getGameProperty(rightName));
+    rightImages[kind.ordinal()] = right;
+    leftImages[kind.ordinal()] = leftName == null ? right : new Image(PropertiesLoader.getGameProperty(leftName));
+  }
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.POSITION, Component.SPRITE, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return 0;
+  }
+
+  /**
+   * Rendering must happen on the thread that owns the window
+   * @return true
+   */
+  @Override
+  public boolean requiresMainThread() {
+    return true;
+  }
+
+  /**
+   * Draw every sprite
+   * @param world the world to draw
+   */
+  @Override
+  public void run(World world) {
+    double cameraX = world.getCameraX();
+    for (Archetype archetype : world.getArchetypes()) {
+      if (!archetype.hasAll(REQUIRED)) {
+        continue;
+      }
+      for (int row = 0; row < archetype.size; row++) {
+        int sprite = archetype.sprite[row];
+        Image image = archetype.hasFlag(row, Archetype.FLAG_FACING_LEFT) ? leftImages[sprite] : rightImages[sprite];
+        image.draw(archetype.x[row] - cameraX, archetype.y[row]);
+      }
+    }
+  }
+}
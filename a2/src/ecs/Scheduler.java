@@ -0,0 +1,133 @@
+package ecs;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs systems in the order they were added, grouping them into batches.
+ * A system joins the current batch if it does not conflict with any system already in it,
+ * otherwise a new batch is started. Systems in the same batch run at the same time.
+ * @author Michael Ren
+ */
+public class Scheduler {
+  private final ArrayList<ArrayList<GameSystem>> batches = new ArrayList<>();
+  private final ArrayList<Future<?>> pending = new ArrayList<>();
+  private final ExecutorService executor;
+
+  /**
+   * Create a new scheduler
+   * @param executor executor for running systems in parallel, or null to run every system on the calling thread
+   * @param systems the systems to run, in order
+   */
+  public Scheduler(ExecutorService executor, GameSystem... systems) {
+    this.executor = executor;
+    for (GameSystem system : systems) {
+      add(system);
+    }
+  }
+
+  /**
+   * Create a scheduler with every gameplay system, in the order they should run
+   * @param executor executor for running systems in parallel, or null to run on the calling thread
+   * @param render the render system, or null for headless simulation
+   * @return the scheduler
+   */
+  public static Scheduler createGameplay(ExecutorService executor, RenderSystem render) {
+    ArrayList<GameSystem> systems = new ArrayList<>();
+    systems.add(new MovementSystem());
+    systems.add(new PatrolSystem());
+    systems.add(new TimerSystem());
+    systems.add(new ShootSystem());
+    systems.add(new CollisionSystem());
+    systems.add(new PickupSystem());
+    systems.add(new DamageSystem());
+    if (render != null) {
+      systems.add(render);
+    }
+    return new Scheduler(executor, systems.toArray(new GameSystem[0]));
+  }
+
+  /**
+   * Add a system to the end of the schedule
+   * @param system the system to add
+   */
+  private void add(GameSystem system) {
+    ArrayList<GameSystem> batch = batches.isEmpty() ? null : batches.get(batches.size() - 1);
+    if (batch != null) {
+      boolean conflict = false;
+      for (GameSystem other : batch) {
+        if (!system.canRunWith(other)) {
+          conflict = true;
+          break;
+        }
+      }
+      if (!conflict) {
+        batch.add(system);
+        return;
+      }
+    }
+
+    batch = new ArrayList<>();
+    batch.add(system);
+    batches.add(batch);
+  }
+
+  /**
+   * Run every system once and finish the world's tick
+   * @param world the world to update
+   */
+  public void run(World world) {
+    for (ArrayList<GameSystem> batch : batches) {
+      runBatch(batch, world);
+    }
+    world.endTick();
+  }
+
+  /**
+   * Run a batch of systems, in parallel if an executor is available.
+   * Systems that require the main thread run on the calling thread while the others run on the executor.
+   * @param batch the systems to run
+   * @param world the world to update
+   */
+  private void runBatch(ArrayList<GameSystem> batch, World world) {
+    if (executor == null || batch.size() == 1) {
+      for (GameSystem system : batch) {
+        system.run(world);
+      }
+      return;
+    }
+
+    for (GameSystem system : batch) {
+      if (!system.requiresMainThread()) {
+        pending.add(executor.submit(() -> system.run(world)));
+      }
+    }
+    for (GameSystem system : batch) {
+      if (system.requiresMainThread()) {
+        system.run(world);
+      }
+    }
+
+    try {
+      for (Future<?> future : pending) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pending.clear();
+    }
+  }
+
+  /**
+   * Get the number of batches, useful for checking how many systems can run together
+   * @return number of batches
+   */
+  public int getBatchCount() {
+    return batches.size();
+  }
+}
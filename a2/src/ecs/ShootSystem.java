@@ -0,0 +1,80 @@
+package ecs;
+
+import utils.PropertiesLoader;
+
+/**
+ * Handles shooting for the player and the boss.
+ * Both can only shoot while the player is within the boss's activation radius.
+ * The boss faces the player and randomly shoots every few ticks.
+ * @author Michael Ren
+ */
+public class ShootSystem implements GameSystem {
+  private static final int ACTIVATION_RADIUS = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.enemyBoss.activationRadius"));
+  private static final int MAX_FRAMES = 100; // As per project specs
+
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return Component.maskOf(Component.POSITION, Component.HEALTH, Component.STATS, Component.FLAGS);
+  }
+
+  /**
+   * Get the components this system writes: the boss's facing flag, its shoot timer,
+   * the fireball queue and the random numbers deciding whether it shoots
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.maskOf(Component.TIMER, Component.FLAGS, Component.SPAWNS, Component.RANDOM);
+  }
+
+  /**
+   * Shoot fireballs for the player and the boss
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    Archetype boss = world.getBossArchetype();
+    Archetype player = world.getPlayerArchetype();
+    if (boss == null || player == null) {
+      return;
+    }
+    int bossRow = world.getBossRow();
+    int playerRow = world.getPlayerRow();
+    double playerX = player.x[playerRow];
+    double bossX = boss.x[bossRow];
+    if (boss.health[bossRow] <= 0 || Math.abs(bossX - playerX) > ACTIVATION_RADIUS) {
+      return;
+    }
+
+    // Player shoots in the direction it is facing
+    if (player.health[playerRow] > 0 && world.wasPressed(World.INPUT_SHOOT)) {
+      int direction = player.hasFlag(playerRow, Archetype.FLAG_FACING_LEFT) ? -1 : 1;
+      world.queueFireball(playerX, player.y[playerRow], direction, true);
+    }
+
+    // Boss always faces the player, and randomly shoots when its timer runs out
+    boolean facingLeft = bossX >= playerX;
+    boss.setFlag(bossRow, Archetype.FLAG_FACING_LEFT, facingLeft);
+    int timer = bossRow * Archetype.TIMER_SLOTS + Archetype.TIMER_SHOOT;
+    if (boss.timers[timer] <= 0) {
+      if (world.nextRandomBoolean()) {
+        world.queueFireball(bossX, boss.y[bossRow], facingLeft ? -1 : 1, false);
+      }
+      boss.timers[timer] = MAX_FRAMES;
+    } else {
+      boss.timers[timer]--;
+    }
+  }
+
+  /**
+   * Get the number of ticks between boss shots
+   * @return number of ticks
+   */
+  static int getShootInterval() {
+    return MAX_FRAMES;
+  }
+}
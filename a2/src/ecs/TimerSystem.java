@@ -0,0 +1,45 @@
+package ecs;
+
+/**
+ * Counts down the player's power up timers
+ * @author Michael Ren
+ */
+public class TimerSystem implements GameSystem {
+  /**
+   * Get the components this system reads
+   * @return component mask
+   */
+  @Override
+  public int reads() {
+    return 0;
+  }
+
+  /**
+   * Get the components this system writes
+   * @return component mask
+   */
+  @Override
+  public int writes() {
+    return Component.TIMER.mask();
+  }
+
+  /**
+   * Decrease the player's double score and invincible timers by one tick
+   * @param world the world to update
+   */
+  @Override
+  public void run(World world) {
+    Archetype archetype = world.getPlayerArchetype();
+    if (archetype == null) {
+      return;
+    }
+    int base = world.getPlayerRow() * Archetype.TIMER_SLOTS;
+    int[] timers = archetype.timers;
+    if (timers[base + Archetype.TIMER_DOUBLE_SCORE] > 0) {
+      timers[base + Archetype.TIMER_DOUBLE_SCORE]--;
+    }
+    if (timers[base + Archetype.TIMER_INVINCIBLE] > 0) {
+      timers[base + Archetype.TIMER_INVINCIBLE]--;
+    }
+  }
+}
@@ -0,0 +1,462 @@
+package ecs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import save.StateReader;
+import save.StateWriter;
+
+/**
+ * The world owns every archetype and the world level resources shared by systems,
+ * such as the player input, score and camera position.
+ * Structural changes made while systems are running (spawning fireballs, removing entities)
+ * are deferred until the end of the tick so systems can safely iterate over rows.
+ * @author Michael Ren
+ */
+public class World {
+  // Input bits, one per control the player can use
+  public static final int INPUT_LEFT = 1;
+  public static final int INPUT_RIGHT = 1 << 1;
+  public static final int INPUT_JUMP = 1 << 2;
+  public static final int INPUT_SHOOT = 1 << 3;
+
+  private static final int MAX_PENDING_SPAWNS = 64;
+
+  private final ArrayList<Archetype> archetypes = new ArrayList<>();
+  private final HashMap<Integer, Archetype> archetypesByMask = new HashMap<>();
+  // Random number generator state, kept as a plain long so it can be saved with the world
+  private long randomState;
+
+  // Player and boss locations, boss archetype is null if the level has no boss
+  private Archetype playerArchetype;
+  private int playerRow = -1;
+  private Archetype bossArchetype;
+  private int bossRow = -1;
+
+  // Deferred fireball spawns
+  private final double[] pendingX = new double[MAX_PENDING_SPAWNS];
+  private final double[] pendingY = new double[MAX_PENDING_SPAWNS];
+  private final int[] pendingDirection = new int[MAX_PENDING_SPAWNS];
+  private final boolean[] pendingFromPlayer = new boolean[MAX_PENDING_SPAWNS];
+  private int pendingCount = 0;
+  private final int fireballMask;
+  private Archetype fireballArchetype;
+
+  // World level resources
+  private int input = 0;
+  private int previousInput = 0;
+  private int score = 0;
+  private boolean reachedFlag = false;
+  private boolean playerDeathComplete = false;
+  private boolean bossDeathComplete = false;
+  private double cameraX = 0;
+  private double cameraOffset = 0;
+  private double levelWidth = 0;
+  private double previousPlatformY = 0;
+  private long tick = 0;
+
+  /**
+   * Create an empty world
+   * @param seed seed for the random numbers used by patrols and the boss, so runs are repeatable
+   */
+  public World(long seed) {
+    randomState = seed;
+    fireballMask = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.COLLIDER, Component.SPRITE);
+  }
+
+  /**
+   * Get the archetype for a component mask, creating it if needed
+   * @param mask the component mask
+   * @return the archetype
+   */
+  public Archetype archetype(int mask) {
+    Archetype archetype = archetypesByMask.get(mask);
+    if (archetype == null) {
+      archetype = new Archetype(mask);
+      archetypes.add(archetype);
+      archetypesByMask.put(mask, archetype);
+    }
+    return archetype;
+  }
+
+  /**
+   * Spawn a new entity immediately. Must not be called while systems are running.
+   * @param kind the kind of entity
+   * @param mask the components of the entity
+   * @return the archetype the entity was added to, the new row is the archetype's last row
+   */
+  public Archetype spawn(Kind kind, int mask) {
+    Archetype archetype = archetype(mask);
+    int row = archetype.add(kind);
+    if (kind == Kind.PLAYER) {
+      playerArchetype = archetype;
+      playerRow = row;
+    } else if (kind == Kind.ENEMY_BOSS) {
+      bossArchetype = archetype;
+      bossRow = row;
+    }
+    return archetype;
+  }
+
+  /**
+   * Queue a fireball to be spawned at the end of the tick
+   * @param x x position
+   * @param y y position
+   * @param direction -1 for left, 1 for right
+   * @param fromPlayer true if the player shot the fireball
+   */
+  void queueFireball(double x, double y, int direction, boolean fromPlayer) {
+    if (pendingCount == MAX_PENDING_SPAWNS) {
+      return;
+    }
+    pendingX[pendingCount] = x;
+    pendingY[pendingCount] = y;
+    pendingDirection[pendingCount] = direction;
+    pendingFromPlayer[pendingCount] = fromPlayer;
+    pendingCount++;
+  }
+
+  /**
+   * Finish the tick: spawn queued fireballs, compact removed rows,
+   * and forget the flag if it was reached while the boss is still alive.
+   */
+  public void endTick() {
+    if (pendingCount > 0 && fireballArchetype == null) {
+      fireballArchetype = archetype(fireballMask);
+    }
+    for (int i = 0; i < pendingCount; i++) {
+      int row = fireballArchetype.add(Kind.FIREBALL);
+      WorldLoader.initFireball(fireballArchetype, row, pendingX[i], pendingY[i], pendingDirection[i], pendingFromPlayer[i]);
+    }
+    pendingCount = 0;
+
+    for (Archetype archetype : archetypes) {
+      int row = 0;
+      while (row < archetype.size) {
+        if (archetype.hasFlag(row, Archetype.FLAG_REMOVED)) {
+          int moved = archetype.swapRemove(row);
+          relocate(archetype, moved, row);
+        } else {
+          row++;
+        }
+      }
+    }
+
+    // The flag only counts once the boss has finished its death animation
+    if (bossArchetype != null && !bossDeathComplete) {
+      reachedFlag = false;
+    }
+
+    previousInput = input;
+    tick++;
+  }
+
+  /**
+   * Write the whole world at the end of a tick, so it can be restored exactly (including its random state)
+   * @param out the writer
+   */
+  public void writeState(StateWriter out) {
+    out.writeLong(tick);
+    out.writeLong(randomState);
+    out.writeByte(input);
+    out.writeByte(previousInput);
+    out.writeInt(score);
+    out.writeBoolean(reachedFlag);
+    out.writeBoolean(playerDeathComplete);
+    out.writeBoolean(bossDeathComplete);
+    out.writeDouble(cameraX);
+    out.writeDouble(cameraOffset);
+    out.writeDouble(levelWidth);
+    out.writeDouble(previousPlatformY);
+    out.writeInt(playerArchetype == null ? 0 : playerArchetype.mask);
+    out.writeInt(playerRow);
+    out.writeInt(bossArchetype == null ? 0 : bossArchetype.mask);
+    out.writeInt(bossRow);
+
+    out.writeInt(archetypes.size());
+    for (Archetype archetype : archetypes) {
+      out.writeInt(archetype.mask);
+      archetype.writeState(out);
+    }
+  }
+
+  /**
+   * Replace the world with one written by writeState.
+   * Archetypes missing from the saved world are emptied.
+   * @param in the reader
+   */
+  public void readState(StateReader in) {
+    tick = in.readLong();
+    randomState = in.readLong();
+    input = in.readByte();
+    previousInput = in.readByte();
+    score = in.readInt();
+    reachedFlag = in.readBoolean();
+    playerDeathComplete = in.readBoolean();
+    bossDeathComplete = in.readBoolean();
+    cameraX = in.readDouble();
+    cameraOffset = in.readDouble();
+    levelWidth = in.readDouble();
+    previousPlatformY = in.readDouble();
+    int playerMask = in.readInt();
+    playerRow = in.readInt();
+    int bossMask = in.readInt();
+    bossRow = in.readInt();
+
+    // Indexed loop, so restoring a world does not allocate an iterator
+    for (int i = 0; i < archetypes.size(); i++) {
+      archetypes.get(i).size = 0;
+    }
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      archetype(in.readInt()).readState(in);
+    }
+    playerArchetype = playerMask == 0 ? null : archetype(playerMask);
+    bossArchetype = bossMask == 0 ? null : archetype(bossMask);
+    fireballArchetype = archetypesByMask.get(fireballMask);
+    pendingCount = 0;
+  }
+
+  /**
+   * Update the player or boss location if it was moved by a swap remove
+   * @param archetype the archetype the row was moved in
+   * @param from the row the entity was moved from
+   * @param to the row the entity was moved to
+   */
+  private void relocate(Archetype archetype, int from, int to) {
+    if (from < 0) {
+      return;
+    }
+    if (archetype == playerArchetype && from == playerRow) {
+      playerRow = to;
+    } else if (archetype == bossArchetype && from == bossRow) {
+      bossRow = to;
+    }
+  }
+
+  /**
+   * Get all archetypes
+   * @return list of archetypes
+   */
+  public ArrayList<Archetype> getArchetypes() {
+    return archetypes;
+  }
+
+  /**
+   * Count the live entities in the world
+   * @return number of entities
+   */
+  public int getEntityCount() {
+    int count = 0;
+    for (Archetype archetype : archetypes) {
+      count += archetype.size;
+    }
+    return count;
+  }
+
+  /**
+   * Check if an input was pressed this tick (down now, but not last tick)
+   * @param bit the input bit
+   * @return true if the input was just pressed
+   */
+  boolean wasPressed(int bit) {
+    return (input & bit) != 0 && (previousInput & bit) == 0;
+  }
+
+  /**
+   * Check if an input is held down
+   * @param bit the input bit
+   * @return true if the input is down
+   */
+  boolean isDown(int bit) {
+    return (input & bit) != 0;
+  }
+
+  /**
+   * Set the input for the next tick
+   * @param input bitwise or of INPUT_ constants
+   */
+  public void setInput(int input) {
+    this.input = input;
+  }
+
+  /**
+   * Get the player's archetype
+   * @return the archetype the player is stored in
+   */
+  public Archetype getPlayerArchetype() {
+    return playerArchetype;
+  }
+
+  /**
+   * Get the player's row
+   * @return row index in the player archetype
+   */
+  public int getPlayerRow() {
+    return playerRow;
+  }
+
+  /**
+   * Get the boss's archetype
+   * @return the archetype the boss is stored in, or null if there is no boss
+   */
+  public Archetype getBossArchetype() {
+    return bossArchetype;
+  }
+
+  /**
+   * Get the boss's row
+   * @return row index in the boss archetype, or -1 if there is no boss
+   */
+  public int getBossRow() {
+    return bossRow;
+  }
+
+  /**
+   * Check if the level is won.
+   * If there is a boss, the flag only counts once the boss has finished its death animation.
+   * @return true if the player has won
+   */
+  public boolean isWon() {
+    return reachedFlag;
+  }
+
+  /**
+   * Check if the level is lost
+   * @return true if the player has died and the death animation is complete
+   */
+  public boolean isLost() {
+    return playerDeathComplete;
+  }
+
+  /**
+   * Restart the world's random numbers from a new seed
+   * @param seed the new seed
+   */
+  public void reseed(long seed) {
+    randomState = seed;
+  }
+
+  /**
+   * Get the next random boolean from the world's seeded generator (SplitMix64)
+   * @return a random boolean
+   */
+  boolean nextRandomBoolean() {
+    randomState += 0x9E3779B97F4A7C15L;
+    long z = randomState;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return ((z ^ (z >>> 31)) & 1) != 0;
+  }
+
+  /**
+   * Get the player's score
+   * @return the score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Increase the player's score
+   * @param amount the amount to add
+   */
+  void addScore(int amount) {
+    score += amount;
+  }
+
+  /**
+   * Setter for reachedFlag
+   * @param reachedFlag true if the player has reached the flag
+   */
+  void setReachedFlag(boolean reachedFlag) {
+    this.reachedFlag = reachedFlag;
+  }
+
+  /**
+   * Set the player's death animation to complete
+   * @param playerDeathComplete true if the death animation is complete
+   */
+  void setPlayerDeathComplete(boolean playerDeathComplete) {
+    this.playerDeathComplete = playerDeathComplete;
+  }
+
+  /**
+   * Set the boss's death animation to complete
+   * @param bossDeathComplete true if the death animation is complete
+   */
+  void setBossDeathComplete(boolean bossDeathComplete) {
+    this.bossDeathComplete = bossDeathComplete;
+  }
+
+  /**
+   * Get the camera's x position
+   * @return x position of the left edge of the view
+   */
+  public double getCameraX() {
+    return cameraX;
+  }
+
+  /**
+   * Set the camera's x position
+   * @param cameraX x position of the left edge of the view
+   */
+  void setCameraX(double cameraX) {
+    this.cameraX = cameraX;
+  }
+
+  /**
+   * Get the distance kept between the camera and the player
+   * @return camera offset in pixels
+   */
+  double getCameraOffset() {
+    return cameraOffset;
+  }
+
+  /**
+   * Set the distance kept between the camera and the player
+   * @param cameraOffset camera offset in pixels
+   */
+  void setCameraOffset(double cameraOffset) {
+    this.cameraOffset = cameraOffset;
+  }
+
+  /**
+   * Get the width of the level
+   * @return width in pixels
+   */
+  public double getLevelWidth() {
+    return levelWidth;
+  }
+
+  /**
+   * Set the width of the level
+   * @param levelWidth width in pixels
+   */
+  void setLevelWidth(double levelWidth) {
+    this.levelWidth = levelWidth;
+  }
+
+  /**
+   * Get the y position of the last platform the player landed on
+   * @return y position
+   */
+  double getPreviousPlatformY() {
+    return previousPlatformY;
+  }
+
+  /**
+   * Set the y position of the last platform the player landed on
+   * @param previousPlatformY y position
+   */
+  void setPreviousPlatformY(double previousPlatformY) {
+    this.previousPlatformY = previousPlatformY;
+  }
+
+  /**
+   * Get the number of completed ticks
+   * @return tick count
+   */
+  public long getTick() {
+    return tick;
+  }
+}
@@ -0,0 +1,216 @@
+package ecs;
+
+import java.util.concurrent.ConcurrentHashMap;
+import utils.IO;
+import utils.PropertiesLoader;
+
+/**
+ * Loads the level csv files into an ECS world.
+ * Component values are read from the same properties as the object oriented game objects,
+ * and collider sizes are read from the image headers so no textures need to be loaded.
+ * @author Michael Ren
+ */
+public class WorldLoader {
+  // As specified in project specs
+  private static final int PLATFORM_WIDTH = 6000;
+  private static final int FLYING_PLATFORM_TOP_PADDING = 3;
+
+  // Fireballs are spawned during play, so their values are parsed once up front
+  private static final double FIREBALL_RADIUS = getDouble("gameObjects.fireball.radius");
+  private static final double FIREBALL_SPEED = getDouble("gameObjects.fireball.speed");
+  private static final double FIREBALL_DAMAGE_SIZE = getDouble("gameObjects.fireball.damageSize");
+  private static final int[] FIREBALL_SIZE = IO.readImageSize(PropertiesLoader.getGameProperty("gameObjects.fireball.image"));
+
+  // Image sizes and parsed level files are cached by property name and shared by every world.
+  // Worlds may be loaded from several threads at once.
+  private static final ConcurrentHashMap<String, int[]> IMAGE_SIZES = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, String[][]> LEVEL_DATA = new ConcurrentHashMap<>();
+
+  private static final int PLAYER_MASK = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.COLLIDER,
+    Component.SPRITE, Component.HEALTH, Component.TIMER);
+  private static final int STATIC_MASK = Component.maskOf(Component.POSITION, Component.COLLIDER, Component.SPRITE);
+  private static final int PATROL_MASK = Component.maskOf(Component.POSITION, Component.COLLIDER, Component.SPRITE,
+    Component.PATROL);
+
+  /**
+   * Load a level into a world, given the level csv property name
+   * @param world the world to load into
+   * @param dataName the level csv file property name, as defined in app.properties
+   */
+  public static void load(World world, String dataName) {
+    load(world, getLevelData(dataName));
+  }
+
+  /**
+   * Get a parsed level csv file, reading it only the first time it is requested.
+   * The returned arrays are shared and must not be modified.
+   * @param dataName the level csv file property name, as defined in app.properties
+   * @return 2D array of level data
+   */
+  public static String[][] getLevelData(String dataName) {
+    return LEVEL_DATA.computeIfAbsent(dataName, name -> IO.readCsv(PropertiesLoader.getGameProperty(name)));
+  }
+
+  /**
+   * Load parsed level data into a world
+   * @param world the world to load into
+   * @param data 2D array of level data
+   */
+  public static void load(World world, String[][] data) {
+    world.setLevelWidth(PLATFORM_WIDTH);
+    for (String[] item : data) {
+      Kind kind = Kind.valueOf(item[0]);
+      double x = Double.parseDouble(item[1]);
+      double y = Double.parseDouble(item[2]);
+      spawn(world, kind, x, y);
+    }
+  }
+
+  /**
+   * Spawn a single object
+   * @param world the world to spawn into
+   * @param kind the kind of object
+   * @param x x position
+   * @param y y position
+   */
+  public static void spawn(World world, Kind kind, double x, double y) {
+    Archetype archetype;
+    int row;
+    switch (kind) {
+      case PLAYER:
+        archetype = world.spawn(kind, PLAYER_MASK);
+        row = archetype.size - 1;
+        setCircle(archetype, row, x, y, "gameObjects.player.radius", "gameObjects.player.imageRight");
+        archetype.health[row] = getDouble("gameObjects.player.health");
+        world.setCameraOffset(x);
+        world.setPreviousPlatformY(0);
+        break;
+      case ENEMY_BOSS:
+        archetype = world.spawn(kind, PLAYER_MASK);
+        row = archetype.size - 1;
+        setCircle(archetype, row, x, y, "gameObjects.enemyBoss.radius", "gameObjects.enemyBoss.image");
+        archetype.health[row] = getDouble("gameObjects.enemyBoss.health");
+        archetype.setFlag(row, Archetype.FLAG_FACING_LEFT, true);
+        archetype.timers[row * Archetype.TIMER_SLOTS + Archetype.TIMER_SHOOT] = ShootSystem.getShootInterval();
+        break;
+      case PLATFORM:
+        archetype = world.spawn(kind, STATIC_MASK);
+        row = archetype.size - 1;
+        setRect(archetype, row, x, y, "gameObjects.platform.image", 0);
+        break;
+      case FLYING_PLATFORM:
+        archetype = world.spawn(kind, PATROL_MASK);
+        row = archetype.size - 1;
+        setRect(archetype, row, x, y, "gameObjects.flyingPlatform.image", FLYING_PLATFORM_TOP_PADDING);
+        setPatrol(world, archetype, row, "gameObjects.flyingPlatform.randomSpeed",
+          "gameObjects.flyingPlatform.maxRandomDisplacementX");
+        break;
+      case ENEMY:
+        archetype = world.spawn(kind, PATROL_MASK);
+        row = archetype.size - 1;
+        setCircle(archetype, row, x, y, "gameObjects.enemy.radius", "gameObjects.enemy.image");
+        archetype.contactDamage[row] = getDouble("gameObjects.enemy.damageSize");
+        archetype.setFlag(row, Archetype.FLAG_CAN_DAMAGE, true);
+        setPatrol(world, archetype, row, "gameObjects.enemy.randomSpeed", "gameObjects.enemy.maxRandomDisplacementX");
+        break;
+      case COIN:
+        archetype = world.spawn(kind, STATIC_MASK);
+        setCircle(archetype, archetype.size - 1, x, y, "gameObjects.coin.radius", "gameObjects.coin.image");
+        break;
+      case DOUBLE_SCORE:
+        archetype = world.spawn(kind, STATIC_MASK);
+        setCircle(archetype, archetype.size - 1, x, y, "gameObjects.doubleScore.radius", "gameObjects.doubleScore.image");
+        break;
+      case INVINCIBLE_POWER:
+        archetype = world.spawn(kind, STATIC_MASK);
+        setCircle(archetype, archetype.size - 1, x, y, "gameObjects.invinciblePower.radius",
+          "gameObjects.invinciblePower.image");
+        break;
+      case END_FLAG:
+        archetype = world.spawn(kind, STATIC_MASK);
+        setCircle(archetype, archetype.size - 1, x, y, "gameObjects.endFlag.radius", "gameObjects.endFlag.image");
+        break;
+      case FIREBALL:
+        // Fireballs are only created by shooting
+        break;
+    }
+  }
+
+  /**
+   * Initialise a fireball row
+   * @param archetype the fireball archetype
+   * @param row the new row
+   * @param x x position
+   * @param y y position
+   * @param direction -1 for left, 1 for right
+   * @param fromPlayer true if the player shot the fireball
+   */
+  static void initFireball(Archetype archetype, int row, double x, double y, int direction, boolean fromPlayer) {
+    archetype.x[row] = x;
+    archetype.y[row] = y;
+    archetype.radius[row] = FIREBALL_RADIUS;
+    archetype.halfWidth[row] = FIREBALL_SIZE[0] / 2.0;
+    archetype.halfHeight[row] = FIREBALL_SIZE[1] / 2.0;
+    archetype.sprite[row] = archetype.kind[row];
+    archetype.vx[row] = direction * FIREBALL_SPEED;
+    archetype.vy[row] = 0;
+    archetype.contactDamage[row] = FIREBALL_DAMAGE_SIZE;
+    archetype.setFlag(row, Archetype.FLAG_FROM_PLAYER, fromPlayer);
+  }
+
+  /**
+   * Set position, sprite and a circle collider
+   * @param archetype the archetype
+   * @param row the row
+   * @param x x position
+   * @param y y position
+   * @param radiusName name of the radius property
+   * @param imageName name of the image property, used for the collider's bounding box
+   */
+  private static void setCircle(Archetype archetype, int row, double x, double y, String radiusName, String imageName) {
+    setRect(archetype, row, x, y, imageName, 0);
+    archetype.radius[row] = getDouble(radiusName);
+  }
+
+  /**
+   * Set position, sprite and a rect collider sized from the image
+   * @param archetype the archetype
+   * @param row the row
+   * @param x x position
+   * @param y y position
+   * @param imageName name of the image property
+   * @param topPadding transparent pixels at the top of the image to exclude from the collider
+   */
+  private static void setRect(Archetype archetype, int row, double x, double y, String imageName, int topPadding) {
+    int[] size = IMAGE_SIZES.computeIfAbsent(imageName, name -> IO.readImageSize(PropertiesLoader.getGameProperty(name)));
+    archetype.x[row] = x;
+    archetype.y[row] = y;
+    archetype.radius[row] = -1;
+    archetype.halfWidth[row] = size[0] / 2.0;
+    archetype.halfHeight[row] = (size[1] - topPadding) / 2.0;
+    archetype.sprite[row] = archetype.kind[row];
+  }
+
+  /**
+   * Set a patrol with a random initial direction
+   * @param world the world, used for its random number generator
+   * @param archetype the archetype
+   * @param row the row
+   * @param speedName name of the patrol speed property
+   * @param rangeName name of the maximum displacement property
+   */
+  private static void setPatrol(World world, Archetype archetype, int row, String speedName, String rangeName) {
+    archetype.originX[row] = archetype.x[row];
+    archetype.patrolRange[row] = getDouble(rangeName);
+    archetype.patrolSpeed[row] = getDouble(speedName) * (world.nextRandomBoolean() ? 1 : -1);
+  }
+
+  /**
+   * Get a game property as a double
+   * @param name name of the property
+   * @return value as a double
+   */
+  private static double getDouble(String name) {
+    return Double.parseDouble(PropertiesLoader.getGameProperty(name));
+  }
+}
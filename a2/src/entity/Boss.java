@@ -1,10 +1,13 @@
 package entity;
 
-import bagel.Input;
-import bagel.Window;
 import camera.Camera;
+import core.ObjectType;
+import input.KeyState;
 import level.Level;
+import save.StateReader;
+import save.StateWriter;
 import text.Text;
+import timer.GameTimer;
 import utils.PropertiesLoader;
 
 /**
@@ -17,11 +20,18 @@ public class Boss extends Entity {
   private static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemyBoss.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemyBoss.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.enemyBoss.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
   private final static double INITIAL_HEALTH = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemyBoss.health"));
   private final static int ACTIVATION_RADIUS = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.enemyBoss.activationRadius"));
   private final static int MAX_FRAMES = 100; // As per project specs
+  // Counting down from MAX_FRAMES to zero and then shooting takes one tick more than MAX_FRAMES
+  private final static int SHOOT_PERIOD = MAX_FRAMES + 1;
   private final Level level;
-  private int shootTimer = MAX_FRAMES;
+  // The next chance to shoot, only scheduled while the player is within the activation radius
+  private long nextShootTick = -1;
+  // Ticks left until the next chance to shoot, kept while the player is outside the activation radius
+  private int pausedShootTicks = MAX_FRAMES;
+  private final GameTimer shootTimer;
 
   /**
    * Create a new boss
@@ -30,10 +40,11 @@ public class Boss extends Entity {
    * @param y y position
    */
   public Boss(Level level, double x, double y) {
-    super(level, x, y, RADIUS, SPEED, IMAGE_SRC, IMAGE_SRC);
+    super(level, x, y, TYPE);
     this.level = level;
     setHealth(INITIAL_HEALTH);
     setDirection(getLeftDirection());
+    shootTimer = level.getTimers().createTimer(this::onShootTimer);
 
     // Create health message
     Text message = new Text("health", "enemyBossHealth.fontSize", "enemyBossHealth.x", "enemyBossHealth.y") {
@@ -47,11 +58,21 @@ public class Boss extends Entity {
   }
 
   /**
-   * Activate shoot ability for self and player if player is within activation radius
+   * Check if the player is within the activation radius
+   * @return true if the boss and player can shoot
+   */
+  private boolean isPlayerInRange() {
+    return Math.abs(getX() - level.getPlayer().getX()) <= ACTIVATION_RADIUS;
+  }
+
+  /**
+   * Activate shoot ability for self and player if player is within activation radius.
+   * The countdown to the next chance to shoot only runs while the player is in range,
+   * so it is paused when the player leaves and resumed when they come back.
    */
   private void activateShoot() {
     Player player = level.getPlayer();
-    if (Math.abs(getX() - player.getX()) <= ACTIVATION_RADIUS) {
+    if (isPlayerInRange()) {
       // Allow player to shoot
       player.setCanShoot(true);
 
@@ -62,35 +83,86 @@ public class Boss extends Entity {
         setDirection(getLeftDirection());
       }
 
-      // Randomly shoot fireball
-      if (shootTimer <= 0) {
-        if (Math.round(Math.random()) == 1) {
-          shoot();
-        }
-        shootTimer = MAX_FRAMES;
-      } else {
-        shootTimer--;
+      if (!shootTimer.isScheduled()) {
+        resumeShootTimer();
       }
+    } else if (shootTimer.isScheduled()) {
+      pausedShootTicks = (int) (nextShootTick - level.getTick());
+      nextShootTick = -1;
+      shootTimer.cancel();
+    }
+  }
+
+  /**
+   * Resume the countdown to the next chance to shoot from the ticks left when it was paused
+   */
+  private void resumeShootTimer() {
+    if (pausedShootTicks <= 0) {
+      onShootTimer();
+    } else {
+      nextShootTick = level.getTick() + pausedShootTicks;
+      shootTimer.schedule(nextShootTick);
+    }
+  }
+
+  /**
+   * Randomly shoot a fireball, and wait for the next chance to shoot.
+   * The timer stops if the boss has died. If the player has just left the activation radius,
+   * the chance is kept for when they come back.
+   */
+  private void onShootTimer() {
+    if (getHealth() <= 0) {
+      return;
+    }
+    if (!isPlayerInRange()) {
+      pausedShootTicks = 0;
+      return;
+    }
+    if (level.getRandom().nextBoolean()) {
+      shoot();
+    }
+    nextShootTick = level.getTick() + SHOOT_PERIOD;
+    shootTimer.schedule(nextShootTick);
+  }
+
+  /**
+   * Write the boss's state
+   * @param out the state writer
+   */
+  @Override
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeLong(nextShootTick);
+    out.writeInt(pausedShootTicks);
+  }
+
+  /**
+   * Restore the boss's state
+   * @param in the state reader
+   */
+  @Override
+  public void readState(StateReader in) {
+    super.readState(in);
+    nextShootTick = in.readLong();
+    pausedShootTicks = in.readInt();
+    if (nextShootTick > level.getTick()) {
+      shootTimer.schedule(nextShootTick);
+    } else {
+      shootTimer.cancel();
     }
   }
 
   /**
    * Update and draw the boss enemy.
-   * If the boss enemy's health is 0, the boss enemy will move off the screen.
+   * If the boss enemy's health is 0, it stops shooting while the death animation moves it off the screen.
    * @param input user input
    * @param camera the camera object
    */
   @Override
-  public void update(Input input, Camera camera) {
+  public void update(KeyState input, Camera camera) {
     super.update(input, camera);
 
-    if (getHealth() <= 0) {
-      if (getY() - getHeight() < Window.getHeight()) {
-        setY(getY() + getDeathAnimationSpeed());
-      } else {
-        setIsDeathAnimationComplete(true);
-      }
-    } else {
+    if (getHealth() > 0) {
       activateShoot();
     }
   }
@@ -1,84 +1,95 @@
 package entity;
 
 import java.util.ArrayList;
-import bagel.Image;
-import bagel.Input;
 import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
+import event.EventBus;
+import event.EventType;
 import level.Level;
+import save.StateReader;
+import save.StateWriter;
 import text.Text;
+import texture.Texture;
+import tween.Animated;
+import tween.Easing;
+import tween.TweenEngine;
+import utils.PropertiesLoader;
 
 
 /**
  * An entity is a character in the game that can move and interact with the environment.
  * Entities have directions, health, death animation, and can shoot fireballs.
+ * The death animation runs on the level's tween engine: an optional hop up, then a fall off the bottom of the screen,
+ * with speeds and easing set in app.properties.
  * @author Michael Ren
  */
-public abstract class Entity extends GameObject {
+public abstract class Entity extends GameObject implements Animated {
   private static enum Direction {
     LEFT,
     RIGHT
   }
   
-  private static final int DEATH_ANIMATION_SPEED = 2;
-  private final Image RIGHT_IMAGE;
-  private final Image LEFT_IMAGE;
-  private final ArrayList<Text> messages = new ArrayList<>();
+  // Average pixels per tick of the fall
+  private static final double DEATH_ANIMATION_SPEED =
+      Double.parseDouble(PropertiesLoader.getGameProperty("animation.death.speed"));
+  private static final Easing DEATH_ANIMATION_EASING =
+      Easing.valueOf(PropertiesLoader.getGameProperty("animation.death.easing"));
+  private static final double DEATH_HOP_HEIGHT =
+      Double.parseDouble(PropertiesLoader.getGameProperty("animation.death.hopHeight"));
+  private static final int DEATH_HOP_TICKS =
+      Integer.parseInt(PropertiesLoader.getGameProperty("animation.death.hopTicks"));
+  private static final Easing DEATH_HOP_EASING =
+      Easing.valueOf(PropertiesLoader.getGameProperty("animation.death.hopEasing"));
+  private static final double WINDOW_HEIGHT = Double.parseDouble(PropertiesLoader.getGameProperty("windowHeight"));
+  // Only the player and boss show messages, so the list is created on the first message
+  private ArrayList<Text> messages = null;
   private final Level level;
   private double health;
   private Direction direction = Direction.RIGHT;
   private boolean isDeathAnimationComplete = false;
+  private final Runnable onDeathAnimationComplete = () -> isDeathAnimationComplete = true;
+  // First tick of the death animation, or -1 if the entity has not died
+  private long deathTick = -1;
+  private double deathY;
 
   /**
    * Create a new entity
    * @param level the level object
    * @param x the x coordinate
    * @param y the y coordinate
-   * @param radius the radius of the entity
-   * @param speed the speed of the entity
-   * @param leftImageSrc the image source for the left image
-   * @param rightImageSrc the image source for the right image
+   * @param type the entity type, with images for facing left and right
    */
-  public Entity (Level level, double x, double y, double radius, double speed, String leftImageSrc, String rightImageSrc) {
-    super(x, y, radius, speed);
+  public Entity (Level level, double x, double y, ObjectType type) {
+    super(x, y, type);
     this.level = level;
-
-    // Set images
-    LEFT_IMAGE = leftImageSrc == null 
-      ? null
-      : new Image(leftImageSrc);
-
-    RIGHT_IMAGE = rightImageSrc == null 
-      ? null
-      : new Image(rightImageSrc);
   }
 
   /**
-   * Draw all messages on the screen
+   * Draw all messages on the screen.
+   * Called by draw, and by the level for entities that are asleep outside the activation band.
    */
-  private void showMessages() {
+  public void showMessages() {
+    if (messages == null) {
+      return;
+    }
     for (Text message : messages) {
       message.update();
     }
   }
 
   /**
-   * Draw entity (left or right image based on direction)
+   * Draw entity messages, and the left or right image based on direction
    * @param camera the camera object
    */
-  private void draw(Camera camera) {
-    double screenX = getX() - camera.getX();
-    double screenY = getY() - camera.getY();
+  @Override
+  public void draw(Camera camera) {
+    showMessages();
 
     // Show left or right image based on direction
-    if (isDirectionLeft()) {
-      if (LEFT_IMAGE != null) {
-        LEFT_IMAGE.draw(screenX, screenY);
-      }
-    } else {
-      if (RIGHT_IMAGE != null) {
-        RIGHT_IMAGE.draw(screenX, screenY);
-      }
+    Texture image = isDirectionLeft() ? getType().getLeftImage() : getType().getRightImage();
+    if (image != null) {
+      drawTexture(image, camera);
     }
   }
 
@@ -88,6 +99,7 @@ public abstract class Entity extends GameObject {
   protected void shoot() {
     Fireball fireball = new Fireball(getX(), getY(), direction == Direction.LEFT ? -1 : 1, this);
     level.addFireball(fireball);
+    level.getEventBus().publish(EventType.SHOOT, getClass(), getX(), getY(), 0);
   }
 
   /**
@@ -96,22 +108,89 @@ public abstract class Entity extends GameObject {
    * @param amount the amount of damage to take
    */
   public void takeDamage(double amount) {
+    boolean wasAlive = health > 0;
     health -= amount;
     if (health < 0) {
       health = 0;
     }
+
+    EventBus eventBus = level.getEventBus();
+    eventBus.publish(EventType.DAMAGE, getClass(), getX(), getY(), amount);
+    if (wasAlive && health <= 0) {
+      TweenEngine tweens = level.getTweens();
+      deathTick = tweens.getTick();
+      deathY = getY();
+      startDeathAnimation(tweens, 0);
+      eventBus.publish(EventType.DEATH, getClass(), getX(), getY(), 0);
+    }
   }
 
   /**
-   * Update the entity and show image and messages
-   * @param input the user input
-   * @param camera the camera object
+   * Move the entity off the bottom of the screen, hopping up first if a hop is configured.
+   * Mark the death animation complete once the entity is off screen.
+   * @param tweens the level's tween engine
+   * @param passed ticks of the animation already passed
+   */
+  private void startDeathAnimation(TweenEngine tweens, int passed) {
+    boolean hops = DEATH_HOP_TICKS > 0;
+    double peak = hops ? deathY - DEATH_HOP_HEIGHT : deathY;
+    double end = WINDOW_HEIGHT + getHeight();
+    int fallTicks = (int) Math.ceil((end - peak) / DEATH_ANIMATION_SPEED);
+    if (hops && passed < DEATH_HOP_TICKS) {
+      int hop = tweens.start(this, Y, deathY, peak, DEATH_HOP_TICKS, passed, DEATH_HOP_EASING, null);
+      tweens.then(hop, this, Y, peak, end, fallTicks, DEATH_ANIMATION_EASING, onDeathAnimationComplete);
+    } else {
+      int fallPassed = hops ? passed - DEATH_HOP_TICKS : passed;
+      tweens.start(this, Y, peak, end, fallTicks, fallPassed, DEATH_ANIMATION_EASING, onDeathAnimationComplete);
+    }
+  }
+
+  /**
+   * Write the entity's state
+   * @param out the state writer
    */
   @Override
-  public void update(Input input, Camera camera) {
-    super.update(input, camera);
-    showMessages();
-    draw(camera);
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeDouble(health);
+    out.writeBoolean(isDirectionLeft());
+    out.writeBoolean(isDeathAnimationComplete);
+    out.writeLong(deathTick);
+    out.writeDouble(deathY);
+  }
+
+  /**
+   * Restore the entity's state
+   * @param in the state reader
+   */
+  @Override
+  public void readState(StateReader in) {
+    super.readState(in);
+    health = in.readDouble();
+    direction = in.readBoolean() ? Direction.LEFT : Direction.RIGHT;
+    isDeathAnimationComplete = in.readBoolean();
+    deathTick = in.readLong();
+    deathY = in.readDouble();
+  }
+
+  /**
+   * Continue the death animation if the entity was part way through it
+   * @param level the level
+   */
+  @Override
+  public void restoreTweens(Level level) {
+    TweenEngine tweens = level.getTweens();
+    if (deathTick >= 0 && !isDeathAnimationComplete) {
+      startDeathAnimation(tweens, (int) (tweens.getTick() - deathTick));
+    }
+  }
+
+  /**
+   * Get the level the entity is in
+   * @return the level object
+   */
+  public Level getLevel() {
+    return level;
   }
 
   /**
@@ -146,14 +225,6 @@ public abstract class Entity extends GameObject {
     return Direction.RIGHT;
   }
 
-  /**
-   * Get the speed of the death animation
-   * @return the speed as an integer
-   */
-  public int getDeathAnimationSpeed() {
-    return DEATH_ANIMATION_SPEED;
-  }
-
   /**
    * Get the health of the entity
    * @return the health as a double
@@ -199,32 +270,9 @@ public abstract class Entity extends GameObject {
    * @param message the message to add as a Text object
    */
   public void addMessage(Text message) {
-    messages.add(message);
-  }
-
-  /**
-   * Get the width of the entity.
-   * If only one image is provided, the width of that image is returned.
-   * @return the width as a double
-   */
-  @Override
-  public double getWidth() {
-    if (LEFT_IMAGE != null) {
-      return LEFT_IMAGE.getWidth();
-    }
-    return RIGHT_IMAGE.getWidth();
-  }
-
-  /**
-   * Get the height of the entity.
-   * If only one image is provided, the height of that image is returned.
-   * @return the height as a double
-   */
-  @Override
-  public double getHeight() {
-    if (LEFT_IMAGE != null) { 
-      return LEFT_IMAGE.getHeight();
+    if (messages == null) {
+      messages = new ArrayList<>();
     }
-    return RIGHT_IMAGE.getHeight();
+    messages.add(message);
   }
 }
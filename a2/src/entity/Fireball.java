@@ -1,8 +1,10 @@
 package entity;
 
-import bagel.Input;
 import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
+import event.EventType;
+import input.KeyState;
 import utils.PropertiesLoader;
 
 /**
@@ -14,6 +16,7 @@ public class Fireball extends GameObject {
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.fireball.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.fireball.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.fireball.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
   private final int directionScalar;
   private final Entity owner;
 
@@ -25,7 +28,7 @@ public class Fireball extends GameObject {
    * @param owner the entity that shot the fireball
    */
   public Fireball(double x, double y, int directionScalar, Entity owner) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
     this.directionScalar = directionScalar;
     this.owner = owner;
   }
@@ -37,7 +40,7 @@ public class Fireball extends GameObject {
    * @param camera camera object
    */
   @Override
-  public void update(Input input, Camera camera) {
+  public void update(KeyState input, Camera camera) {
     super.update(input, camera);
     setX(getX() + getSpeed() * directionScalar);
 
@@ -48,9 +51,25 @@ public class Fireball extends GameObject {
     }
   }
 
+  /**
+   * Get the direction the fireball is travelling
+   * @return -1 for left and 1 for right
+   */
+  public int getDirectionScalar() {
+    return directionScalar;
+  }
+
+  /**
+   * Get the entity that shot the fireball
+   * @return the owner
+   */
+  public Entity getOwner() {
+    return owner;
+  }
+
   /**
    * Handle collision with an Entity object that is not the owner of the fireball.
-   * Damage the entity on collision, and flag the fireball for deletion.
+   * Damage the entity on collision, publish the hit, and flag the fireball for deletion.
    * @param object the game object to resolve collision with
    */
   @Override
@@ -61,6 +80,7 @@ public class Fireball extends GameObject {
     // but check to be safe and maintain readability.
     if (object instanceof Entity && object != owner) {
       ((Entity) object).takeDamage(DAMAGE_SIZE);
+      owner.getLevel().getEventBus().publish(EventType.HIT, getClass(), getX(), getY(), DAMAGE_SIZE);
       setCanRemove(true);
     }
   }
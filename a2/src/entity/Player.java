@@ -1,11 +1,16 @@
 package entity;
 
-import bagel.Input;
 import bagel.Keys;
-import bagel.Window;
 import camera.Camera;
+import core.ObjectType;
+import event.EventType;
+import input.InputQueue;
+import input.KeyState;
 import level.Level;
+import save.StateReader;
+import save.StateWriter;
 import text.Text;
+import timer.GameTimer;
 import utils.PropertiesLoader;
 
 /**
@@ -17,20 +22,26 @@ public class Player extends Entity {
   private static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.platform.speed"));
   private static String IMAGE_LEFT_SRC = PropertiesLoader.getGameProperty("gameObjects.player.imageLeft");
   private static String IMAGE_RIGHT_SRC = PropertiesLoader.getGameProperty("gameObjects.player.imageRight");
+  private static final ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_LEFT_SRC, IMAGE_RIGHT_SRC);
   private static double INITIAL_HEALTH = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.player.health"));
   
   // Values below are specified in project specs
-  private static final int GRAVITY = 1;
-  private static final int JUMP_SPEED = 20;
+  public static final int GRAVITY = 1;
+  public static final int JUMP_SPEED = 20;
 
   private int score = 0;
   private double velocityY = 0;
   private boolean isOnPlatform = true;
   private double previousPlatformY = 0;
 
-  private final double cameraOffset;
-  private int invinciblePowerTimer = 0;
-  private int doubleScoreTimer = 0;
+  private double cameraOffset;
+  // Power ups last until their end tick, and are switched off by their timers
+  private boolean isInvincible = false;
+  private boolean isDoubleScore = false;
+  private long invincibleEndTick = 0;
+  private long doubleScoreEndTick = 0;
+  private final GameTimer invincibleTimer;
+  private final GameTimer doubleScoreTimer;
   private boolean reachedFlag = false;
   private boolean jumpKeyDown = false;
   private boolean shootKeyDown = false;
@@ -47,12 +58,15 @@ public class Player extends Entity {
    * @param y y position
    */
   public Player(Level level, double x, double y) {
-    super(level, x, y, RADIUS, SPEED, IMAGE_LEFT_SRC, IMAGE_RIGHT_SRC);
+    super(level, x, y, TYPE);
     setHealth(INITIAL_HEALTH);
 
     // Use initial position as camera offset
     cameraOffset = x;
 
+    invincibleTimer = level.getTimers().createTimer(() -> isInvincible = false);
+    doubleScoreTimer = level.getTimers().createTimer(() -> isDoubleScore = false);
+
     // Create health message
     Text healthMessage = new Text("health", "playerHealth.fontSize", "playerHealth.x", "playerHealth.y") {
       @Override
@@ -121,27 +135,22 @@ public class Player extends Entity {
     if (isOnPlatform) {
       isOnPlatform = false;
       velocityY = -Math.abs(JUMP_SPEED);
+      getLevel().getEventBus().publish(EventType.JUMP, getClass(), getX(), getY(), 0);
     }
   }
 
   /**
    * Update the and draw the player.
    * Move the player base on keyboard inputs, and update camera position.
-   * If the player is dead, move the player off the screen.
+   * If the player is dead, ignore the controls while the death animation moves the player off the screen.
    * @param input user input
    * @param camera the camera object
    */
   @Override
-  public void update(Input input, Camera camera) {
+  public void update(KeyState input, Camera camera) {
     super.update(input, camera);
 
     if (getHealth() <= 0) {
-      if (getY() - getHeight() < Window.getHeight()) {
-        setY(getY() + getDeathAnimationSpeed());
-      } else {
-        setIsDeathAnimationComplete(true);
-      }
-
       return;
     }
 
@@ -152,20 +161,38 @@ public class Player extends Entity {
       moveRight();
     }
     
-    // Jump control
-    if (!jumpKeyDown && input.isDown(Keys.UP)) {
-      jump();
-      jumpKeyDown = true;
-    } else if (input.isUp(Keys.UP)) {
-      jumpKeyDown = false;
-    }
+    InputQueue events = getLevel().getInputQueue();
+    if (events.isInstalled()) {
+      // Handle every press in the order it happened, even if the key was released again within the frame
+      for (int i = 0; i < events.size(); i++) {
+        if (events.getKey(i) == Keys.UP) {
+          if (events.isPress(i)) {
+            jump();
+          }
+          jumpKeyDown = events.isPress(i);
+        } else if (events.getKey(i) == Keys.S) {
+          if (events.isPress(i)) {
+            shoot();
+          }
+          shootKeyDown = events.isPress(i);
+        }
+      }
+    } else {
+      // Jump control
+      if (!jumpKeyDown && input.isDown(Keys.UP)) {
+        jump();
+        jumpKeyDown = true;
+      } else if (input.isUp(Keys.UP)) {
+        jumpKeyDown = false;
+      }
 
-    // Shoot
-    if (!shootKeyDown && input.isDown(Keys.S)) {
-      shoot();
-      shootKeyDown = true;
-    } else if (input.isUp(Keys.S)) {
-      shootKeyDown = false;
+      // Shoot
+      if (!shootKeyDown && input.isDown(Keys.S)) {
+        shoot();
+        shootKeyDown = true;
+      } else if (input.isUp(Keys.S)) {
+        shootKeyDown = false;
+      }
     }
 
     // Update camera
@@ -179,21 +206,69 @@ public class Player extends Entity {
       velocityY += GRAVITY;
     }
 
-    // Update power up timers
-    if (doubleScoreTimer > 0) {
-      doubleScoreTimer--;
-    }
-
-    if (invinciblePowerTimer > 0) {
-      invinciblePowerTimer--;
-    }
-
     // Set these attributes to false,
     // so we can re-check if they are true in the next update cycle 
     isOnPlatform = false;
     canShoot = false;
   }
 
+  /**
+   * Write the player's state
+   * @param out the state writer
+   */
+  @Override
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeInt(score);
+    out.writeDouble(velocityY);
+    out.writeBoolean(isOnPlatform);
+    out.writeDouble(previousPlatformY);
+    out.writeDouble(cameraOffset);
+    out.writeLong(invincibleEndTick);
+    out.writeLong(doubleScoreEndTick);
+    out.writeBoolean(reachedFlag);
+    out.writeBoolean(jumpKeyDown);
+    out.writeBoolean(shootKeyDown);
+    out.writeBoolean(canShoot);
+  }
+
+  /**
+   * Restore the player's state
+   * @param in the state reader
+   */
+  @Override
+  public void readState(StateReader in) {
+    super.readState(in);
+    score = in.readInt();
+    velocityY = in.readDouble();
+    isOnPlatform = in.readBoolean();
+    previousPlatformY = in.readDouble();
+    cameraOffset = in.readDouble();
+    invincibleEndTick = in.readLong();
+    doubleScoreEndTick = in.readLong();
+    isInvincible = restoreTimer(invincibleTimer, invincibleEndTick);
+    isDoubleScore = restoreTimer(doubleScoreTimer, doubleScoreEndTick);
+    reachedFlag = in.readBoolean();
+    jumpKeyDown = in.readBoolean();
+    shootKeyDown = in.readBoolean();
+    canShoot = in.readBoolean();
+  }
+
+  /**
+   * Schedule a power up's timer again after the level state has been restored
+   * @param timer the power up's timer
+   * @param endTick the tick the power up ends on
+   * @return true if the power up is still active
+   */
+  private boolean restoreTimer(GameTimer timer, long endTick) {
+    if (endTick > getLevel().getTick()) {
+      timer.schedule(endTick);
+      return true;
+    }
+    timer.cancel();
+    return false;
+  }
+
   /**
    * Shoot fireball in the current facing direction only if the player can shoot.
    * The player can shoot if the player is near boss enemy.
@@ -210,7 +285,7 @@ public class Player extends Entity {
    */
   @Override
   public void takeDamage(double damage) {
-    if (invinciblePowerTimer <= 0) {
+    if (!isInvincible) {
       super.takeDamage(damage);
     }
   }
@@ -220,23 +295,27 @@ public class Player extends Entity {
    * @return true if the player can take damage, false otherwise
    */
   public boolean canTakeDamage() {
-    return invinciblePowerTimer <= 0;
+    return !isInvincible;
   }
 
   /**
    * Give the player the double score power up
-   * @param duration the duration of the power up
+   * @param duration the duration of the power up in ticks
    */
   public void useDoubleScore(int duration) {
-    doubleScoreTimer = duration;
+    isDoubleScore = true;
+    doubleScoreEndTick = getLevel().getTick() + duration;
+    doubleScoreTimer.schedule(doubleScoreEndTick);
   }
 
   /**
    * Give the player the invincible power up
-   * @param duration the duration of the power up
+   * @param duration the duration of the power up in ticks
    */
   public void useInvinciblePower(int duration) {
-    invinciblePowerTimer = duration;
+    isInvincible = true;
+    invincibleEndTick = getLevel().getTick() + duration;
+    invincibleTimer.schedule(invincibleEndTick);
   }
 
   /**
@@ -244,7 +323,7 @@ public class Player extends Entity {
    * If the player has the double score power up, the score is increased by 2
    */
   public void increaseScore() {
-    score += doubleScoreTimer > 0 ? 2 : 1;
+    score += isDoubleScore ? 2 : 1;
   }
 
   /**
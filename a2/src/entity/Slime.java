@@ -1,9 +1,11 @@
 package entity;
 
-import java.util.Random;
-import bagel.Input;
-import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
+import core.PatrollingObject;
+import save.StateReader;
+import save.StateWriter;
+import utils.GameRandom;
 import utils.PropertiesLoader;
 
 /**
@@ -11,51 +13,62 @@ import utils.PropertiesLoader;
  * and damages player on collision.
  * @author Michael Ren
  */
-public class Slime extends GameObject {
+public class Slime extends PatrollingObject {
   private static double DAMAGE_SIZE = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemy.damageSize"));
   private static int RANDOM_SPEED = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.enemy.randomSpeed"));
   private static int MAX_DISPLACEMENT = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.enemy.maxRandomDisplacementX"));
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemy.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.enemy.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.enemy.image");
-  private final double INITIAL_X;
-  
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
   private boolean canDamage = true;
-  private int direction = (new Random()).nextBoolean() ? 1 : -1;
 
   /**
    * Create a new Slime given initial position
    * @param x x position
    * @param y y position
+   * @param random the level's random numbers, which choose the starting direction
    */
-  public Slime(double x, double y) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
-    INITIAL_X = x;
+  public Slime(double x, double y, GameRandom random) {
+    super(x, y, TYPE, random);
   }
 
   /**
-   * Move the slime within a certain range, changing direction when it reaches the edge.
-   * The intial direction is set randomly.
+   * Get the distance the slime moves per tick
+   * @return speed in pixels per tick
    */
-  private void randomMove() {
-    // Move the object
-    setX(getX() + direction * RANDOM_SPEED);
+  @Override
+  protected double getPatrolSpeed() {
+    return RANDOM_SPEED;
+  }
 
-    // Change direction when reached maximum displacement
-    if (Math.abs(getX() - INITIAL_X) > MAX_DISPLACEMENT) {
-      direction = (direction == 1) ? -1 : 1;
-    }
+  /**
+   * Get the displacement after which the slime turns around
+   * @return maximum displacement in pixels
+   */
+  @Override
+  protected double getPatrolRange() {
+    return MAX_DISPLACEMENT;
+  }
+
+  /**
+   * Write the slime's state
+   * @param out the state writer
+   */
+  @Override
+  public void writeState(StateWriter out) {
+    super.writeState(out);
+    out.writeBoolean(canDamage);
   }
 
   /**
-   * Draw the slime, and update random movement.
-   * @param input user input
-   * @param camera camera object
+   * Restore the slime's state
+   * @param in the state reader
    */
   @Override
-  public void update(Input input, Camera camera) {
-    super.update(input, camera);
-    randomMove();
+  public void readState(StateReader in) {
+    super.readState(in);
+    canDamage = in.readBoolean();
   }
 
   /**
@@ -0,0 +1,110 @@
+package event;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer event bus built on a preallocated ring of reusable event slots.
+ * The game thread publishes events, which are passed straight to synchronous subscribers,
+ * and left in the ring for consumers that drain on other threads.
+ * Publishing never allocates or blocks; if a consumer falls a full ring behind,
+ * the oldest events are overwritten and counted as dropped by that consumer.
+ * @author Michael Ren
+ */
+public class EventBus {
+  private final GameEvent[] slots;
+  private final int indexMask;
+  // Number of events published so far, i.e. the sequence of the next event
+  private final AtomicLong cursor = new AtomicLong(0);
+  private final ArrayList<EventListener> subscribers = new ArrayList<>();
+
+  /**
+   * Create a new event bus
+   * @param capacity number of event slots in the ring, must be a power of two
+   */
+  public EventBus(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Event bus capacity must be a power of two: " + capacity);
+    }
+    slots = new GameEvent[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new GameEvent();
+    }
+    indexMask = capacity - 1;
+  }
+
+  /**
+   * Publish an event. Must only be called from the thread updating the current scene,
+   * which is the simulation thread while a pipelined level is running.
+   * @param type the event type
+   * @param sourceType the class of the game object that caused the event, or null
+   * @param x x position of the event
+   * @param y y position of the event
+   * @param amount event specific value, e.g. damage taken or scene id
+   */
+  public void publish(EventType type, Class<?> sourceType, double x, double y, double amount) {
+    long sequence = cursor.get();
+    GameEvent slot = slots[(int) (sequence & indexMask)];
+
+    // Make sure consumers see the previous cursor before the slot starts being overwritten
+    VarHandle.storeStoreFence();
+    slot.set(sequence, type, sourceType, x, y, amount);
+    cursor.lazySet(sequence + 1);
+
+    // Index based loop so no iterator is allocated
+    for (int i = 0; i < subscribers.size(); i++) {
+      subscribers.get(i).onEvent(slot);
+    }
+  }
+
+  /**
+   * Add a synchronous subscriber, called on the game thread for every event
+   * @param listener the listener to add
+   */
+  public void subscribe(EventListener listener) {
+    subscribers.add(listener);
+  }
+
+  /**
+   * Remove a synchronous subscriber
+   * @param listener the listener to remove
+   */
+  public void unsubscribe(EventListener listener) {
+    subscribers.remove(listener);
+  }
+
+  /**
+   * Create a consumer which starts at the next published event.
+   * Consumers can be drained on any thread.
+   * @return the new consumer
+   */
+  public EventConsumer createConsumer() {
+    return new EventConsumer(this, cursor.get());
+  }
+
+  /**
+   * Get the sequence of the next event to be published
+   * @return number of events published so far
+   */
+  long getCursor() {
+    return cursor.get();
+  }
+
+  /**
+   * Get the slot that holds (or will hold) an event
+   * @param sequence the event sequence
+   * @return the slot
+   */
+  GameEvent getSlot(long sequence) {
+    return slots[(int) (sequence & indexMask)];
+  }
+
+  /**
+   * Get the number of slots in the ring
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return slots.length;
+  }
+}
@@ -0,0 +1,108 @@
+package event;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads events from an event bus at its own pace, usually on another thread.
+ * Each event is copied out of the ring before it is handled,
+ * and events overwritten by the producer before they could be read are skipped and counted as dropped.
+ * @author Michael Ren
+ */
+public class EventConsumer {
+  private static final long IDLE_PARK_NANOS = 1_000_000;
+
+  private final EventBus bus;
+  private final GameEvent event = new GameEvent();
+  private long sequence;
+  private long dropped = 0;
+  private volatile boolean running = false;
+  private Thread thread;
+
+  /**
+   * Create a new consumer
+   * @param bus the bus to read from
+   * @param sequence the sequence of the first event to read
+   */
+  EventConsumer(EventBus bus, long sequence) {
+    this.bus = bus;
+    this.sequence = sequence;
+  }
+
+  /**
+   * Handle every event published since the last drain
+   * @param listener the listener to pass events to
+   * @return the number of events handled
+   */
+  public int drain(EventListener listener) {
+    long available = bus.getCursor();
+    int capacity = bus.getCapacity();
+    int count = 0;
+
+    // Skip events that have already been overwritten
+    if (available - sequence > capacity) {
+      dropped += available - sequence - capacity;
+      sequence = available - capacity;
+    }
+
+    while (sequence < available) {
+      event.copyFrom(bus.getSlot(sequence));
+
+      // The copy is only valid if the producer had not started overwriting the slot
+      VarHandle.loadLoadFence();
+      if (bus.getCursor() - sequence >= capacity) {
+        dropped++;
+      } else {
+        listener.onEvent(event);
+        count++;
+      }
+      sequence++;
+    }
+    return count;
+  }
+
+  /**
+   * Start draining on a new daemon thread
+   * @param listener the listener to pass events to
+   * @param name name of the thread
+   */
+  public synchronized void start(EventListener listener, String name) {
+    if (running) {
+      return;
+    }
+    running = true;
+    thread = new Thread(() -> {
+      while (running) {
+        if (drain(listener) == 0) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+      drain(listener);
+    }, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stop the draining thread after it handles any remaining events
+   */
+  public synchronized void stop() {
+    running = false;
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+  }
+
+  /**
+   * Get the number of events that were overwritten before this consumer could read them
+   * @return number of dropped events
+   */
+  public long getDropped() {
+    return dropped;
+  }
+}
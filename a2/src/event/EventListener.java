@@ -0,0 +1,13 @@
+package event;
+
+/**
+ * Interface for objects that observe gameplay events
+ * @author Michael Ren
+ */
+public interface EventListener {
+  /**
+   * Handle an event. The event object is reused, so copy values that need to be kept.
+   * @param event the event
+   */
+  public void onEvent(GameEvent event);
+}
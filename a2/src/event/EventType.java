@@ -0,0 +1,17 @@
+package event;
+
+/**
+ * Types of gameplay events that can be published on the event bus
+ * @author Michael Ren
+ */
+public enum EventType {
+  PICKUP,
+  SHOOT,
+  DAMAGE,
+  DEATH,
+  LEVEL_WON,
+  LEVEL_LOST,
+  SCENE_CHANGE,
+  JUMP,
+  HIT,
+}
@@ -0,0 +1,90 @@
+package event;
+
+/**
+ * A gameplay event.
+ * Events are reusable slots owned by the event bus, and are overwritten once the ring wraps around,
+ * so listeners must copy any values they want to keep after onEvent returns.
+ * @author Michael Ren
+ */
+public class GameEvent {
+  private long sequence;
+  private EventType type;
+  private Class<?> sourceType;
+  private double x;
+  private double y;
+  private double amount;
+
+  /**
+   * Overwrite every field of the event
+   * @param sequence the sequence number assigned by the bus
+   * @param type the event type
+   * @param sourceType the class of the game object that caused the event, or null
+   * @param x x position of the event
+   * @param y y position of the event
+   * @param amount event specific value, e.g. damage taken or scene id
+   */
+  void set(long sequence, EventType type, Class<?> sourceType, double x, double y, double amount) {
+    this.sequence = sequence;
+    this.type = type;
+    this.sourceType = sourceType;
+    this.x = x;
+    this.y = y;
+    this.amount = amount;
+  }
+
+  /**
+   * Copy another event into this one
+   * @param other the event to copy
+   */
+  void copyFrom(GameEvent other) {
+    set(other.sequence, other.type, other.sourceType, other.x, other.y, other.amount);
+  }
+
+  /**
+   * Get the sequence number
+   * @return the position of this event in the bus's stream
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Get the event type
+   * @return the event type
+   */
+  public EventType getType() {
+    return type;
+  }
+
+  /**
+   * Get the class of the game object that caused the event
+   * @return the source class, or null if there is no source object
+   */
+  public Class<?> getSourceType() {
+    return sourceType;
+  }
+
+  /**
+   * Get the x position of the event
+   * @return x position
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Get the y position of the event
+   * @return y position
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Get the event specific value
+   * @return amount, e.g. damage taken or scene id
+   */
+  public double getAmount() {
+    return amount;
+  }
+}
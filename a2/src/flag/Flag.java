@@ -1,6 +1,7 @@
 package flag;
 
 import core.GameObject;
+import core.ObjectType;
 import entity.Player;
 import utils.PropertiesLoader;
 
@@ -13,6 +14,7 @@ public class Flag extends GameObject {
   private final static double RADIUS = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.endFlag.radius"));
   private final static double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.endFlag.speed"));
   private final static String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.endFlag.image");
+  private final static ObjectType TYPE = new ObjectType(RADIUS, SPEED, IMAGE_SRC);
 
   /**
    * Create a new Flag object
@@ -20,7 +22,7 @@ public class Flag extends GameObject {
    * @param y y position
    */
   public Flag(double x, double y) {
-    super(x, y, RADIUS, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
   }
 
   /**
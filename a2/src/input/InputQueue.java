@@ -0,0 +1,221 @@
+package input;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import bagel.Keys;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWKeyCallback;
+
+/**
+ * Records timestamped key presses and releases as GLFW delivers them, so the game can handle every transition
+ * in order, including a press and release that both happen within one frame, which polling would miss.
+ * The callback is chained in front of Bagel's own key handling, which keeps working as before.
+ * Events go into a lock-free single-producer, single-consumer ring: the callback publishes each event
+ * by advancing the write index, and beginFrame makes every event published so far visible for the frame.
+ * Events are handled in the order they arrived, and their timestamps are only used to measure input latency:
+ * the time from an event arriving to the end of the buffer swap that presented the frame which handled it.
+ * The time the display takes to scan the frame out cannot be observed, so it is not included.
+ * @author Michael Ren
+ */
+public class InputQueue {
+  private static final int CAPACITY = 256; // Must be a power of two
+  private static final int LATENCY_SAMPLES = 600;
+
+  private final long[] eventNanos = new long[CAPACITY];
+  private final Keys[] eventKeys = new Keys[CAPACITY];
+  private final boolean[] eventPresses = new boolean[CAPACITY];
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  // Events visible in the current frame, read by the main thread only
+  private long frameStart = 0;
+  private long frameEnd = 0;
+  // Events before this have been displayed and had their latency recorded
+  private long displayedEnd = 0;
+  // Slots before both the current frame and the first undisplayed event can be reused, published for the producer
+  private volatile long consumed = 0;
+
+  // Ring of recent input latencies in nanoseconds
+  private final long[] latencyNanos = new long[LATENCY_SAMPLES];
+  private volatile int latencyCount = 0;
+
+  private GLFWKeyCallback callback = null;
+  private GLFWKeyCallback previous = null;
+
+  /**
+   * Chain the key callback of the current window to record events.
+   * Must be called on the main thread once the window has been created.
+   * @return true if the callback was installed, false if there is no window
+   */
+  public boolean installKeyCallback() {
+    long window = GLFW.glfwGetCurrentContext();
+    if (window == 0) {
+      return false;
+    }
+    callback = GLFWKeyCallback.create(this::onKey);
+    previous = GLFW.glfwSetKeyCallback(window, callback);
+    return true;
+  }
+
+  /**
+   * Check if key events are being recorded, otherwise callers should fall back to polling
+   * @return true if the key callback is installed
+   */
+  public boolean isInstalled() {
+    return callback != null;
+  }
+
+  /**
+   * Handle a key event from GLFW
+   * @param window the window handle
+   * @param key the GLFW key code
+   * @param scancode the platform scancode
+   * @param action GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT
+   * @param mods modifier bits
+   */
+  private void onKey(long window, int key, int scancode, int action, int mods) {
+    if (previous != null) {
+      previous.invoke(window, key, scancode, action, mods);
+    }
+
+    Keys mapped = toKeys(key);
+    if (mapped != null && action != GLFW.GLFW_REPEAT) {
+      offer(mapped, action == GLFW.GLFW_PRESS, System.nanoTime());
+    }
+  }
+
+  /**
+   * Map a GLFW key code to the keys the game uses
+   * @param key the GLFW key code
+   * @return the key, or null if the game does not use it
+   */
+  private static Keys toKeys(int key) {
+    switch (key) {
+      case GLFW.GLFW_KEY_LEFT:
+        return Keys.LEFT;
+      case GLFW.GLFW_KEY_RIGHT:
+        return Keys.RIGHT;
+      case GLFW.GLFW_KEY_UP:
+        return Keys.UP;
+      case GLFW.GLFW_KEY_DOWN:
+        return Keys.DOWN;
+      case GLFW.GLFW_KEY_S:
+        return Keys.S;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Add an event to the ring. Only called by the producer.
+   * @param key the key
+   * @param press true for a press, false for a release
+   * @param nanos System.nanoTime() when the event was received
+   * @return false if the ring was full and the event was dropped
+   */
+  public boolean offer(Keys key, boolean press, long nanos) {
+    long index = written.get();
+    if (index - consumed >= CAPACITY) {
+      dropped.incrementAndGet();
+      return false;
+    }
+    int slot = (int) (index & (CAPACITY - 1));
+    eventNanos[slot] = nanos;
+    eventKeys[slot] = key;
+    eventPresses[slot] = press;
+    written.lazySet(index + 1);
+    return true;
+  }
+
+  /**
+   * Make every event received so far visible for this frame, releasing the previous frame's events.
+   * Called once at the start of each frame.
+   */
+  public void beginFrame() {
+    frameStart = frameEnd;
+    consumed = Math.min(frameStart, displayedEnd);
+    frameEnd = written.get();
+  }
+
+  /**
+   * Record the latency of every event before an index that has not been recorded yet, up to now.
+   * Called once the frame that handled the events has been presented.
+   * @param end index after the last event that has been displayed
+   */
+  public void markDisplayed(long end) {
+    long now = System.nanoTime();
+    for (long i = displayedEnd; i < end; i++) {
+      latencyNanos[latencyCount % LATENCY_SAMPLES] = now - eventNanos[(int) (i & (CAPACITY - 1))];
+      latencyCount++;
+    }
+    displayedEnd = Math.max(displayedEnd, end);
+  }
+
+  /**
+   * Get the index after this frame's last event
+   * @return event index
+   */
+  public long getFrameEnd() {
+    return frameEnd;
+  }
+
+  /**
+   * Get the number of events in this frame
+   * @return number of events
+   */
+  public int size() {
+    return (int) (frameEnd - frameStart);
+  }
+
+  /**
+   * Get the key of an event in this frame
+   * @param index index in [0, size), in the order the events happened
+   * @return the key
+   */
+  public Keys getKey(int index) {
+    return eventKeys[(int) ((frameStart + index) & (CAPACITY - 1))];
+  }
+
+  /**
+   * Check if an event in this frame is a press
+   * @param index index in [0, size)
+   * @return true for a press, false for a release
+   */
+  public boolean isPress(int index) {
+    return eventPresses[(int) ((frameStart + index) & (CAPACITY - 1))];
+  }
+
+  /**
+   * Get when an event in this frame was received
+   * @param index index in [0, size)
+   * @return System.nanoTime() when the event was received
+   */
+  public long getNanos(int index) {
+    return eventNanos[(int) ((frameStart + index) & (CAPACITY - 1))];
+  }
+
+  /**
+   * Get the number of events dropped because the ring was full
+   * @return number of events
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Get a percentile of the recent input latencies. Safe to call from any thread.
+   * Samples may be overwritten while they are copied, which only skews the result slightly.
+   * @param percentile the percentile, between 0 and 100
+   * @return time in milliseconds, or 0 if no events have been recorded
+   */
+  public double getLatencyPercentileMillis(double percentile) {
+    int count = Math.min(latencyCount, LATENCY_SAMPLES);
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(latencyNanos, count);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
@@ -0,0 +1,52 @@
+package input;
+
+import bagel.Input;
+import bagel.Keys;
+
+/**
+ * The keys held down during a frame, copied from Bagel's input so the frame can be simulated on another thread.
+ * Capturing reuses the same array, so a key state can be kept and refilled every frame without allocating.
+ * @author Michael Ren
+ */
+public class KeyState {
+  private static final Keys[] KEYS = Keys.values();
+
+  private final boolean[] down = new boolean[KEYS.length];
+
+  /**
+   * Copy which keys are held down. Must be called on the main thread.
+   * @param input user input
+   */
+  public void capture(Input input) {
+    for (int i = 0; i < KEYS.length; i++) {
+      down[i] = input.isDown(KEYS[i]);
+    }
+  }
+
+  /**
+   * Set whether a key is held down
+   * @param key the key
+   * @param isDown true if the key is held down
+   */
+  public void set(Keys key, boolean isDown) {
+    down[key.ordinal()] = isDown;
+  }
+
+  /**
+   * Check if a key was held down
+   * @param key the key
+   * @return true if the key was held down
+   */
+  public boolean isDown(Keys key) {
+    return down[key.ordinal()];
+  }
+
+  /**
+   * Check if a key was not held down
+   * @param key the key
+   * @return true if the key was up
+   */
+  public boolean isUp(Keys key) {
+    return !down[key.ordinal()];
+  }
+}
@@ -0,0 +1,331 @@
+package leaderboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * Local leaderboard and run history, kept crash safe with a write-ahead log and periodic snapshots.
+ * Finished runs are handed to a background writer thread, which adds them to the in-memory index
+ * and appends them to the log, so ending a level never waits for the disk.
+ * The index only keeps what is shown: the top runs and totals of each level, and the most recent runs.
+ * Top runs and totals are immutable and replaced as a whole, so reading them never locks or copies,
+ * and takes the same time however many runs have been played.
+ * Every few runs the index is written to a new snapshot and the log is restarted, so opening the leaderboard
+ * only replays the runs since the last snapshot.
+ * @author Michael Ren
+ */
+public class Leaderboard {
+  private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
+  private static final int SNAPSHOT_MAGIC = 0x534d5253;
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final String LOG_FILE = "runs.log";
+  private static final String SNAPSHOT_FILE = "runs.snapshot";
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "leaderboard-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path directory;
+  private final int levelCount;
+  private final int topSize;
+  private final int historySize;
+  private final int compactEvery;
+
+  // Written by the writer thread, read by any thread
+  private final AtomicReferenceArray<RunRecord[]> topRuns;
+  private final AtomicReferenceArray<LevelStats> stats;
+  private volatile boolean loaded = false;
+  private volatile RunRecord lastRun = null;
+
+  // Ring of the most recent runs, guarded by itself
+  private final RunRecord[] history;
+  private int historyCount = 0;
+
+  // Only used by the writer thread
+  private final RunLog log;
+  private int appendedSinceSnapshot = 0;
+
+  /**
+   * Open a leaderboard. Existing runs are loaded on the writer thread, until then the leaderboard reads as empty.
+   * @param directory directory holding the log and snapshot
+   * @param levelCount number of levels, which are numbered from 1
+   * @param topSize number of top runs kept for each level
+   * @param historySize number of recent runs kept
+   * @param compactEvery number of runs appended to the log before a new snapshot is written
+   */
+  public Leaderboard(Path directory, int levelCount, int topSize, int historySize, int compactEvery) {
+    this.directory = directory;
+    this.levelCount = levelCount;
+    this.topSize = topSize;
+    this.historySize = historySize;
+    this.compactEvery = compactEvery;
+    topRuns = new AtomicReferenceArray<>(levelCount);
+    stats = new AtomicReferenceArray<>(levelCount);
+    for (int i = 0; i < levelCount; i++) {
+      topRuns.set(i, new RunRecord[0]);
+      stats.set(i, LevelStats.EMPTY);
+    }
+    history = new RunRecord[historySize];
+    log = new RunLog(directory.resolve(LOG_FILE));
+    executor.execute(this::load);
+  }
+
+  /**
+   * Load the snapshot and replay the log since it
+   */
+  private void load() {
+    try {
+      Files.createDirectories(directory);
+      int generation = readSnapshot();
+      int replayed = log.open(generation, this::index);
+      appendedSinceSnapshot = replayed;
+      if (replayed >= compactEvery) {
+        compact();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    loaded = true;
+  }
+
+  /**
+   * Record a finished run. Returns straight away, the run is indexed and logged on the writer thread.
+   * @param run the run
+   */
+  public void record(RunRecord run) {
+    lastRun = run;
+    executor.execute(() -> {
+      index(run);
+      try {
+        log.append(run);
+        appendedSinceSnapshot++;
+        if (appendedSinceSnapshot >= compactEvery) {
+          compact();
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  /**
+   * Add a run to the in-memory index. Only called by the writer thread.
+   * @param run the run
+   */
+  private void index(RunRecord run) {
+    int level = run.getLevel() - 1;
+    if (level < 0 || level >= levelCount) {
+      return;
+    }
+    stats.set(level, stats.get(level).add(run));
+
+    synchronized (history) {
+      if (historySize > 0) {
+        history[historyCount % historySize] = run;
+        historyCount++;
+      }
+    }
+
+    // Most runs do not make the top runs, and are rejected without copying
+    RunRecord[] top = topRuns.get(level);
+    if (topSize == 0 || (top.length == topSize && run.compareTo(top[topSize - 1]) >= 0)) {
+      return;
+    }
+    int insert = Arrays.binarySearch(top, run);
+    insert = insert < 0 ? -insert - 1 : insert;
+    RunRecord[] updated = new RunRecord[Math.min(top.length + 1, topSize)];
+    System.arraycopy(top, 0, updated, 0, insert);
+    updated[insert] = run;
+    System.arraycopy(top, insert, updated, insert + 1, updated.length - insert - 1);
+    topRuns.set(level, updated);
+  }
+
+  /**
+   * Write the index to a new snapshot, then restart the log, as every run in it is now in the snapshot.
+   * The snapshot is written to a temporary file, synced, and moved into place, and has a newer generation
+   * than the log, so a crash at any point leaves either the old snapshot and log or the new snapshot.
+   * Only called by the writer thread.
+   * @throws IOException if the snapshot cannot be written
+   */
+  private void compact() throws IOException {
+    int generation = log.getGeneration() + 1;
+    List<RunRecord> recent = getRecentRuns();
+    int records = recent.size();
+    for (int i = 0; i < levelCount; i++) {
+      records += topRuns.get(i).length;
+    }
+
+    ByteBuffer data = ByteBuffer.allocate(16 + levelCount * 32 + 4 + records * RunRecord.SIZE + 4);
+    data.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(generation).putInt(levelCount);
+    for (int i = 0; i < levelCount; i++) {
+      LevelStats levelStats = stats.get(i);
+      RunRecord[] top = topRuns.get(i);
+      data.putLong(levelStats.getRuns()).putLong(levelStats.getWins()).putInt(levelStats.getBestScore())
+        .putLong(levelStats.getBestWinTicks()).putInt(top.length);
+      for (RunRecord run : top) {
+        run.write(data);
+      }
+    }
+    // Oldest first, so loading adds them to the history in the order they were played
+    data.putInt(recent.size());
+    for (int i = recent.size() - 1; i >= 0; i--) {
+      recent.get(i).write(data);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(data.array(), 0, data.position());
+    data.putInt((int) crc.getValue());
+    data.flip();
+
+    Path path = directory.resolve(SNAPSHOT_FILE);
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (data.hasRemaining()) {
+        channel.write(data);
+      }
+      channel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log.restart(generation);
+    appendedSinceSnapshot = 0;
+  }
+
+  /**
+   * Load the snapshot into the index. Only called by the writer thread.
+   * @return generation of the snapshot, or 0 if there is no valid snapshot
+   * @throws IOException if the snapshot cannot be read
+   */
+  private int readSnapshot() throws IOException {
+    ByteBuffer data;
+    try {
+      data = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(SNAPSHOT_FILE)));
+    } catch (NoSuchFileException e) {
+      return 0;
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data.array(), 0, Math.max(0, data.limit() - 4));
+    if (data.limit() < 20 || data.getInt(data.limit() - 4) != (int) crc.getValue()
+        || data.getInt() != SNAPSHOT_MAGIC || data.getInt() != SNAPSHOT_VERSION) {
+      System.err.println("Ignoring invalid leaderboard snapshot: " + directory.resolve(SNAPSHOT_FILE));
+      return 0;
+    }
+    int generation = data.getInt();
+    int levels = data.getInt();
+    for (int i = 0; i < levels; i++) {
+      LevelStats levelStats = new LevelStats(data.getLong(), data.getLong(), data.getInt(), data.getLong());
+      RunRecord[] top = new RunRecord[data.getInt()];
+      for (int j = 0; j < top.length; j++) {
+        top[j] = RunRecord.read(data);
+      }
+      if (i < levelCount) {
+        stats.set(i, levelStats);
+        topRuns.set(i, Arrays.copyOf(top, Math.min(top.length, topSize)));
+      }
+    }
+    int recent = data.getInt();
+    synchronized (history) {
+      for (int i = 0; i < recent; i++) {
+        RunRecord run = RunRecord.read(data);
+        if (historySize > 0) {
+          history[historyCount % historySize] = run;
+          historyCount++;
+        }
+      }
+    }
+    return generation;
+  }
+
+  /**
+   * Get the top runs of a level. Safe to call from any thread.
+   * @param level the level number, starting from 1
+   * @return the runs, best first
+   */
+  public List<RunRecord> getTopRuns(int level) {
+    if (level < 1 || level > levelCount) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(topRuns.get(level - 1)));
+  }
+
+  /**
+   * Get the totals of a level. Safe to call from any thread.
+   * Each run added to the level replaces its stats, so a reader can tell the leaderboard changed
+   * by comparing them with the stats it read before.
+   * @param level the level number, starting from 1
+   * @return the stats
+   */
+  public LevelStats getStats(int level) {
+    if (level < 1 || level > levelCount) {
+      return LevelStats.EMPTY;
+    }
+    return stats.get(level - 1);
+  }
+
+  /**
+   * Get the most recent runs of every level. Safe to call from any thread.
+   * @return a copy of the runs, newest first
+   */
+  public List<RunRecord> getRecentRuns() {
+    synchronized (history) {
+      int count = Math.min(historyCount, historySize);
+      ArrayList<RunRecord> runs = new ArrayList<>(count);
+      for (int i = 1; i <= count; i++) {
+        runs.add(history[(historyCount - i) % historySize]);
+      }
+      return runs;
+    }
+  }
+
+  /**
+   * Get the last run recorded since the game started
+   * @return the run, or null if no run has been recorded
+   */
+  public RunRecord getLastRun() {
+    return lastRun;
+  }
+
+  /**
+   * Check if the existing runs have been loaded
+   * @return true once the snapshot and log have been loaded
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Finish writing queued runs and stop the writer thread
+   */
+  public void close() {
+    executor.execute(() -> {
+      try {
+        log.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+    executor.shutdown();
+    try {
+      executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package leaderboard;
+
+import java.nio.file.Paths;
+import event.EventListener;
+import event.EventType;
+import event.GameEvent;
+import level.Level;
+import scene.SceneManager;
+import utils.PropertiesLoader;
+
+/**
+ * Records the end of each level from the event bus into the leaderboard.
+ * Subscribes synchronously, so the level's tick is read on the thread simulating the level when it ends.
+ * Recording only hands the run to the leaderboard's writer thread.
+ * @author Michael Ren
+ */
+public class LeaderboardRecorder implements EventListener {
+  private static final int LEVEL_COUNT = SceneManager.SceneId.LEVEL3.ordinal() - SceneManager.SceneId.LEVEL1.ordinal() + 1;
+
+  private final SceneManager sceneManager;
+  private final Leaderboard leaderboard;
+  private int level = 0;
+
+  /**
+   * Create a new recorder, subscribe to the event bus, and show the leaderboard in end scenes
+   * @param sceneManager the scene manager, used for its event bus and current level
+   * @param leaderboard the leaderboard
+   */
+  public LeaderboardRecorder(SceneManager sceneManager, Leaderboard leaderboard) {
+    this.sceneManager = sceneManager;
+    this.leaderboard = leaderboard;
+    sceneManager.getEventBus().subscribe(this);
+    sceneManager.setLeaderboard(leaderboard);
+  }
+
+  /**
+   * Start recording if a leaderboard directory is set in app.properties
+   * @param sceneManager the scene manager
+   * @return the recorder, or null if the leaderboard is disabled
+   */
+  public static LeaderboardRecorder startFromProperties(SceneManager sceneManager) {
+    String directory = PropertiesLoader.getGameProperty("leaderboard.directory");
+    if (directory == null || directory.isEmpty()) {
+      return null;
+    }
+    Leaderboard leaderboard = new Leaderboard(
+      Paths.get(directory),
+      LEVEL_COUNT,
+      Integer.parseInt(PropertiesLoader.getGameProperty("leaderboard.topSize")),
+      Integer.parseInt(PropertiesLoader.getGameProperty("leaderboard.historySize")),
+      Integer.parseInt(PropertiesLoader.getGameProperty("leaderboard.compactEvery")));
+    return new LeaderboardRecorder(sceneManager, leaderboard);
+  }
+
+  /**
+   * Record a run when a level is won or lost
+   * @param event the event
+   */
+  @Override
+  public void onEvent(GameEvent event) {
+    EventType type = event.getType();
+    if (type == EventType.SCENE_CHANGE) {
+      level = (int) event.getAmount() - SceneManager.SceneId.LEVEL1.ordinal() + 1;
+      return;
+    }
+    if ((type != EventType.LEVEL_WON && type != EventType.LEVEL_LOST) || !(sceneManager.getScene() instanceof Level)) {
+      return;
+    }
+
+    long ticks = ((Level) sceneManager.getScene()).getTick();
+    leaderboard.record(new RunRecord(level, (int) event.getAmount(), ticks, type == EventType.LEVEL_WON,
+      System.currentTimeMillis()));
+  }
+
+  /**
+   * Stop recording and finish writing the leaderboard
+   */
+  public void close() {
+    sceneManager.getEventBus().unsubscribe(this);
+    sceneManager.setLeaderboard(null);
+    leaderboard.close();
+  }
+}
@@ -0,0 +1,75 @@
+package leaderboard;
+
+/**
+ * Totals for every run of one level. Stats are immutable: adding a run creates new stats,
+ * so readers can use them without locking while the writer thread replaces them.
+ * @author Michael Ren
+ */
+public class LevelStats {
+  public static final LevelStats EMPTY = new LevelStats(0, 0, 0, -1);
+
+  private final long runs;
+  private final long wins;
+  private final int bestScore;
+  private final long bestWinTicks;
+
+  /**
+   * Create new stats
+   * @param runs number of runs
+   * @param wins number of runs that won the level
+   * @param bestScore highest score of any run
+   * @param bestWinTicks fewest frames taken to win, or -1 if the level has never been won
+   */
+  public LevelStats(long runs, long wins, int bestScore, long bestWinTicks) {
+    this.runs = runs;
+    this.wins = wins;
+    this.bestScore = bestScore;
+    this.bestWinTicks = bestWinTicks;
+  }
+
+  /**
+   * Add a run to the totals
+   * @param run the run
+   * @return new stats including the run
+   */
+  public LevelStats add(RunRecord run) {
+    long winTicks = bestWinTicks;
+    if (run.isWon() && (winTicks < 0 || run.getTicks() < winTicks)) {
+      winTicks = run.getTicks();
+    }
+    int score = runs == 0 ? run.getScore() : Math.max(bestScore, run.getScore());
+    return new LevelStats(runs + 1, run.isWon() ? wins + 1 : wins, score, winTicks);
+  }
+
+  /**
+   * Get the number of runs
+   * @return number of runs
+   */
+  public long getRuns() {
+    return runs;
+  }
+
+  /**
+   * Get the number of runs that won the level
+   * @return number of wins
+   */
+  public long getWins() {
+    return wins;
+  }
+
+  /**
+   * Get the highest score of any run
+   * @return score, or 0 if there are no runs
+   */
+  public int getBestScore() {
+    return bestScore;
+  }
+
+  /**
+   * Get the fastest win
+   * @return number of ticks, or -1 if the level has never been won
+   */
+  public long getBestWinTicks() {
+    return bestWinTicks;
+  }
+}
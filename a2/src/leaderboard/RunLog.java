@@ -0,0 +1,172 @@
+package leaderboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of runs, used as the write-ahead log of the leaderboard.
+ * The file has a header (magic, generation) followed by fixed size entries, each a run and the CRC32 of the run.
+ * Every append is synced to disk before it returns. A crash can only tear the last entry,
+ * so when the log is opened, everything from the first incomplete or corrupt entry on is truncated.
+ * The generation ties the log to the snapshot it continues from: once a snapshot of a newer generation exists,
+ * the runs in an older log are already in the snapshot and the log is discarded.
+ * Only used by the leaderboard's writer thread.
+ * @author Michael Ren
+ */
+class RunLog implements AutoCloseable {
+  private static final int MAGIC = 0x534d524c;
+  private static final int HEADER_SIZE = 8;
+  static final int ENTRY_SIZE = RunRecord.SIZE + 4;
+  private static final int READ_BUFFER_ENTRIES = 4096;
+
+  private final Path path;
+  private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+  private final CRC32 crc = new CRC32();
+  private FileChannel channel = null;
+  private int generation = 0;
+
+  /**
+   * Create a new run log. The file is not opened until open is called.
+   * @param path the log file
+   */
+  RunLog(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Open the log, replaying its runs if it continues from the snapshot.
+   * A missing, unreadable or stale log is replaced by an empty one.
+   * @param snapshotGeneration the generation of the loaded snapshot, or 0 if there is none
+   * @param replay called with each valid run in the log, in order
+   * @return number of runs replayed
+   * @throws IOException if the log cannot be read or created
+   */
+  int open(int snapshotGeneration, Consumer<RunRecord> replay) throws IOException {
+    if (Files.exists(path)) {
+      channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // Keep reading until the header is full or the file ends
+      }
+      header.flip();
+      if (header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() >= snapshotGeneration) {
+        generation = header.getInt(4);
+        return replay(replay);
+      }
+      channel.close();
+    }
+    restart(snapshotGeneration);
+    return 0;
+  }
+
+  /**
+   * Replay every valid entry, then truncate anything after the last one
+   * @param replay called with each valid run
+   * @return number of runs replayed
+   * @throws IOException if the log cannot be read
+   */
+  private int replay(Consumer<RunRecord> replay) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * READ_BUFFER_ENTRIES);
+    long position = HEADER_SIZE;
+    long valid = position;
+    int count = 0;
+    boolean corrupt = false;
+    channel.position(position);
+    while (!corrupt && channel.read(buffer) > 0) {
+      buffer.flip();
+      while (buffer.remaining() >= ENTRY_SIZE) {
+        int start = buffer.position();
+        crc.reset();
+        crc.update(buffer.array(), start, RunRecord.SIZE);
+        if ((int) crc.getValue() != buffer.getInt(start + RunRecord.SIZE)) {
+          corrupt = true;
+          break;
+        }
+        replay.accept(RunRecord.read(buffer));
+        buffer.position(start + ENTRY_SIZE);
+        valid += ENTRY_SIZE;
+        count++;
+      }
+      buffer.compact();
+    }
+
+    long size = channel.size();
+    if (size > valid) {
+      System.err.println("Truncating " + (size - valid) + " bytes of incomplete leaderboard log entries: " + path);
+      channel.truncate(valid);
+      channel.force(true);
+    }
+    channel.position(valid);
+    return count;
+  }
+
+  /**
+   * Replace the log with an empty one of a new generation.
+   * The empty log is written to a temporary file and moved into place,
+   * so a crash leaves either the old log or the new one.
+   * @param generation the generation of the snapshot the new log continues from
+   * @throws IOException if the log cannot be created
+   */
+  void restart(int generation) throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(generation).flip();
+      out.write(header);
+      out.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    channel.position(HEADER_SIZE);
+    this.generation = generation;
+  }
+
+  /**
+   * Append a run and sync it to disk
+   * @param run the run
+   * @throws IOException if the run cannot be written
+   */
+  void append(RunRecord run) throws IOException {
+    entry.clear();
+    run.write(entry);
+    crc.reset();
+    crc.update(entry.array(), 0, RunRecord.SIZE);
+    entry.putInt((int) crc.getValue());
+    entry.flip();
+    while (entry.hasRemaining()) {
+      channel.write(entry);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Get the generation of the open log
+   * @return generation
+   */
+  int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Close the log file
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package leaderboard;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One finished run of a level, and its fixed size binary encoding.
+ * Runs are immutable, so they can be shared between the writer thread and readers.
+ * @author Michael Ren
+ */
+public class RunRecord implements Comparable<RunRecord> {
+  // timestamp, ticks, score, level, won
+  public static final int SIZE = 8 + 8 + 4 + 1 + 1;
+
+  private final int level;
+  private final int score;
+  private final long ticks;
+  private final boolean won;
+  private final long timestampMillis;
+
+  /**
+   * Create a new run
+   * @param level the level number, starting from 1
+   * @param score the player's final score
+   * @param ticks number of frames the run took
+   * @param won true if the level was won
+   * @param timestampMillis when the run ended, in milliseconds since the epoch
+   */
+  public RunRecord(int level, int score, long ticks, boolean won, long timestampMillis) {
+    this.level = level;
+    this.score = score;
+    this.ticks = ticks;
+    this.won = won;
+    this.timestampMillis = timestampMillis;
+  }
+
+  /**
+   * Write the run into a buffer
+   * @param buffer the buffer, with at least SIZE bytes remaining
+   */
+  public void write(ByteBuffer buffer) {
+    buffer.putLong(timestampMillis).putLong(ticks).putInt(score).put((byte) level).put((byte) (won ? 1 : 0));
+  }
+
+  /**
+   * Read a run from a buffer
+   * @param buffer the buffer, with at least SIZE bytes remaining
+   * @return the run
+   */
+  public static RunRecord read(ByteBuffer buffer) {
+    long timestampMillis = buffer.getLong();
+    long ticks = buffer.getLong();
+    int score = buffer.getInt();
+    int level = buffer.get() & 0xff;
+    boolean won = buffer.get() != 0;
+    return new RunRecord(level, score, ticks, won, timestampMillis);
+  }
+
+  /**
+   * Order runs by rank: higher scores first, then faster runs, then earlier runs
+   * @param other the other run
+   * @return negative if this run ranks higher
+   */
+  @Override
+  public int compareTo(RunRecord other) {
+    if (score != other.score) {
+      return Integer.compare(other.score, score);
+    }
+    if (ticks != other.ticks) {
+      return Long.compare(ticks, other.ticks);
+    }
+    return Long.compare(timestampMillis, other.timestampMillis);
+  }
+
+  /**
+   * Get the level number
+   * @return level number, starting from 1
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Get the final score
+   * @return score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get how many frames the run took
+   * @return number of ticks
+   */
+  public long getTicks() {
+    return ticks;
+  }
+
+  /**
+   * Check if the level was won
+   * @return true if won
+   */
+  public boolean isWon() {
+    return won;
+  }
+
+  /**
+   * Get when the run ended
+   * @return milliseconds since the epoch
+   */
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+}
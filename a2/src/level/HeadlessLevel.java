@@ -0,0 +1,115 @@
+package level;
+
+import bagel.Keys;
+import input.KeyState;
+import render.RenderSnapshot;
+import save.StateReader;
+import save.StateWriter;
+import scene.SceneManager;
+import schedule.FrameScheduler;
+
+/**
+ * A level simulated without a window, one tick per step, for servers, bots and tools.
+ * The game rules are the level's own: each step runs the same simulation as the game,
+ * with the keys given as input bits, and everything the level draws is recorded and thrown away.
+ * The level's state can be saved and restored at any tick, and a restored level plays out
+ * exactly like the original given the same inputs. Rewind and particle effects are left out.
+ * A headless level may be stepped by any thread, but only by one thread at a time.
+ * @author Michael Ren
+ */
+public class HeadlessLevel {
+  // Input bits, standing for the LEFT, RIGHT, UP and S keys
+  public static final int INPUT_LEFT = 1;
+  public static final int INPUT_RIGHT = 1 << 1;
+  public static final int INPUT_JUMP = 1 << 2;
+  public static final int INPUT_SHOOT = 1 << 3;
+
+  // Draws are only recorded to keep them off the window, so one snapshot per thread serves every level
+  private static final ThreadLocal<RenderSnapshot> SNAPSHOTS = ThreadLocal.withInitial(RenderSnapshot::new);
+
+  private final SceneManager sceneManager;
+  private final KeyState keys = new KeyState();
+  private Level level;
+
+  /**
+   * Load a level
+   * @param levelNumber 1, 2 or 3
+   * @param seed seed for the level's random numbers
+   */
+  public HeadlessLevel(int levelNumber, long seed) {
+    sceneManager = SceneManager.createHeadless(SceneManager.SceneId.valueOf("LEVEL" + levelNumber), seed);
+    level = (Level) sceneManager.getScene();
+    level.setRewindEnabled(false);
+  }
+
+  /**
+   * Simulate one tick
+   * @param inputBits bitwise or of the INPUT_ constants, for the keys held this tick
+   */
+  public void step(int inputBits) {
+    keys.set(Keys.LEFT, (inputBits & INPUT_LEFT) != 0);
+    keys.set(Keys.RIGHT, (inputBits & INPUT_RIGHT) != 0);
+    keys.set(Keys.UP, (inputBits & INPUT_JUMP) != 0);
+    keys.set(Keys.S, (inputBits & INPUT_SHOOT) != 0);
+
+    RenderSnapshot snapshot = SNAPSHOTS.get();
+    FrameScheduler scheduler = sceneManager.getSimulationScheduler();
+    snapshot.beginRecording(level, 0);
+    try {
+      scheduler.beginFrame();
+      level.simulate(keys);
+      scheduler.runUntilBudget();
+    } finally {
+      snapshot.endRecording();
+    }
+  }
+
+  /**
+   * Write the level's state
+   * @param out the state writer
+   */
+  public void writeState(StateWriter out) {
+    level.writeState(out);
+  }
+
+  /**
+   * Replace the level with one restored from state written by writeState
+   * @param in the state reader
+   */
+  public void readState(StateReader in) {
+    level = sceneManager.restoreLevel(in);
+    level.setRewindEnabled(false);
+  }
+
+  /**
+   * Check if the level has been won
+   * @return true if the player has met the level's win conditions
+   */
+  public boolean isWon() {
+    return level.checkGameWon();
+  }
+
+  /**
+   * Check if the level has been lost
+   * @return true if the player has died and the death animation is complete
+   */
+  public boolean isLost() {
+    return level.checkGameLost();
+  }
+
+  /**
+   * Get the number of ticks simulated
+   * @return number of ticks
+   */
+  public long getTick() {
+    return level.getTick();
+  }
+
+  /**
+   * Get the level, to read its objects. The level is replaced whenever the state is restored.
+   * @return the level
+   */
+  public Level getLevel() {
+    return level;
+  }
+}
@@ -1,21 +1,40 @@
 package level;
 
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import activation.ActivationGrid;
 import bagel.Input;
+import bagel.Keys;
 import camera.Camera;
 import collectable.Coin;
 import collectable.DoubleScorePowerUp;
 import collectable.InvinciblePowerUp;
 import core.GameObject;
+import core.PatrollingObject;
 import entity.Boss;
 import entity.Fireball;
 import entity.Player;
 import entity.Slime;
+import event.EventBus;
+import event.EventType;
 import flag.Flag;
+import input.InputQueue;
+import input.KeyState;
+import nav.NavGraph;
 import platform.FlyingPlatform;
 import platform.Platform;
+import platform.PlatformSpans;
+import rewind.RewindBuffer;
+import save.StateReader;
+import save.StateWriter;
+import schedule.FrameScheduler;
+import schedule.ScheduledTask;
 import scene.Scene;
 import scene.SceneManager;
+import timer.TimerWheel;
+import tween.Animated;
+import tween.TweenEngine;
+import utils.GameRandom;
 import utils.IO;
 import utils.PropertiesLoader;
 
@@ -28,11 +47,78 @@ import utils.PropertiesLoader;
 public abstract class Level extends Scene {
   // As specified in project specs
   private final static int PLATFORM_WIDTH = 6000;
+  private final static int FRAMES_PER_SECOND = 60;
+  private final static int REWIND_FRAMES = Integer.parseInt(PropertiesLoader.getGameProperty("rewind.seconds")) * FRAMES_PER_SECOND;
+  private final static int REWIND_KEYFRAME_INTERVAL = Integer.parseInt(PropertiesLoader.getGameProperty("rewind.keyframeInterval"));
+  private final static int COMPACTION_SLICE = 4096;
+  private final static int COMPACTION_DEADLINE_FRAMES = 60;
+  private final static double ACTIVATION_MARGIN = Double.parseDouble(PropertiesLoader.getGameProperty("activation.margin"));
+  private final static int TWEEN_CAPACITY = Integer.parseInt(PropertiesLoader.getGameProperty("tweens.capacity"));
 
-  private final ArrayList<GameObject> gameObjects = new ArrayList<GameObject>();
+  // Object types as named in the level csv files, and their classes.
+  // The index is used as the object type in saves, so only append to these.
+  private final static String[] OBJECT_TYPES = {
+    "PLAYER", "PLATFORM", "ENEMY", "COIN", "INVINCIBLE_POWER", "DOUBLE_SCORE", "FLYING_PLATFORM", "ENEMY_BOSS", "END_FLAG",
+  };
+  private final static Class<?>[] OBJECT_CLASSES = {
+    Player.class, Platform.class, Slime.class, Coin.class, InvinciblePowerUp.class, DoubleScorePowerUp.class,
+    FlyingPlatform.class, Boss.class, Flag.class,
+  };
+  // Parsed level files, shared by every level loaded from the same file, e.g. by many simulated sessions
+  private final static ConcurrentHashMap<String, String[][]> LEVEL_DATA = new ConcurrentHashMap<>();
+
+  private ArrayList<GameObject> gameObjects = new ArrayList<GameObject>();
   private final ArrayList<Fireball> fireballs = new ArrayList<Fireball>();
+
+  // Removed objects stay in gameObjects until a frame task copies the rest into compactedObjects
+  // a slice at a time and swaps the lists, so readers of gameObjects skip objects that can be removed
+  private ArrayList<GameObject> compactedObjects = new ArrayList<GameObject>();
+  private ScheduledTask compaction = null;
+  private int compactionIndex = 0;
+  private boolean compactionNeeded = false;
+  private int objectCount = 0;
+
+  // Every object added to the level in a fixed order, so rewind states line up between ticks.
+  // Fireballs are short lived and are not rewound.
+  private final ArrayList<GameObject> rewindObjects = new ArrayList<GameObject>();
+  private final RewindBuffer rewindBuffer = new RewindBuffer(REWIND_FRAMES, REWIND_KEYFRAME_INTERVAL);
+  private boolean rewindEnabled = true;
+  private final StateWriter rewindState = new StateWriter();
+
+  // Start of each object's state in rewindState. Every object's state has a fixed length,
+  // so only the objects updated this tick are rewritten. Null when the whole state must be rewritten.
+  private int[] rewindOffsets = null;
+  private int[] updatedIds = new int[64];
+  private int updatedCount = 0;
+
+  // Objects are only updated while they can reach the activation band around the camera.
+  // The margin is at least the texture prefetch margin, so textures are still requested before objects scroll into view.
+  // Ids in the grid are indices in rewindObjects. The player is always updated and is not in the grid.
+  private final ActivationGrid activationGrid = new ActivationGrid();
+  private int playerId;
+  private long tick = 0;
+  // While paused the level is not simulated, and the scene manager keeps showing its last frame
+  private volatile boolean paused = false;
+
+  // Timed effects of every object. Owners keep their expiry ticks in their own state,
+  // and schedule their timers again whenever the level state is restored.
+  private final TimerWheel timers = new TimerWheel();
+  // Animations of every object, advanced together once per tick. Like timers, owners keep the first tick
+  // of each animation in their own state, and start it again whenever the level state is restored.
+  private final TweenEngine tweens = new TweenEngine(TWEEN_CAPACITY);
+  // Saved and rewound with the level, so a restored level makes the same random choices
+  private final GameRandom random;
+
+  // Keys held this frame, when the level is updated on the main thread
+  private final KeyState keys = new KeyState();
+
+  // Static platforms merged into collision spans, split by whether they come before or after the player,
+  // so they are still checked on the same side of the player's update
+  private PlatformSpans platformsBeforePlayer;
+  private PlatformSpans platformsAfterPlayer;
   private Player player;
   private Boss boss;
+  private NavGraph navGraph;
 
   /**
    * Create a new Level
@@ -42,8 +128,69 @@ public abstract class Level extends Scene {
   public Level(SceneManager sceneManager, String dataName) {
     super(sceneManager);
     getCamera().setBoundaryX(0, PLATFORM_WIDTH);
-    String[][] data = IO.readCsv(PropertiesLoader.getGameProperty(dataName));
+    random = new GameRandom(sceneManager.nextLevelSeed());
+    String[][] data = LEVEL_DATA.computeIfAbsent(dataName, name -> IO.readCsv(PropertiesLoader.getGameProperty(name)));
     createLevel(data);
+    rewindObjects.addAll(gameObjects);
+    objectCount = gameObjects.size();
+    createActivationGrid();
+    bakePlatforms();
+    navGraph = new NavGraph(rewindObjects, player.getSpeed());
+  }
+
+  /**
+   * Create a Level from saved state, without reading the level csv file
+   * @param sceneManager the scene manager
+   * @param state reader over state written by writeState
+   */
+  public Level(SceneManager sceneManager, StateReader state) {
+    super(sceneManager);
+    getCamera().setBoundaryX(0, PLATFORM_WIDTH);
+    // Creating the objects draws from the generator, so its saved state is restored after them
+    random = new GameRandom(0);
+    readState(state);
+    rewindObjects.addAll(gameObjects);
+    objectCount = gameObjects.size();
+    createActivationGrid();
+    bakePlatforms();
+    navGraph = new NavGraph(rewindObjects, player.getSpeed());
+  }
+
+  /**
+   * Merge the static platforms into collision spans
+   */
+  private void bakePlatforms() {
+    ArrayList<Platform> before = new ArrayList<>();
+    ArrayList<Platform> after = new ArrayList<>();
+    for (int id = 0; id < rewindObjects.size(); id++) {
+      if (rewindObjects.get(id) instanceof Platform) {
+        (id < playerId ? before : after).add((Platform) rewindObjects.get(id));
+      }
+    }
+    platformsBeforePlayer = new PlatformSpans(before);
+    platformsAfterPlayer = new PlatformSpans(after);
+  }
+
+  /**
+   * Add every object except the player to the activation grid
+   */
+  private void createActivationGrid() {
+    playerId = rewindObjects.indexOf(player);
+    for (int id = 0; id < rewindObjects.size(); id++) {
+      addToActivationGrid(id);
+    }
+  }
+
+  /**
+   * Add an object to the activation grid, covering every position it can reach
+   * @param id index of the object in rewindObjects
+   */
+  private void addToActivationGrid(int id) {
+    GameObject object = rewindObjects.get(id);
+    if (object != player) {
+      double span = object.getWidth() / 2 + object.getReach();
+      activationGrid.add(id, object.getAnchorX() - span, object.getAnchorX() + span);
+    }
   }
 
   /**
@@ -52,41 +199,137 @@ public abstract class Level extends Scene {
    */
   private void createLevel(String[][] data) {
     for (String[] item : data) {
-      String type = item[0];
+      int type = indexOf(OBJECT_TYPES, item[0]);
       double x = Double.parseDouble(item[1]);
       double y = Double.parseDouble(item[2]);
-      
-      switch (type) {
-        case "PLAYER":
-          player = new Player(this, x, y);
-          player.setBoundaryX(0, PLATFORM_WIDTH);
-          gameObjects.add(player);
-          break;
-        case "PLATFORM":
-          gameObjects.add(new Platform(x, y));
-          break;
-        case "ENEMY":
-          gameObjects.add(new Slime(x, y));
-          break;
-        case "COIN":
-          gameObjects.add(new Coin(x, y));
-          break;
-        case "INVINCIBLE_POWER":
-          gameObjects.add(new InvinciblePowerUp(x, y));
-          break;
-        case "DOUBLE_SCORE":
-          gameObjects.add(new DoubleScorePowerUp(x, y));
-          break;
-        case "FLYING_PLATFORM":
-          gameObjects.add(new FlyingPlatform(x, y));
-          break;
-        case "ENEMY_BOSS":
-          boss = new Boss(this, x, y);
-          gameObjects.add(boss);
-          break;
-        case "END_FLAG":
-          gameObjects.add(new Flag(x, y));
-          break;
+
+      GameObject object = createGameObject(type, x, y);
+      if (object != null) {
+        gameObjects.add(object);
+      }
+    }
+  }
+
+  /**
+   * Find the index of a value in an array
+   * @param values the array to search
+   * @param value the value to find
+   * @return the index, or -1 if not found
+   */
+  private static int indexOf(Object[] values, Object value) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i].equals(value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Create a game object
+   * @param type index of the object type in OBJECT_TYPES
+   * @param x x position
+   * @param y y position
+   * @return the new game object, or null if the type is unknown
+   */
+  private GameObject createGameObject(int type, double x, double y) {
+    switch (type) {
+      case 0:
+        player = new Player(this, x, y);
+        player.setBoundaryX(0, PLATFORM_WIDTH);
+        return player;
+      case 1:
+        return new Platform(x, y);
+      case 2:
+        return new Slime(x, y, random);
+      case 3:
+        return new Coin(x, y);
+      case 4:
+        return new InvinciblePowerUp(x, y);
+      case 5:
+        return new DoubleScorePowerUp(x, y);
+      case 6:
+        return new FlyingPlatform(x, y, random);
+      case 7:
+        boss = new Boss(this, x, y);
+        return boss;
+      case 8:
+        return new Flag(x, y);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Write the state of the level and every object in it
+   * @param out the state writer
+   */
+  public void writeState(StateWriter out) {
+    out.writeDouble(getCamera().getX());
+    out.writeLong(tick);
+
+    // Count the objects written rather than trusting objectCount, so the state always reads back
+    int countPosition = out.size();
+    out.writeInt(0);
+    int written = 0;
+    for (GameObject object : gameObjects) {
+      if (object.getCanRemove()) {
+        continue;
+      }
+      out.writeByte(indexOf(OBJECT_CLASSES, object.getClass()));
+      object.writeState(out);
+      written++;
+    }
+    int end = out.size();
+    out.seek(countPosition);
+    out.writeInt(written);
+    out.seek(end);
+
+    out.writeInt(fireballs.size());
+    for (Fireball fireball : fireballs) {
+      out.writeByte(fireball.getDirectionScalar());
+      out.writeBoolean(fireball.getOwner() == player);
+      fireball.writeState(out);
+    }
+    out.writeLong(random.getState());
+  }
+
+  /**
+   * Recreate every object from state written by writeState
+   * @param in the state reader
+   */
+  private void readState(StateReader in) {
+    getCamera().setX(in.readDouble());
+    tick = in.readLong();
+    timers.reset(tick);
+
+    int objectCount = in.readInt();
+    for (int i = 0; i < objectCount; i++) {
+      GameObject object = createGameObject(in.readByte(), 0, 0);
+      object.readState(in);
+      gameObjects.add(object);
+    }
+
+    int fireballCount = in.readInt();
+    for (int i = 0; i < fireballCount; i++) {
+      int directionScalar = in.readByte();
+      Fireball fireball = new Fireball(0, 0, directionScalar, in.readBoolean() ? player : boss);
+      fireball.readState(in);
+      fireballs.add(fireball);
+    }
+    random.setState(in.readLong());
+    restoreTweens(gameObjects);
+  }
+
+  /**
+   * Clear the tween engine and let every animated object start its animations again
+   * @param objects the objects whose state was just restored
+   */
+  private void restoreTweens(ArrayList<GameObject> objects) {
+    tweens.reset(tick);
+    for (GameObject object : objects) {
+      if (object instanceof Animated) {
+        ((Animated) object).restoreTweens(this);
       }
     }
   }
@@ -108,27 +351,96 @@ public abstract class Level extends Scene {
   }
 
   /**
-   * Update all game objects in the level (excluding fireballs).
+   * Check if an object can reach the activation band around the camera
+   * @param object the game object
+   * @param camera camera object
+   * @return true if the object should be updated
+   */
+  private boolean isActive(GameObject object, Camera camera) {
+    return camera.isNear(object.getAnchorX(), object.getWidth() / 2 + object.getReach(), ACTIVATION_MARGIN);
+  }
+
+  /**
+   * Update a game object, and check it for collision with the player.
+   * Patrolling objects are first caught up on any ticks they slept through.
+   * @param object the game object
+   * @param input user input
+   * @param camera camera object
+   * @param unusedObjects list of unused objects to remove
+   */
+  private void updateGameObject(GameObject object, KeyState input, Camera camera, ArrayList<GameObject> unusedObjects) {
+    if (object instanceof PatrollingObject) {
+      ((PatrollingObject) object).catchUp(tick);
+    }
+    object.update(input, camera);
+
+    // Collision detection between player and other game objects.
+    // Static platforms are checked through their merged spans instead.
+    if (object != player && !(object instanceof Platform)) {
+      object.collideWith(getPlayer());
+    }
+
+    // Remove unused objects
+    if (object.getCanRemove()) {
+      unusedObjects.add(object);
+    }
+  }
+
+  /**
+   * Update the game objects near the camera (excluding fireballs), in the order they were added.
+   * Objects outside the activation band sleep, so the cost depends on the visible region
+   * rather than the length of the level.
    * Game objects are rendered, and checked for collision with the player.
+   * A sleeping boss still draws its messages, so its health stays on the HUD.
    * Unused objects are added to the unusedObjects list for removal.
    * @param input user input
    * @param camera camera object
    * @param unusedObjects list of unused objects to remove
    */
-  private void updateGameObjects(Input input, Camera camera, ArrayList<GameObject> unusedObjects) {
-    for (GameObject object : gameObjects) {
-      object.update(input, camera);
+  private void updateGameObjects(KeyState input, Camera camera, ArrayList<GameObject> unusedObjects) {
+    int count = activationGrid.find(camera.getX() - ACTIVATION_MARGIN, camera.getX() + camera.getWidth() + ACTIVATION_MARGIN);
+    if (updatedIds.length < count + 1) {
+      updatedIds = new int[count + 1];
+    }
+    updatedCount = 0;
 
-      // Collision detection between player and other game objects
-      if (object != player) {
-        object.collideWith(getPlayer());
+    boolean playerUpdated = false;
+    for (int i = 0; i < count; i++) {
+      int id = activationGrid.get(i);
+      if (!playerUpdated && id > playerId) {
+        updatePlayer(input, camera, unusedObjects);
+        playerUpdated = true;
       }
 
-      // Remove unused objects
-      if (object.getCanRemove()) {
-        unusedObjects.add(object);
+      // Removed objects stay in rewindObjects, so skip them
+      GameObject object = rewindObjects.get(id);
+      if (!object.getCanRemove() && isActive(object, camera)) {
+        updateGameObject(object, input, camera, unusedObjects);
+        updatedIds[updatedCount++] = id;
       }
     }
+    if (!playerUpdated) {
+      updatePlayer(input, camera, unusedObjects);
+    }
+
+    // The boss's health is on the HUD from the start of the level, even while the boss sleeps far ahead
+    Boss boss = getBoss();
+    if (boss != null && !boss.getCanRemove() && !isActive(boss, camera)) {
+      boss.showMessages();
+    }
+  }
+
+  /**
+   * Update the player, between the static platforms that come before and after it
+   * @param input user input
+   * @param camera camera object
+   * @param unusedObjects list of unused objects to remove
+   */
+  private void updatePlayer(KeyState input, Camera camera, ArrayList<GameObject> unusedObjects) {
+    platformsBeforePlayer.collide(player);
+    updateGameObject(player, input, camera, unusedObjects);
+    platformsAfterPlayer.collide(player);
+    updatedIds[updatedCount++] = playerId;
   }
 
   /**
@@ -139,7 +451,7 @@ public abstract class Level extends Scene {
    * @param camera
    * @param unusedObjects
    */
-  private void updateFireballs(Input input, Camera camera, ArrayList<GameObject> unusedObjects) {
+  private void updateFireballs(KeyState input, Camera camera, ArrayList<GameObject> unusedObjects) {
     Boss boss = getBoss();
     if (boss == null)
       return;
@@ -157,37 +469,260 @@ public abstract class Level extends Scene {
   }
 
   /**
-   * Update and render all game objects.
-   * Remove any game objects that are no longer needed.
-   * Check if player has won or lost the level, and switch scenes accordingly.
+   * Store the state of every rewindable object for this tick.
+   * Sleeping objects do not change, so only the header and the objects updated this tick are rewritten,
+   * unless the objects have changed since the last full capture.
+   */
+  private void captureRewindState() {
+    if (rewindOffsets == null || rewindOffsets.length != rewindObjects.size() || !rewriteRewindState()) {
+      rewindOffsets = new int[rewindObjects.size()];
+      rewindState.reset();
+      rewindState.writeDouble(getCamera().getX());
+      rewindState.writeLong(tick);
+      rewindState.writeLong(random.getState());
+      for (int id = 0; id < rewindObjects.size(); id++) {
+        rewindOffsets[id] = rewindState.size();
+        rewindObjects.get(id).writeState(rewindState);
+      }
+    }
+    rewindBuffer.capture(rewindState.getBytes(), rewindState.size());
+  }
+
+  /**
+   * Rewrite the header and the state of the objects updated this tick in place
+   * @return false if an object's state changed length, so the whole state must be rewritten
+   */
+  private boolean rewriteRewindState() {
+    int end = rewindState.size();
+    rewindState.seek(0);
+    rewindState.writeDouble(getCamera().getX());
+    rewindState.writeLong(tick);
+    rewindState.writeLong(random.getState());
+    for (int i = 0; i < updatedCount; i++) {
+      int id = updatedIds[i];
+      rewindState.seek(rewindOffsets[id]);
+      rewindObjects.get(id).writeState(rewindState);
+      int next = id + 1 < rewindOffsets.length ? rewindOffsets[id + 1] : end;
+      if (rewindState.size() != next) {
+        return false;
+      }
+    }
+    rewindState.seek(end);
+    return true;
+  }
+
+  /**
+   * Step back one tick, restoring objects in place, and draw the level without updating it
+   * @param camera camera object
+   */
+  private void rewind(Camera camera) {
+    byte[] state = rewindBuffer.stepBack();
+    if (state != null) {
+      StateReader in = new StateReader(state);
+      camera.setX(in.readDouble());
+      tick = in.readLong();
+      random.setState(in.readLong());
+      timers.reset(tick);
+
+      // Objects removed after the restored tick are brought back
+      gameObjects.clear();
+      for (GameObject object : rewindObjects) {
+        object.readState(in);
+        if (!object.getCanRemove()) {
+          gameObjects.add(object);
+        }
+      }
+      fireballs.clear();
+      objectCount = gameObjects.size();
+      rewindOffsets = null;
+      restoreTweens(gameObjects);
+
+      // Any compaction pass in progress was copying the old list
+      compactedObjects.clear();
+      compactionIndex = 0;
+    }
+
+    for (GameObject object : gameObjects) {
+      object.draw(camera);
+    }
+  }
+
+  /**
+   * Schedule removing unused objects from gameObjects, if it is not already scheduled
+   */
+  private void scheduleCompaction() {
+    compactionNeeded = true;
+    if (compaction == null || !compaction.isPending()) {
+      compaction = sceneManager.getSimulationScheduler().submit("object compaction", FrameScheduler.PRIORITY_NORMAL,
+        COMPACTION_DEADLINE_FRAMES, this::compactObjects);
+    }
+  }
+
+  /**
+   * Copy the next slice of objects that are still in use, and swap the lists once every object has been copied
+   * @return true if the compaction is done, false if there is more to copy
+   */
+  private boolean compactObjects() {
+    if (compactionIndex == 0) {
+      compactionNeeded = false;
+    }
+
+    int end = Math.min(gameObjects.size(), compactionIndex + COMPACTION_SLICE);
+    for (; compactionIndex < end; compactionIndex++) {
+      GameObject object = gameObjects.get(compactionIndex);
+      if (!object.getCanRemove()) {
+        compactedObjects.add(object);
+      }
+    }
+    if (compactionIndex < gameObjects.size()) {
+      return false;
+    }
+
+    ArrayList<GameObject> previous = gameObjects;
+    gameObjects = compactedObjects;
+    compactedObjects = previous;
+    compactedObjects.clear();
+    compactionIndex = 0;
+
+    // Objects removed from the part already copied need another pass
+    return !compactionNeeded;
+  }
+
+  /**
+   * Check if the level may have changed since the last frame. A running level changes every tick.
+   * @return true unless the level is paused
+   */
+  @Override
+  public boolean hasChanged() {
+    return !paused;
+  }
+
+  /**
+   * Check if the level is paused
+   * @return true if paused
+   */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Pause or resume the level
+   * @param paused true to pause
+   */
+  public void setPaused(boolean paused) {
+    this.paused = paused;
+  }
+
+  /**
+   * Turn capturing rewind states on or off. Levels simulated without a player at the keyboard,
+   * e.g. by a server or a bot, turn it off to save the memory and time of capturing every tick.
+   * While it is off, holding R does nothing.
+   * @param rewindEnabled true to capture a rewind state every tick
+   */
+  public void setRewindEnabled(boolean rewindEnabled) {
+    this.rewindEnabled = rewindEnabled;
+  }
+
+  /**
+   * Update and render all game objects, using the keys held this frame
    * @param input user input
    */
   @Override
   public void update(Input input) {
-    ArrayList<GameObject> unusedObjects = new ArrayList<GameObject>();
+    keys.capture(input);
+    simulate(keys);
+  }
 
+  /**
+   * Fire the timers due this tick and advance every animation, then update and render all game objects,
+   * and check the navigation graph against where the flying platforms moved.
+   * Remove any game objects that are no longer needed.
+   * Check if player has won or lost the level, and switch scenes accordingly.
+   * While R is held, step back one tick per frame instead.
+   * May run on a simulation thread, in which case everything drawn is recorded into a render snapshot.
+   * @param input the keys held this frame
+   */
+  public void simulate(KeyState input) {
     Camera camera = getCamera();
+    if (rewindEnabled && input.isDown(Keys.R)) {
+      rewind(camera);
+      navGraph.update(tick);
+      return;
+    }
+
+    timers.advanceTo(tick);
+    tweens.advanceTo(tick);
+    ArrayList<GameObject> unusedObjects = new ArrayList<GameObject>();
     updateGameObjects(input, camera, unusedObjects);
     updateFireballs(input, camera, unusedObjects);
-    
-    // Destroy unused objects
-    gameObjects.removeAll(unusedObjects);
-    fireballs.removeAll(unusedObjects);
+    sceneManager.getParticles().update(camera);
+    tick++;
+    navGraph.update(tick);
+
+    // Destroy unused fireballs now, and leave unused game objects for compaction
+    if (!unusedObjects.isEmpty()) {
+      fireballs.removeAll(unusedObjects);
+      for (GameObject object : unusedObjects) {
+        if (!(object instanceof Fireball)) {
+          objectCount--;
+        }
+      }
+      scheduleCompaction();
+    }
+    if (rewindEnabled) {
+      captureRewindState();
+    }
 
     // Switch scene if won or lost level
     if (checkGameWon()) {
-      sceneManager.setScene(SceneManager.SceneId.WIN);
+      publishLevelEnd(EventType.LEVEL_WON);
+      sceneManager.requestScene(SceneManager.SceneId.WIN);
     } else if (checkGameLost()) {
-      sceneManager.setScene(SceneManager.SceneId.LOSE);
+      publishLevelEnd(EventType.LEVEL_LOST);
+      sceneManager.requestScene(SceneManager.SceneId.LOSE);
     }
   }
   
+  /**
+   * Publish the end of the level, with the player's final score as the amount
+   * @param type LEVEL_WON or LEVEL_LOST
+   */
+  private void publishLevelEnd(EventType type) {
+    Player player = getPlayer();
+    getEventBus().publish(type, getClass(), player.getX(), player.getY(), player.getScore());
+  }
+
+  /**
+   * Remove a game object outside of its own update, e.g. when its animation finishes.
+   * It stops counting as part of the level at once, and is taken out of the object list by the next compaction.
+   * @param object the object to remove
+   */
+  public void removeGameObject(GameObject object) {
+    if (object.getCanRemove()) {
+      return;
+    }
+    object.setCanRemove(true);
+    objectCount--;
+    scheduleCompaction();
+    // The object is not updated this tick, so the next rewind capture must rewrite every object
+    rewindOffsets = null;
+  }
+
   /**
    * Add a game object
    * @param object the GameObject instance to add
    */
   public void addGameObject(GameObject object) {
+    if (object instanceof PatrollingObject) {
+      ((PatrollingObject) object).setTick(tick);
+    }
     gameObjects.add(object);
+    rewindObjects.add(object);
+    objectCount++;
+    addToActivationGrid(rewindObjects.size() - 1);
+    if (object instanceof Platform) {
+      bakePlatforms();
+    }
   }
 
   /**
@@ -198,6 +733,32 @@ public abstract class Level extends Scene {
     fireballs.add(fireball);
   }
 
+  /**
+   * Get the game objects, not counting fireballs, in the order they were added.
+   * Removed objects stay in the list until the next compaction, so skip objects that can be removed.
+   * @return list of game objects
+   */
+  public ArrayList<GameObject> getGameObjects() {
+    return gameObjects;
+  }
+
+  /**
+   * Get the live fireballs
+   * @return list of fireballs
+   */
+  public ArrayList<Fireball> getFireballs() {
+    return fireballs;
+  }
+
+  /**
+   * Get the type of an object as numbered in saves, from 0 for PLAYER to 8 for END_FLAG in the level csv names
+   * @param object the game object
+   * @return the type, or -1 if the object is not created from level files
+   */
+  public static int getObjectType(GameObject object) {
+    return indexOf(OBJECT_CLASSES, object.getClass());
+  }
+
   /**
    * Get player object
    * @return Player object
@@ -206,6 +767,78 @@ public abstract class Level extends Scene {
     return player;
   }
 
+  /**
+   * Get the navigation graph built from the level's platforms
+   * @return the navigation graph
+   */
+  public NavGraph getNavGraph() {
+    return navGraph;
+  }
+
+  /**
+   * Get the number of live game objects, not counting fireballs
+   * @return number of objects
+   */
+  public int getObjectCount() {
+    return objectCount;
+  }
+
+  /**
+   * Get the number of live fireballs
+   * @return number of fireballs
+   */
+  public int getFireballCount() {
+    return fireballs.size();
+  }
+
+  /**
+   * Get the timing wheel for timed effects of the level's objects
+   * @return the timing wheel
+   */
+  public TimerWheel getTimers() {
+    return timers;
+  }
+
+  /**
+   * Get the tween engine running the animations of the level's objects
+   * @return the tween engine
+   */
+  public TweenEngine getTweens() {
+    return tweens;
+  }
+
+  /**
+   * Get the level's random numbers, for choices that must play out the same when the level is restored
+   * @return the random number generator
+   */
+  public GameRandom getRandom() {
+    return random;
+  }
+
+  /**
+   * Get the number of frames the level has been simulated for
+   * @return number of ticks
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * Get the key events received since the last frame
+   * @return the input queue
+   */
+  public InputQueue getInputQueue() {
+    return sceneManager.getInputQueue();
+  }
+
+  /**
+   * Get the event bus for publishing gameplay events
+   * @return the event bus
+   */
+  public EventBus getEventBus() {
+    return sceneManager.getEventBus();
+  }
+
   /**
    * Get boss object
    * @return Boss object
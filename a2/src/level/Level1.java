@@ -1,5 +1,6 @@
 package level;
 
+import save.StateReader;
 import scene.SceneManager;
 
 /**
@@ -14,4 +15,13 @@ public class Level1 extends Level {
   public Level1(SceneManager sceneManager) {
     super(sceneManager, "level1File");
   }
+
+  /**
+   * Restore level 1 from saved state.
+   * @param sceneManager the scene manager
+   * @param state reader over the saved level state
+   */
+  public Level1(SceneManager sceneManager, StateReader state) {
+    super(sceneManager, state);
+  }
 }
@@ -1,5 +1,6 @@
 package level;
 
+import save.StateReader;
 import scene.SceneManager;
 
 /**
@@ -14,4 +15,13 @@ public class Level2 extends Level {
   public Level2(SceneManager sceneManager) {
     super(sceneManager, "level2File");
   }
+
+  /**
+   * Restore level 2 from saved state.
+   * @param sceneManager the scene manager
+   * @param state reader over the saved level state
+   */
+  public Level2(SceneManager sceneManager, StateReader state) {
+    super(sceneManager, state);
+  }
 }
@@ -1,6 +1,7 @@
 package level;
 
 import entity.Player;
+import save.StateReader;
 import scene.SceneManager;
 
 /**
@@ -17,6 +18,15 @@ public class Level3 extends Level {
     super(sceneManager, "level3File");
   }
 
+  /**
+   * Restore level 3 from saved state.
+   * @param sceneManager the scene manager
+   * @param state reader over the saved level state
+   */
+  public Level3(SceneManager sceneManager, StateReader state) {
+    super(sceneManager, state);
+  }
+
   /**
    * Check if player has won the level.
    * Player only wins if the the flag is reached, the boss has been defeated,
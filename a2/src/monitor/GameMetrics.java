@@ -0,0 +1,258 @@
+package monitor;
+
+import core.GameObject;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import level.Level;
+import scene.Scene;
+import scene.SceneManager;
+import schedule.FrameScheduler;
+import text.Text;
+import texture.TextureCache;
+
+/**
+ * Collects live metrics on the game thread and serves them to JMX clients.
+ * The game thread copies every value into volatile fields once per frame,
+ * so JMX threads never touch the scene or its objects.
+ * @author Michael Ren
+ */
+public class GameMetrics implements GameMetricsMXBean {
+  private static final String OBJECT_NAME = "shadowmario:type=GameMetrics";
+  private static final int FRAME_SAMPLES = 600;
+  private static final long SECOND_NANOS = 1_000_000_000L;
+
+  private final SceneManager sceneManager;
+
+  // Ring of recent frame times in nanoseconds, written by the game thread only
+  private final long[] frameNanos = new long[FRAME_SAMPLES];
+  private volatile int frameCount = 0;
+  private long lastFrameNanos = 0;
+
+  // Level ticks counted over the current second
+  private long secondStartNanos = System.nanoTime();
+  private long secondStartTicks = 0;
+
+  // Copies made by the game thread every frame
+  private volatile String sceneId = "";
+  private volatile int objectCount = 0;
+  private volatile int fireballCount = 0;
+  private volatile double ticksPerSecond = 0;
+  private volatile int pendingTasks = 0;
+  private volatile long deadlineMisses = 0;
+  private volatile long frameOverruns = 0;
+  private volatile int textureCount = 0;
+  private volatile long textureBytes = 0;
+  private volatile int fontCount = 0;
+  private volatile boolean idle = false;
+  private volatile boolean profilingEnabled = true;
+
+  /**
+   * Create a new metrics collector
+   * @param sceneManager the scene manager to report on
+   */
+  public GameMetrics(SceneManager sceneManager) {
+    this.sceneManager = sceneManager;
+  }
+
+  /**
+   * Register with the platform MBean server. Failure is reported but does not stop the game.
+   * @return this
+   */
+  public GameMetrics register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (JMException e) {
+      e.printStackTrace();
+    }
+    return this;
+  }
+
+  /**
+   * Record the end of a frame. Must be called once per frame on the game thread.
+   */
+  public void endFrame() {
+    long now = System.nanoTime();
+    if (profilingEnabled && lastFrameNanos != 0) {
+      frameNanos[frameCount % FRAME_SAMPLES] = now - lastFrameNanos;
+      frameCount++;
+    }
+    lastFrameNanos = now;
+
+    long ticks = sceneManager.getLevelTicks();
+    if (now - secondStartNanos >= SECOND_NANOS) {
+      ticksPerSecond = (ticks - secondStartTicks) * 1e9 / (now - secondStartNanos);
+      secondStartTicks = ticks;
+      secondStartNanos = now;
+    }
+
+    Scene scene = sceneManager.getScene();
+    if (scene instanceof Level) {
+      objectCount = ((Level) scene).getObjectCount();
+      fireballCount = ((Level) scene).getFireballCount();
+    } else {
+      objectCount = 0;
+      fireballCount = 0;
+    }
+    sceneId = sceneManager.getSceneId().name();
+    FrameScheduler scheduler = sceneManager.getScheduler();
+    pendingTasks = scheduler.getPendingCount();
+    deadlineMisses = scheduler.getDeadlineMisses();
+    frameOverruns = scheduler.getFrameOverruns();
+    textureCount = TextureCache.getResidentCount();
+    textureBytes = TextureCache.getResidentBytes();
+    fontCount = Text.getFontCount();
+    idle = sceneManager.isIdle();
+  }
+
+  /**
+   * Get a percentile of the recent frame times.
+   * Samples may be overwritten while they are copied, which only skews the result slightly.
+   * @param percentile the percentile, between 0 and 100
+   * @return time in milliseconds, or 0 if no frames have been recorded
+   */
+  private double getFrameTimePercentile(double percentile) {
+    int count = Math.min(frameCount, FRAME_SAMPLES);
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(frameNanos, count);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  @Override
+  public String getSceneId() {
+    return sceneId;
+  }
+
+  @Override
+  public int getObjectCount() {
+    return objectCount;
+  }
+
+  @Override
+  public int getFireballCount() {
+    return fireballCount;
+  }
+
+  @Override
+  public double getFrameTimeP50Millis() {
+    return getFrameTimePercentile(50);
+  }
+
+  @Override
+  public double getFrameTimeP95Millis() {
+    return getFrameTimePercentile(95);
+  }
+
+  @Override
+  public double getFrameTimeP99Millis() {
+    return getFrameTimePercentile(99);
+  }
+
+  @Override
+  public double getTicksPerSecond() {
+    return ticksPerSecond;
+  }
+
+  @Override
+  public double getSimulationMillis() {
+    return sceneManager.getSimulationMillis();
+  }
+
+  @Override
+  public int getPendingTasks() {
+    return pendingTasks;
+  }
+
+  @Override
+  public long getDeadlineMisses() {
+    return deadlineMisses;
+  }
+
+  @Override
+  public long getFrameOverruns() {
+    return frameOverruns;
+  }
+
+  @Override
+  public double getInputLatencyP50Millis() {
+    return sceneManager.getInputQueue().getLatencyPercentileMillis(50);
+  }
+
+  @Override
+  public double getInputLatencyP99Millis() {
+    return sceneManager.getInputQueue().getLatencyPercentileMillis(99);
+  }
+
+  @Override
+  public long getDroppedInputs() {
+    return sceneManager.getInputQueue().getDroppedCount();
+  }
+
+  @Override
+  public int getParticleCount() {
+    return sceneManager.getParticles().getParticleCount();
+  }
+
+  @Override
+  public double getParticleMillis() {
+    return sceneManager.getParticles().getUpdateMillis();
+  }
+
+  @Override
+  public int getTextureCount() {
+    return textureCount;
+  }
+
+  @Override
+  public long getTextureBytes() {
+    return textureBytes;
+  }
+
+  @Override
+  public int getFontCount() {
+    return fontCount;
+  }
+
+  @Override
+  public boolean isIdle() {
+    return idle;
+  }
+
+  @Override
+  public Map<String, Double> getSceneLoadMillis() {
+    return sceneManager.getLoadMillis();
+  }
+
+  @Override
+  public boolean isCullingEnabled() {
+    return GameObject.isCullingEnabled();
+  }
+
+  @Override
+  public boolean isProfilingEnabled() {
+    return profilingEnabled;
+  }
+
+  @Override
+  public boolean toggleCulling() {
+    GameObject.setCullingEnabled(!GameObject.isCullingEnabled());
+    return GameObject.isCullingEnabled();
+  }
+
+  @Override
+  public boolean toggleProfiling() {
+    profilingEnabled = !profilingEnabled;
+    return profilingEnabled;
+  }
+
+  @Override
+  public void forceScene(String sceneId) {
+    sceneManager.requestScene(SceneManager.SceneId.valueOf(sceneId));
+  }
+}
@@ -0,0 +1,166 @@
+package monitor;
+
+import java.util.Map;
+
+/**
+ * Live game metrics and controls, exposed over JMX as "shadowmario:type=GameMetrics"
+ * @author Michael Ren
+ */
+public interface GameMetricsMXBean {
+  /**
+   * Get the current scene id
+   * @return scene id name
+   */
+  String getSceneId();
+
+  /**
+   * Get the number of live objects in the current level
+   * @return number of objects, 0 outside a level
+   */
+  int getObjectCount();
+
+  /**
+   * Get the number of live fireballs in the current level
+   * @return number of fireballs, 0 outside a level
+   */
+  int getFireballCount();
+
+  /**
+   * Get the median time between recent frames
+   * @return time in milliseconds
+   */
+  double getFrameTimeP50Millis();
+
+  /**
+   * Get the 95th percentile time between recent frames
+   * @return time in milliseconds
+   */
+  double getFrameTimeP95Millis();
+
+  /**
+   * Get the 99th percentile time between recent frames
+   * @return time in milliseconds
+   */
+  double getFrameTimeP99Millis();
+
+  /**
+   * Get the number of level ticks simulated in the last second.
+   * Menu, paused and idle frames do not simulate a tick, so this can be below the frame rate.
+   * @return ticks per second
+   */
+  double getTicksPerSecond();
+
+  /**
+   * Get how long the last level step on the simulation thread took
+   * @return time in milliseconds, or 0 if levels are simulated on the main thread
+   */
+  double getSimulationMillis();
+
+  /**
+   * Get the number of deferred tasks waiting to run
+   * @return number of tasks
+   */
+  int getPendingTasks();
+
+  /**
+   * Get the number of deferred tasks that missed their deadline
+   * @return number of tasks
+   */
+  long getDeadlineMisses();
+
+  /**
+   * Get the number of frames that ended over the frame budget
+   * @return number of frames
+   */
+  long getFrameOverruns();
+
+  /**
+   * Get the median time from a key event to the presentation of the frame that handled it
+   * @return time in milliseconds
+   */
+  double getInputLatencyP50Millis();
+
+  /**
+   * Get the 99th percentile time from a key event to the presentation of the frame that handled it
+   * @return time in milliseconds
+   */
+  double getInputLatencyP99Millis();
+
+  /**
+   * Get the number of key events dropped because too many arrived within one frame
+   * @return number of events
+   */
+  long getDroppedInputs();
+
+  /**
+   * Get the number of live particles
+   * @return number of particles
+   */
+  int getParticleCount();
+
+  /**
+   * Get how long the last particle update took, including drawing
+   * @return time in milliseconds
+   */
+  double getParticleMillis();
+
+  /**
+   * Get the number of resident textures
+   * @return number of textures
+   */
+  int getTextureCount();
+
+  /**
+   * Get the estimated size of the resident textures counted against the texture budget
+   * @return size in bytes
+   */
+  long getTextureBytes();
+
+  /**
+   * Get the number of fonts created
+   * @return number of fonts
+   */
+  int getFontCount();
+
+  /**
+   * Check if the game is idle, showing the same frame at a reduced frame rate
+   * @return true if idle
+   */
+  boolean isIdle();
+
+  /**
+   * Get how long the last load of each scene took
+   * @return map of scene id name to load time in milliseconds
+   */
+  Map<String, Double> getSceneLoadMillis();
+
+  /**
+   * Check if objects outside the camera's view are skipped when drawing
+   * @return true if culling is enabled
+   */
+  boolean isCullingEnabled();
+
+  /**
+   * Check if frame times are being recorded
+   * @return true if profiling is enabled
+   */
+  boolean isProfilingEnabled();
+
+  /**
+   * Turn culling on or off
+   * @return true if culling is now enabled
+   */
+  boolean toggleCulling();
+
+  /**
+   * Turn frame time recording on or off
+   * @return true if profiling is now enabled
+   */
+  boolean toggleProfiling();
+
+  /**
+   * Switch to a scene at the start of the next frame
+   * @param sceneId scene id name, e.g. START or LEVEL2
+   */
+  void forceScene(String sceneId);
+}
@@ -0,0 +1,656 @@
+package nav;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import activation.ActivationGrid;
+import core.GameObject;
+import core.PatrollingObject;
+import entity.Player;
+import platform.FlyingPlatform;
+import platform.Platform;
+import utils.PropertiesLoader;
+
+/**
+ * Navigation graph of a level, for enemies that chase rather than patrol.
+ * Nodes are evenly spaced standing positions along the top of every platform and flying platform.
+ * Walk edges join neighbouring nodes on the same platform, jump edges join nodes on different platforms
+ * that a jump with the player's physics can land on, and fall edges join the ends of a platform
+ * to the platforms below that walking off the end lands on.
+ * Platforms only move horizontally, so the flight time of each edge is worked out once when the graph is built.
+ * The level updates the graph once per tick: only the edges touching a flying platform that moved are checked
+ * against its new position, and sleeping platforms are checked where they will be once caught up.
+ * Queries share one table per goal, holding the next edge and cost from every node on a shortest path to the goal,
+ * so any number of enemies chasing the same goal each only look up their next edge.
+ * The tables of recent goals are kept, and an edge being enabled or disabled only drops the tables
+ * whose paths it shortens or lies on.
+ * Surfaces are indexed by x, so finding the node under an entity only looks at nearby platforms.
+ * Positions are the feet of an entity, i.e. the top of the platform it stands on.
+ * @author Michael Ren
+ */
+public class NavGraph {
+  public enum EdgeType {
+    WALK,
+    JUMP,
+    FALL,
+  }
+
+  /**
+   * Shortest paths from every node to one goal
+   */
+  private static class GoalTable {
+    // Next edge from each node, -1 at the goal and for nodes that cannot reach it
+    final int[] next;
+    // Ticks from each node to the goal, Integer.MAX_VALUE if it cannot be reached
+    final int[] cost;
+
+    /**
+     * Create an empty table
+     * @param nodeCount number of nodes
+     */
+    GoalTable(int nodeCount) {
+      next = new int[nodeCount];
+      cost = new int[nodeCount];
+    }
+  }
+
+  private static final double NODE_SPACING = Double.parseDouble(PropertiesLoader.getGameProperty("nav.nodeSpacing"));
+  private static final int CACHED_GOALS = Integer.parseInt(PropertiesLoader.getGameProperty("nav.cachedGoals"));
+  private static final int MAX_FLIGHT_TICKS = 240;
+  // How far above a platform's top a position can be and still count as standing on it
+  private static final double STAND_TOLERANCE = 8;
+
+  private final double speed;
+
+  // Surfaces are the tops of platforms. Nodes of surface s are [surfaceFirstNode[s], surfaceFirstNode[s + 1]).
+  private final GameObject[] surfaces;
+  private final double[] surfaceHalfWidth;
+  private final double[] surfaceTopOffset;
+  private final double[] surfaceSpacing;
+  private final int[] surfaceFirstNode;
+  // Position each moving surface's edges were last checked at
+  private final double[] checkedX;
+  // Edges between a moving surface and another surface, by surface
+  private final int[][] surfaceEdges;
+  // Surfaces that patrol and have edges to check
+  private final int[] movingSurfaces;
+  // Every surface, by the span it can ever occupy
+  private final ActivationGrid surfaceGrid = new ActivationGrid();
+
+  private final int[] nodeSurface;
+  private final double[] nodeOffset;
+
+  // Edges in order of source node
+  private final int[] edgeSource;
+  private final int[] edgeTarget;
+  private final EdgeType[] edgeTypes;
+  private final int[] edgeTicks;
+  // The side a fall edge walks off, -1 or 1
+  private final int[] edgeDirection;
+  private final boolean[] edgeEnabled;
+  // Edge indices grouped by target node, for searching back from a goal
+  private final int[] reverseStart;
+  private final int[] reverseEdges;
+
+  // Paths towards each recently queried goal, least recently used first
+  private final LinkedHashMap<Integer, GoalTable> goalTables;
+  private final ArrayList<GoalTable> spareTables = new ArrayList<>();
+  private long version = 0;
+  // Tick the moving surfaces were last checked at
+  private long tick = 0;
+
+  // Reused by updates and searches
+  private int[] changedEdges = new int[64];
+  private long[] heap = new long[64];
+
+  /**
+   * Build the navigation graph of a level
+   * @param objects the level's game objects, of which the platforms and flying platforms are used
+   * @param speed horizontal distance moved per tick by the entities following the graph
+   */
+  public NavGraph(List<GameObject> objects, double speed) {
+    this.speed = speed;
+
+    ArrayList<GameObject> platforms = new ArrayList<>();
+    for (GameObject object : objects) {
+      if (object instanceof Platform || object instanceof FlyingPlatform) {
+        platforms.add(object);
+      }
+    }
+
+    int surfaceCount = platforms.size();
+    surfaces = platforms.toArray(new GameObject[0]);
+    surfaceHalfWidth = new double[surfaceCount];
+    surfaceTopOffset = new double[surfaceCount];
+    surfaceSpacing = new double[surfaceCount];
+    surfaceFirstNode = new int[surfaceCount + 1];
+    checkedX = new double[surfaceCount];
+    for (int s = 0; s < surfaceCount; s++) {
+      GameObject surface = surfaces[s];
+      surfaceHalfWidth[s] = surface.getWidth() / 2;
+      surfaceTopOffset[s] = -surface.getHeight() / 2;
+      int intervals = Math.max(1, (int) Math.round(surface.getWidth() / NODE_SPACING));
+      surfaceSpacing[s] = surface.getWidth() / intervals;
+      surfaceFirstNode[s + 1] = surfaceFirstNode[s] + intervals + 1;
+      checkedX[s] = surface.getX();
+      double span = surfaceHalfWidth[s] + surface.getReach();
+      surfaceGrid.add(s, surface.getAnchorX() - span, surface.getAnchorX() + span);
+    }
+
+    int nodeCount = surfaceFirstNode[surfaceCount];
+    nodeSurface = new int[nodeCount];
+    nodeOffset = new double[nodeCount];
+    for (int s = 0; s < surfaceCount; s++) {
+      for (int n = surfaceFirstNode[s]; n < surfaceFirstNode[s + 1]; n++) {
+        nodeSurface[n] = s;
+        nodeOffset[n] = -surfaceHalfWidth[s] + (n - surfaceFirstNode[s]) * surfaceSpacing[s];
+      }
+    }
+
+    // Find every edge that can ever be taken, in order of source node
+    ArrayList<int[]> edges = new ArrayList<>();
+    for (int from = 0; from < nodeCount; from++) {
+      addEdges(from, edges);
+    }
+
+    int edgeCount = edges.size();
+    edgeSource = new int[edgeCount];
+    edgeTarget = new int[edgeCount];
+    edgeTypes = new EdgeType[edgeCount];
+    edgeTicks = new int[edgeCount];
+    edgeDirection = new int[edgeCount];
+    edgeEnabled = new boolean[edgeCount];
+    int[] reverseCounts = new int[nodeCount + 1];
+    int[] surfaceEdgeCounts = new int[surfaceCount];
+    for (int e = 0; e < edgeCount; e++) {
+      int[] edge = edges.get(e);
+      edgeSource[e] = edge[0];
+      edgeTarget[e] = edge[1];
+      edgeTypes[e] = EdgeType.values()[edge[2]];
+      edgeTicks[e] = edge[3];
+      edgeDirection[e] = edge[4];
+      reverseCounts[edge[1] + 1]++;
+      if (isMoving(e)) {
+        surfaceEdgeCounts[nodeSurface[edge[0]]]++;
+        surfaceEdgeCounts[nodeSurface[edge[1]]]++;
+      }
+      edgeEnabled[e] = canTake(e);
+    }
+
+    reverseStart = new int[nodeCount + 1];
+    for (int n = 0; n < nodeCount; n++) {
+      reverseStart[n + 1] = reverseStart[n] + reverseCounts[n + 1];
+    }
+    reverseEdges = new int[edgeCount];
+    int[] reverseFill = Arrays.copyOf(reverseStart, nodeCount);
+    surfaceEdges = new int[surfaceCount][];
+    for (int s = 0; s < surfaceCount; s++) {
+      surfaceEdges[s] = new int[surfaceEdgeCounts[s]];
+      surfaceEdgeCounts[s] = 0;
+    }
+    for (int e = 0; e < edgeCount; e++) {
+      reverseEdges[reverseFill[edgeTarget[e]]++] = e;
+      if (isMoving(e)) {
+        int source = nodeSurface[edgeSource[e]];
+        int target = nodeSurface[edgeTarget[e]];
+        surfaceEdges[source][surfaceEdgeCounts[source]++] = e;
+        surfaceEdges[target][surfaceEdgeCounts[target]++] = e;
+      }
+    }
+
+    int movingCount = 0;
+    for (int s = 0; s < surfaceCount; s++) {
+      if (surfaceEdges[s].length > 0 && surfaces[s] instanceof PatrollingObject) {
+        movingCount++;
+      }
+    }
+    movingSurfaces = new int[movingCount];
+    movingCount = 0;
+    for (int s = 0; s < surfaceCount; s++) {
+      if (surfaceEdges[s].length > 0 && surfaces[s] instanceof PatrollingObject) {
+        movingSurfaces[movingCount++] = s;
+      }
+    }
+
+    goalTables = new LinkedHashMap<Integer, GoalTable>(CACHED_GOALS * 2, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, GoalTable> eldest) {
+        if (size() > CACHED_GOALS) {
+          spareTables.add(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Find the edges from a node that can be taken for some position of the platforms
+   * @param from the source node
+   * @param edges list to add edges to, as {source, target, type, ticks, direction}
+   */
+  private void addEdges(int from, ArrayList<int[]> edges) {
+    int surface = nodeSurface[from];
+    if (from > surfaceFirstNode[surface]) {
+      edges.add(new int[] {from, from - 1, EdgeType.WALK.ordinal(), walkTicks(surface), 0});
+    }
+    if (from < surfaceFirstNode[surface + 1] - 1) {
+      edges.add(new int[] {from, from + 1, EdgeType.WALK.ordinal(), walkTicks(surface), 0});
+    }
+
+    // Only the ends of a platform can be walked off
+    int direction = 0;
+    if (from == surfaceFirstNode[surface]) {
+      direction = -1;
+    } else if (from == surfaceFirstNode[surface + 1] - 1) {
+      direction = 1;
+    }
+
+    for (int other = 0; other < surfaces.length; other++) {
+      if (other == surface) {
+        continue;
+      }
+      double dy = getTop(other) - getTop(surface);
+      int jumpTicks = flightTicks(dy, -Player.JUMP_SPEED);
+      int fallTicks = direction != 0 && dy > 0 ? flightTicks(dy, 0) : -1;
+      for (int to = surfaceFirstNode[other]; to < surfaceFirstNode[other + 1]; to++) {
+        double closest = getClosestDistance(from, to);
+        if (jumpTicks > 0 && closest <= speed * jumpTicks) {
+          edges.add(new int[] {from, to, EdgeType.JUMP.ordinal(), jumpTicks, 0});
+        }
+        if (fallTicks > 0 && closest <= speed * fallTicks) {
+          edges.add(new int[] {from, to, EdgeType.FALL.ordinal(), fallTicks, direction});
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of ticks to walk between neighbouring nodes of a surface
+   * @param surface the surface
+   * @return number of ticks, at least 1
+   */
+  private int walkTicks(int surface) {
+    return Math.max(1, (int) Math.ceil(surfaceSpacing[surface] / speed));
+  }
+
+  /**
+   * Work out how long a flight takes to land on a surface at a different height, with the player's physics
+   * @param dy target height minus starting height, negative if the target is higher
+   * @param velocityY starting vertical velocity
+   * @return number of ticks until landing, or -1 if the flight never reaches the target
+   */
+  private static int flightTicks(double dy, double velocityY) {
+    double y = 0;
+    double highest = 0;
+    for (int tick = 1; tick <= MAX_FLIGHT_TICKS; tick++) {
+      y += velocityY;
+      velocityY += Player.GRAVITY;
+      highest = Math.min(highest, y);
+      // Platforms are only landed on while falling, once the flight has risen above them
+      if (velocityY > 0 && highest <= dy && y >= dy) {
+        return tick;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the smallest horizontal distance there can ever be between two nodes, as their platforms patrol
+   * @param from the first node
+   * @param to the second node
+   * @return distance in pixels
+   */
+  private double getClosestDistance(int from, int to) {
+    GameObject a = surfaces[nodeSurface[from]];
+    GameObject b = surfaces[nodeSurface[to]];
+    double centre = Math.abs(b.getAnchorX() + nodeOffset[to] - a.getAnchorX() - nodeOffset[from]);
+    return Math.max(0, centre - a.getReach() - b.getReach());
+  }
+
+  /**
+   * Check if an edge joins a surface that moves
+   * @param edge the edge
+   * @return true if whether the edge can be taken depends on where the platforms are
+   */
+  private boolean isMoving(int edge) {
+    return edgeTypes[edge] != EdgeType.WALK
+      && (surfaces[nodeSurface[edgeSource[edge]]].getReach() > 0 || surfaces[nodeSurface[edgeTarget[edge]]].getReach() > 0);
+  }
+
+  /**
+   * Check if an edge can be taken where the platforms are now
+   * @param edge the edge
+   * @return true if the flight covers the horizontal distance, in the right direction for falls
+   */
+  private boolean canTake(int edge) {
+    if (edgeTypes[edge] == EdgeType.WALK) {
+      return true;
+    }
+    double dx = getNodeX(edgeTarget[edge]) - getNodeX(edgeSource[edge]);
+    if (edgeDirection[edge] * dx < 0) {
+      return false;
+    }
+    return Math.abs(dx) <= speed * edgeTicks[edge];
+  }
+
+  /**
+   * Recheck the edges of the platforms that moved since they were last checked.
+   * Called by the level once per tick, after its objects have moved.
+   * Only the cached paths that an enabled or disabled edge changes are dropped.
+   * @param tick the level tick the platforms should be checked at
+   */
+  public void update(long tick) {
+    this.tick = tick;
+    int changedCount = 0;
+    for (int s : movingSurfaces) {
+      double x = getSurfaceX(s);
+      if (x == checkedX[s]) {
+        continue;
+      }
+      checkedX[s] = x;
+      for (int edge : surfaceEdges[s]) {
+        boolean enabled = canTake(edge);
+        if (enabled != edgeEnabled[edge]) {
+          edgeEnabled[edge] = enabled;
+          if (changedCount == changedEdges.length) {
+            changedEdges = Arrays.copyOf(changedEdges, changedCount * 2);
+          }
+          changedEdges[changedCount++] = edge;
+        }
+      }
+    }
+    if (changedCount == 0) {
+      return;
+    }
+
+    version++;
+    Iterator<GoalTable> tables = goalTables.values().iterator();
+    while (tables.hasNext()) {
+      GoalTable table = tables.next();
+      if (isAffected(table, changedCount)) {
+        tables.remove();
+        spareTables.add(table);
+      }
+    }
+  }
+
+  /**
+   * Check if enabling or disabling edges changes the shortest paths in a table.
+   * A disabled edge matters if a path uses it, an enabled edge if it makes a node's path shorter.
+   * @param table the table
+   * @param changedCount number of edges in changedEdges
+   * @return true if the table must be searched again
+   */
+  private boolean isAffected(GoalTable table, int changedCount) {
+    for (int i = 0; i < changedCount; i++) {
+      int edge = changedEdges[i];
+      int source = edgeSource[edge];
+      if (edgeEnabled[edge]) {
+        int targetCost = table.cost[edgeTarget[edge]];
+        if (targetCost != Integer.MAX_VALUE && targetCost + edgeTicks[edge] < table.cost[source]) {
+          return true;
+        }
+      } else if (table.next[source] == edge) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the shortest paths towards a goal, searching back from the goal if they are not cached
+   * @param goal the goal node
+   * @return the goal's table
+   */
+  private GoalTable getGoalTable(int goal) {
+    GoalTable table = goalTables.get(goal);
+    if (table == null) {
+      table = spareTables.isEmpty() ? new GoalTable(nodeSurface.length) : spareTables.remove(spareTables.size() - 1);
+      search(goal, table);
+      goalTables.put(goal, table);
+    }
+    return table;
+  }
+
+  /**
+   * Find the shortest path from every node to a goal, searching back along enabled edges
+   * @param goal the goal node
+   * @param table table to fill with the next edge and cost from each node
+   */
+  private void search(int goal, GoalTable table) {
+    int[] next = table.next;
+    int[] cost = table.cost;
+    Arrays.fill(cost, Integer.MAX_VALUE);
+    Arrays.fill(next, -1);
+    cost[goal] = 0;
+    int heapSize = 0;
+    heap[heapSize++] = goal;
+
+    while (heapSize > 0) {
+      long top = heap[0];
+      heapSize = pop(heapSize);
+      int node = (int) top;
+      int nodeCost = (int) (top >>> 32);
+      if (nodeCost > cost[node]) {
+        continue;
+      }
+      for (int i = reverseStart[node]; i < reverseStart[node + 1]; i++) {
+        int edge = reverseEdges[i];
+        int source = edgeSource[edge];
+        int sourceCost = nodeCost + edgeTicks[edge];
+        if (edgeEnabled[edge] && sourceCost < cost[source]) {
+          cost[source] = sourceCost;
+          next[source] = edge;
+          heapSize = push(heapSize, ((long) sourceCost << 32) | source);
+        }
+      }
+    }
+  }
+
+  /**
+   * Add an entry to the search heap, ordered by cost in the high bits
+   * @param size the current heap size
+   * @param entry the entry
+   * @return the new heap size
+   */
+  private int push(int size, long entry) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    int i = size;
+    while (i > 0 && heap[(i - 1) / 2] > entry) {
+      heap[i] = heap[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+    heap[i] = entry;
+    return size + 1;
+  }
+
+  /**
+   * Remove the smallest entry from the search heap
+   * @param size the current heap size
+   * @return the new heap size
+   */
+  private int pop(int size) {
+    long last = heap[--size];
+    int i = 0;
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (heap[child] >= last) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return size;
+  }
+
+  /**
+   * Find the node nearest to a position on the platform it stands on, or the highest platform below it
+   * @param x x position
+   * @param feetY y position of the bottom of the entity
+   * @return the node, or -1 if there is no platform below the position
+   */
+  public int findNode(double x, double feetY) {
+    int best = -1;
+    double bestGap = Double.MAX_VALUE;
+    int count = surfaceGrid.find(x, x);
+    for (int i = 0; i < count; i++) {
+      int s = surfaceGrid.get(i);
+      double gap = getTop(s) - feetY;
+      if (gap >= -STAND_TOLERANCE && gap < bestGap && Math.abs(x - getSurfaceX(s)) <= surfaceHalfWidth[s]) {
+        best = s;
+        bestGap = gap;
+      }
+    }
+    if (best < 0) {
+      return -1;
+    }
+    double offset = x - getSurfaceX(best) + surfaceHalfWidth[best];
+    int index = (int) Math.round(offset / surfaceSpacing[best]);
+    return surfaceFirstNode[best] + Math.max(0, Math.min(index, surfaceFirstNode[best + 1] - surfaceFirstNode[best] - 1));
+  }
+
+  /**
+   * Get the first edge of a shortest path to a goal
+   * @param from the starting node
+   * @param goal the goal node
+   * @return the edge, or -1 if already at the goal or the goal cannot be reached
+   */
+  public int getNextEdge(int from, int goal) {
+    return getGoalTable(goal).next[from];
+  }
+
+  /**
+   * Find a shortest path to a goal
+   * @param from the starting node
+   * @param goal the goal node
+   * @param path array to fill with the nodes along the path, from the starting node to the goal
+   * @return number of nodes written, which is cut short at the array length, or 0 if the goal cannot be reached
+   */
+  public int findPath(int from, int goal, int[] path) {
+    int[] next = getGoalTable(goal).next;
+    if (from != goal && next[from] < 0) {
+      return 0;
+    }
+    int length = 0;
+    int node = from;
+    while (length < path.length) {
+      path[length++] = node;
+      if (node == goal) {
+        break;
+      }
+      node = edgeTarget[next[node]];
+    }
+    return length;
+  }
+
+  /**
+   * Get how long a shortest path to a goal takes
+   * @param from the starting node
+   * @param goal the goal node
+   * @return number of ticks, or -1 if the goal cannot be reached
+   */
+  public int getPathTicks(int from, int goal) {
+    int cost = getGoalTable(goal).cost[from];
+    return cost == Integer.MAX_VALUE ? -1 : cost;
+  }
+
+  /**
+   * Get the y position of the top of a surface
+   * @param surface the surface
+   * @return y position
+   */
+  private double getTop(int surface) {
+    return surfaces[surface].getY() + surfaceTopOffset[surface];
+  }
+
+  /**
+   * Get the number of nodes
+   * @return number of nodes
+   */
+  public int getNodeCount() {
+    return nodeSurface.length;
+  }
+
+  /**
+   * Get the number of edges, including edges that cannot be taken where the platforms are now
+   * @return number of edges
+   */
+  public int getEdgeCount() {
+    return edgeTarget.length;
+  }
+
+  /**
+   * Get the current x position of a node, which moves with its platform
+   * @param node the node
+   * @return x position
+   */
+  public double getNodeX(int node) {
+    return getSurfaceX(nodeSurface[node]) + nodeOffset[node];
+  }
+
+  /**
+   * Get the x position of a surface at the tick the graph was last updated at,
+   * including flying platforms that are asleep and have not been caught up yet
+   * @param surface the surface
+   * @return x position
+   */
+  private double getSurfaceX(int surface) {
+    GameObject object = surfaces[surface];
+    return object instanceof PatrollingObject ? ((PatrollingObject) object).getXAt(tick) : object.getX();
+  }
+
+  /**
+   * Get the y position of a node, the top of its platform
+   * @param node the node
+   * @return y position
+   */
+  public double getNodeY(int node) {
+    return getTop(nodeSurface[node]);
+  }
+
+  /**
+   * Get the node an edge leads to
+   * @param edge the edge
+   * @return the target node
+   */
+  public int getEdgeTarget(int edge) {
+    return edgeTarget[edge];
+  }
+
+  /**
+   * Get how an edge is travelled
+   * @param edge the edge
+   * @return walk, jump or fall
+   */
+  public EdgeType getEdgeType(int edge) {
+    return edgeTypes[edge];
+  }
+
+  /**
+   * Get how long an edge takes to travel
+   * @param edge the edge
+   * @return number of ticks
+   */
+  public int getEdgeTicks(int edge) {
+    return edgeTicks[edge];
+  }
+
+  /**
+   * Get the number of ticks on which edges were enabled or disabled by moving platforms,
+   * which is when cached paths may be dropped
+   * @return version number
+   */
+  public long getVersion() {
+    return version;
+  }
+}
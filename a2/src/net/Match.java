@@ -0,0 +1,214 @@
+package net;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import level.HeadlessLevel;
+import save.StateWriter;
+
+/**
+ * One match hosted by the server: the authoritative level, the client's buffered inputs,
+ * and the snapshots recently sent to the client.
+ * @author Michael Ren
+ */
+class Match {
+  // Steps taken in one server tick when the client has sent inputs ahead
+  private static final int MAX_CATCH_UP = 2;
+  // Ticks to wait for a late input before simulating with the previous input
+  private static final int MAX_STALL = 6;
+
+  private final int id;
+  private final int level;
+  private final long seed;
+  private final SocketAddress address;
+  private final HeadlessLevel simulation;
+
+  // Inputs by tick
+  private final byte[] inputs = new byte[Protocol.HISTORY];
+  private final int[] inputTicks = new int[Protocol.HISTORY];
+  private int lastInput = 0;
+  private int lastInputTick = -1;
+  private int stalledTicks = 0;
+
+  private final StateWriter state = new StateWriter();
+  private final SnapshotHistory sent = new SnapshotHistory();
+  private int ackedTick = -1;
+  private long lastHeardNanos;
+  private long endedTicks = 0;
+
+  /**
+   * Create a new match
+   * @param id the match id
+   * @param level the level number
+   * @param seed seed for the level's random numbers
+   * @param address the client's address
+   */
+  Match(int id, int level, long seed, SocketAddress address) {
+    this.id = id;
+    this.level = level;
+    this.seed = seed;
+    this.address = address;
+    simulation = new HeadlessLevel(level, seed);
+    for (int i = 0; i < inputTicks.length; i++) {
+      inputTicks[i] = -1;
+    }
+    lastHeardNanos = System.nanoTime();
+  }
+
+  /**
+   * Store inputs from an input packet. Inputs for ticks that were already simulated are ignored.
+   * @param ackedTick newest snapshot tick the client has received
+   * @param newestTick tick of the last input in the packet
+   * @param packet buffer positioned at the input bytes
+   * @param count number of inputs in the packet
+   */
+  void receiveInput(int ackedTick, int newestTick, ByteBuffer packet, int count) {
+    lastHeardNanos = System.nanoTime();
+    if (ackedTick > this.ackedTick) {
+      this.ackedTick = ackedTick;
+    }
+
+    int tick = (int) simulation.getTick();
+    for (int i = count - 1; i >= 0; i--) {
+      int inputTick = newestTick - i;
+      byte bits = packet.get();
+      if (inputTick >= tick && inputTick < tick + Protocol.HISTORY) {
+        int slot = inputTick & (Protocol.HISTORY - 1);
+        inputs[slot] = bits;
+        inputTicks[slot] = inputTick;
+      }
+    }
+  }
+
+  /**
+   * Advance the match by one server tick.
+   * Normally one step is taken, using the client's input for that tick. If inputs are buffered ahead,
+   * a second step is taken to catch up. If the input is late, the match waits a few ticks,
+   * then steps with the previous input, and the client is corrected by the next snapshot.
+   * @return number of steps taken
+   */
+  int update() {
+    int steps = 0;
+    while (steps < MAX_CATCH_UP && hasInput((int) simulation.getTick())) {
+      int slot = (int) simulation.getTick() & (Protocol.HISTORY - 1);
+      lastInput = inputs[slot];
+      lastInputTick = (int) simulation.getTick();
+      step();
+      steps++;
+    }
+
+    if (steps > 0) {
+      stalledTicks = 0;
+    } else if (++stalledTicks > MAX_STALL) {
+      step();
+      steps++;
+    }
+    return steps;
+  }
+
+  /**
+   * Check if the client's input for a tick has arrived
+   * @param tick the tick
+   * @return true if it has arrived
+   */
+  private boolean hasInput(int tick) {
+    return inputTicks[tick & (Protocol.HISTORY - 1)] == tick;
+  }
+
+  /**
+   * Simulate one tick with the latest input
+   */
+  private void step() {
+    simulation.step(lastInput);
+    if (simulation.isWon() || simulation.isLost()) {
+      endedTicks++;
+    }
+  }
+
+  /**
+   * Write a welcome packet
+   * @param out buffer to write to
+   */
+  void writeWelcome(ByteBuffer out) {
+    out.put(Protocol.WELCOME);
+    out.putInt(id);
+    out.put((byte) level);
+    out.putLong(seed);
+  }
+
+  /**
+   * Write a snapshot packet of the current state, as a delta against the newest state the client has received
+   * @param out buffer to write to
+   * @return false if the state was too large for a datagram
+   */
+  boolean writeSnapshot(ByteBuffer out) {
+    int tick = (int) simulation.getTick();
+    state.reset();
+    simulation.writeState(state);
+    int length = state.size();
+    byte[] current = sent.store(tick, length);
+    System.arraycopy(state.getBytes(), 0, current, 0, length);
+
+    out.put(Protocol.SNAPSHOT);
+    out.putInt(tick);
+    out.putInt(lastInputTick);
+    int header = out.position();
+
+    byte[] baseline = ackedTick == tick ? null : sent.get(ackedTick);
+    if (baseline != null && sent.getLength(ackedTick) == length) {
+      out.putInt(ackedTick);
+      out.putShort((short) length);
+      if (Protocol.writeDelta(baseline, current, length, out)) {
+        return true;
+      }
+      out.position(header);
+    }
+
+    if (out.remaining() < Integer.BYTES + Short.BYTES + length || length > 0xffff) {
+      return false;
+    }
+    out.putInt(-1);
+    out.putShort((short) length);
+    out.put(current, 0, length);
+    return true;
+  }
+
+  /**
+   * Get the match id
+   * @return the id
+   */
+  int getId() {
+    return id;
+  }
+
+  /**
+   * Get the client's address
+   * @return the address
+   */
+  SocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Get the authoritative level
+   * @return the level
+   */
+  HeadlessLevel getSimulation() {
+    return simulation;
+  }
+
+  /**
+   * Get the time the client was last heard from
+   * @return time from System.nanoTime
+   */
+  long getLastHeardNanos() {
+    return lastHeardNanos;
+  }
+
+  /**
+   * Get the number of ticks since the level was won or lost
+   * @return number of ticks, 0 while the level is still being played
+   */
+  long getEndedTicks() {
+    return endedTicks;
+  }
+}
@@ -0,0 +1,241 @@
+package net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import level.HeadlessLevel;
+import save.StateReader;
+
+/**
+ * Client for a match on a MatchServer.
+ * The client simulates its own copy of the level immediately with the local input (prediction),
+ * and sends the input to the server. When a snapshot arrives, the level is restored to the server's state
+ * and the inputs the server has not simulated yet are replayed on top of it (reconciliation).
+ * Both sides run the same headless level from the same seed, so a snapshot only corrects the client
+ * when the server simulated different inputs, e.g. after waiting too long for a lost input.
+ * Drawing is left to the caller, through the level from getSimulation().
+ * @author Michael Ren
+ */
+public class MatchClient implements AutoCloseable {
+  private static final long JOIN_RETRY_MILLIS = 100;
+
+  private final DatagramChannel channel;
+  private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET_SIZE);
+  private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_PACKET_SIZE);
+
+  private HeadlessLevel simulation;
+  private int matchId = -1;
+
+  // Inputs by tick, replayed after each snapshot
+  private final byte[] inputs = new byte[Protocol.HISTORY];
+  private final SnapshotHistory received = new SnapshotHistory();
+  private int snapshotTick = -1;
+  private double lastCorrection = 0;
+
+  /**
+   * Create a client for a server
+   * @param server the server's address
+   */
+  public MatchClient(InetSocketAddress server) {
+    try {
+      channel = DatagramChannel.open();
+      channel.connect(server);
+      channel.configureBlocking(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Ask the server for a match and load the same level locally, blocking until the server replies
+   * @param level the level number
+   * @param timeoutMillis how long to wait for the server
+   * @return true if the match was joined
+   */
+  public boolean join(int level, long timeoutMillis) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    try (Selector selector = Selector.open()) {
+      channel.register(selector, SelectionKey.OP_READ);
+      while (System.currentTimeMillis() < deadline) {
+        out.clear();
+        out.put(Protocol.JOIN);
+        out.put((byte) level);
+        channel.write(out.flip());
+
+        selector.select(JOIN_RETRY_MILLIS);
+        selector.selectedKeys().clear();
+        while (channel.read(in.clear()) > 0) {
+          in.flip();
+          if (in.remaining() >= 14 && in.get() == Protocol.WELCOME) {
+            matchId = in.getInt();
+            int joinedLevel = in.get();
+            simulation = new HeadlessLevel(joinedLevel, in.getLong());
+            return true;
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return false;
+  }
+
+  /**
+   * Apply any snapshots that have arrived, then predict one tick with the local input and send it to the server
+   * @param inputBits bitwise or of HeadlessLevel.INPUT_ constants
+   */
+  public void tick(int inputBits) {
+    try {
+      receive();
+
+      int tick = (int) simulation.getTick();
+      inputs[tick & (Protocol.HISTORY - 1)] = (byte) inputBits;
+      simulation.step(inputBits);
+
+      int count = Math.min(Protocol.INPUT_REDUNDANCY, tick + 1);
+      out.clear();
+      out.put(Protocol.INPUT);
+      out.putInt(matchId);
+      out.putInt(snapshotTick);
+      out.putInt(tick);
+      out.put((byte) count);
+      for (int inputTick = tick - count + 1; inputTick <= tick; inputTick++) {
+        out.put(inputs[inputTick & (Protocol.HISTORY - 1)]);
+      }
+      channel.write(out.flip());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Handle every snapshot waiting on the socket, reconciling against the newest one
+   * @throws IOException if the socket fails
+   */
+  private void receive() throws IOException {
+    int newest = -1;
+    while (channel.read(in.clear()) > 0) {
+      in.flip();
+      if (in.remaining() >= 15 && in.get() == Protocol.SNAPSHOT) {
+        int tick = readSnapshot(in);
+        if (tick > newest) {
+          newest = tick;
+        }
+      }
+    }
+    if (newest > snapshotTick) {
+      snapshotTick = newest;
+      reconcile(newest);
+    }
+  }
+
+  /**
+   * Decode a snapshot into the history
+   * @param packet buffer positioned after the packet type
+   * @return the snapshot's tick, or -1 if it could not be decoded
+   */
+  private int readSnapshot(ByteBuffer packet) {
+    int tick = packet.getInt();
+    packet.getInt();
+    int baselineTick = packet.getInt();
+    int length = Short.toUnsignedInt(packet.getShort());
+    if (tick <= snapshotTick || received.get(tick) != null) {
+      return -1;
+    }
+
+    if (baselineTick < 0) {
+      if (packet.remaining() != length) {
+        return -1;
+      }
+      packet.get(received.store(tick, length), 0, length);
+      return tick;
+    }
+
+    // The baseline may have been replaced already if snapshots arrived out of order
+    byte[] baseline = received.get(baselineTick);
+    if (baseline == null || received.getLength(baselineTick) != length) {
+      return -1;
+    }
+    byte[] state = received.store(tick, length);
+    System.arraycopy(baseline, 0, state, 0, length);
+    return Protocol.readDelta(packet, state, length) ? tick : -1;
+  }
+
+  /**
+   * Restore the level to a snapshot and replay the inputs after it
+   * @param tick the snapshot's tick
+   */
+  private void reconcile(int tick) {
+    int predictedTick = (int) simulation.getTick();
+    double predictedX = getPlayerX();
+    double predictedY = getPlayerY();
+
+    simulation.readState(new StateReader(received.get(tick), received.getLength(tick)));
+    for (int replay = tick; replay < predictedTick && replay > predictedTick - Protocol.HISTORY; replay++) {
+      simulation.step(inputs[replay & (Protocol.HISTORY - 1)]);
+    }
+    lastCorrection = Math.hypot(getPlayerX() - predictedX, getPlayerY() - predictedY);
+  }
+
+  /**
+   * Get the player's x position
+   * @return x position
+   */
+  private double getPlayerX() {
+    return simulation.getLevel().getPlayer().getX();
+  }
+
+  /**
+   * Get the player's y position
+   * @return y position
+   */
+  private double getPlayerY() {
+    return simulation.getLevel().getPlayer().getY();
+  }
+
+  /**
+   * Get the predicted level
+   * @return the level, or null before joining
+   */
+  public HeadlessLevel getSimulation() {
+    return simulation;
+  }
+
+  /**
+   * Get the newest snapshot tick received from the server
+   * @return the tick, or -1 if no snapshot has arrived
+   */
+  public int getSnapshotTick() {
+    return snapshotTick;
+  }
+
+  /**
+   * Get how far the player moved when the last snapshot was applied, 0 if the prediction was exact
+   * @return distance in pixels
+   */
+  public double getLastCorrection() {
+    return lastCorrection;
+  }
+
+  /**
+   * Leave the match and close the socket
+   */
+  @Override
+  public void close() {
+    try {
+      if (matchId >= 0) {
+        out.clear();
+        out.put(Protocol.LEAVE);
+        out.putInt(matchId);
+        channel.write(out.flip());
+      }
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
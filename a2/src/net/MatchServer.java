@@ -0,0 +1,280 @@
+package net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import utils.PropertiesLoader;
+
+/**
+ * Headless authoritative server. Every match is simulated on the server from the inputs its client sends,
+ * and the server regularly sends back snapshots of the level for the client to reconcile against.
+ * A single thread handles every match: it drains the non-blocking socket, steps each match once per tick,
+ * then sends snapshots. Matches run the game's own levels headless, so no window or textures are needed.
+ * @author Michael Ren
+ */
+public class MatchServer implements Runnable, AutoCloseable {
+  // Matches are dropped if their client is silent for this long
+  private static final long TIMEOUT_NANOS = 10_000_000_000L;
+  // Matches are kept for a few seconds after they end, so the client sees the final state
+  private static final long ENDED_TICKS = 3L * Protocol.TICKS_PER_SECOND;
+  // Ticks skipped instead of simulated if the server falls this far behind
+  private static final int MAX_LAG_TICKS = 5;
+
+  private final DatagramChannel channel;
+  private final Selector selector;
+  private final int snapshotInterval;
+  private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET_SIZE);
+  private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_PACKET_SIZE);
+
+  private final HashMap<Integer, Match> matches = new HashMap<>();
+  private final HashMap<SocketAddress, Match> matchesByAddress = new HashMap<>();
+  private final ArrayList<Match> finished = new ArrayList<>();
+  private int nextMatchId = 1;
+  private long tick = 0;
+  private long oversizedSnapshots = 0;
+  private volatile boolean running = true;
+  private Thread thread;
+
+  /**
+   * Create a server bound to a local port
+   * @param address the address to bind to, port 0 picks a free port
+   * @param snapshotInterval number of ticks between snapshots sent to each client
+   */
+  public MatchServer(InetSocketAddress address, int snapshotInterval) {
+    this.snapshotInterval = snapshotInterval;
+    try {
+      channel = DatagramChannel.open();
+      channel.bind(address);
+      channel.configureBlocking(false);
+      selector = Selector.open();
+      channel.register(selector, SelectionKey.OP_READ);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Run a server on the port in app.properties until the process is killed
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    int port = Integer.parseInt(PropertiesLoader.getGameProperty("net.port"));
+    int interval = Integer.parseInt(PropertiesLoader.getGameProperty("net.snapshotInterval"));
+    MatchServer server = new MatchServer(new InetSocketAddress(port), interval);
+    System.out.println("Listening on port " + server.getPort());
+    server.run();
+  }
+
+  /**
+   * Start the server on a daemon thread
+   * @return the thread
+   */
+  public Thread start() {
+    thread = new Thread(this, "match-server");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Server loop: wait for packets until the next tick is due, then tick every match
+   */
+  @Override
+  public void run() {
+    long nextTick = System.nanoTime();
+    try {
+      while (running) {
+        long wait = nextTick - System.nanoTime();
+        if (wait > 0) {
+          selector.select(Math.max(1, wait / 1_000_000));
+          selector.selectedKeys().clear();
+        }
+        receive();
+
+        long now = System.nanoTime();
+        if (now - nextTick > MAX_LAG_TICKS * Protocol.TICK_NANOS) {
+          nextTick = now;
+        }
+        while (now >= nextTick) {
+          update();
+          nextTick += Protocol.TICK_NANOS;
+        }
+      }
+    } catch (IOException e) {
+      if (running) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Handle every datagram waiting on the socket
+   * @throws IOException if the socket fails
+   */
+  private void receive() throws IOException {
+    SocketAddress from;
+    while (running && (from = channel.receive(in.clear())) != null) {
+      in.flip();
+      if (in.remaining() > 0) {
+        handle(in.get(), in, from);
+      }
+    }
+  }
+
+  /**
+   * Handle one packet. Malformed packets and packets for another client's match are ignored.
+   * @param type the packet type
+   * @param packet buffer positioned after the type
+   * @param from the sender's address
+   * @throws IOException if the socket fails
+   */
+  private void handle(byte type, ByteBuffer packet, SocketAddress from) throws IOException {
+    switch (type) {
+      case Protocol.JOIN:
+        if (packet.remaining() >= 1) {
+          join(packet.get(), from);
+        }
+        break;
+      case Protocol.INPUT:
+        if (packet.remaining() >= 13) {
+          Match match = matches.get(packet.getInt());
+          int ackedTick = packet.getInt();
+          int newestTick = packet.getInt();
+          int count = packet.get();
+          if (match != null && match.getAddress().equals(from) && count > 0 && count <= packet.remaining()) {
+            match.receiveInput(ackedTick, newestTick, packet, count);
+          }
+        }
+        break;
+      case Protocol.LEAVE:
+        if (packet.remaining() >= 4) {
+          Match match = matches.get(packet.getInt());
+          if (match != null && match.getAddress().equals(from)) {
+            remove(match);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Create a match for a client, or resend the welcome if the client already has one
+   * @param level the level number
+   * @param from the client's address
+   * @throws IOException if the socket fails
+   */
+  private void join(int level, SocketAddress from) throws IOException {
+    Match match = matchesByAddress.get(from);
+    if (match == null) {
+      if (!Protocol.isLevel(level)) {
+        return;
+      }
+      match = new Match(nextMatchId++, level, ThreadLocalRandom.current().nextLong(), from);
+      matches.put(match.getId(), match);
+      matchesByAddress.put(from, match);
+    }
+
+    out.clear();
+    match.writeWelcome(out);
+    channel.send(out.flip(), from);
+  }
+
+  /**
+   * Step every match, send snapshots that are due, and drop finished or silent matches
+   * @throws IOException if the socket fails
+   */
+  private void update() throws IOException {
+    long now = System.nanoTime();
+    boolean sendSnapshots = tick % snapshotInterval == 0;
+    for (Match match : matches.values()) {
+      match.update();
+      if (sendSnapshots) {
+        out.clear();
+        if (match.writeSnapshot(out)) {
+          // A full send buffer drops the snapshot, the next one will correct the client
+          channel.send(out.flip(), match.getAddress());
+        } else {
+          oversizedSnapshots++;
+        }
+      }
+      if (now - match.getLastHeardNanos() > TIMEOUT_NANOS || match.getEndedTicks() > ENDED_TICKS) {
+        finished.add(match);
+      }
+    }
+
+    for (Match match : finished) {
+      remove(match);
+    }
+    finished.clear();
+    tick++;
+  }
+
+  /**
+   * Remove a match
+   * @param match the match to remove
+   */
+  private void remove(Match match) {
+    matches.remove(match.getId());
+    matchesByAddress.remove(match.getAddress());
+  }
+
+  /**
+   * Get the port the server is bound to
+   * @return the local port
+   */
+  public int getPort() {
+    try {
+      return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Get the number of running matches. Only accurate when called from the server thread.
+   * @return number of matches
+   */
+  public int getMatchCount() {
+    return matches.size();
+  }
+
+  /**
+   * Get the number of snapshots that were too large to send
+   * @return number of snapshots
+   */
+  public long getOversizedSnapshots() {
+    return oversizedSnapshots;
+  }
+
+  /**
+   * Stop the server loop, waiting for it to finish if it was started with start(), and close the socket
+   */
+  @Override
+  public void close() {
+    running = false;
+    selector.wakeup();
+    try {
+      if (thread != null) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      channel.close();
+      selector.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
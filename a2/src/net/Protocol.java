@@ -0,0 +1,104 @@
+package net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packet layouts shared by the match server and client. Every packet is a single UDP datagram
+ * that starts with a one byte packet type, followed by big endian fields:
+ * <ul>
+ *   <li>JOIN (client): level number</li>
+ *   <li>WELCOME (server): match id, level number, level seed</li>
+ *   <li>INPUT (client): match id, newest snapshot tick received, newest input tick, input count,
+ *   then one byte of input bits per tick, oldest first. Recent inputs are repeated so a lost packet does not lose input.</li>
+ *   <li>SNAPSHOT (server): tick, last input tick used, baseline tick (-1 for a full state), state length,
+ *   then either the full state or delta runs against the baseline</li>
+ *   <li>LEAVE (client): match id</li>
+ * </ul>
+ * @author Michael Ren
+ */
+public class Protocol {
+  public static final byte JOIN = 1;
+  public static final byte WELCOME = 2;
+  public static final byte INPUT = 3;
+  public static final byte SNAPSHOT = 4;
+  public static final byte LEAVE = 5;
+
+  public static final int MAX_PACKET_SIZE = 65507;
+  public static final int TICKS_PER_SECOND = 60;
+  public static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+
+  // Number of past inputs repeated in every input packet
+  public static final int INPUT_REDUNDANCY = 8;
+
+  // Number of ticks of input and snapshots kept by both sides, must be a power of 2
+  public static final int HISTORY = 64;
+
+  // Unchanged gaps shorter than this are merged into a single delta run
+  private static final int MERGE_GAP = 4;
+  private static final int RUN_HEADER_SIZE = 4;
+
+  /**
+   * Write the differences between a baseline and a new state as runs of (offset, length, bytes).
+   * Offsets and lengths are unsigned shorts, as a state never exceeds one datagram.
+   * @param baseline the baseline state
+   * @param state the new state, the same length as the baseline
+   * @param length the state length
+   * @param out buffer to write the runs to
+   * @return false if the runs did not fit in the buffer
+   */
+  static boolean writeDelta(byte[] baseline, byte[] state, int length, ByteBuffer out) {
+    int i = 0;
+    while (i < length) {
+      if (state[i] == baseline[i]) {
+        i++;
+        continue;
+      }
+
+      // Extend the run until there is a long enough unchanged gap
+      int start = i;
+      int end = i + 1;
+      for (i = end; i < length && i - end < MERGE_GAP; i++) {
+        if (state[i] != baseline[i]) {
+          end = i + 1;
+        }
+      }
+
+      if (out.remaining() < RUN_HEADER_SIZE + end - start) {
+        return false;
+      }
+      out.putShort((short) start);
+      out.putShort((short) (end - start));
+      out.put(state, start, end - start);
+      i = end;
+    }
+    return true;
+  }
+
+  /**
+   * Apply delta runs on top of a copy of the baseline
+   * @param in buffer positioned at the first run, all remaining bytes are runs
+   * @param state array already holding a copy of the baseline
+   * @param length the state length
+   * @return false if a run was outside the state
+   */
+  static boolean readDelta(ByteBuffer in, byte[] state, int length) {
+    while (in.remaining() >= RUN_HEADER_SIZE) {
+      int start = Short.toUnsignedInt(in.getShort());
+      int runLength = Short.toUnsignedInt(in.getShort());
+      if (start + runLength > length || runLength > in.remaining()) {
+        return false;
+      }
+      in.get(state, start, runLength);
+    }
+    return true;
+  }
+
+  /**
+   * Check if a level number names one of the game's levels
+   * @param level the level number
+   * @return true for levels 1 to 3
+   */
+  static boolean isLevel(int level) {
+    return level >= 1 && level <= 3;
+  }
+}
@@ -0,0 +1,63 @@
+package net;
+
+/**
+ * A ring of recent world states, indexed by tick, used as baselines for delta snapshots.
+ * Slot arrays are reused, so storing a state does not allocate once the ring is warm.
+ * @author Michael Ren
+ */
+class SnapshotHistory {
+  private final byte[][] states = new byte[Protocol.HISTORY][];
+  private final int[] lengths = new int[Protocol.HISTORY];
+  private final int[] ticks = new int[Protocol.HISTORY];
+
+  /**
+   * Create an empty history
+   */
+  SnapshotHistory() {
+    clear();
+  }
+
+  /**
+   * Remove every state
+   */
+  void clear() {
+    for (int i = 0; i < ticks.length; i++) {
+      ticks[i] = -1;
+    }
+  }
+
+  /**
+   * Get the array to store a tick's state in, replacing the state HISTORY ticks before it
+   * @param tick the tick
+   * @param length the state length
+   * @return the slot's array, at least length bytes long
+   */
+  byte[] store(int tick, int length) {
+    int slot = tick & (Protocol.HISTORY - 1);
+    if (states[slot] == null || states[slot].length < length) {
+      states[slot] = new byte[length];
+    }
+    ticks[slot] = tick;
+    lengths[slot] = length;
+    return states[slot];
+  }
+
+  /**
+   * Get the state of a tick
+   * @param tick the tick
+   * @return the state, or null if it is no longer in the history
+   */
+  byte[] get(int tick) {
+    int slot = tick & (Protocol.HISTORY - 1);
+    return tick >= 0 && ticks[slot] == tick ? states[slot] : null;
+  }
+
+  /**
+   * Get the length of a stored state
+   * @param tick the tick, which must be in the history
+   * @return the state length
+   */
+  int getLength(int tick) {
+    return lengths[tick & (Protocol.HISTORY - 1)];
+  }
+}
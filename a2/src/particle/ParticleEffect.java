@@ -0,0 +1,174 @@
+package particle;
+
+import camera.Camera;
+import event.EventType;
+import texture.Texture;
+import texture.TextureCache;
+import utils.PropertiesLoader;
+
+/**
+ * One kind of particle effect, such as the sparks of a coin pickup, and every live particle of that kind.
+ * The effect is configured from app.properties, and emits a burst of particles whenever
+ * a matching event is published. Particles are stored as parallel primitive arrays sized once up front,
+ * so emitting never allocates, and an expired particle is replaced by the last live one so the live
+ * particles always stay packed at the start of the arrays.
+ * All particles of an effect share one texture, and are drawn one after another.
+ * @author Michael Ren
+ */
+class ParticleEffect {
+  private static final int DIRECTIONS = 256;
+  private static final float[] COS = new float[DIRECTIONS];
+  private static final float[] SIN = new float[DIRECTIONS];
+  static {
+    for (int i = 0; i < DIRECTIONS; i++) {
+      COS[i] = (float) Math.cos(2 * Math.PI * i / DIRECTIONS);
+      SIN[i] = (float) Math.sin(2 * Math.PI * i / DIRECTIONS);
+    }
+  }
+
+  private final EventType eventType;
+  private final Class<?> sourceType;
+  private final Texture texture;
+  private final int burst;
+  private final float speed;
+  private final float gravity;
+  private final int life;
+
+  // Live particles are [0, count)
+  private final float[] x;
+  private final float[] y;
+  private final float[] velocityX;
+  private final float[] velocityY;
+  private final int[] age;
+  private int count = 0;
+  private long dropped = 0;
+
+  /**
+   * Create an effect from the particles.[name].* properties
+   * @param name name of the effect in app.properties
+   * @param capacity most particles of this effect that can be alive at once
+   */
+  ParticleEffect(String name, int capacity) {
+    String prefix = "particles." + name + ".";
+    eventType = EventType.valueOf(PropertiesLoader.getGameProperty(prefix + "event"));
+    String source = PropertiesLoader.getGameProperty(prefix + "source");
+    try {
+      sourceType = source == null || source.isEmpty() ? null : Class.forName(source);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Unknown particle source for " + name + ": " + source, e);
+    }
+    texture = TextureCache.get(PropertiesLoader.getGameProperty(prefix + "image"));
+    burst = Integer.parseInt(PropertiesLoader.getGameProperty(prefix + "burst"));
+    speed = Float.parseFloat(PropertiesLoader.getGameProperty(prefix + "speed"));
+    gravity = Float.parseFloat(PropertiesLoader.getGameProperty(prefix + "gravity"));
+    life = Integer.parseInt(PropertiesLoader.getGameProperty(prefix + "life"));
+
+    x = new float[capacity];
+    y = new float[capacity];
+    velocityX = new float[capacity];
+    velocityY = new float[capacity];
+    age = new int[capacity];
+  }
+
+  /**
+   * Check if the effect is emitted for an event
+   * @param type the event type
+   * @param source the class of the object that caused the event
+   * @return true if the event type matches, and the source matches if the effect has one
+   */
+  boolean matches(EventType type, Class<?> source) {
+    return type == eventType && (sourceType == null || sourceType == source);
+  }
+
+  /**
+   * Emit a burst of particles in random directions, at random fractions of the effect's speed.
+   * Particles that do not fit are dropped.
+   * @param originX x position in the level
+   * @param originY y position in the level
+   * @param random random number state, advanced for each particle
+   * @return the new random number state
+   */
+  long emit(double originX, double originY, long random) {
+    int end = Math.min(count + burst, x.length);
+    dropped += count + burst - end;
+    for (int i = count; i < end; i++) {
+      // xorshift, so emitting does not need a Random object
+      random ^= random << 13;
+      random ^= random >>> 7;
+      random ^= random << 17;
+      int direction = (int) (random & (DIRECTIONS - 1));
+      float fraction = 0.25f + 0.75f * ((random >>> 40) & 0xffff) / 65536f;
+      x[i] = (float) originX;
+      y[i] = (float) originY;
+      velocityX[i] = COS[direction] * speed * fraction;
+      velocityY[i] = SIN[direction] * speed * fraction;
+      age[i] = 0;
+    }
+    count = end;
+    return random;
+  }
+
+  /**
+   * Move every particle one tick, removing the ones that expired
+   */
+  void update() {
+    int i = 0;
+    while (i < count) {
+      if (++age[i] >= life) {
+        count--;
+        x[i] = x[count];
+        y[i] = y[count];
+        velocityX[i] = velocityX[count];
+        velocityY[i] = velocityY[count];
+        age[i] = age[count];
+        continue;
+      }
+      velocityY[i] += gravity;
+      x[i] += velocityX[i];
+      y[i] += velocityY[i];
+      i++;
+    }
+  }
+
+  /**
+   * Draw the particles in view of the camera
+   * @param camera the camera object
+   */
+  void draw(Camera camera) {
+    if (count == 0) {
+      return;
+    }
+    float left = (float) camera.getX();
+    float right = left + (float) camera.getWidth();
+    float top = (float) camera.getY();
+    float bottom = top + (float) camera.getHeight();
+    for (int i = 0; i < count; i++) {
+      if (x[i] >= left && x[i] <= right && y[i] >= top && y[i] <= bottom) {
+        texture.draw(x[i] - left, y[i] - top);
+      }
+    }
+  }
+
+  /**
+   * Remove every particle
+   */
+  void clear() {
+    count = 0;
+  }
+
+  /**
+   * Get the number of live particles
+   * @return number of particles
+   */
+  int getCount() {
+    return count;
+  }
+
+  /**
+   * Get the number of particles dropped because the effect was full
+   * @return number of particles
+   */
+  long getDroppedCount() {
+    return dropped;
+  }
+}
@@ -0,0 +1,114 @@
+package particle;
+
+import camera.Camera;
+import event.EventListener;
+import event.EventType;
+import event.GameEvent;
+import utils.PropertiesLoader;
+
+/**
+ * Particle effects for pickups, fireball hits and deaths.
+ * Subscribes synchronously to the event bus, and emits a burst of every effect configured for an event.
+ * The level updates and draws the particles once per tick, effect by effect, on the thread simulating the level.
+ * Particles are only decoration: they are not saved or rewound, and are cleared whenever the scene changes.
+ * @author Michael Ren
+ */
+public class ParticleSystem implements EventListener {
+  private static final int CAPACITY = Integer.parseInt(PropertiesLoader.getGameProperty("particles.capacity"));
+
+  private final ParticleEffect[] effects;
+  private long random = 0x9e3779b97f4a7c15L;
+  private volatile int particleCount = 0;
+  private volatile long updateNanos = 0;
+  private volatile long droppedCount = 0;
+
+  /**
+   * Create the effects listed in app.properties
+   */
+  public ParticleSystem() {
+    this(PropertiesLoader.getGameProperty("particles.effects"));
+  }
+
+  /**
+   * Create a list of effects, e.g. none for levels simulated without a window
+   * @param names comma separated effect names, as defined in app.properties
+   */
+  public ParticleSystem(String names) {
+    String[] split = names == null || names.isEmpty() ? new String[0] : names.split(",");
+    effects = new ParticleEffect[split.length];
+    for (int i = 0; i < split.length; i++) {
+      effects[i] = new ParticleEffect(split[i].trim(), CAPACITY);
+    }
+  }
+
+  /**
+   * Emit the effects for an event, or clear every particle when the scene changes
+   * @param event the event
+   */
+  @Override
+  public void onEvent(GameEvent event) {
+    if (event.getType() == EventType.SCENE_CHANGE) {
+      clear();
+      return;
+    }
+    for (ParticleEffect effect : effects) {
+      if (effect.matches(event.getType(), event.getSourceType())) {
+        random = effect.emit(event.getX(), event.getY(), random);
+      }
+    }
+  }
+
+  /**
+   * Move every particle one tick and draw the ones in view
+   * @param camera the camera object
+   */
+  public void update(Camera camera) {
+    long start = System.nanoTime();
+    int count = 0;
+    long dropped = 0;
+    for (ParticleEffect effect : effects) {
+      effect.update();
+      effect.draw(camera);
+      count += effect.getCount();
+      dropped += effect.getDroppedCount();
+    }
+    particleCount = count;
+    droppedCount = dropped;
+    updateNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * Remove every particle
+   */
+  public void clear() {
+    for (ParticleEffect effect : effects) {
+      effect.clear();
+    }
+    particleCount = 0;
+  }
+
+  /**
+   * Get the number of live particles as of the last update. Safe to call from any thread.
+   * @return number of particles
+   */
+  public int getParticleCount() {
+    return particleCount;
+  }
+
+  /**
+   * Get how long the last update took, including drawing. Safe to call from any thread.
+   * @return time in milliseconds
+   */
+  public double getUpdateMillis() {
+    return updateNanos / 1e6;
+  }
+
+  /**
+   * Get the number of particles dropped because an effect was full, as of the last update.
+   * Safe to call from any thread.
+   * @return number of particles
+   */
+  public long getDroppedCount() {
+    return droppedCount;
+  }
+}
@@ -1,58 +1,50 @@
 package platform;
 
-import java.util.Random;
-import bagel.Input;
-import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
+import core.PatrollingObject;
 import entity.Player;
+import utils.GameRandom;
 import utils.PropertiesLoader;
 
 /**
  * A platform that moves horizontally and randomly within a certain range.
  * @author Michael Ren
  */
-public class FlyingPlatform extends GameObject {
+public class FlyingPlatform extends PatrollingObject {
   private static final double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.flyingPlatform.randomSpeed"));
   private static final String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.flyingPlatform.image");
+  // Radius is -1 to use rect based collision
+  private static final ObjectType TYPE = new ObjectType(-1, SPEED, IMAGE_SRC);
   private static final double RANDOM_SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.flyingPlatform.randomSpeed"));
   private static final int MAX_DISPLACEMENT = Integer.parseInt(PropertiesLoader.getGameProperty("gameObjects.flyingPlatform.maxRandomDisplacementX"));
-  private final double INITIAL_X;
-  private int direction = (new Random()).nextBoolean() ? 1 : -1;
 
   /**
    * Create a new FlyingPlatform given initial position
    * @param x x position
    * @param y y position
+   * @param random the level's random numbers, which choose the starting direction
    */
-  public FlyingPlatform(double x, double y) {
-    // Set radius to -1 to use rect based collision
-    super(x, y, -1, SPEED, IMAGE_SRC);
-    INITIAL_X = x;
+  public FlyingPlatform(double x, double y, GameRandom random) {
+    super(x, y, TYPE, random);
   }
 
   /**
-   * Move the platform within a certain range, changing direction when it reaches the edge.
-   * The intial direction is set randomly.
+   * Get the distance the platform moves per tick
+   * @return speed in pixels per tick
    */
-  private void randomMove() {
-    // Move the object
-    setX(getX() + direction * RANDOM_SPEED);
-
-    // Change direction when reached the maximum displacement
-    if (Math.abs(getX() - INITIAL_X) > MAX_DISPLACEMENT) {
-      direction = (direction == 1) ? -1 : 1;
-    }
+  @Override
+  protected double getPatrolSpeed() {
+    return RANDOM_SPEED;
   }
 
   /**
-   * Draw the platform, and update random movement.
-   * @param input user input
-   * @param camera camera object
+   * Get the displacement after which the platform turns around
+   * @return maximum displacement in pixels
    */
   @Override
-  public void update(Input input, Camera camera) {
-    super.update(input, camera);
-    randomMove();
+  protected double getPatrolRange() {
+    return MAX_DISPLACEMENT;
   }
 
   /**
@@ -1,9 +1,10 @@
 package platform;
 
-import bagel.Input;
 import camera.Camera;
 import core.GameObject;
+import core.ObjectType;
 import entity.Player;
+import input.KeyState;
 import utils.PropertiesLoader;
 
 /**
@@ -13,6 +14,8 @@ import utils.PropertiesLoader;
 public class Platform extends GameObject {
   private static final double SPEED = Double.parseDouble(PropertiesLoader.getGameProperty("gameObjects.platform.speed"));
   private static final String IMAGE_SRC = PropertiesLoader.getGameProperty("gameObjects.platform.image");
+  // Radius is -1 to use rect based collision
+  private static final ObjectType TYPE = new ObjectType(-1, SPEED, IMAGE_SRC);
 
   /**
    * Create a new Platform given position
@@ -20,37 +23,44 @@ public class Platform extends GameObject {
    * @param y y position
    */
   public Platform(double x, double y) {
-    // Set radius to -1 to use rect based collision
-    super(x, y, -1, SPEED, IMAGE_SRC);
+    super(x, y, TYPE);
   }
 
   /**
    * Resolve collision with player.
    * Land the player on top of the platform on collision.
-   * Ignore collision if player is jumping upwards or has died.
    * @param object the game object to resolve collision with
    */
   @Override
   protected void resolveCollision(GameObject object) {
     super.resolveCollision(object);
-    Player player = (Player) object;
+    land((Player) object, getY(), getHeight());
+  }
 
+  /**
+   * Land the player on top of a platform it collided with.
+   * Ignore collision if player is jumping upwards or has died.
+   * @param player the player
+   * @param y y position of the centre of the platform
+   * @param height height of the platform
+   */
+  static void land(Player player, double y, double height) {
     // Ignore collision if player is jumping upwards or has died
     if (player.getVelocityY() < 0 || player.getHealth() <= 0)
       return;
 
     // Land player on platform
-    player.setY((getY() - (getHeight() / 2) - (player.getHeight() / 2)));
+    player.setY((y - (height / 2) - (player.getHeight() / 2)));
     player.setVelocityY(0);
     player.setIsOnPlatform(true);
-    player.setPreviousPlatformY(getY());
+    player.setPreviousPlatformY(y);
   }
 
   /**
    * Draw the platform.
    */
   @Override
-  public void update(Input input, Camera camera) {
+  public void update(KeyState input, Camera camera) {
     super.update(input, camera);
   }
 }
@@ -0,0 +1,129 @@
+package platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import core.GameObject;
+import entity.Player;
+
+/**
+ * Static platforms baked into merged collision spans.
+ * Platforms at the same height that touch or overlap are merged into one span, since the player collides
+ * with the span exactly when it collides with one of its platforms. The spans are kept sorted by left edge
+ * in an implicit interval tree: the span in the middle of each range stores the rightmost edge in that range,
+ * so a query skips every range that ends before the player, and finds the k spans under the player in O(log n + k).
+ * The platforms themselves are still drawn as before, they just no longer test collision one by one.
+ * @author Michael Ren
+ */
+public class PlatformSpans {
+  private final double[] left;
+  private final double[] right;
+  private final double[] y;
+  private final double[] height;
+  private final double[] maxRight;
+
+  /**
+   * Bake a set of static platforms
+   * @param platforms the platforms, which must not move afterwards
+   */
+  public PlatformSpans(List<Platform> platforms) {
+    // Sort into rows of the same height, left to right
+    ArrayList<Platform> sorted = new ArrayList<>(platforms);
+    sorted.sort(Comparator.comparingDouble(Platform::getY)
+      .thenComparingDouble(Platform::getHeight)
+      .thenComparingDouble(platform -> platform.getX() - platform.getWidth() / 2));
+
+    // Merge touching platforms in each row
+    ArrayList<double[]> spans = new ArrayList<>();
+    double[] span = null;
+    for (Platform platform : sorted) {
+      double platformLeft = platform.getX() - platform.getWidth() / 2;
+      double platformRight = platform.getX() + platform.getWidth() / 2;
+      if (span != null && span[2] == platform.getY() && span[3] == platform.getHeight() && platformLeft <= span[1]) {
+        span[1] = Math.max(span[1], platformRight);
+      } else {
+        span = new double[] {platformLeft, platformRight, platform.getY(), platform.getHeight()};
+        spans.add(span);
+      }
+    }
+    spans.sort(Comparator.comparingDouble(s -> s[0]));
+
+    int count = spans.size();
+    left = new double[count];
+    right = new double[count];
+    y = new double[count];
+    height = new double[count];
+    for (int i = 0; i < count; i++) {
+      left[i] = spans.get(i)[0];
+      right[i] = spans.get(i)[1];
+      y[i] = spans.get(i)[2];
+      height[i] = spans.get(i)[3];
+    }
+    maxRight = new double[count];
+    Arrays.fill(maxRight, Double.NEGATIVE_INFINITY);
+    buildMaxRight(0, count);
+  }
+
+  /**
+   * Store the rightmost edge of each range at the middle of the range
+   * @param from first index of the range
+   * @param to index after the range
+   * @return the rightmost edge in the range
+   */
+  private double buildMaxRight(int from, int to) {
+    if (from >= to) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    int middle = (from + to) >>> 1;
+    maxRight[middle] = Math.max(right[middle], Math.max(buildMaxRight(from, middle), buildMaxRight(middle + 1, to)));
+    return maxRight[middle];
+  }
+
+  /**
+   * Check the player for collision with every span under it, landing it on the spans it collides with
+   * @param player the player
+   */
+  public void collide(Player player) {
+    collide(player, 0, left.length);
+  }
+
+  /**
+   * Check the spans in a range of the tree
+   * @param player the player
+   * @param from first index of the range
+   * @param to index after the range
+   */
+  private void collide(Player player, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    double playerLeft = player.getX() - player.getWidth() / 2;
+    int middle = (from + to) >>> 1;
+    if (maxRight[middle] < playerLeft) {
+      return;
+    }
+
+    collide(player, from, middle);
+    double playerRight = player.getX() + player.getWidth() / 2;
+    if (left[middle] > playerRight) {
+      return;
+    }
+
+    double top = y[middle] - height[middle] / 2;
+    double playerTop = player.getY() - player.getHeight() / 2;
+    if (GameObject.collideRect(left[middle], top, right[middle] - left[middle], height[middle],
+        playerLeft, playerTop, player.getWidth(), player.getHeight())) {
+      Platform.land(player, y[middle], height[middle]);
+    }
+    collide(player, middle + 1, to);
+  }
+
+  /**
+   * Get the number of merged spans
+   * @return number of spans
+   */
+  public int size() {
+    return left.length;
+  }
+}
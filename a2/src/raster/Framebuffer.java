@@ -0,0 +1,121 @@
+package raster;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * An image in memory that the software renderer draws into, as one opaque 0xRRGGBB int per pixel, row by row.
+ * @author Michael Ren
+ */
+public class Framebuffer {
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+
+  /**
+   * Create a black framebuffer
+   * @param width width in pixels
+   * @param height height in pixels
+   */
+  public Framebuffer(int width, int height) {
+    this.width = width;
+    this.height = height;
+    pixels = new int[width * height];
+  }
+
+  /**
+   * Read a PNG into a new framebuffer, e.g. a golden image to compare against
+   * @param path the PNG file
+   * @return the framebuffer
+   * @throws IOException if the file cannot be read or is not an image
+   */
+  public static Framebuffer readPng(Path path) throws IOException {
+    BufferedImage image = ImageIO.read(path.toFile());
+    if (image == null) {
+      throw new IOException("Not an image: " + path);
+    }
+    Framebuffer framebuffer = new Framebuffer(image.getWidth(), image.getHeight());
+    image.getRGB(0, 0, image.getWidth(), image.getHeight(), framebuffer.pixels, 0, image.getWidth());
+    for (int i = 0; i < framebuffer.pixels.length; i++) {
+      framebuffer.pixels[i] &= 0xffffff;
+    }
+    return framebuffer;
+  }
+
+  /**
+   * Write the framebuffer as a PNG, creating the parent directory if needed
+   * @param path the PNG file
+   * @throws IOException if the file cannot be written
+   */
+  public void writePng(Path path) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, width, height, pixels, 0, width);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    if (!ImageIO.write(image, "png", path.toFile())) {
+      throw new IOException("No PNG writer available");
+    }
+  }
+
+  /**
+   * Fill every pixel with a colour
+   * @param colour the colour as 0xRRGGBB
+   */
+  public void clear(int colour) {
+    Arrays.fill(pixels, colour & 0xffffff);
+  }
+
+  /**
+   * Count the pixels that differ from another framebuffer of the same size by more than a tolerance
+   * in any channel
+   * @param other the framebuffer to compare with
+   * @param tolerance largest difference per channel that still counts as the same, 0 for an exact match
+   * @return number of differing pixels, or every pixel if the sizes differ
+   */
+  public int countDifferences(Framebuffer other, int tolerance) {
+    if (other.width != width || other.height != height) {
+      return Math.max(pixels.length, other.pixels.length);
+    }
+    int count = 0;
+    for (int i = 0; i < pixels.length; i++) {
+      int a = pixels[i];
+      int b = other.pixels[i];
+      if (a != b && (Math.abs((a >> 16 & 0xff) - (b >> 16 & 0xff)) > tolerance
+          || Math.abs((a >> 8 & 0xff) - (b >> 8 & 0xff)) > tolerance
+          || Math.abs((a & 0xff) - (b & 0xff)) > tolerance)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the pixels, row by row from the top left, which the renderer writes into directly
+   * @return the pixel array
+   */
+  public int[] getPixels() {
+    return pixels;
+  }
+
+  /**
+   * Get the width
+   * @return width in pixels
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the height
+   * @return height in pixels
+   */
+  public int getHeight() {
+    return height;
+  }
+}
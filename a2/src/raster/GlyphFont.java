@@ -0,0 +1,126 @@
+package raster;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * A TrueType font at one size, with each character rasterised once into an 8 bit coverage mask.
+ * Masks are made the first time a character is drawn, then blended by the software renderer like sprites.
+ * Not thread safe: glyphs are looked up while the frame's draw commands are collected, before tiles are drawn.
+ * @author Michael Ren
+ */
+class GlyphFont {
+  /**
+   * One rasterised character
+   */
+  static class Glyph {
+    final int width;
+    final int height;
+    // Coverage of each pixel, row by row
+    final byte[] mask;
+    // Offset of the mask's top left corner from the pen position on the baseline
+    final int left;
+    final int top;
+    final double advance;
+
+    /**
+     * Create a glyph
+     * @param width mask width
+     * @param height mask height
+     * @param mask coverage of each pixel
+     * @param left x offset from the pen position
+     * @param top y offset from the baseline, negative above it
+     * @param advance distance to move the pen afterwards
+     */
+    Glyph(int width, int height, byte[] mask, int left, int top, double advance) {
+      this.width = width;
+      this.height = height;
+      this.mask = mask;
+      this.left = left;
+      this.top = top;
+      this.advance = advance;
+    }
+  }
+
+  private final Font font;
+  private final int size;
+  private final FontRenderContext context = new FontRenderContext(null, true, true);
+  private final HashMap<Character, Glyph> glyphs = new HashMap<>();
+  // Printable ASCII glyphs, looked up without boxing
+  private final Glyph[] ascii = new Glyph[128];
+
+  /**
+   * Load a font file at a size
+   * @param path the TrueType font file
+   * @param size the size in pixels
+   */
+  GlyphFont(String path, int size) {
+    this.size = size;
+    try {
+      font = Font.createFont(Font.TRUETYPE_FONT, Paths.get(path).toFile()).deriveFont((float) size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (FontFormatException e) {
+      throw new UncheckedIOException(new IOException("Not a TrueType font: " + path, e));
+    }
+  }
+
+  /**
+   * Get the glyph for a character, rasterising it the first time
+   * @param c the character
+   * @return the glyph
+   */
+  Glyph getGlyph(char c) {
+    if (c < ascii.length) {
+      if (ascii[c] == null) {
+        ascii[c] = rasterise(c);
+      }
+      return ascii[c];
+    }
+    return glyphs.computeIfAbsent(c, this::rasterise);
+  }
+
+  /**
+   * Rasterise a character into a coverage mask
+   * @param c the character
+   * @return the glyph
+   */
+  private Glyph rasterise(char c) {
+    GlyphVector vector = font.createGlyphVector(context, String.valueOf(c));
+    double advance = vector.getGlyphMetrics(0).getAdvanceX();
+    Rectangle bounds = vector.getPixelBounds(context, 0, 0);
+    if (bounds.width <= 0 || bounds.height <= 0) {
+      return new Glyph(0, 0, new byte[0], 0, 0, advance);
+    }
+
+    BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    graphics.setColor(Color.WHITE);
+    graphics.drawGlyphVector(vector, -bounds.x, -bounds.y);
+    graphics.dispose();
+    byte[] mask = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    return new Glyph(bounds.width, bounds.height, mask, bounds.x, bounds.y, advance);
+  }
+
+  /**
+   * Get the distance between lines
+   * @return line height in pixels
+   */
+  int getLineHeight() {
+    return size;
+  }
+}
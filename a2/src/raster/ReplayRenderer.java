@@ -0,0 +1,235 @@
+package raster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import bagel.Keys;
+import event.EventType;
+import input.KeyState;
+import level.Level;
+import render.RenderSnapshot;
+import scene.SceneManager;
+import schedule.FrameScheduler;
+
+/**
+ * Plays a level from a script of held keys without a window, rendering frames with the software renderer.
+ * Frames are written as PNGs, compared with golden PNGs from an earlier run, or both.
+ * Each frame is recorded into a render snapshot exactly as the simulation thread records it in the game,
+ * so the frames match what the game would show. PNGs are encoded and compared on a pool of threads
+ * while the next frames are simulated and drawn.
+ * A script has one step per line: a number of ticks, then the keys held for those ticks joined by +,
+ * e.g. "60 RIGHT" or "1 RIGHT+UP". Blank lines and lines starting with # are ignored.
+ * The replay ends when the script runs out or the level is won or lost.
+ * Game randomness is seeded, so a script with the same seed always gives the same frames.
+ * @author Michael Ren
+ */
+public class ReplayRenderer {
+  private final SceneManager sceneManager;
+  private final Level level;
+  private final SoftwareRenderer renderer = new SoftwareRenderer();
+  private final RenderSnapshot snapshot = new RenderSnapshot();
+  private final int encoderCount = Runtime.getRuntime().availableProcessors();
+  private final ExecutorService encoders = Executors.newFixedThreadPool(encoderCount, runnable -> {
+    Thread thread = new Thread(runnable, "png-encoder");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // Framebuffers not being encoded, so memory stays bounded however long the replay is
+  private final ArrayBlockingQueue<Framebuffer> freeFramebuffers;
+  private final AtomicInteger differingFrames = new AtomicInteger();
+  private final AtomicInteger failedFrames = new AtomicInteger();
+  private volatile boolean levelEnded = false;
+
+  /**
+   * Load a level to replay
+   * @param levelNumber 1, 2 or 3
+   * @param seed seed for the game's random numbers
+   */
+  public ReplayRenderer(int levelNumber, long seed) {
+    sceneManager = new SceneManager(SceneManager.SceneId.valueOf("LEVEL" + levelNumber), seed);
+    level = (Level) sceneManager.getScene();
+    sceneManager.getEventBus().subscribe(event -> {
+      if (event.getType() == EventType.LEVEL_WON || event.getType() == EventType.LEVEL_LOST) {
+        levelEnded = true;
+      }
+    });
+    freeFramebuffers = new ArrayBlockingQueue<>(encoderCount + 1);
+    for (int i = 0; i <= encoderCount; i++) {
+      freeFramebuffers.add(new Framebuffer(
+        (int) level.getCamera().getWidth(), (int) level.getCamera().getHeight()));
+    }
+  }
+
+  /**
+   * Replay a script and write or compare its frames
+   * @param args level number, script file, then any of --out dir, --golden dir, --tolerance n, --every n and --seed n
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    if (args.length < 2) {
+      System.err.println("Usage: ReplayRenderer <level> <script> [--out dir] [--golden dir] [--tolerance n] [--every n] [--seed n]");
+      System.exit(2);
+    }
+    Path output = null;
+    Path golden = null;
+    int tolerance = 0;
+    int every = 1;
+    long seed = 0;
+    for (int i = 2; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--out":
+          output = Paths.get(args[i + 1]);
+          break;
+        case "--golden":
+          golden = Paths.get(args[i + 1]);
+          break;
+        case "--tolerance":
+          tolerance = Integer.parseInt(args[i + 1]);
+          break;
+        case "--every":
+          every = Integer.parseInt(args[i + 1]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[i + 1]);
+          break;
+        default:
+          System.err.println("Unknown option " + args[i]);
+          System.exit(2);
+      }
+    }
+
+    List<KeyState> script;
+    try {
+      script = readScript(Paths.get(args[1]));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ReplayRenderer replay = new ReplayRenderer(Integer.parseInt(args[0]), seed);
+    long start = System.nanoTime();
+    int frames = replay.run(script, every, output, golden, tolerance);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d frames in %.1f s (%.1f frames/s), last frame drawn in %.2f ms%n",
+      frames, seconds, frames / seconds, replay.renderer.getRenderMillis());
+    if (golden != null) {
+      System.out.printf("%d frames differ from %s%n", replay.differingFrames.get(), golden);
+    }
+    if (replay.differingFrames.get() > 0 || replay.failedFrames.get() > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Read a script into the keys held on each tick
+   * @param path the script file
+   * @return the keys for each tick, with one shared KeyState per step
+   * @throws IOException if the file cannot be read
+   */
+  public static List<KeyState> readScript(Path path) throws IOException {
+    ArrayList<KeyState> ticks = new ArrayList<>();
+    for (String line : Files.readAllLines(path)) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] parts = line.split("\\s+");
+      KeyState keys = new KeyState();
+      if (parts.length > 1) {
+        for (String key : parts[1].split("\\+")) {
+          keys.set(Keys.valueOf(key), true);
+        }
+      }
+      int count = Integer.parseInt(parts[0]);
+      for (int i = 0; i < count; i++) {
+        ticks.add(keys);
+      }
+    }
+    return ticks;
+  }
+
+  /**
+   * Simulate the level one tick per entry in the script, drawing every few ticks
+   * @param script the keys held on each tick
+   * @param every draw one frame out of this many ticks
+   * @param output directory to write frames to, or null
+   * @param golden directory of frames to compare with, or null
+   * @param tolerance largest difference per channel that still counts as the same
+   * @return number of frames drawn
+   */
+  public int run(List<KeyState> script, int every, Path output, Path golden, int tolerance) {
+    FrameScheduler scheduler = sceneManager.getSimulationScheduler();
+    int frames = 0;
+    for (int tick = 0; tick < script.size() && !levelEnded; tick++) {
+      snapshot.beginRecording(level, 0);
+      try {
+        scheduler.beginFrame();
+        level.simulate(script.get(tick));
+        scheduler.runUntilBudget();
+      } finally {
+        snapshot.endRecording();
+      }
+      if (tick % every != 0) {
+        continue;
+      }
+
+      Framebuffer framebuffer;
+      try {
+        framebuffer = freeFramebuffers.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      renderer.render(snapshot, framebuffer);
+      String name = String.format("frame_%06d.png", tick);
+      encoders.execute(() -> finishFrame(framebuffer, name, output, golden, tolerance));
+      frames++;
+    }
+
+    encoders.shutdown();
+    try {
+      encoders.awaitTermination(1, TimeUnit.HOURS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    renderer.close();
+    sceneManager.close();
+    return frames;
+  }
+
+  /**
+   * Compare a drawn frame with its golden frame and write it out, then free its framebuffer.
+   * Differing frames are always written if there is an output directory.
+   * @param framebuffer the frame
+   * @param name the frame's file name
+   * @param output directory to write frames to, or null
+   * @param golden directory of frames to compare with, or null
+   * @param tolerance largest difference per channel that still counts as the same
+   */
+  private void finishFrame(Framebuffer framebuffer, String name, Path output, Path golden, int tolerance) {
+    try {
+      if (golden != null) {
+        int differences = framebuffer.countDifferences(Framebuffer.readPng(golden.resolve(name)), tolerance);
+        if (differences > 0) {
+          differingFrames.incrementAndGet();
+          System.err.println(name + ": " + differences + " pixels differ");
+        }
+      }
+      if (output != null) {
+        framebuffer.writePng(output.resolve(name));
+      }
+    } catch (IOException e) {
+      failedFrames.incrementAndGet();
+      System.err.println(name + ": " + e.getMessage());
+    } finally {
+      freeFramebuffers.add(framebuffer);
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package raster;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import render.RenderBackend;
+import render.RenderSnapshot;
+import text.Text;
+import texture.Texture;
+import utils.PropertiesLoader;
+
+/**
+ * Draws recorded frames into a framebuffer in software, for machines without a GPU or a window,
+ * e.g. to render replays for golden image tests or level thumbnails.
+ * Drawing a frame has two steps. First the snapshot's sprites and messages are turned into quads, each an image
+ * or glyph mask at a pixel position, and every quad is added to the list of each screen tile it overlaps.
+ * Then the tiles are drawn in parallel, one tile per thread at a time, each drawing its own quads in the order
+ * they were recorded. Tiles never share pixels, so threads never wait on each other while drawing.
+ * Sprites are decoded once and shared by every renderer. Not thread safe: each renderer draws one frame at a time.
+ * @author Michael Ren
+ */
+public class SoftwareRenderer implements RenderBackend, AutoCloseable {
+  private static final int TILE_SIZE = Integer.parseInt(PropertiesLoader.getGameProperty("raster.tileSize"));
+  private static final int INITIAL_QUADS = 1024;
+  private static final int INITIAL_TILE_QUADS = 64;
+  private static final ConcurrentHashMap<String, Sprite> SPRITES = new ConcurrentHashMap<>();
+
+  private final int width;
+  private final int height;
+  private final int tilesX;
+  private final int tileCount;
+  private final Sprite background;
+  private final String fontPath = PropertiesLoader.getGameProperty("font");
+  private final HashMap<Integer, GlyphFont> fonts = new HashMap<>();
+
+  // Quads of the frame being drawn, in draw order. The source is a Sprite or a Glyph.
+  private int quadCount = 0;
+  private Object[] sources = new Object[INITIAL_QUADS];
+  private int[] quadX = new int[INITIAL_QUADS];
+  private int[] quadY = new int[INITIAL_QUADS];
+  private int[] colours = new int[INITIAL_QUADS];
+  // Indices of the quads overlapping each tile, in draw order
+  private final int[][] tileQuads;
+  private final int[] tileQuadCounts;
+
+  private final int threads;
+  private final ExecutorService workers;
+  private final AtomicInteger nextTile = new AtomicInteger();
+  private int[] pixels = null;
+  private long renderNanos = 0;
+
+  /**
+   * Create a renderer for frames the size of the window, drawing with the number of threads in app.properties
+   */
+  public SoftwareRenderer() {
+    this(Integer.parseInt(PropertiesLoader.getGameProperty("windowWidth")),
+      Integer.parseInt(PropertiesLoader.getGameProperty("windowHeight")),
+      Integer.parseInt(PropertiesLoader.getGameProperty("raster.threads")));
+  }
+
+  /**
+   * Create a renderer
+   * @param width frame width in pixels
+   * @param height frame height in pixels
+   * @param threads number of threads drawing tiles, including the caller, or 0 for one per core
+   */
+  public SoftwareRenderer(int width, int height, int threads) {
+    this.width = width;
+    this.height = height;
+    tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+    tileCount = tilesX * ((height + TILE_SIZE - 1) / TILE_SIZE);
+    tileQuads = new int[tileCount][INITIAL_TILE_QUADS];
+    tileQuadCounts = new int[tileCount];
+    String backgroundPath = PropertiesLoader.getGameProperty("backgroundImage");
+    background = backgroundPath == null || backgroundPath.isEmpty() ? null : getSprite(backgroundPath);
+
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger workerCount = new AtomicInteger();
+    workers = this.threads == 1 ? null : Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+      Thread thread = new Thread(runnable, "raster-" + workerCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Get the decoded pixels of an image, decoding it the first time
+   * @param path the image file path
+   * @return the sprite
+   */
+  private static Sprite getSprite(String path) {
+    return SPRITES.computeIfAbsent(path, Sprite::new);
+  }
+
+  /**
+   * Draw the background, then a snapshot's sprites and messages, into a framebuffer
+   * @param snapshot the recorded frame
+   * @param target the framebuffer, which must be the renderer's size
+   */
+  public void render(RenderSnapshot snapshot, Framebuffer target) {
+    if (target.getWidth() != width || target.getHeight() != height) {
+      throw new IllegalArgumentException("Framebuffer is " + target.getWidth() + "x" + target.getHeight()
+        + ", renderer is " + width + "x" + height);
+    }
+    long start = System.nanoTime();
+    quadCount = 0;
+    Arrays.fill(tileQuadCounts, 0);
+    if (background != null) {
+      addQuad(background, (int) Math.round((width - background.width) / 2.0),
+        (int) Math.round((height - background.height) / 2.0), background.width, background.height, 0);
+    }
+    snapshot.draw(this);
+
+    pixels = target.getPixels();
+    nextTile.set(0);
+    if (workers == null) {
+      drawTiles();
+    } else {
+      CountDownLatch done = new CountDownLatch(threads - 1);
+      for (int i = 1; i < threads; i++) {
+        workers.execute(() -> {
+          try {
+            drawTiles();
+          } finally {
+            done.countDown();
+          }
+        });
+      }
+      drawTiles();
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    pixels = null;
+    renderNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * Add a sprite centred at a screen position to the frame
+   * @param texture the sprite's texture
+   * @param x screen x position of the centre
+   * @param y screen y position of the centre
+   */
+  @Override
+  public void drawSprite(Texture texture, double x, double y) {
+    Sprite sprite = getSprite(texture.getPath());
+    addQuad(sprite, (int) Math.round(x - sprite.width / 2.0), (int) Math.round(y - sprite.height / 2.0),
+      sprite.width, sprite.height, 0);
+  }
+
+  /**
+   * Add a message to the frame, one glyph at a time, starting on the text's baseline
+   * @param text the text, which holds the font size, position and colour
+   * @param message the message to draw
+   */
+  @Override
+  public void drawText(Text text, String message) {
+    GlyphFont font = fonts.computeIfAbsent(text.getSize(), size -> new GlyphFont(fontPath, size));
+    int colour = text.getColour();
+    double penX = text.getX();
+    double baseline = text.getY();
+    for (int i = 0; i < message.length(); i++) {
+      char c = message.charAt(i);
+      if (c == '\n') {
+        penX = text.getX();
+        baseline += font.getLineHeight();
+        continue;
+      }
+      GlyphFont.Glyph glyph = font.getGlyph(c);
+      if (glyph.width > 0) {
+        addQuad(glyph, (int) Math.round(penX) + glyph.left, (int) Math.round(baseline) + glyph.top,
+          glyph.width, glyph.height, colour);
+      }
+      penX += glyph.advance;
+    }
+  }
+
+  /**
+   * Add a quad, and add its index to every tile it overlaps. Quads entirely off screen are skipped.
+   * @param source the Sprite or Glyph
+   * @param x left edge in pixels
+   * @param y top edge in pixels
+   * @param quadWidth width in pixels
+   * @param quadHeight height in pixels
+   * @param colour glyph colour as 0xRRGGBB, unused for sprites
+   */
+  private void addQuad(Object source, int x, int y, int quadWidth, int quadHeight, int colour) {
+    if (x >= width || y >= height || x + quadWidth <= 0 || y + quadHeight <= 0) {
+      return;
+    }
+    if (quadCount == sources.length) {
+      int capacity = quadCount * 2;
+      sources = Arrays.copyOf(sources, capacity);
+      quadX = Arrays.copyOf(quadX, capacity);
+      quadY = Arrays.copyOf(quadY, capacity);
+      colours = Arrays.copyOf(colours, capacity);
+    }
+    int index = quadCount++;
+    sources[index] = source;
+    quadX[index] = x;
+    quadY[index] = y;
+    colours[index] = colour;
+
+    int firstColumn = Math.max(0, x) / TILE_SIZE;
+    int lastColumn = (Math.min(width, x + quadWidth) - 1) / TILE_SIZE;
+    int firstRow = Math.max(0, y) / TILE_SIZE;
+    int lastRow = (Math.min(height, y + quadHeight) - 1) / TILE_SIZE;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int tile = row * tilesX + column;
+        int count = tileQuadCounts[tile];
+        if (count == tileQuads[tile].length) {
+          tileQuads[tile] = Arrays.copyOf(tileQuads[tile], count * 2);
+        }
+        tileQuads[tile][count] = index;
+        tileQuadCounts[tile] = count + 1;
+      }
+    }
+  }
+
+  /**
+   * Draw tiles until every tile of the frame has been taken by a thread
+   */
+  private void drawTiles() {
+    int tile;
+    while ((tile = nextTile.getAndIncrement()) < tileCount) {
+      drawTile(tile);
+    }
+  }
+
+  /**
+   * Clear a tile to black and draw its quads in order
+   * @param tile the tile index
+   */
+  private void drawTile(int tile) {
+    int left = (tile % tilesX) * TILE_SIZE;
+    int top = (tile / tilesX) * TILE_SIZE;
+    int right = Math.min(left + TILE_SIZE, width);
+    int bottom = Math.min(top + TILE_SIZE, height);
+    for (int y = top; y < bottom; y++) {
+      Arrays.fill(pixels, y * width + left, y * width + right, 0);
+    }
+
+    int[] quads = tileQuads[tile];
+    int count = tileQuadCounts[tile];
+    for (int i = 0; i < count; i++) {
+      int quad = quads[i];
+      Object source = sources[quad];
+      if (source instanceof Sprite) {
+        drawSprite((Sprite) source, quadX[quad], quadY[quad], left, top, right, bottom);
+      } else {
+        drawGlyph((GlyphFont.Glyph) source, quadX[quad], quadY[quad], colours[quad], left, top, right, bottom);
+      }
+    }
+  }
+
+  /**
+   * Blend the part of a sprite inside a tile over the framebuffer
+   * @param sprite the sprite
+   * @param x left edge of the sprite
+   * @param y top edge of the sprite
+   * @param left left edge of the tile
+   * @param top top edge of the tile
+   * @param right right edge of the tile, exclusive
+   * @param bottom bottom edge of the tile, exclusive
+   */
+  private void drawSprite(Sprite sprite, int x, int y, int left, int top, int right, int bottom) {
+    int startX = Math.max(x, left);
+    int endX = Math.min(x + sprite.width, right);
+    int startY = Math.max(y, top);
+    int endY = Math.min(y + sprite.height, bottom);
+    int[] source = sprite.pixels;
+    for (int row = startY; row < endY; row++) {
+      int from = (row - y) * sprite.width + startX - x;
+      int to = row * width + startX;
+      if (sprite.opaque) {
+        System.arraycopy(source, from, pixels, to, endX - startX);
+        continue;
+      }
+      for (int column = startX; column < endX; column++, from++, to++) {
+        int colour = source[from];
+        int alpha = colour >>> 24;
+        if (alpha == 255) {
+          pixels[to] = colour & 0xffffff;
+        } else if (alpha != 0) {
+          // Premultiplied, so only the destination is scaled
+          int inverse = 255 - alpha;
+          int destination = pixels[to];
+          pixels[to] = ((colour >> 16 & 0xff) + ((destination >> 16 & 0xff) * inverse + 127) / 255) << 16
+            | ((colour >> 8 & 0xff) + ((destination >> 8 & 0xff) * inverse + 127) / 255) << 8
+            | ((colour & 0xff) + ((destination & 0xff) * inverse + 127) / 255);
+        }
+      }
+    }
+  }
+
+  /**
+   * Blend the part of a glyph inside a tile over the framebuffer in a colour
+   * @param glyph the glyph
+   * @param x left edge of the glyph's mask
+   * @param y top edge of the glyph's mask
+   * @param colour the colour as 0xRRGGBB
+   * @param left left edge of the tile
+   * @param top top edge of the tile
+   * @param right right edge of the tile, exclusive
+   * @param bottom bottom edge of the tile, exclusive
+   */
+  private void drawGlyph(GlyphFont.Glyph glyph, int x, int y, int colour, int left, int top, int right, int bottom) {
+    int startX = Math.max(x, left);
+    int endX = Math.min(x + glyph.width, right);
+    int startY = Math.max(y, top);
+    int endY = Math.min(y + glyph.height, bottom);
+    int red = colour >> 16 & 0xff;
+    int green = colour >> 8 & 0xff;
+    int blue = colour & 0xff;
+    byte[] mask = glyph.mask;
+    for (int row = startY; row < endY; row++) {
+      int from = (row - y) * glyph.width + startX - x;
+      int to = row * width + startX;
+      for (int column = startX; column < endX; column++, from++, to++) {
+        int coverage = mask[from] & 0xff;
+        if (coverage == 255) {
+          pixels[to] = colour;
+        } else if (coverage != 0) {
+          int inverse = 255 - coverage;
+          int destination = pixels[to];
+          pixels[to] = ((red * coverage + (destination >> 16 & 0xff) * inverse + 127) / 255) << 16
+            | ((green * coverage + (destination >> 8 & 0xff) * inverse + 127) / 255) << 8
+            | ((blue * coverage + (destination & 0xff) * inverse + 127) / 255);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get how long the last frame took to draw, including collecting its quads
+   * @return time in milliseconds
+   */
+  public double getRenderMillis() {
+    return renderNanos / 1e6;
+  }
+
+  /**
+   * Stop the worker threads
+   */
+  @Override
+  public void close() {
+    if (workers != null) {
+      workers.shutdown();
+    }
+  }
+}
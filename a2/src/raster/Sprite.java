@@ -0,0 +1,58 @@
+package raster;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import javax.imageio.ImageIO;
+
+/**
+ * An image decoded for the software renderer, with its pixels stored as premultiplied 0xAARRGGBB ints,
+ * so blending a pixel is one multiply per channel. Images with no transparent pixels are stored as 0xRRGGBB.
+ * @author Michael Ren
+ */
+class Sprite {
+  final int width;
+  final int height;
+  final int[] pixels;
+  // True if every pixel is fully opaque, so rows can be copied without blending
+  final boolean opaque;
+
+  /**
+   * Decode an image file
+   * @param path the image file path
+   */
+  Sprite(String path) {
+    BufferedImage image;
+    try {
+      image = ImageIO.read(Paths.get(path).toFile());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (image == null) {
+      throw new UncheckedIOException(new IOException("Not an image: " + path));
+    }
+    width = image.getWidth();
+    height = image.getHeight();
+    pixels = image.getRGB(0, 0, width, height, null, 0, width);
+    boolean allOpaque = true;
+    for (int i = 0; i < pixels.length; i++) {
+      int argb = pixels[i];
+      int alpha = argb >>> 24;
+      if (alpha != 255) {
+        allOpaque = false;
+        pixels[i] = alpha << 24
+          | ((argb >> 16 & 0xff) * alpha + 127) / 255 << 16
+          | ((argb >> 8 & 0xff) * alpha + 127) / 255 << 8
+          | ((argb & 0xff) * alpha + 127) / 255;
+      }
+    }
+    opaque = allOpaque;
+    if (opaque) {
+      // Copied straight into the framebuffer, which has no alpha
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] &= 0xffffff;
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package render;
+
+import text.Text;
+import texture.Texture;
+
+/**
+ * Something that can draw a recorded frame other than the window, such as the software rasterizer.
+ * A render snapshot replays its sprites and messages into a backend in the order they were drawn.
+ * @author Michael Ren
+ */
+public interface RenderBackend {
+  /**
+   * Draw a sprite
+   * @param texture the sprite's texture
+   * @param x screen x position of the centre
+   * @param y screen y position of the centre
+   */
+  void drawSprite(Texture texture, double x, double y);
+
+  /**
+   * Draw a message
+   * @param text the text, which holds the font size, position and colour
+   * @param message the message as it was when the frame was simulated
+   */
+  void drawText(Text text, String message);
+}
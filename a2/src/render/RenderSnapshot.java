@@ -0,0 +1,158 @@
+package render;
+
+import java.util.Arrays;
+import text.Text;
+import texture.Texture;
+
+/**
+ * Everything one simulated frame of a level draws: the sprites at their screen positions, the textures to prefetch,
+ * and the HUD and entity messages, in the order they were drawn.
+ * While a thread is recording into a snapshot, textures and text drawn on that thread are added to the snapshot
+ * instead of being drawn, so the simulation does not need to run on the thread that owns the window.
+ * The arrays are reused between frames, and only grow if a frame draws more than any frame before.
+ * @author Michael Ren
+ */
+public class RenderSnapshot {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final byte SPRITE = 0;
+  private static final byte PREFETCH = 1;
+  private static final byte TEXT = 2;
+  private static final ThreadLocal<RenderSnapshot> RECORDING = new ThreadLocal<>();
+
+  private Object source = null;
+  private long inputEnd = 0;
+
+  private int count = 0;
+  private byte[] kinds = new byte[INITIAL_CAPACITY];
+  // A Texture for sprites and prefetches, a Text for messages
+  private Object[] items = new Object[INITIAL_CAPACITY];
+  private double[] x = new double[INITIAL_CAPACITY];
+  private double[] y = new double[INITIAL_CAPACITY];
+  private String[] messages = new String[INITIAL_CAPACITY];
+
+  /**
+   * Get the snapshot being recorded on the current thread
+   * @return the snapshot, or null if the thread is not recording
+   */
+  public static RenderSnapshot getRecording() {
+    return RECORDING.get();
+  }
+
+  /**
+   * Clear the snapshot and start recording what the current thread draws into it
+   * @param source the scene being simulated, so a snapshot from a previous scene is never drawn
+   * @param inputEnd index after the last input event handled in this frame
+   */
+  public void beginRecording(Object source, long inputEnd) {
+    this.source = source;
+    this.inputEnd = inputEnd;
+    count = 0;
+    RECORDING.set(this);
+  }
+
+  /**
+   * Stop recording on the current thread
+   */
+  public void endRecording() {
+    RECORDING.set(null);
+  }
+
+  /**
+   * Reserve the next command
+   * @param kind the kind of command
+   * @param item the texture or text
+   * @return the command index
+   */
+  private int add(byte kind, Object item) {
+    if (count == kinds.length) {
+      int capacity = count * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      items = Arrays.copyOf(items, capacity);
+      x = Arrays.copyOf(x, capacity);
+      y = Arrays.copyOf(y, capacity);
+      messages = Arrays.copyOf(messages, capacity);
+    }
+    kinds[count] = kind;
+    items[count] = item;
+    return count++;
+  }
+
+  /**
+   * Add a sprite
+   * @param texture the sprite's texture, which also tells which way the object faces
+   * @param x screen x position of the centre
+   * @param y screen y position of the centre
+   */
+  public void addSprite(Texture texture, double x, double y) {
+    int index = add(SPRITE, texture);
+    this.x[index] = x;
+    this.y[index] = y;
+  }
+
+  /**
+   * Add a texture that should be loaded because an object using it is near the camera
+   * @param texture the texture
+   */
+  public void addPrefetch(Texture texture) {
+    add(PREFETCH, texture);
+  }
+
+  /**
+   * Add a message
+   * @param text the text, which holds the font and position
+   * @param message the message as it was when the frame was simulated
+   */
+  public void addText(Text text, String message) {
+    messages[add(TEXT, text)] = message;
+  }
+
+  /**
+   * Draw the snapshot. Must be called on the main thread, which must not be recording.
+   */
+  public void draw() {
+    for (int i = 0; i < count; i++) {
+      switch (kinds[i]) {
+        case SPRITE:
+          ((Texture) items[i]).draw(x[i], y[i]);
+          break;
+        case PREFETCH:
+          ((Texture) items[i]).request();
+          break;
+        default:
+          ((Text) items[i]).draw(messages[i]);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Draw the snapshot's sprites and messages into a backend instead of the window.
+   * Textures are not requested, as the backend loads its own images.
+   * @param backend the backend
+   */
+  public void draw(RenderBackend backend) {
+    for (int i = 0; i < count; i++) {
+      if (kinds[i] == SPRITE) {
+        backend.drawSprite((Texture) items[i], x[i], y[i]);
+      } else if (kinds[i] == TEXT) {
+        backend.drawText((Text) items[i], messages[i]);
+      }
+    }
+  }
+
+  /**
+   * Get the scene the snapshot was recorded from
+   * @return the scene, or null if nothing has been recorded
+   */
+  public Object getSource() {
+    return source;
+  }
+
+  /**
+   * Get the index after the last input event handled in the frame
+   * @return input event index
+   */
+  public long getInputEnd() {
+    return inputEnd;
+  }
+}
@@ -0,0 +1,140 @@
+package render;
+
+import java.util.concurrent.Semaphore;
+import bagel.Input;
+import input.InputQueue;
+import input.KeyState;
+import level.Level;
+import schedule.FrameScheduler;
+
+/**
+ * Simulates levels on a separate thread, so drawing a frame overlaps with simulating the next one.
+ * Each frame the main thread waits for the previous simulation step to finish, hands the level the keys
+ * held this frame, and draws the latest snapshot while the simulation thread advances the level.
+ * A frame then takes about as long as the slower of the two threads, rather than both added together.
+ * Snapshots are passed through a triple buffer, so drawing never waits for the simulation to finish writing one.
+ * Everything the level touches is only used by one thread at a time: the main thread only reads or changes the level
+ * after waitForSimulation returns, and the simulation thread only between start and the end of its step.
+ * @author Michael Ren
+ */
+public class SimulationPipeline {
+  private final TripleBuffer<RenderSnapshot> snapshots =
+    new TripleBuffer<>(new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+  private final KeyState keys = new KeyState();
+  private final Semaphore stepStarted = new Semaphore(0);
+  private final Semaphore stepDone = new Semaphore(0);
+  private final FrameScheduler scheduler;
+  private final InputQueue inputQueue;
+  private final Thread thread;
+
+  // Handed over by the semaphores
+  private Level level = null;
+  private Throwable failure = null;
+  private boolean simulating = false;
+  private volatile boolean closed = false;
+  private volatile long stepNanos = 0;
+
+  /**
+   * Start the simulation thread
+   * @param scheduler scheduler for deferred level work, run by the simulation thread after each step
+   * @param inputQueue the key events handed to the level each step
+   */
+  public SimulationPipeline(FrameScheduler scheduler, InputQueue inputQueue) {
+    this.scheduler = scheduler;
+    this.inputQueue = inputQueue;
+    thread = new Thread(this::run, "simulation");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Simulate each step as it is started, until the pipeline is closed
+   */
+  private void run() {
+    while (!closed) {
+      stepStarted.acquireUninterruptibly();
+      if (closed) {
+        break;
+      }
+
+      long start = System.nanoTime();
+      RenderSnapshot snapshot = snapshots.getWriteBuffer();
+      try {
+        snapshot.beginRecording(level, inputQueue.getFrameEnd());
+        scheduler.beginFrame();
+        level.simulate(keys);
+        scheduler.runUntilBudget();
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      } finally {
+        snapshot.endRecording();
+      }
+      snapshots.publish();
+      stepNanos = System.nanoTime() - start;
+      stepDone.release();
+    }
+  }
+
+  /**
+   * Wait for the step in progress to finish, rethrowing anything it threw. Called from the main thread.
+   */
+  public void waitForSimulation() {
+    if (!simulating) {
+      return;
+    }
+    stepDone.acquireUninterruptibly();
+    simulating = false;
+    if (failure != null) {
+      Throwable e = failure;
+      failure = null;
+      if (e instanceof Error) {
+        throw (Error) e;
+      }
+      throw (RuntimeException) e;
+    }
+  }
+
+  /**
+   * Start simulating the next step of a level. Called from the main thread.
+   * @param level the level to simulate
+   * @param input user input, from which the keys held this frame are copied
+   */
+  public void start(Level level, Input input) {
+    waitForSimulation();
+    this.level = level;
+    keys.capture(input);
+    simulating = true;
+    stepStarted.release();
+  }
+
+  /**
+   * Draw the latest snapshot of a level. Called from the main thread.
+   * @param level the level being shown
+   * @return index after the last input event handled in the snapshot, or -1 if there is no snapshot of the level yet
+   */
+  public long draw(Level level) {
+    RenderSnapshot snapshot = snapshots.acquire();
+    if (snapshot.getSource() != level) {
+      return -1;
+    }
+    snapshot.draw();
+    return snapshot.getInputEnd();
+  }
+
+  /**
+   * Get how long the last simulation step took
+   * @return time in nanoseconds
+   */
+  public long getStepNanos() {
+    return stepNanos;
+  }
+
+  /**
+   * Finish the step in progress and stop the simulation thread
+   */
+  public void close() {
+    waitForSimulation();
+    closed = true;
+    stepStarted.release();
+  }
+}
@@ -0,0 +1,61 @@
+package render;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer between one writer thread and one reader thread.
+ * The writer fills its back buffer and publishes it by swapping it with the middle buffer,
+ * and the reader takes the middle buffer whenever a newer one has been published, so neither thread
+ * ever waits for the other or sees a buffer that is still being written. The reader always gets
+ * the latest published buffer, and buffers the reader never took are simply reused.
+ * @author Michael Ren
+ */
+public class TripleBuffer<T> {
+  // The state holds the index of the middle buffer, and whether it was published since the reader last took it
+  private static final int INDEX_MASK = 3;
+  private static final int FRESH = 4;
+
+  private final List<T> buffers;
+  private final AtomicInteger middle = new AtomicInteger(1);
+  private int back = 0;
+  private int front = 2;
+
+  /**
+   * Create a new triple buffer
+   * @param a the first buffer, written first
+   * @param b the second buffer, the first middle buffer
+   * @param c the third buffer, the first front buffer
+   */
+  public TripleBuffer(T a, T b, T c) {
+    buffers = List.of(a, b, c);
+  }
+
+  /**
+   * Get the buffer to write the next state into. Only called by the writer.
+   * @return the back buffer
+   */
+  public T getWriteBuffer() {
+    return buffers.get(back);
+  }
+
+  /**
+   * Publish the back buffer as the latest state, and start writing into the old middle buffer.
+   * Only called by the writer.
+   */
+  public void publish() {
+    back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+  }
+
+  /**
+   * Get the latest published buffer. Only called by the reader.
+   * The buffer stays valid until the next call, and may be the same buffer if nothing new was published.
+   * @return the front buffer
+   */
+  public T acquire() {
+    if ((middle.get() & FRESH) != 0) {
+      front = middle.getAndSet(front) & INDEX_MASK;
+    }
+    return buffers.get(front);
+  }
+}
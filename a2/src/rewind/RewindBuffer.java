@@ -0,0 +1,304 @@
+package rewind;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a bounded history of level states for rewinding, one frame per tick.
+ * Every few ticks a full keyframe is stored, and in between only the byte ranges
+ * that changed since the previous tick are stored.
+ * All frames live in one preallocated circular byte array. When it is full,
+ * the oldest keyframe and its deltas are evicted together, so memory stays bounded.
+ * @author Michael Ren
+ */
+public class RewindBuffer {
+  // Unchanged gaps shorter than this are merged into a single delta run
+  private static final int MERGE_GAP = 8;
+  private static final int RUN_HEADER_SIZE = 8;
+
+  private final int maxFrames;
+  private final int keyframeInterval;
+
+  // Frame ring, indexed from oldest to newest
+  private final int[] frameOffset;
+  private final int[] frameLength;
+  private final boolean[] frameIsKey;
+  private int oldest = 0;
+  private int count = 0;
+  private int keyframeCount = 0;
+  private int ticksSinceKeyframe = 0;
+
+  // Allocated on the first capture, once the state size is known
+  private byte[] data;
+  private int head = 0;
+  private byte[] previous;
+  private byte[] encoded;
+  private byte[] decoded;
+  private int stateSize = -1;
+
+  /**
+   * Create a new rewind buffer
+   * @param maxFrames the maximum number of ticks to keep
+   * @param keyframeInterval number of ticks between full keyframes
+   */
+  public RewindBuffer(int maxFrames, int keyframeInterval) {
+    this.maxFrames = maxFrames;
+    this.keyframeInterval = keyframeInterval;
+    frameOffset = new int[maxFrames];
+    frameLength = new int[maxFrames];
+    frameIsKey = new boolean[maxFrames];
+  }
+
+  /**
+   * Allocate the buffers for a given state size.
+   * The data ring holds every keyframe plus a quarter of a state per delta, with room for one extra group.
+   * @param size size of a full state in bytes
+   */
+  private void allocate(int size) {
+    stateSize = size;
+    previous = new byte[size];
+    decoded = new byte[size];
+    // A delta is only stored if it is smaller than a keyframe
+    encoded = new byte[size];
+    int keyframes = maxFrames / keyframeInterval + 2;
+    long capacity = (long) keyframes * size + (long) maxFrames * Math.max(size / 4, RUN_HEADER_SIZE * 4);
+    data = new byte[(int) Math.min(capacity, Integer.MAX_VALUE - 8)];
+    clear();
+  }
+
+  /**
+   * Remove all frames
+   */
+  public void clear() {
+    oldest = 0;
+    count = 0;
+    keyframeCount = 0;
+    head = 0;
+    ticksSinceKeyframe = 0;
+  }
+
+  /**
+   * Store the state of the current tick
+   * @param state the full state bytes
+   * @param size number of valid bytes in state
+   */
+  public void capture(byte[] state, int size) {
+    if (size != stateSize) {
+      allocate(size);
+    }
+
+    boolean stored = false;
+    if (count > 0 && ticksSinceKeyframe < keyframeInterval) {
+      int length = encodeDelta(state);
+      stored = length >= 0 && store(encoded, length, false);
+    }
+    if (!stored) {
+      if (!store(state, size, true)) {
+        return;
+      }
+      ticksSinceKeyframe = 0;
+    }
+    ticksSinceKeyframe++;
+    System.arraycopy(state, 0, previous, 0, size);
+  }
+
+  /**
+   * Drop the newest frame and get the state of the tick before it
+   * @return the previous tick's state (valid until the next call), or null if there is no earlier tick
+   */
+  public byte[] stepBack() {
+    if (count < 2) {
+      return null;
+    }
+
+    // Reclaim the newest frame's space
+    int newest = index(count - 1);
+    head = frameOffset[newest];
+    if (frameIsKey[newest]) {
+      keyframeCount--;
+    }
+    count--;
+
+    // Rebuild the new newest frame from its keyframe
+    int key = count - 1;
+    while (!frameIsKey[index(key)]) {
+      key--;
+    }
+    int keyIndex = index(key);
+    System.arraycopy(data, frameOffset[keyIndex], decoded, 0, stateSize);
+    for (int i = key + 1; i < count; i++) {
+      applyDelta(index(i));
+    }
+
+    ticksSinceKeyframe = count - key;
+    System.arraycopy(decoded, 0, previous, 0, stateSize);
+    return decoded;
+  }
+
+  /**
+   * Encode the differences between the previous state and a new state as runs of (offset, length, bytes)
+   * @param state the new state
+   * @return the encoded length, or -1 if the delta would not be smaller than a keyframe
+   */
+  private int encodeDelta(byte[] state) {
+    int length = 0;
+    int i = 0;
+    while (i < stateSize) {
+      // Skip unchanged bytes in bulk, most of the state is the same between ticks
+      int mismatch = Arrays.mismatch(state, i, stateSize, previous, i, stateSize);
+      if (mismatch < 0) {
+        break;
+      }
+      i += mismatch;
+
+      // Extend the run until there is a long enough unchanged gap
+      int start = i;
+      int end = i + 1;
+      for (i = end; i < stateSize && i - end < MERGE_GAP; i++) {
+        if (state[i] != previous[i]) {
+          end = i + 1;
+        }
+      }
+
+      int runLength = end - start;
+      if (length + RUN_HEADER_SIZE + runLength >= encoded.length) {
+        return -1;
+      }
+      writeInt(encoded, length, start);
+      writeInt(encoded, length + 4, runLength);
+      System.arraycopy(state, start, encoded, length + RUN_HEADER_SIZE, runLength);
+      length += RUN_HEADER_SIZE + runLength;
+      i = end;
+    }
+    return length;
+  }
+
+  /**
+   * Apply a delta frame to the decoded state
+   * @param frame the frame's ring index
+   */
+  private void applyDelta(int frame) {
+    int position = frameOffset[frame];
+    int end = position + frameLength[frame];
+    while (position < end) {
+      int start = readInt(data, position);
+      int runLength = readInt(data, position + 4);
+      System.arraycopy(data, position + RUN_HEADER_SIZE, decoded, start, runLength);
+      position += RUN_HEADER_SIZE + runLength;
+    }
+  }
+
+  /**
+   * Append a frame, evicting the oldest groups until it fits
+   * @param bytes the frame bytes
+   * @param length number of bytes to store
+   * @param isKey true if the frame is a keyframe
+   * @return true if stored, false if a delta could not be stored without evicting its own keyframe
+   */
+  private boolean store(byte[] bytes, int length, boolean isKey) {
+    int offset = count == maxFrames ? -1 : findSpace(length);
+    while (offset < 0) {
+      if (count == 0 || !isKey && keyframeCount == 1) {
+        return false;
+      }
+      evictOldestGroup();
+      offset = count == maxFrames ? -1 : findSpace(length);
+    }
+
+    System.arraycopy(bytes, 0, data, offset, length);
+    int frame = index(count);
+    frameOffset[frame] = offset;
+    frameLength[frame] = length;
+    frameIsKey[frame] = isKey;
+    count++;
+    if (isKey) {
+      keyframeCount++;
+    }
+    head = offset + length;
+    return true;
+  }
+
+  /**
+   * Find where a frame of the given length can be written.
+   * Frames are written contiguously after the newest frame, wrapping to the start of the array.
+   * @param length the frame length
+   * @return the offset, or -1 if there is no room
+   */
+  private int findSpace(int length) {
+    if (count == 0) {
+      return length <= data.length ? 0 : -1;
+    }
+    int tail = frameOffset[oldest];
+    if (head > tail) {
+      if (head + length <= data.length) {
+        return head;
+      }
+      return length <= tail ? 0 : -1;
+    }
+    if (head < tail && head + length <= tail) {
+      return head;
+    }
+    return -1;
+  }
+
+  /**
+   * Evict the oldest keyframe and the deltas that depend on it
+   */
+  private void evictOldestGroup() {
+    do {
+      if (frameIsKey[oldest]) {
+        keyframeCount--;
+      }
+      oldest = (oldest + 1) % maxFrames;
+      count--;
+    } while (count > 0 && !frameIsKey[oldest]);
+  }
+
+  /**
+   * Get the ring index of the nth oldest frame
+   * @param n position from the oldest frame
+   * @return ring index
+   */
+  private int index(int n) {
+    return (oldest + n) % maxFrames;
+  }
+
+  /**
+   * Write a big endian int into an array
+   * @param array the array
+   * @param offset the offset
+   * @param value the value
+   */
+  private static void writeInt(byte[] array, int offset, int value) {
+    array[offset] = (byte) (value >>> 24);
+    array[offset + 1] = (byte) (value >>> 16);
+    array[offset + 2] = (byte) (value >>> 8);
+    array[offset + 3] = (byte) value;
+  }
+
+  /**
+   * Read a big endian int from an array
+   * @param array the array
+   * @param offset the offset
+   * @return the value
+   */
+  private static int readInt(byte[] array, int offset) {
+    return (array[offset] & 0xff) << 24 | (array[offset + 1] & 0xff) << 16
+      | (array[offset + 2] & 0xff) << 8 | (array[offset + 3] & 0xff);
+  }
+
+  /**
+   * Get the number of ticks that can currently be rewound
+   * @return number of stored frames, excluding the current one
+   */
+  public int getAvailableTicks() {
+    return Math.max(0, count - 1);
+  }
+
+  /**
+   * Get the size of the preallocated frame storage
+   * @return size in bytes, or 0 if nothing has been captured yet
+   */
+  public int getCapacityBytes() {
+    return data == null ? 0 : data.length;
+  }
+}
@@ -0,0 +1,116 @@
+package save;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A saved level, and the versioned binary file format used to store it.
+ * The file has a fixed header (magic, version, scene id, state length) followed by the deflated level state.
+ * @author Michael Ren
+ */
+public class SaveFile {
+  private static final int MAGIC = 0x534d5356;
+  public static final int VERSION = 6;
+  private static final int HEADER_SIZE = 16;
+
+  private final int sceneId;
+  private final byte[] state;
+
+  /**
+   * Create a new save
+   * @param sceneId the ordinal of the saved level's scene id
+   * @param state the level state written by a StateWriter
+   */
+  public SaveFile(int sceneId, byte[] state) {
+    this.sceneId = sceneId;
+    this.state = state;
+  }
+
+  /**
+   * Compress and write the save to a file.
+   * The file is written to a temporary file, synced to disk, and then moved into place,
+   * so a crash never leaves a half written save.
+   * @param path the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Path path) throws IOException {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    deflater.setInput(state);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(state.length / 2 + 64);
+    byte[] chunk = new byte[4096];
+    while (!deflater.finished()) {
+      compressed.write(chunk, 0, deflater.deflate(chunk));
+    }
+    deflater.end();
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putInt(sceneId).putInt(state.length).flip();
+
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.write(header);
+      channel.write(ByteBuffer.wrap(compressed.toByteArray()));
+      channel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Read a save from a file
+   * @param path the file to read
+   * @return the save
+   * @throws IOException if the file cannot be read, or is not a valid save of this version
+   */
+  public static SaveFile read(Path path) throws IOException {
+    ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+    if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+      throw new IOException("Not a save file: " + path);
+    }
+    int version = data.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported save version " + version + ": " + path);
+    }
+    int sceneId = data.getInt();
+    byte[] state = new byte[data.getInt()];
+
+    Inflater inflater = new Inflater();
+    inflater.setInput(data.array(), HEADER_SIZE, data.remaining());
+    try {
+      if (inflater.inflate(state) != state.length) {
+        throw new IOException("Truncated save file: " + path);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt save file: " + path, e);
+    } finally {
+      inflater.end();
+    }
+    return new SaveFile(sceneId, state);
+  }
+
+  /**
+   * Get the saved level's scene id
+   * @return the scene id ordinal
+   */
+  public int getSceneId() {
+    return sceneId;
+  }
+
+  /**
+   * Get a reader over the saved level state
+   * @return a new state reader
+   */
+  public StateReader getStateReader() {
+    return new StateReader(state);
+  }
+}
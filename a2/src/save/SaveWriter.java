@@ -0,0 +1,49 @@
+package save;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes saves on a background thread, so compression and syncing to disk never stall a frame.
+ * Saves are written in the order they were requested.
+ * @author Michael Ren
+ */
+public class SaveWriter {
+  private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "save-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Queue a save to be written
+   * @param save the save to write
+   * @param path the file to write to
+   */
+  public void write(SaveFile save, Path path) {
+    executor.execute(() -> {
+      try {
+        save.write(path);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  /**
+   * Finish writing queued saves and stop the background thread
+   */
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package save;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads game state written by a StateWriter
+ * @author Michael Ren
+ */
+public class StateReader {
+  private final ByteBuffer buffer;
+
+  /**
+   * Create a new reader
+   * @param data the bytes to read
+   */
+  public StateReader(byte[] data) {
+    buffer = ByteBuffer.wrap(data);
+  }
+
+  /**
+   * Create a new reader over part of an array
+   * @param data the array to read
+   * @param length number of bytes to read from the start of the array
+   */
+  public StateReader(byte[] data, int length) {
+    buffer = ByteBuffer.wrap(data, 0, length);
+  }
+
+  /**
+   * Read a double
+   * @return the value
+   */
+  public double readDouble() {
+    return buffer.getDouble();
+  }
+
+  /**
+   * Go back to the start, so the same state can be read again
+   */
+  public void rewind() {
+    buffer.rewind();
+  }
+
+  /**
+   * Read a long
+   * @return the value
+   */
+  public long readLong() {
+    return buffer.getLong();
+  }
+
+  /**
+   * Read an int
+   * @return the value
+   */
+  public int readInt() {
+    return buffer.getInt();
+  }
+
+  /**
+   * Read a byte
+   * @return the value
+   */
+  public int readByte() {
+    return buffer.get();
+  }
+
+  /**
+   * Read a boolean
+   * @return the value
+   */
+  public boolean readBoolean() {
+    return buffer.get() != 0;
+  }
+}
@@ -0,0 +1,111 @@
+package save;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes game state into a reusable in-memory buffer.
+ * Capturing state only copies primitive values, so it is fast enough to do on the game thread.
+ * @author Michael Ren
+ */
+public class StateWriter {
+  private static final int INITIAL_CAPACITY = 4096;
+  private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+  /**
+   * Clear the buffer so it can be reused
+   */
+  public void reset() {
+    buffer.clear();
+  }
+
+  /**
+   * Make sure there is room for more bytes, doubling the buffer if needed
+   * @param bytes number of bytes about to be written
+   */
+  private void ensureCapacity(int bytes) {
+    if (buffer.remaining() < bytes) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+      buffer.flip();
+      larger.put(buffer);
+      buffer = larger;
+    }
+  }
+
+  /**
+   * Write a double
+   * @param value the value
+   */
+  public void writeDouble(double value) {
+    ensureCapacity(Double.BYTES);
+    buffer.putDouble(value);
+  }
+
+  /**
+   * Write a long
+   * @param value the value
+   */
+  public void writeLong(long value) {
+    ensureCapacity(Long.BYTES);
+    buffer.putLong(value);
+  }
+
+  /**
+   * Write an int
+   * @param value the value
+   */
+  public void writeInt(int value) {
+    ensureCapacity(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  /**
+   * Write a byte
+   * @param value the value
+   */
+  public void writeByte(int value) {
+    ensureCapacity(1);
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Write a boolean as a single byte
+   * @param value the value
+   */
+  public void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  /**
+   * Get the number of bytes written
+   * @return size in bytes
+   */
+  public int size() {
+    return buffer.position();
+  }
+
+  /**
+   * Move to a position in the bytes already written, so they can be overwritten in place.
+   * Seek back to the end afterwards to keep the full size.
+   * @param position the byte position, at most the capacity written so far
+   */
+  public void seek(int position) {
+    buffer.position(position);
+  }
+
+  /**
+   * Get the backing array without copying it, only the first size() bytes are valid
+   * @return the backing array
+   */
+  public byte[] getBytes() {
+    return buffer.array();
+  }
+
+  /**
+   * Copy the written bytes
+   * @return a new array containing the written bytes
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+}
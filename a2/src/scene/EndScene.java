@@ -3,15 +3,26 @@ package scene;
 import bagel.Input;
 import bagel.Keys;
 import bagel.Window;
+import leaderboard.Leaderboard;
+import leaderboard.LevelStats;
+import leaderboard.RunRecord;
 import text.Text;
 import utils.PropertiesLoader;
 
 /**
- * A scene to display game won or game over message after the player wins or loses a level
+ * A scene to display game won or game over message after the player wins or loses a level,
+ * along with the top runs of the level if the leaderboard is enabled
  * @author Michael Ren
  */
 public class EndScene extends Scene {
+  private static final double TICKS_PER_SECOND = 60;
+
   private final Text text;
+  private final Text leaderboardText;
+  private final Leaderboard leaderboard;
+  private final int leaderboardLevel;
+  // Stats of the leaderboard level when it was last drawn
+  private LevelStats shownStats = null;
 
   /**
    * Create a new EndScene
@@ -29,6 +40,57 @@ public class EndScene extends Scene {
     double x = (double) ((Window.getWidth() - text.getFont().getWidth(text.getMessage())) / 2);
     double y = Double.parseDouble(PropertiesLoader.getGameProperty("message.y"));
     text.setPosition(x, y);
+
+    leaderboard = sceneManager.getLeaderboard();
+    RunRecord lastRun = leaderboard == null ? null : leaderboard.getLastRun();
+    leaderboardLevel = lastRun == null ? 0 : lastRun.getLevel();
+    leaderboardText = lastRun == null ? null : createLeaderboardText(leaderboard, leaderboardLevel);
+  }
+
+  /**
+   * Check if the leaderboard has changed since it was last drawn, e.g. because it finished loading
+   * @return true if the leaderboard text needs drawing again
+   */
+  @Override
+  public boolean hasChanged() {
+    return leaderboardText != null && leaderboard.getStats(leaderboardLevel) != shownStats;
+  }
+
+  /**
+   * Create a text showing the top runs of a level.
+   * The message is only rebuilt when the level's stats change, which happens when a run is loaded or added.
+   * @param leaderboard the leaderboard
+   * @param level the level number
+   * @return the text
+   */
+  private static Text createLeaderboardText(Leaderboard leaderboard, int level) {
+    int shown = Integer.parseInt(PropertiesLoader.getGameProperty("leaderboard.shown"));
+    String entry = PropertiesLoader.getMessageProperty("leaderboardEntry");
+    Text leaderboardText = new Text("leaderboard", "leaderboard.fontSize") {
+      private LevelStats stats = null;
+      private String message;
+
+      @Override
+      public String createMessage(String message) {
+        LevelStats current = leaderboard.getStats(level);
+        if (current != stats) {
+          stats = current;
+          StringBuilder builder = new StringBuilder(String.format(message, level));
+          int rank = 1;
+          for (RunRecord run : leaderboard.getTopRuns(level)) {
+            if (rank > shown) {
+              break;
+            }
+            builder.append('\n').append(String.format(entry, rank++, run.getScore(), run.getTicks() / TICKS_PER_SECOND));
+          }
+          this.message = builder.toString();
+        }
+        return this.message;
+      }
+    };
+    double x = (Window.getWidth() - leaderboardText.getFont().getWidth(leaderboardText.getMessage())) / 2;
+    leaderboardText.setPosition(x, Double.parseDouble(PropertiesLoader.getGameProperty("leaderboard.y")));
+    return leaderboardText;
   }
 
   /**
@@ -39,6 +101,10 @@ public class EndScene extends Scene {
   @Override
   public void update(Input input) {
     text.update();
+    if (leaderboardText != null) {
+      shownStats = leaderboard.getStats(leaderboardLevel);
+      leaderboardText.update();
+    }
 
     if (input.wasReleased(Keys.SPACE)) {
       sceneManager.setScene(SceneManager.SceneId.START);
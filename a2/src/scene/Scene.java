@@ -27,6 +27,16 @@ public abstract class Scene {
    */
   public void update(Input input) {}
 
+  /**
+   * Check if anything the scene draws may have changed since the last frame without any input,
+   * e.g. because the scene is simulating or animating.
+   * While this is false and no input arrives, the scene manager shows the last frame again instead of updating the scene.
+   * @return true if the scene must be updated this frame
+   */
+  public boolean hasChanged() {
+    return false;
+  }
+
   /**
    * Get the camera object
    * @return the camera object
@@ -1,9 +1,32 @@
 package scene;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import bagel.Input;
+import bagel.Keys;
+import event.EventBus;
+import event.EventType;
+import input.InputQueue;
+import leaderboard.Leaderboard;
+import level.Level;
 import level.Level1;
 import level.Level2;
 import level.Level3;
+import particle.ParticleSystem;
+import render.RenderSnapshot;
+import render.SimulationPipeline;
+import save.SaveFile;
+import save.SaveWriter;
+import save.StateReader;
+import save.StateWriter;
+import schedule.FrameScheduler;
+import utils.GameRandom;
+import utils.PropertiesLoader;
 
 /**
  * Manages game scenes.
@@ -21,20 +44,95 @@ public class SceneManager {
 		LEVEL2,
 		LEVEL3,
 	}
+	private static final int EVENT_BUS_CAPACITY = 1024;
+	private final EventBus eventBus = new EventBus(EVENT_BUS_CAPACITY);
+	private final ParticleSystem particles;
+	// Seeds each new level's random numbers
+	private final GameRandom levelSeeds;
+	private static final Path SAVE_FILE = Paths.get(PropertiesLoader.getGameProperty("save.file"));
+	private final SaveWriter saveWriter = new SaveWriter();
+	private final StateWriter stateWriter = new StateWriter();
+	private static final double FRAME_BUDGET_MILLIS = Double.parseDouble(PropertiesLoader.getGameProperty("schedule.budgetMillis"));
+	private final FrameScheduler scheduler = new FrameScheduler(FRAME_BUDGET_MILLIS);
+	private final InputQueue inputQueue = new InputQueue();
+	// Levels are simulated on the main thread with the main scheduler, unless the pipeline is started
+	private FrameScheduler simulationScheduler = scheduler;
+	private SimulationPipeline pipeline = null;
+	private long displayedInputEnd = 0;
+	// The last frame drawn without the pipeline, shown again while nothing changes
+	private final RenderSnapshot frameCache = new RenderSnapshot();
+	// The scene whose frame was last drawn, or null if no frame of the current scene has been drawn yet
+	private Scene shownScene = null;
+	// Frames in a row in which the last frame was shown again
+	private int idleFrames = 0;
+	// Level steps started on any thread, counted on the game thread
+	private long levelTicks = 0;
+	private static final int IDLE_AFTER_FRAMES = Integer.parseInt(PropertiesLoader.getGameProperty("idle.afterFrames"));
+	private static final Keys[] KEYS = Keys.values();
+	// Shown in end scenes, if the leaderboard is enabled
+	private Leaderboard leaderboard = null;
   private Scene scene;
+	private SceneId sceneId;
+
+	// Written by the game thread, read by monitoring tools
+	private final ConcurrentHashMap<SceneId, Double> loadMillis = new ConcurrentHashMap<>();
+	private final AtomicReference<SceneId> requestedScene = new AtomicReference<>();
 
 	/**
 	 * Create a new scene manager with the start scene as the default scene
 	 */
   public SceneManager() {
-    setScene(SceneId.START);
+    this(SceneId.START);
+  }
+
+	/**
+	 * Create a new scene manager showing a chosen scene first, e.g. a level rendered without a window
+	 * @param first the first scene
+	 */
+  public SceneManager(SceneId first) {
+    this(first, System.nanoTime());
+  }
+
+	/**
+	 * Create a new scene manager whose levels are seeded from a seed,
+	 * so the same inputs always play out the same way, e.g. for replays
+	 * @param first the first scene
+	 * @param seed seed for the random numbers of every level
+	 */
+  public SceneManager(SceneId first, long seed) {
+    this(first, seed, new ParticleSystem());
   }
 
+	/**
+	 * Create a new scene manager
+	 * @param first the first scene
+	 * @param seed seed for the random numbers of every level
+	 * @param particles the particle effects shared by every level
+	 */
+	private SceneManager(SceneId first, long seed, ParticleSystem particles) {
+		this.particles = particles;
+		levelSeeds = new GameRandom(seed);
+		eventBus.subscribe(particles);
+		setScene(first);
+	}
+
+	/**
+	 * Create a scene manager for levels simulated without a window, e.g. by a server or by bots.
+	 * Levels are seeded from a seed, and particle effects, which are only decoration, are left out.
+	 * @param first the first scene
+	 * @param seed seed for the random numbers of every level
+	 * @return the scene manager
+	 */
+	public static SceneManager createHeadless(SceneId first, long seed) {
+		return new SceneManager(first, seed, new ParticleSystem(""));
+	}
+
 	/**
 	 * Set the current scene
 	 * @param id The scene id as a SceneId enum
 	 */
   public void setScene(SceneId id) {
+		long start = System.nanoTime();
 		switch (id) {
 			case START:
 				scene = new StartScene(this);
@@ -55,13 +153,318 @@ public class SceneManager {
 				scene = new Level3(this);
 				break;
 		}
+		loadMillis.put(id, (System.nanoTime() - start) / 1e6);
+		sceneId = id;
+		eventBus.publish(EventType.SCENE_CHANGE, scene.getClass(), 0, 0, id.ordinal());
 	}
 
 	/**
-	 * Update the current scene
+	 * Get the seed for a new level's random numbers
+	 * @return the seed
+	 */
+	public long nextLevelSeed() {
+		return levelSeeds.nextLong();
+	}
+
+	/**
+	 * Save a checkpoint of the current level.
+	 * The level state is copied immediately, and written to disk in the background.
+	 */
+	public void checkpoint() {
+		if (!(scene instanceof Level)) {
+			return;
+		}
+		stateWriter.reset();
+		((Level) scene).writeState(stateWriter);
+		saveWriter.write(new SaveFile(sceneId.ordinal(), stateWriter.toByteArray()), SAVE_FILE);
+	}
+
+	/**
+	 * Restore the level saved by the last checkpoint, if there is one.
+	 * If the checkpoint cannot be read or its state does not decode, the current scene is kept.
+	 */
+	public void loadCheckpoint() {
+		SceneId id;
+		Scene loaded;
+		try {
+			SaveFile save = SaveFile.read(SAVE_FILE);
+			id = SceneId.values()[save.getSceneId()];
+			loaded = createLevel(id, save.getStateReader());
+		} catch (IOException | RuntimeException e) {
+			// A truncated or inconsistent state fails while decoding, e.g. by reading past the end
+			System.err.println("Could not load checkpoint: " + e);
+			return;
+		}
+		if (loaded == null) {
+			return;
+		}
+		scene = loaded;
+		sceneId = id;
+		eventBus.publish(EventType.SCENE_CHANGE, scene.getClass(), 0, 0, id.ordinal());
+	}
+
+	/**
+	 * Replace the current level with one restored from saved state, e.g. a snapshot received from a server
+	 * @param state reader over state written by the current level's writeState
+	 * @return the restored level
+	 */
+	public Level restoreLevel(StateReader state) {
+		Scene loaded = createLevel(sceneId, state);
+		if (loaded == null) {
+			throw new IllegalStateException("Scene is not a level: " + sceneId);
+		}
+		scene = loaded;
+		eventBus.publish(EventType.SCENE_CHANGE, scene.getClass(), 0, 0, sceneId.ordinal());
+		return (Level) loaded;
+	}
+
+	/**
+	 * Create a level from saved state
+	 * @param id the level's scene id
+	 * @param state reader over the level state
+	 * @return the level, or null if the scene id is not a level
+	 */
+	private Scene createLevel(SceneId id, StateReader state) {
+		switch (id) {
+			case LEVEL1:
+				return new Level1(this, state);
+			case LEVEL2:
+				return new Level2(this, state);
+			case LEVEL3:
+				return new Level3(this, state);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Update the current scene.
+	 * Save a checkpoint when C is pressed during a level, load it when L is pressed, and pause or resume with P.
+	 * If the scene has not changed and no input arrived, the last frame is shown again without updating the scene.
 	 * @param input user input
 	 */
   public void update(Input input) {
-    scene.update(input);
+		// Bagel presents each frame between updates, so the input shown in the last frame is on screen by now
+		inputQueue.markDisplayed(displayedInputEnd);
+		if (pipeline != null) {
+			pipeline.waitForSimulation();
+		}
+		inputQueue.beginFrame();
+
+		SceneId requested = requestedScene.getAndSet(null);
+		if (requested != null) {
+			setScene(requested);
+		}
+
+		if (input.wasPressed(Keys.C)) {
+			checkpoint();
+		} else if (input.wasPressed(Keys.L)) {
+			loadCheckpoint();
+		} else if (input.wasPressed(Keys.P) && scene instanceof Level) {
+			Level level = (Level) scene;
+			level.setPaused(!level.isPaused());
+		}
+
+		if (scene == shownScene && !scene.hasChanged() && !hasInput(input)) {
+			idleFrames++;
+			drawLastFrame();
+			return;
+		}
+		idleFrames = 0;
+
+		if (pipeline != null && scene instanceof Level) {
+			// Simulate this frame while drawing the last one
+			Level level = (Level) scene;
+			if (!level.isPaused()) {
+				pipeline.start(level, input);
+				levelTicks++;
+			}
+			long drawnInputEnd = pipeline.draw(level);
+			if (drawnInputEnd >= 0) {
+				displayedInputEnd = drawnInputEnd;
+				shownScene = level;
+			}
+		} else if (scene instanceof Level && ((Level) scene).isPaused() && frameCache.getSource() == scene) {
+			// Input while paused only needs the paused frame drawn again
+			frameCache.draw();
+		} else {
+			Scene updated = scene;
+			frameCache.beginRecording(updated, inputQueue.getFrameEnd());
+			try {
+				updated.update(input);
+			} finally {
+				frameCache.endRecording();
+			}
+			if (updated instanceof Level) {
+				levelTicks++;
+			}
+			frameCache.draw();
+			shownScene = updated;
+			displayedInputEnd = inputQueue.getFrameEnd();
+		}
   }
+
+	/**
+	 * Draw the last frame of the current scene again
+	 */
+	private void drawLastFrame() {
+		if (pipeline != null && scene instanceof Level) {
+			pipeline.draw((Level) scene);
+		} else {
+			frameCache.draw();
+		}
+	}
+
+	/**
+	 * Check if any key was pressed or released this frame
+	 * @param input user input
+	 * @return true if there was key input
+	 */
+	private boolean hasInput(Input input) {
+		if (inputQueue.isInstalled()) {
+			return inputQueue.size() > 0;
+		}
+		for (Keys key : KEYS) {
+			if (input.wasPressed(key) || input.wasReleased(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the game is idle: the same frame has been shown for a while with nothing changing
+	 * @return true if the frame loop can be slowed down
+	 */
+	public boolean isIdle() {
+		return idleFrames >= IDLE_AFTER_FRAMES;
+	}
+
+	/**
+	 * Get the number of level ticks simulated so far, including rewind steps.
+	 * Frames in which no level was simulated, e.g. menus, pauses and idle frames, are not counted.
+	 * @return number of ticks
+	 */
+	public long getLevelTicks() {
+		return levelTicks;
+	}
+
+	/**
+	 * Start simulating levels on a separate thread, overlapping with drawing.
+	 * Must be called before the first level is loaded.
+	 */
+	public void startPipeline() {
+		simulationScheduler = new FrameScheduler(FRAME_BUDGET_MILLIS);
+		pipeline = new SimulationPipeline(simulationScheduler, inputQueue);
+	}
+
+	/**
+	 * Finish writing any queued saves
+	 */
+	public void close() {
+		if (pipeline != null) {
+			pipeline.close();
+		}
+		saveWriter.close();
+	}
+
+	/**
+	 * Get the current scene
+	 * @return the current scene
+	 */
+	public Scene getScene() {
+		return scene;
+	}
+
+	/**
+	 * Ask for a scene change from another thread. The scene is switched at the start of the next update.
+	 * @param id the scene to switch to
+	 */
+	public void requestScene(SceneId id) {
+		requestedScene.set(id);
+	}
+
+	/**
+	 * Get the current scene id
+	 * @return the scene id
+	 */
+	public SceneId getSceneId() {
+		return sceneId;
+	}
+
+	/**
+	 * Get how long the last load of each scene took. Safe to call from any thread.
+	 * @return map of scene id name to load time in milliseconds
+	 */
+	public Map<String, Double> getLoadMillis() {
+		HashMap<String, Double> result = new HashMap<>();
+		for (Map.Entry<SceneId, Double> entry : loadMillis.entrySet()) {
+			result.put(entry.getKey().name(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Get the scheduler for work that can be deferred to the end of a frame
+	 * @return the frame scheduler
+	 */
+	public FrameScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Get the scheduler for deferred level work, which runs on the thread that simulates levels
+	 * @return the frame scheduler
+	 */
+	public FrameScheduler getSimulationScheduler() {
+		return simulationScheduler;
+	}
+
+	/**
+	 * Get how long the last level step on the simulation thread took
+	 * @return time in milliseconds, or 0 if levels are simulated on the main thread
+	 */
+	public double getSimulationMillis() {
+		return pipeline == null ? 0 : pipeline.getStepNanos() / 1e6;
+	}
+
+	/**
+	 * Get the key events received since the last frame
+	 * @return the input queue
+	 */
+	public InputQueue getInputQueue() {
+		return inputQueue;
+	}
+
+	/**
+	 * Get the event bus shared by every scene
+	 * @return the event bus
+	 */
+	public EventBus getEventBus() {
+		return eventBus;
+	}
+
+	/**
+	 * Set the leaderboard shown in end scenes
+	 * @param leaderboard the leaderboard, or null to hide it
+	 */
+	public void setLeaderboard(Leaderboard leaderboard) {
+		this.leaderboard = leaderboard;
+	}
+
+	/**
+	 * Get the leaderboard shown in end scenes
+	 * @return the leaderboard, or null if it is disabled
+	 */
+	public Leaderboard getLeaderboard() {
+		return leaderboard;
+	}
+
+	/**
+	 * Get the particle effects shared by every level
+	 * @return the particle system
+	 */
+	public ParticleSystem getParticles() {
+		return particles;
+	}
 }
@@ -0,0 +1,118 @@
+package schedule;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Runs deferrable work in the time left before the frame budget, so it never causes a frame spike.
+ * Tasks run one slice at a time, highest priority first, while the next slice is expected to finish
+ * within the budget measured from the start of the frame.
+ * A task that is still pending after its deadline gets one slice every frame even without time left,
+ * so it cannot be starved, and is reported once as having missed its deadline.
+ * Frames that end over the budget are counted as overruns. All methods must be called from the main thread.
+ * @author Michael Ren
+ */
+public class FrameScheduler {
+  public static final int PRIORITY_LOW = 0;
+  public static final int PRIORITY_NORMAL = 1;
+  public static final int PRIORITY_HIGH = 2;
+
+  private final long budgetNanos;
+  private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>(ScheduledTask::compareTo);
+  private final ArrayList<ScheduledTask> overdue = new ArrayList<>();
+  private long frame = 0;
+  private long frameStartNanos = System.nanoTime();
+  private long submitted = 0;
+  private long deadlineMisses = 0;
+  private long frameOverruns = 0;
+
+  /**
+   * Create a new scheduler
+   * @param budgetMillis time from the start of a frame after which deferrable work stops
+   */
+  public FrameScheduler(double budgetMillis) {
+    budgetNanos = (long) (budgetMillis * 1e6);
+  }
+
+  /**
+   * Start timing a new frame. Called once at the start of each frame.
+   */
+  public void beginFrame() {
+    frame++;
+    frameStartNanos = System.nanoTime();
+  }
+
+  /**
+   * Add a task to run in later slices
+   * @param name name used when reporting a missed deadline
+   * @param priority higher priorities run first
+   * @param deadlineFrames number of frames the task may take before it is forced to make progress
+   * @param task the work to run
+   * @return the scheduled task, which can be checked to see if it is still pending
+   */
+  public ScheduledTask submit(String name, int priority, int deadlineFrames, FrameTask task) {
+    ScheduledTask scheduled = new ScheduledTask(name, priority, frame + deadlineFrames, submitted++, task);
+    tasks.add(scheduled);
+    return scheduled;
+  }
+
+  /**
+   * Run task slices until the frame budget is used up.
+   * Called once at the end of each frame, after the frame's own work.
+   */
+  public void runUntilBudget() {
+    // Overdue tasks make progress even when there is no time left
+    overdue.clear();
+    for (ScheduledTask task : tasks) {
+      if (frame > task.getDeadlineFrame()) {
+        overdue.add(task);
+      }
+    }
+    for (ScheduledTask task : overdue) {
+      if (!task.hasMissedDeadline()) {
+        task.setMissedDeadline();
+        deadlineMisses++;
+        System.err.println("Frame task '" + task.getName() + "' missed its deadline");
+      }
+      if (task.runSlice()) {
+        tasks.remove(task);
+      }
+    }
+
+    // Only start a slice that is expected to finish within the budget
+    while (!tasks.isEmpty()
+        && System.nanoTime() - frameStartNanos + tasks.peek().getAverageSliceNanos() <= budgetNanos) {
+      if (tasks.peek().runSlice()) {
+        tasks.poll();
+      }
+    }
+
+    if (System.nanoTime() - frameStartNanos > budgetNanos) {
+      frameOverruns++;
+    }
+  }
+
+  /**
+   * Get the number of tasks waiting to run
+   * @return number of tasks
+   */
+  public int getPendingCount() {
+    return tasks.size();
+  }
+
+  /**
+   * Get the number of tasks that missed their deadline
+   * @return number of tasks
+   */
+  public long getDeadlineMisses() {
+    return deadlineMisses;
+  }
+
+  /**
+   * Get the number of frames that ended over the budget
+   * @return number of frames
+   */
+  public long getFrameOverruns() {
+    return frameOverruns;
+  }
+}
@@ -0,0 +1,13 @@
+package schedule;
+
+/**
+ * Deferrable work that is run by the FrameScheduler in short, resumable slices
+ * @author Michael Ren
+ */
+public interface FrameTask {
+  /**
+   * Run one short slice of the task, keeping any progress so the next slice can continue from it
+   * @return true if the task has finished
+   */
+  boolean runSlice();
+}
@@ -0,0 +1,110 @@
+package schedule;
+
+/**
+ * A task waiting in the FrameScheduler, with its priority and deadline
+ * @author Michael Ren
+ */
+public class ScheduledTask {
+  private final String name;
+  private final int priority;
+  private final long deadlineFrame;
+  private final long order;
+  private final FrameTask task;
+  private boolean pending = true;
+  private boolean missedDeadline = false;
+  private long averageSliceNanos = 0;
+
+  /**
+   * Create a new scheduled task
+   * @param name name used when reporting a missed deadline
+   * @param priority higher priorities run first
+   * @param deadlineFrame frame by which the task should have finished
+   * @param order submission order, used to break ties
+   * @param task the work to run
+   */
+  ScheduledTask(String name, int priority, long deadlineFrame, long order, FrameTask task) {
+    this.name = name;
+    this.priority = priority;
+    this.deadlineFrame = deadlineFrame;
+    this.order = order;
+    this.task = task;
+  }
+
+  /**
+   * Compare tasks by the order they should run in: highest priority, then earliest deadline, then first submitted
+   * @param other the other task
+   * @return negative if this task should run first
+   */
+  int compareTo(ScheduledTask other) {
+    if (priority != other.priority) {
+      return Integer.compare(other.priority, priority);
+    }
+    if (deadlineFrame != other.deadlineFrame) {
+      return Long.compare(deadlineFrame, other.deadlineFrame);
+    }
+    return Long.compare(order, other.order);
+  }
+
+  /**
+   * Run one slice of the task, marking it finished when it is done
+   * @return true if the task has finished
+   */
+  boolean runSlice() {
+    long start = System.nanoTime();
+    if (task.runSlice()) {
+      pending = false;
+    }
+
+    // Moving average, so one slow slice does not stop the task from running for long
+    long nanos = System.nanoTime() - start;
+    averageSliceNanos = averageSliceNanos == 0 ? nanos : (averageSliceNanos * 7 + nanos) / 8;
+    return !pending;
+  }
+
+  /**
+   * Get the average time a slice of this task takes
+   * @return time in nanoseconds, 0 before the first slice
+   */
+  long getAverageSliceNanos() {
+    return averageSliceNanos;
+  }
+
+  /**
+   * Check if the task has not finished yet
+   * @return true if the task is still waiting to run
+   */
+  public boolean isPending() {
+    return pending;
+  }
+
+  /**
+   * Get the task's name
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the frame by which the task should have finished
+   * @return frame number
+   */
+  long getDeadlineFrame() {
+    return deadlineFrame;
+  }
+
+  /**
+   * Check if the task has already been reported for missing its deadline
+   * @return true if the deadline was missed
+   */
+  boolean hasMissedDeadline() {
+    return missedDeadline;
+  }
+
+  /**
+   * Mark the task as having missed its deadline
+   */
+  void setMissedDeadline() {
+    missedDeadline = true;
+  }
+}
@@ -0,0 +1,47 @@
+package sim;
+
+import level.HeadlessLevel;
+import level.Level;
+
+/**
+ * A bot that replays a fixed sequence of inputs, looping back to the start when it runs out
+ * @author Michael Ren
+ */
+public class ScriptedBot implements SessionBot {
+  private final int[] inputs;
+  private int next = 0;
+
+  /**
+   * Create a new scripted bot
+   * @param inputs the input for each tick, as bitwise or of HeadlessLevel.INPUT_ constants
+   */
+  public ScriptedBot(int... inputs) {
+    this.inputs = inputs;
+  }
+
+  /**
+   * Create a bot that runs right, holding jump for one of every two periods, and shoots once per period
+   * @param period length of each period in ticks
+   * @return the bot
+   */
+  public static ScriptedBot runAndJump(int period) {
+    int[] inputs = new int[period * 2];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = HeadlessLevel.INPUT_RIGHT | (i < period ? HeadlessLevel.INPUT_JUMP : 0)
+        | (i % period == 0 ? HeadlessLevel.INPUT_SHOOT : 0);
+    }
+    return new ScriptedBot(inputs);
+  }
+
+  /**
+   * Get the next input in the script
+   * @param level the session's level, unused
+   * @return the input bits
+   */
+  @Override
+  public int nextInput(Level level) {
+    int input = inputs[next];
+    next = (next + 1) % inputs.length;
+    return input;
+  }
+}
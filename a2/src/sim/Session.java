@@ -0,0 +1,198 @@
+package sim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import level.HeadlessLevel;
+import level.Level;
+
+/**
+ * One headless level driven by a bot. A session runs a slice of ticks at a time on the host's pool,
+ * then resubmits itself, so a pool thread is never held by a single session
+ * and idle threads can steal waiting sessions from busy ones.
+ * @author Michael Ren
+ */
+public class Session implements Runnable {
+  /**
+   * The states a session can be in
+   */
+  public enum State {
+    RUNNING, PAUSED, WON, LOST, TIMED_OUT, KILLED
+  }
+
+  // Ticks run before the session gives its thread back to the pool
+  private static final int SLICE_TICKS = 64;
+
+  private final int id;
+  private final HeadlessLevel level;
+  private final SessionBot bot;
+  private final long maxTicks;
+  private final ForkJoinPool pool;
+  private final LongAdder totalTicks;
+
+  private volatile State state = State.RUNNING;
+  // True while the session is queued or running on the pool, so it is never run by two threads at once
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+  // Tick latency, written by whichever pool thread runs the slice
+  private volatile long ticks = 0;
+  private volatile long totalTickNanos = 0;
+  private volatile long maxTickNanos = 0;
+
+  /**
+   * Create a new session
+   * @param id the session id
+   * @param levelNumber 1, 2 or 3
+   * @param seed seed for the level's random numbers
+   * @param bot the bot that plays the session
+   * @param maxTicks number of ticks before the session times out
+   * @param pool the pool to run on
+   * @param totalTicks the host's tick counter
+   */
+  Session(int id, int levelNumber, long seed, SessionBot bot, long maxTicks, ForkJoinPool pool, LongAdder totalTicks) {
+    this.id = id;
+    this.bot = bot;
+    this.maxTicks = maxTicks;
+    this.pool = pool;
+    this.totalTicks = totalTicks;
+    level = new HeadlessLevel(levelNumber, seed);
+  }
+
+  /**
+   * Queue the session on the pool, unless it is already queued
+   */
+  void schedule() {
+    if (state == State.RUNNING && scheduled.compareAndSet(false, true)) {
+      pool.execute(this);
+    }
+  }
+
+  /**
+   * Run one slice of ticks, then requeue the session if it is still running
+   */
+  @Override
+  public void run() {
+    long sliceTicks = 0;
+    long sliceNanos = 0;
+    long sliceMax = maxTickNanos;
+    for (int i = 0; i < SLICE_TICKS && state == State.RUNNING; i++) {
+      long start = System.nanoTime();
+      level.step(bot.nextInput(level.getLevel()));
+      long elapsed = System.nanoTime() - start;
+
+      sliceTicks++;
+      sliceNanos += elapsed;
+      sliceMax = Math.max(sliceMax, elapsed);
+      if (level.isWon()) {
+        state = State.WON;
+      } else if (level.isLost()) {
+        state = State.LOST;
+      } else if (level.getTick() >= maxTicks) {
+        state = State.TIMED_OUT;
+      }
+    }
+    ticks += sliceTicks;
+    totalTickNanos += sliceNanos;
+    maxTickNanos = sliceMax;
+    totalTicks.add(sliceTicks);
+
+    // Go to the back of the queue, or give up the slot if paused, and pick up a resume that raced with the pause
+    if (state == State.RUNNING) {
+      try {
+        pool.execute(this);
+        return;
+      } catch (RejectedExecutionException e) {
+        // The host has been closed
+        state = State.KILLED;
+      }
+    }
+    scheduled.set(false);
+    schedule();
+  }
+
+  /**
+   * Stop running the session after the current slice
+   */
+  void pause() {
+    if (state == State.RUNNING) {
+      state = State.PAUSED;
+    }
+  }
+
+  /**
+   * Continue running a paused session
+   */
+  void resume() {
+    if (state == State.PAUSED) {
+      state = State.RUNNING;
+      schedule();
+    }
+  }
+
+  /**
+   * Stop the session for good, after the current slice
+   */
+  void kill() {
+    if (state == State.RUNNING || state == State.PAUSED) {
+      state = State.KILLED;
+    }
+  }
+
+  /**
+   * Get the session id
+   * @return the id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Get the session's state
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Check if the session has stopped for good
+   * @return true if the session was won, lost, timed out or killed
+   */
+  public boolean isFinished() {
+    return state != State.RUNNING && state != State.PAUSED;
+  }
+
+  /**
+   * Get the number of ticks simulated
+   * @return number of ticks
+   */
+  public long getTicks() {
+    return ticks;
+  }
+
+  /**
+   * Get the mean time taken by one tick
+   * @return time in nanoseconds, or 0 before the first tick
+   */
+  public long getMeanTickNanos() {
+    long count = ticks;
+    return count == 0 ? 0 : totalTickNanos / count;
+  }
+
+  /**
+   * Get the longest time taken by one tick
+   * @return time in nanoseconds
+   */
+  public long getMaxTickNanos() {
+    return maxTickNanos;
+  }
+
+  /**
+   * Get the session's level. Only safe to read once a paused or finished session's last slice has ended.
+   * @return the level
+   */
+  public Level getLevel() {
+    return level.getLevel();
+  }
+}
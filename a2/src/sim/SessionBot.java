@@ -0,0 +1,17 @@
+package sim;
+
+import level.Level;
+
+/**
+ * Chooses the input for each tick of a simulated session.
+ * A bot is only called by the thread currently ticking its session, so it may keep its own state.
+ * @author Michael Ren
+ */
+public interface SessionBot {
+  /**
+   * Choose the input for the next tick
+   * @param level the session's level, as of the end of the previous tick
+   * @return bitwise or of HeadlessLevel.INPUT_ constants
+   */
+  int nextInput(Level level);
+}
@@ -0,0 +1,173 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many independent headless sessions in one process, for QA and balance runs.
+ * Sessions are scheduled on a work stealing pool in FIFO mode, so each session gets a turn in order,
+ * and threads that run out of work take sessions queued on busy threads.
+ * Sessions run the game's own levels headless. Level files are parsed once and shared by every session,
+ * and each session only holds its own level's objects, about 16 KB.
+ * Sessions run as fast as the pool allows rather than at the game's frame rate.
+ * @author Michael Ren
+ */
+public class SessionHost implements AutoCloseable {
+  private final ForkJoinPool pool;
+  private final ConcurrentHashMap<Integer, Session> sessions = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger(1);
+  private final LongAdder totalTicks = new LongAdder();
+
+  // Last sample taken by getTicksPerSecond
+  private long sampleTicks = 0;
+  private long sampleNanos = System.nanoTime();
+
+  /**
+   * Create a new host
+   * @param parallelism number of pool threads
+   */
+  public SessionHost(int parallelism) {
+    pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+  }
+
+  /**
+   * Run a batch of sessions on the first level and print statistics every second until they finish
+   * @param args number of sessions, and optionally the number of threads
+   */
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    try (SessionHost host = new SessionHost(threads)) {
+      for (int i = 0; i < count; i++) {
+        host.spawn(1, i, ScriptedBot.runAndJump(40 + i % 20), 60 * 60);
+      }
+      while (host.getRunningCount() > 0) {
+        Thread.sleep(1000);
+        System.out.printf("%d running, %.0f ticks/s%n", host.getRunningCount(), host.getTicksPerSecond());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Start a new session
+   * @param levelNumber 1, 2 or 3
+   * @param seed seed for the level's random numbers
+   * @param bot the bot that plays the session
+   * @param maxTicks number of ticks before the session times out
+   * @return the session id
+   */
+  public int spawn(int levelNumber, long seed, SessionBot bot, long maxTicks) {
+    Session session = new Session(nextId.getAndIncrement(), levelNumber, seed, bot, maxTicks, pool, totalTicks);
+    sessions.put(session.getId(), session);
+    session.schedule();
+    return session.getId();
+  }
+
+  /**
+   * Pause a session after its current slice of ticks
+   * @param id the session id
+   */
+  public void pause(int id) {
+    Session session = sessions.get(id);
+    if (session != null) {
+      session.pause();
+    }
+  }
+
+  /**
+   * Resume a paused session
+   * @param id the session id
+   */
+  public void resume(int id) {
+    Session session = sessions.get(id);
+    if (session != null) {
+      session.resume();
+    }
+  }
+
+  /**
+   * Stop a session for good and forget it
+   * @param id the session id
+   */
+  public void kill(int id) {
+    Session session = sessions.remove(id);
+    if (session != null) {
+      session.kill();
+    }
+  }
+
+  /**
+   * Get a session, to read its state and latency
+   * @param id the session id
+   * @return the session, or null if there is no such session
+   */
+  public Session getSession(int id) {
+    return sessions.get(id);
+  }
+
+  /**
+   * Get every session that has not been killed
+   * @return list of sessions
+   */
+  public ArrayList<Session> getSessions() {
+    return new ArrayList<>(sessions.values());
+  }
+
+  /**
+   * Count the sessions that are still running or paused
+   * @return number of sessions
+   */
+  public int getRunningCount() {
+    int count = 0;
+    for (Session session : sessions.values()) {
+      if (!session.isFinished()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of ticks simulated by every session since the host started
+   * @return number of ticks
+   */
+  public long getTotalTicks() {
+    return totalTicks.sum();
+  }
+
+  /**
+   * Get the aggregate tick rate since the previous call (or since the host started)
+   * @return ticks per second across every session
+   */
+  public synchronized double getTicksPerSecond() {
+    long ticks = totalTicks.sum();
+    long now = System.nanoTime();
+    double rate = (ticks - sampleTicks) * 1e9 / Math.max(1, now - sampleNanos);
+    sampleTicks = ticks;
+    sampleNanos = now;
+    return rate;
+  }
+
+  /**
+   * Kill every session and stop the pool
+   */
+  @Override
+  public void close() {
+    for (Session session : sessions.values()) {
+      session.kill();
+    }
+    sessions.clear();
+    pool.shutdown();
+    try {
+      pool.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package sim;
+
+import core.GameObject;
+import entity.Boss;
+import entity.Fireball;
+import entity.Player;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import level.HeadlessLevel;
+import level.Level;
+import save.StateReader;
+import save.StateWriter;
+
+/**
+ * A batch of environments for bots and automated agents, stepped together with a gym style reset/step API.
+ * Every environment runs the game's own level headless.
+ * Actions are the same bits as the player's controls (HeadlessLevel.INPUT_LEFT, INPUT_RIGHT, INPUT_JUMP and INPUT_SHOOT,
+ * which stand for the LEFT, RIGHT, UP and S keys).
+ * Observations are written as native order floats into one reusable direct buffer, OBSERVATION_FLOATS per environment:
+ * <ul>
+ *   <li>player x, y, x velocity, y velocity, health, score, boss health (-1 if there is no boss), camera x</li>
+ *   <li>the NEARBY_OBJECTS nearest objects as (type, dx, dy), nearest first, with the type numbered as in
+ *   Level.getObjectType and -1 for an empty slot</li>
+ *   <li>the NEARBY_FIREBALLS nearest fireballs as (dx, dy, x velocity, 1 if shot by the player)</li>
+ * </ul>
+ * The reward for a step is the change in score, plus the change in health times HEALTH_REWARD,
+ * plus WIN_REWARD when the level is won. Finished environments are reset automatically,
+ * so the observation after a done step is the first observation of the next episode.
+ * Environments are reset by restoring a saved copy of the loaded level, which rebuilds the level's objects.
+ * Observations and rewards are written without allocating, but a level step allocates a little garbage of its own,
+ * e.g. the HUD messages it draws, so stepping is not allocation free.
+ * @author Michael Ren
+ */
+public class VectorEnv {
+  public static final int NEARBY_OBJECTS = 8;
+  public static final int NEARBY_FIREBALLS = 4;
+  private static final int PLAYER_FLOATS = 8;
+  private static final int OBJECT_FLOATS = 3;
+  private static final int FIREBALL_FLOATS = 4;
+  public static final int OBSERVATION_FLOATS = PLAYER_FLOATS + NEARBY_OBJECTS * OBJECT_FLOATS
+    + NEARBY_FIREBALLS * FIREBALL_FLOATS;
+
+  public static final float HEALTH_REWARD = 10;
+  public static final float WIN_REWARD = 100;
+
+  private final int count;
+  private final long maxTicks;
+  private final HeadlessLevel[] levels;
+  private final StateReader[] initialStates;
+
+  // Per environment values from the previous step
+  private final double[] previousX;
+  private final double[] previousHealth;
+  private final int[] previousScore;
+  private final long[] episodes;
+  private final long seed;
+
+  private final ByteBuffer observations;
+  private final float[] rewards;
+  private final boolean[] dones;
+
+  // Scratch space for picking the nearest objects, sorted nearest first
+  private final float[] nearDistance = new float[Math.max(NEARBY_OBJECTS, NEARBY_FIREBALLS)];
+  private final float[][] nearValues = new float[nearDistance.length][FIREBALL_FLOATS];
+
+  /**
+   * Create a batch of environments all playing the same level
+   * @param count number of environments
+   * @param levelNumber 1, 2 or 3
+   * @param seed base seed, each environment gets its own seed derived from it
+   * @param maxTicks number of ticks before an episode is cut short
+   */
+  public VectorEnv(int count, int levelNumber, long seed, long maxTicks) {
+    this.count = count;
+    this.maxTicks = maxTicks;
+    this.seed = seed;
+    levels = new HeadlessLevel[count];
+    initialStates = new StateReader[count];
+    previousX = new double[count];
+    previousHealth = new double[count];
+    previousScore = new int[count];
+    episodes = new long[count];
+    rewards = new float[count];
+    dones = new boolean[count];
+    observations = ByteBuffer.allocateDirect(count * OBSERVATION_FLOATS * Float.BYTES).order(ByteOrder.nativeOrder());
+
+    StateWriter state = new StateWriter();
+    for (int i = 0; i < count; i++) {
+      levels[i] = new HeadlessLevel(levelNumber, seed + i);
+      state.reset();
+      levels[i].writeState(state);
+      initialStates[i] = new StateReader(state.toByteArray());
+    }
+  }
+
+  /**
+   * Reset every environment to the start of the level
+   * @return the observation buffer
+   */
+  public ByteBuffer reset() {
+    for (int i = 0; i < count; i++) {
+      resetLevel(i);
+      writeObservation(i);
+      rewards[i] = 0;
+      dones[i] = false;
+    }
+    return observations;
+  }
+
+  /**
+   * Step every environment by one tick.
+   * Afterwards getObservations, getRewards and getDones hold the results for each environment.
+   * @param actions one action per environment, as bitwise or of HeadlessLevel.INPUT_ constants
+   */
+  public void step(int[] actions) {
+    for (int i = 0; i < count; i++) {
+      HeadlessLevel level = levels[i];
+      level.step(actions[i]);
+
+      Player player = level.getLevel().getPlayer();
+      double health = player.getHealth();
+      int score = player.getScore();
+      boolean won = level.isWon();
+      rewards[i] = (float) (score - previousScore[i] + (health - previousHealth[i]) * HEALTH_REWARD)
+        + (won ? WIN_REWARD : 0);
+      dones[i] = won || level.isLost() || level.getTick() >= maxTicks;
+
+      if (dones[i]) {
+        resetLevel(i);
+      } else {
+        writeObservation(i);
+        previousX[i] = player.getX();
+        previousHealth[i] = health;
+        previousScore[i] = score;
+      }
+    }
+  }
+
+  /**
+   * Restore an environment's level to its start, with a new seed for the boss's random choices
+   * @param i the environment index
+   */
+  private void resetLevel(int i) {
+    HeadlessLevel level = levels[i];
+    StateReader initial = initialStates[i];
+    initial.rewind();
+    level.readState(initial);
+    level.getLevel().getRandom().setState(seed + i + episodes[i]++ * count);
+
+    Player player = level.getLevel().getPlayer();
+    previousX[i] = player.getX();
+    previousHealth[i] = player.getHealth();
+    previousScore[i] = player.getScore();
+    writeObservation(i);
+  }
+
+  /**
+   * Write an environment's observation into the buffer
+   * @param i the environment index
+   */
+  private void writeObservation(int i) {
+    Level level = levels[i].getLevel();
+    Player player = level.getPlayer();
+    double x = player.getX();
+    double y = player.getY();
+    Boss boss = level.getBoss();
+
+    int index = i * OBSERVATION_FLOATS * Float.BYTES;
+    index = putFloat(index, x);
+    index = putFloat(index, y);
+    index = putFloat(index, x - previousX[i]);
+    index = putFloat(index, player.getVelocityY());
+    index = putFloat(index, player.getHealth());
+    index = putFloat(index, player.getScore());
+    index = putFloat(index, boss == null ? -1 : boss.getHealth());
+    index = putFloat(index, level.getCamera().getX());
+
+    index = writeNearest(level, x, y, false, NEARBY_OBJECTS, OBJECT_FLOATS, index);
+    writeNearest(level, x, y, true, NEARBY_FIREBALLS, FIREBALL_FLOATS, index);
+  }
+
+  /**
+   * Find the objects nearest to the player and write them into the buffer
+   * @param level the level
+   * @param x player x position
+   * @param y player y position
+   * @param fireballs true to find fireballs, false to find every other object except the player
+   * @param slots number of objects to write
+   * @param floats number of floats per object
+   * @param index buffer index to start writing at
+   * @return the buffer index after the written objects
+   */
+  private int writeNearest(Level level, double x, double y, boolean fireballs, int slots, int floats, int index) {
+    int found = 0;
+    Player player = level.getPlayer();
+    ArrayList<? extends GameObject> objects = fireballs ? level.getFireballs() : level.getGameObjects();
+    for (int i = 0; i < objects.size(); i++) {
+      GameObject object = objects.get(i);
+      if (object == player || object.getCanRemove()) {
+        continue;
+      }
+
+      float dx = (float) (object.getX() - x);
+      float dy = (float) (object.getY() - y);
+      float distance = dx * dx + dy * dy;
+      if (found == slots && distance >= nearDistance[slots - 1]) {
+        continue;
+      }
+
+      // Insert into the sorted scratch slots, dropping the farthest if full
+      int slot = found < slots ? found++ : slots - 1;
+      float[] values = nearValues[slot];
+      while (slot > 0 && nearDistance[slot - 1] > distance) {
+        nearDistance[slot] = nearDistance[slot - 1];
+        nearValues[slot] = nearValues[slot - 1];
+        slot--;
+      }
+      nearDistance[slot] = distance;
+      nearValues[slot] = values;
+      if (fireballs) {
+        Fireball fireball = (Fireball) object;
+        values[0] = dx;
+        values[1] = dy;
+        values[2] = (float) (fireball.getSpeed() * fireball.getDirectionScalar());
+        values[3] = fireball.getOwner() == player ? 1 : 0;
+      } else {
+        values[0] = Level.getObjectType(object);
+        values[1] = dx;
+        values[2] = dy;
+      }
+    }
+
+    for (int slot = 0; slot < slots; slot++) {
+      for (int f = 0; f < floats; f++) {
+        float empty = !fireballs && f == 0 ? -1 : 0;
+        index = putFloat(index, slot < found ? nearValues[slot][f] : empty);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Write a float into the observation buffer
+   * @param index byte index
+   * @param value the value
+   * @return the byte index after the value
+   */
+  private int putFloat(int index, double value) {
+    observations.putFloat(index, (float) value);
+    return index + Float.BYTES;
+  }
+
+  /**
+   * Get the observation buffer, OBSERVATION_FLOATS native order floats per environment
+   * @return the buffer, reused by every step
+   */
+  public ByteBuffer getObservations() {
+    return observations;
+  }
+
+  /**
+   * Get the rewards from the last step
+   * @return one reward per environment, reused by every step
+   */
+  public float[] getRewards() {
+    return rewards;
+  }
+
+  /**
+   * Get which environments finished an episode in the last step
+   * @return one flag per environment, reused by every step
+   */
+  public boolean[] getDones() {
+    return dones;
+  }
+
+  /**
+   * Get the number of environments
+   * @return number of environments
+   */
+  public int getCount() {
+    return count;
+  }
+}
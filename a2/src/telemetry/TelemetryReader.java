@@ -0,0 +1,94 @@
+package telemetry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Streams telemetry records back from every segment in a directory, in the order they were written.
+ * @author Michael Ren
+ */
+public class TelemetryReader {
+  private final ArrayList<Path> segments;
+  private int segmentIndex = -1;
+  private MappedByteBuffer buffer;
+  private int position;
+
+  /**
+   * Create a new reader
+   * @param directory the directory containing the segments
+   */
+  public TelemetryReader(Path directory) {
+    try {
+      segments = listSegments(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Read the next record
+   * @param record the record to read into
+   * @return true if a record was read, false if there are no more records
+   */
+  public boolean next(TelemetryRecord record) {
+    while (true) {
+      if (buffer != null && position + TelemetryRecord.RECORD_SIZE <= buffer.capacity()
+          && record.read(buffer, position)) {
+        position += TelemetryRecord.RECORD_SIZE;
+        return true;
+      }
+      if (!openNextSegment()) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Map the next segment with a valid header
+   * @return true if a segment was opened, false if there are no more segments
+   */
+  private boolean openNextSegment() {
+    while (++segmentIndex < segments.size()) {
+      try (FileChannel channel = FileChannel.open(segments.get(segmentIndex), StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (buffer.capacity() >= TelemetryRecord.HEADER_SIZE && buffer.getInt(0) == TelemetryRecord.SEGMENT_MAGIC
+          && buffer.getInt(4) == TelemetryRecord.VERSION) {
+        position = TelemetryRecord.HEADER_SIZE;
+        return true;
+      }
+    }
+    buffer = null;
+    return false;
+  }
+
+  /**
+   * List the segment files in a directory, in the order they were written
+   * @param directory the directory to search
+   * @return sorted list of segment paths
+   * @throws IOException if the directory cannot be read
+   */
+  static ArrayList<Path> listSegments(Path directory) throws IOException {
+    ArrayList<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(path -> TelemetryWriter.isSegment(path.getFileName().toString())).forEach(segments::add);
+    }
+    // By index rather than by name, as indexes past 999999 have more digits
+    segments.sort(Comparator.comparingInt((Path path) -> TelemetryWriter.getSegmentIndex(path.getFileName().toString()))
+      .thenComparing(Comparator.naturalOrder()));
+    return segments;
+  }
+}
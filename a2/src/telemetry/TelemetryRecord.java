@@ -0,0 +1,142 @@
+package telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single fixed size telemetry record, and the binary layout used to store it.
+ * Records are reused by the reader, so copy values that need to be kept.
+ * @author Michael Ren
+ */
+public class TelemetryRecord {
+  // Segment header: magic, version, session start time in epoch millis
+  public static final int SEGMENT_MAGIC = 0x534d544c;
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 16;
+
+  // Record layout, the commit marker is written last so partially written records are never read
+  public static final int RECORD_SIZE = 48;
+  static final int TIMESTAMP_OFFSET = 0;
+  static final int LEVEL_OFFSET = 8;
+  static final int EVENT_TYPE_OFFSET = 12;
+  static final int OBJECT_TYPE_OFFSET = 14;
+  static final int X_OFFSET = 16;
+  static final int Y_OFFSET = 24;
+  static final int HEALTH_OFFSET = 32;
+  static final int SCORE_OFFSET = 40;
+  static final int COMMIT_OFFSET = 44;
+  static final int COMMIT_MARKER = 0x7e1e;
+
+  // Object types are stored by index, so the reader does not need the game classes
+  static final String[] OBJECT_TYPES = {
+    "Unknown", "Player", "Boss", "Slime", "Fireball", "Coin", "DoubleScorePowerUp", "InvinciblePowerUp",
+    "Flag", "Platform", "FlyingPlatform", "Level1", "Level2", "Level3",
+  };
+
+  private long timestamp;
+  private int level;
+  private int eventType;
+  private int objectType;
+  private double x;
+  private double y;
+  private double health;
+  private int score;
+
+  /**
+   * Read a record from a buffer
+   * @param buffer the segment buffer
+   * @param offset the offset of the record
+   * @return true if a committed record was read, false if there is no record at the offset
+   */
+  boolean read(ByteBuffer buffer, int offset) {
+    if (buffer.getInt(offset + COMMIT_OFFSET) != COMMIT_MARKER) {
+      return false;
+    }
+    timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+    level = buffer.getInt(offset + LEVEL_OFFSET);
+    eventType = buffer.getShort(offset + EVENT_TYPE_OFFSET);
+    objectType = buffer.getShort(offset + OBJECT_TYPE_OFFSET);
+    x = buffer.getDouble(offset + X_OFFSET);
+    y = buffer.getDouble(offset + Y_OFFSET);
+    health = buffer.getDouble(offset + HEALTH_OFFSET);
+    score = buffer.getInt(offset + SCORE_OFFSET);
+    return true;
+  }
+
+  /**
+   * Get the object type id for a class name
+   * @param simpleName the class's simple name
+   * @return the object type id, or 0 if unknown
+   */
+  static int getObjectTypeId(String simpleName) {
+    for (int i = 0; i < OBJECT_TYPES.length; i++) {
+      if (OBJECT_TYPES[i].equals(simpleName)) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Get the time of the record
+   * @return nanoseconds since the session started
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Get the scene the record was logged in
+   * @return the scene id ordinal
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Get the event type
+   * @return the event type ordinal
+   */
+  public int getEventType() {
+    return eventType;
+  }
+
+  /**
+   * Get the name of the object that caused the event
+   * @return the object's class name
+   */
+  public String getObjectType() {
+    return objectType >= 0 && objectType < OBJECT_TYPES.length ? OBJECT_TYPES[objectType] : OBJECT_TYPES[0];
+  }
+
+  /**
+   * Get the x position
+   * @return x position
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Get the y position
+   * @return y position
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Get the player's health when the record was logged
+   * @return player health
+   */
+  public double getHealth() {
+    return health;
+  }
+
+  /**
+   * Get the player's score when the record was logged
+   * @return player score
+   */
+  public int getScore() {
+    return score;
+  }
+}
@@ -0,0 +1,90 @@
+package telemetry;
+
+import java.nio.file.Paths;
+import event.EventListener;
+import event.GameEvent;
+import event.EventType;
+import level.Level;
+import entity.Player;
+import scene.SceneManager;
+import utils.PropertiesLoader;
+
+/**
+ * Records gameplay events from the event bus into the telemetry log.
+ * Subscribes synchronously, so player score and health are sampled on the game thread when the event happens.
+ * Each event only costs a few writes into the mapped segment, flushing is done by the writer's background thread.
+ * @author Michael Ren
+ */
+public class TelemetryRecorder implements EventListener {
+  private static final int SEGMENT_RECORDS = 65536;
+
+  // Object type ids are looked up once per class
+  private static final ClassValue<Integer> OBJECT_TYPE_IDS = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      return TelemetryRecord.getObjectTypeId(type.getSimpleName());
+    }
+  };
+
+  private final SceneManager sceneManager;
+  private final TelemetryWriter writer;
+  private int level = 0;
+
+  /**
+   * Create a new recorder and subscribe to the event bus
+   * @param sceneManager the scene manager, used for its event bus and current level
+   * @param writer the telemetry writer
+   */
+  public TelemetryRecorder(SceneManager sceneManager, TelemetryWriter writer) {
+    this.sceneManager = sceneManager;
+    this.writer = writer;
+    sceneManager.getEventBus().subscribe(this);
+  }
+
+  /**
+   * Start recording if a telemetry directory is set in app.properties
+   * @param sceneManager the scene manager
+   * @return the recorder, or null if telemetry is disabled
+   */
+  public static TelemetryRecorder startFromProperties(SceneManager sceneManager) {
+    String directory = PropertiesLoader.getGameProperty("telemetry.directory");
+    if (directory == null || directory.isEmpty()) {
+      return null;
+    }
+    int maxSegments = Integer.parseInt(PropertiesLoader.getGameProperty("telemetry.maxSegments"));
+    return new TelemetryRecorder(sceneManager, new TelemetryWriter(Paths.get(directory), SEGMENT_RECORDS, maxSegments));
+  }
+
+  /**
+   * Record an event
+   * @param event the event
+   */
+  @Override
+  public void onEvent(GameEvent event) {
+    // Track the current scene, but do not record scene switches themselves
+    if (event.getType() == EventType.SCENE_CHANGE) {
+      level = (int) event.getAmount();
+      return;
+    }
+
+    double health = 0;
+    int score = 0;
+    Player player = sceneManager.getScene() instanceof Level ? ((Level) sceneManager.getScene()).getPlayer() : null;
+    if (player != null) {
+      health = player.getHealth();
+      score = player.getScore();
+    }
+
+    Class<?> sourceType = event.getSourceType();
+    int objectType = sourceType == null ? 0 : OBJECT_TYPE_IDS.get(sourceType);
+    writer.log(level, event.getType().ordinal(), objectType, event.getX(), event.getY(), health, score);
+  }
+
+  /**
+   * Stop recording and flush the log
+   */
+  public void close() {
+    sceneManager.getEventBus().unsubscribe(this);
+    writer.close();
+  }
+}
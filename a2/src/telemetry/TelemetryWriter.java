@@ -0,0 +1,282 @@
+package telemetry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends fixed size telemetry records to memory mapped segment files.
+ * The game thread only copies a few values into the current mapped segment.
+ * A background flusher maps the next segment ahead of time, and forces written segments to disk.
+ * If the next segment is not ready when the current one fills up, records are dropped rather than blocking.
+ * Only the newest segments are kept: the flusher deletes the oldest ones, including those from earlier runs.
+ * @author Michael Ren
+ */
+public class TelemetryWriter implements AutoCloseable {
+  private static final long FLUSH_INTERVAL_NANOS = 100_000_000;
+  private static final int PAGE_SIZE = 4096;
+  private static final String SEGMENT_PREFIX = "telemetry-";
+  private static final String SEGMENT_SUFFIX = ".bin";
+  // Attempts to find a free segment name if another writer creates files in the same directory
+  private static final int MAX_CREATE_ATTEMPTS = 16;
+  // The current and spare segments are always kept
+  private static final int MIN_SEGMENTS = 2;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final long startNanos = System.nanoTime();
+  private final long startMillis = System.currentTimeMillis();
+
+  // Only used by the game thread
+  private MappedByteBuffer current;
+  private int position;
+  private long dropped = 0;
+
+  // Shared with the flusher
+  private final AtomicReference<MappedByteBuffer> spare = new AtomicReference<>();
+  private final ConcurrentLinkedQueue<MappedByteBuffer> retired = new ConcurrentLinkedQueue<>();
+  private volatile MappedByteBuffer flushTarget;
+  private volatile boolean running = true;
+  private final Thread flusher;
+  private int nextSegmentIndex;
+
+  // Segment files in the directory, oldest first, and how many to keep (0 to keep all)
+  private final ArrayDeque<Path> segments = new ArrayDeque<>();
+  private final int maxSegments;
+  // Set after a flusher error is reported, so a failing disk does not flood the console
+  private boolean errorReported = false;
+
+  /**
+   * Create a new telemetry writer, continuing after any existing segments in the directory
+   * @param directory directory to write segments to
+   * @param segmentRecords number of records per segment
+   * @param maxSegments number of segments to keep in the directory, or 0 to keep every segment
+   */
+  public TelemetryWriter(Path directory, int segmentRecords, int maxSegments) {
+    this.directory = directory;
+    this.segmentSize = TelemetryRecord.HEADER_SIZE + segmentRecords * TelemetryRecord.RECORD_SIZE;
+    this.maxSegments = maxSegments <= 0 ? 0 : Math.max(maxSegments, MIN_SEGMENTS);
+    try {
+      Files.createDirectories(directory);
+      // Continue after the highest index, as older segments may have been deleted
+      nextSegmentIndex = 0;
+      for (Path segment : TelemetryReader.listSegments(directory)) {
+        segments.add(segment);
+        nextSegmentIndex = Math.max(nextSegmentIndex, getSegmentIndex(segment.getFileName().toString()) + 1);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    current = mapNextSegment();
+    flushTarget = current;
+    position = TelemetryRecord.HEADER_SIZE;
+    spare.set(mapNextSegment());
+
+    flusher = new Thread(this::flushLoop, "telemetry-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Append a record. Must only be called from the game thread.
+   * @param level the scene id ordinal
+   * @param eventType the event type ordinal
+   * @param objectType the object type id
+   * @param x x position
+   * @param y y position
+   * @param health the player's health
+   * @param score the player's score
+   */
+  public void log(int level, int eventType, int objectType, double x, double y, double health, int score) {
+    if (position + TelemetryRecord.RECORD_SIZE > segmentSize && !roll()) {
+      dropped++;
+      return;
+    }
+
+    MappedByteBuffer buffer = current;
+    int offset = position;
+    buffer.putLong(offset + TelemetryRecord.TIMESTAMP_OFFSET, System.nanoTime() - startNanos);
+    buffer.putInt(offset + TelemetryRecord.LEVEL_OFFSET, level);
+    buffer.putShort(offset + TelemetryRecord.EVENT_TYPE_OFFSET, (short) eventType);
+    buffer.putShort(offset + TelemetryRecord.OBJECT_TYPE_OFFSET, (short) objectType);
+    buffer.putDouble(offset + TelemetryRecord.X_OFFSET, x);
+    buffer.putDouble(offset + TelemetryRecord.Y_OFFSET, y);
+    buffer.putDouble(offset + TelemetryRecord.HEALTH_OFFSET, health);
+    buffer.putInt(offset + TelemetryRecord.SCORE_OFFSET, score);
+    buffer.putInt(offset + TelemetryRecord.COMMIT_OFFSET, TelemetryRecord.COMMIT_MARKER);
+    position += TelemetryRecord.RECORD_SIZE;
+  }
+
+  /**
+   * Switch to the spare segment prepared by the flusher
+   * @return true if a spare segment was available
+   */
+  private boolean roll() {
+    MappedByteBuffer next = spare.getAndSet(null);
+    if (next == null) {
+      return false;
+    }
+    retired.offer(current);
+    current = next;
+    flushTarget = next;
+    position = TelemetryRecord.HEADER_SIZE;
+    LockSupport.unpark(flusher);
+    return true;
+  }
+
+  /**
+   * Background loop: force retired and current segments to disk, and map the next spare segment.
+   * An I/O error is reported and the flush is tried again on the next interval, so the flusher never dies.
+   */
+  private void flushLoop() {
+    while (running) {
+      flushSafely();
+      LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+    }
+    flushSafely();
+  }
+
+  /**
+   * Flush once, reporting the first I/O error. Records are dropped until a spare segment can be mapped again.
+   */
+  private void flushSafely() {
+    try {
+      flushOnce();
+    } catch (UncheckedIOException e) {
+      if (!errorReported) {
+        errorReported = true;
+        System.err.println("Telemetry flush failed, records may be dropped: " + e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Force written data to disk, prepare a spare segment if needed, and delete the oldest segments
+   */
+  private void flushOnce() {
+    MappedByteBuffer segment;
+    while ((segment = retired.poll()) != null) {
+      segment.force();
+    }
+    flushTarget.force();
+    if (running && spare.get() == null) {
+      spare.set(mapNextSegment());
+    }
+    deleteOldSegments();
+  }
+
+  /**
+   * Delete the oldest segments beyond the retention limit.
+   * The newest segments are the current and spare ones, so they are never deleted.
+   */
+  private void deleteOldSegments() {
+    while (maxSegments > 0 && segments.size() > maxSegments) {
+      Path oldest = segments.poll();
+      try {
+        Files.deleteIfExists(oldest);
+      } catch (IOException e) {
+        // e.g. still open by a reader, try again on a later flush
+        segments.addFirst(oldest);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Create and map the next segment file, writing its header.
+   * Names already taken, e.g. by another writer in the same directory, are skipped.
+   * @return the mapped segment
+   */
+  private MappedByteBuffer mapNextSegment() {
+    for (int attempt = 1; ; attempt++) {
+      Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, nextSegmentIndex++, SEGMENT_SUFFIX));
+      try {
+        MappedByteBuffer buffer = mapSegment(path);
+        segments.add(path);
+        return buffer;
+      } catch (FileAlreadyExistsException e) {
+        if (attempt == MAX_CREATE_ATTEMPTS) {
+          throw new UncheckedIOException(e);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Create and map a new segment file, writing its header
+   * @param path the segment file, which must not exist yet
+   * @return the mapped segment
+   * @throws IOException if the file exists or cannot be created or mapped
+   */
+  private MappedByteBuffer mapSegment(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      buffer.putInt(0, TelemetryRecord.SEGMENT_MAGIC);
+      buffer.putInt(4, TelemetryRecord.VERSION);
+      buffer.putLong(8, startMillis);
+
+      // Touch every page now, so the game thread does not take page faults when writing
+      for (int offset = PAGE_SIZE; offset < segmentSize; offset += PAGE_SIZE) {
+        buffer.put(offset, (byte) 0);
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Get the number of records dropped because a segment was not ready
+   * @return number of dropped records
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Stop the flusher after it forces all written records to disk
+   */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(flusher);
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Check if a file name is a telemetry segment
+   * @param name the file name
+   * @return true if the file is a segment
+   */
+  static boolean isSegment(String name) {
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  /**
+   * Get the index in a segment's file name
+   * @param name the file name
+   * @return the index, or -1 if the name has no index
+   */
+  static int getSegmentIndex(String name) {
+    try {
+      return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      return -1;
+    }
+  }
+}
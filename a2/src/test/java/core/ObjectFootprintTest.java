@@ -0,0 +1,69 @@
+package core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import collectable.Coin;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import platform.Platform;
+
+/**
+ * Measures the heap used per game object with JOL.
+ * Radius, speed and images are shared through one ObjectType per class,
+ * so each object should cost only its own mutable fields.
+ * @author Michael Ren
+ */
+class ObjectFootprintTest {
+  private static final int COUNT = 100_000;
+  // Expected sizes with compressed references: a 12 byte header, the type reference, x, y and flags.
+  // Coins also keep the tick and height their collect animation started at.
+  private static final long PLATFORM_BYTES = 40;
+  private static final long COIN_BYTES = 56;
+
+  /**
+   * Measure the bytes each object adds to the heap, not counting the array holding them
+   * or anything shared with every other object of the type
+   * @param objects objects of one type
+   * @return bytes per object
+   */
+  private static long bytesPerObject(GameObject[] objects) {
+    long total = GraphLayout.parseInstance((Object) objects).totalSize();
+    long array = ClassLayout.parseInstance(objects).instanceSize();
+    long first = ClassLayout.parseInstance(objects[0]).instanceSize();
+    long shared = GraphLayout.parseInstance(objects[0]).totalSize() - first;
+    long perObject = (total - array - shared) / objects.length;
+    System.out.printf("%s: %d bytes per object, %d bytes shared by the type%n",
+      objects[0].getClass().getSimpleName(), perObject, shared);
+    return perObject;
+  }
+
+  /**
+   * Check that platforms hold nothing but their own fields
+   */
+  @Test
+  void platformHoldsOnlyItsOwnState() {
+    GameObject[] platforms = new GameObject[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      platforms[i] = new Platform(i, 0);
+    }
+    long instance = ClassLayout.parseInstance(platforms[0]).instanceSize();
+    assertEquals(instance, bytesPerObject(platforms), "platforms should share everything but their fields");
+    assertTrue(instance <= PLATFORM_BYTES, "platform is " + instance + " bytes");
+  }
+
+  /**
+   * Check that coins hold nothing but their own fields, so a level of a million coins fits in a small heap
+   */
+  @Test
+  void coinHoldsOnlyItsOwnState() {
+    GameObject[] coins = new GameObject[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      coins[i] = new Coin(i, 0);
+    }
+    long instance = ClassLayout.parseInstance(coins[0]).instanceSize();
+    assertEquals(instance, bytesPerObject(coins), "coins should share everything but their fields");
+    assertTrue(instance <= COIN_BYTES, "coin is " + instance + " bytes");
+  }
+}
@@ -0,0 +1,112 @@
+package level;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bagel.Keys;
+import event.EventType;
+import input.KeyState;
+import org.junit.jupiter.api.Test;
+import render.RenderSnapshot;
+import save.StateReader;
+import save.StateWriter;
+import scene.SceneManager;
+import schedule.FrameScheduler;
+
+/**
+ * Plays a level from a script of held keys, then checks that a checkpoint of it loads back exactly,
+ * and that rewinding it restores the same objects.
+ * Everything drawn is recorded into a render snapshot, so the level runs without a window.
+ * @author Michael Ren
+ */
+class CheckpointTest {
+  private static final int MAX_TICKS = 2000;
+  private static final int IDLE_TICKS = 3;
+  private static final RenderSnapshot SNAPSHOT = new RenderSnapshot();
+
+  /**
+   * Simulate one tick of the level, as the simulation thread does
+   * @param sceneManager the scene manager running the level
+   * @param level the level
+   * @param keys the keys held this tick
+   */
+  private static void step(SceneManager sceneManager, Level level, KeyState keys) {
+    FrameScheduler scheduler = sceneManager.getSimulationScheduler();
+    SNAPSHOT.beginRecording(level, 0);
+    try {
+      scheduler.beginFrame();
+      level.simulate(keys);
+      scheduler.runUntilBudget();
+    } finally {
+      SNAPSHOT.endRecording();
+    }
+  }
+
+  /**
+   * Run right until the player picks up an item and the item's collect animation has removed it
+   * @param sceneManager the scene manager running the level
+   * @param level the level
+   */
+  private static void collectItem(SceneManager sceneManager, Level level) {
+    int[] pickups = {0};
+    sceneManager.getEventBus().subscribe(event -> {
+      if (event.getType() == EventType.PICKUP) {
+        pickups[0]++;
+      }
+    });
+    KeyState keys = new KeyState();
+    keys.set(Keys.RIGHT, true);
+    int startCount = level.getObjectCount();
+    for (int tick = 0; tick < MAX_TICKS && level.getObjectCount() == startCount; tick++) {
+      step(sceneManager, level, keys);
+    }
+    assertTrue(pickups[0] > 0, "the script should pick up an item");
+    assertEquals(startCount - 1, level.getObjectCount(), "the collected item should be removed");
+  }
+
+  /**
+   * Check that a checkpoint taken after a pickup loads, and saves again to the same state
+   */
+  @Test
+  void checkpointAfterPickupLoads() {
+    SceneManager sceneManager = new SceneManager(SceneManager.SceneId.LEVEL1);
+    Level level = (Level) sceneManager.getScene();
+    collectItem(sceneManager, level);
+
+    StateWriter saved = new StateWriter();
+    level.writeState(saved);
+    Level loaded = new Level1(sceneManager, new StateReader(saved.toByteArray()));
+    assertEquals(level.getObjectCount(), loaded.getObjectCount(), "loaded object count");
+
+    StateWriter resaved = new StateWriter();
+    loaded.writeState(resaved);
+    assertArrayEquals(saved.toByteArray(), resaved.toByteArray(), "loaded level should save the same state");
+    sceneManager.close();
+  }
+
+  /**
+   * Check that rewinding to ticks after a pickup keeps the item removed, and rewinding past it brings it back
+   */
+  @Test
+  void rewindAfterPickupKeepsItemRemoved() {
+    SceneManager sceneManager = new SceneManager(SceneManager.SceneId.LEVEL1);
+    Level level = (Level) sceneManager.getScene();
+    int startCount = level.getObjectCount();
+    collectItem(sceneManager, level);
+    long removedTick = level.getTick();
+    for (int i = 0; i < IDLE_TICKS; i++) {
+      step(sceneManager, level, new KeyState());
+    }
+
+    KeyState rewind = new KeyState();
+    rewind.set(Keys.R, true);
+    while (level.getTick() > removedTick) {
+      step(sceneManager, level, rewind);
+      assertEquals(startCount - 1, level.getObjectCount(), "item should stay removed at tick " + level.getTick());
+    }
+    step(sceneManager, level, rewind);
+    assertEquals(startCount, level.getObjectCount(), "item should be back before it was removed");
+    sceneManager.close();
+  }
+}
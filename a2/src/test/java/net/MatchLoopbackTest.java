@@ -0,0 +1,66 @@
+package net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import level.HeadlessLevel;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays a match against a server over the loopback interface, with the client ticking slightly faster
+ * than the server so its inputs always arrive before the server needs them.
+ * The server then simulates exactly the inputs the client predicted with, so every snapshot should match
+ * the client's prediction.
+ * @author Michael Ren
+ */
+class MatchLoopbackTest {
+  private static final int TICKS = 240;
+  private static final long CLIENT_TICK_NANOS = Protocol.TICK_NANOS * 9 / 10;
+  private static final long JOIN_TIMEOUT_MILLIS = 2000;
+  private static final int SNAPSHOT_INTERVAL = 3;
+
+  /**
+   * Get the input for a tick: run right, jump every second, and shoot now and then
+   * @param tick the tick
+   * @return the input bits
+   */
+  private static int input(int tick) {
+    return HeadlessLevel.INPUT_RIGHT | (tick % 60 < 10 ? HeadlessLevel.INPUT_JUMP : 0)
+      | (tick % 45 == 0 ? HeadlessLevel.INPUT_SHOOT : 0);
+  }
+
+  /**
+   * Check that snapshots arrive, and never correct the client's prediction
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  void snapshotsMatchPrediction() throws InterruptedException {
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    try (MatchServer server = new MatchServer(new InetSocketAddress(loopback, 0), SNAPSHOT_INTERVAL)) {
+      server.start();
+      try (MatchClient client = new MatchClient(new InetSocketAddress(loopback, server.getPort()))) {
+        assertTrue(client.join(1, JOIN_TIMEOUT_MILLIS), "the server should welcome the client");
+        double startX = client.getSimulation().getLevel().getPlayer().getX();
+
+        int snapshots = 0;
+        int lastSnapshotTick = -1;
+        for (int tick = 0; tick < TICKS; tick++) {
+          client.tick(input(tick));
+          if (client.getSnapshotTick() != lastSnapshotTick) {
+            lastSnapshotTick = client.getSnapshotTick();
+            snapshots++;
+            assertEquals(0.0, client.getLastCorrection(), "snapshot at tick " + lastSnapshotTick + " moved the player");
+          }
+          Thread.sleep(CLIENT_TICK_NANOS / 1_000_000, (int) (CLIENT_TICK_NANOS % 1_000_000));
+        }
+
+        assertTrue(snapshots > TICKS / SNAPSHOT_INTERVAL / 4, "only " + snapshots + " snapshots arrived");
+        assertTrue(lastSnapshotTick > TICKS / 2, "newest snapshot is for tick " + lastSnapshotTick);
+        assertTrue(client.getSimulation().getLevel().getPlayer().getX() > startX, "the player should have run right");
+        assertEquals(0, server.getOversizedSnapshots(), "oversized snapshots");
+      }
+    }
+  }
+}
@@ -3,17 +3,24 @@ package text;
 import bagel.DrawOptions;
 import bagel.Font;
 import bagel.util.Point;
+import java.util.HashMap;
+import render.RenderSnapshot;
 import utils.PropertiesLoader;
 
 /**
- * Text class to load and display text on screen
+ * Text class to load and display text on screen.
+ * The bagel font is only created when the text is first drawn to the window or measured,
+ * so texts that are only recorded for the software renderer never need a window.
  * @author Michael Ren
  */
 public class Text {
-  private final Font FONT;
+  // Fonts are shared by size, as every text uses the same font file
+  private static final HashMap<Integer, Font> FONTS = new HashMap<>();
+  private Font font = null;
   private final String MESSAGE;
   private final int SIZE;
   private DrawOptions options;
+  private int colour = 0xffffff;
   private Point pos;
 
   /**
@@ -24,7 +31,14 @@ public class Text {
   public Text(String messageName, String sizeName) {
     MESSAGE = PropertiesLoader.getMessageProperty(messageName);
     SIZE = Integer.parseInt(PropertiesLoader.getGameProperty(sizeName));
-    FONT = new Font(PropertiesLoader.getGameProperty("font"), SIZE);
+  }
+
+  /**
+   * Count the fonts that have been created
+   * @return number of fonts
+   */
+  public static int getFontCount() {
+    return FONTS.size();
   }
 
   /**
@@ -50,6 +64,7 @@ public class Text {
   public void setColor(int r, int g, int b) {
     options = new DrawOptions();
     options.setBlendColour(r, g, b);
+    colour = r << 16 | g << 8 | b;
   }
 
   /**
@@ -72,22 +87,71 @@ public class Text {
   }
 
   /**
-   * Draw text on screen
+   * Draw text on screen.
+   * If the current thread is recording a render snapshot, the message is added to the snapshot instead.
    */
   public void update() {
+    RenderSnapshot snapshot = RenderSnapshot.getRecording();
+    if (snapshot != null) {
+      snapshot.addText(this, createMessage(MESSAGE));
+    } else {
+      draw(createMessage(MESSAGE));
+    }
+  }
+
+  /**
+   * Draw a message with this text's font, position and colour
+   * @param message the message to draw
+   */
+  public void draw(String message) {
     if (options == null) {
-      FONT.drawString(createMessage(MESSAGE), pos.x, pos.y);
+      getFont().drawString(message, pos.x, pos.y);
     } else {
-      FONT.drawString(createMessage(MESSAGE), pos.x, pos.y, options);
+      getFont().drawString(message, pos.x, pos.y, options);
     }
   }
 
   /**
-   * Get the font object
+   * Get the font object, creating it the first time
    * @return bagel font object
    */
   public Font getFont() {
-    return FONT;
+    if (font == null) {
+      font = FONTS.computeIfAbsent(SIZE, size -> new Font(PropertiesLoader.getGameProperty("font"), size));
+    }
+    return font;
+  }
+
+  /**
+   * Get the font size
+   * @return size in pixels
+   */
+  public int getSize() {
+    return SIZE;
+  }
+
+  /**
+   * Get the x position of the start of the text
+   * @return x position
+   */
+  public double getX() {
+    return pos.x;
+  }
+
+  /**
+   * Get the y position of the text's baseline
+   * @return y position
+   */
+  public double getY() {
+    return pos.y;
+  }
+
+  /**
+   * Get the colour set by setColor
+   * @return colour as 0xRRGGBB, white if no colour was set
+   */
+  public int getColour() {
+    return colour;
   }
 
   /**
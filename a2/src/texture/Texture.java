@@ -0,0 +1,165 @@
+package texture;
+
+import bagel.Drawing;
+import bagel.Image;
+import bagel.util.Colour;
+import render.RenderSnapshot;
+import utils.IO;
+
+/**
+ * A shared, lazily loaded image. The size is read from the PNG header, so a texture can be used for
+ * collision and layout without being loaded. The image itself is only created once an object using it
+ * comes near the camera, and may be evicted again by the TextureCache when no object near the camera uses it.
+ * @author Michael Ren
+ */
+public class Texture {
+  /**
+   * Residency states of a texture
+   */
+  enum State {
+    UNLOADED, LOADING, RESIDENT
+  }
+
+  private static final Colour PLACEHOLDER_COLOUR = new Colour(0.5, 0.5, 0.5, 0.5);
+
+  private final String path;
+  private final int width;
+  private final int height;
+  private Image image = null;
+  private State state = State.UNLOADED;
+  private long lastRequestedFrame = -1;
+
+  /**
+   * Create a texture without loading it
+   * @param path the image file path
+   */
+  Texture(String path) {
+    this.path = path;
+    int[] size = IO.readImageSize(path);
+    width = size[0];
+    height = size[1];
+  }
+
+  /**
+   * Draw the texture centred at a screen position, or a placeholder box while it loads.
+   * If the current thread is recording a render snapshot, the sprite is added to the snapshot instead.
+   * @param x screen x position
+   * @param y screen y position
+   */
+  public void draw(double x, double y) {
+    RenderSnapshot snapshot = RenderSnapshot.getRecording();
+    if (snapshot != null) {
+      snapshot.addSprite(this, x, y);
+      return;
+    }
+
+    request();
+    if (image != null) {
+      image.draw(x, y);
+    } else {
+      Drawing.drawRectangle(x - width / 2.0, y - height / 2.0, width, height, PLACEHOLDER_COLOUR);
+    }
+  }
+
+  /**
+   * Mark the texture as needed soon, loading it in the background if it is not resident.
+   * If the current thread is recording a render snapshot, the request is made when the snapshot is drawn.
+   */
+  public void request() {
+    RenderSnapshot snapshot = RenderSnapshot.getRecording();
+    if (snapshot != null) {
+      snapshot.addPrefetch(this);
+      return;
+    }
+    TextureCache.request(this);
+  }
+
+  /**
+   * Create the image. Must be called on the thread that owns the window.
+   */
+  void upload() {
+    image = new Image(path);
+    state = State.RESIDENT;
+  }
+
+  /**
+   * Drop the texture's reference to the image. Bagel cannot free an image, so its memory is only
+   * reclaimed if nothing else refers to it.
+   */
+  void evict() {
+    image = null;
+    state = State.UNLOADED;
+  }
+
+  /**
+   * Get the estimated size of the image when resident
+   * @return size in bytes, assuming 4 bytes per pixel
+   */
+  long getBytes() {
+    return (long) width * height * 4;
+  }
+
+  /**
+   * Get the image file path
+   * @return path
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Get the residency state
+   * @return the state
+   */
+  State getState() {
+    return state;
+  }
+
+  /**
+   * Set the residency state
+   * @param state the new state
+   */
+  void setState(State state) {
+    this.state = state;
+  }
+
+  /**
+   * Get the last frame the texture was requested
+   * @return frame number
+   */
+  long getLastRequestedFrame() {
+    return lastRequestedFrame;
+  }
+
+  /**
+   * Set the last frame the texture was requested
+   * @param lastRequestedFrame frame number
+   */
+  void setLastRequestedFrame(long lastRequestedFrame) {
+    this.lastRequestedFrame = lastRequestedFrame;
+  }
+
+  /**
+   * Check if the image is loaded
+   * @return true if the image is resident
+   */
+  public boolean isResident() {
+    return state == State.RESIDENT;
+  }
+
+  /**
+   * Get the width of the image
+   * @return width in pixels
+   */
+  public double getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the height of the image
+   * @return height in pixels
+   */
+  public double getHeight() {
+    return height;
+  }
+}
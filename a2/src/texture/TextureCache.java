@@ -0,0 +1,170 @@
+package texture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import schedule.FrameScheduler;
+import schedule.ScheduledTask;
+import utils.PropertiesLoader;
+
+/**
+ * Keeps track of which textures are resident.
+ * A texture is requested every frame an object using it is within the prefetch margin of the camera.
+ * Requested textures are read from disk on a background thread, then created on the main thread
+ * by a frame task, in whatever time is left in each frame so loading never stalls a frame. Bagel decodes and uploads an image in one call
+ * on the window's thread, so only the file read can happen in the background.
+ * When resident textures exceed the budget, textures that were not requested last frame are evicted,
+ * least recently requested first.
+ * Bagel has no way to free an image, so evicting only drops the cache's reference to it. The budget therefore
+ * limits the images the cache holds on to, estimated from their pixel sizes, not the memory the window uses:
+ * an evicted image's texture is released whenever bagel lets go of it, if ever.
+ * Textures are shared by path, so the images held depend on the textures near the camera rather than the level's length.
+ * Textures may be looked up from any thread, since object types are created in static initialisers
+ * that run during the asset warmup. All other methods must be called from the main thread.
+ * @author Michael Ren
+ */
+public class TextureCache {
+  private static final long BUDGET_BYTES =
+    Long.parseLong(PropertiesLoader.getGameProperty("textures.budgetMegabytes")) * 1024 * 1024;
+  private static final double PREFETCH_MARGIN =
+    Double.parseDouble(PropertiesLoader.getGameProperty("textures.prefetchMargin"));
+  private static final int UPLOAD_DEADLINE_FRAMES =
+    Integer.parseInt(PropertiesLoader.getGameProperty("textures.uploadDeadlineFrames"));
+  // Going over the budget for a while is harmless, so evictions can wait longer than uploads
+  private static final int EVICTION_DEADLINE_FRAMES = 60;
+
+  private static final ConcurrentHashMap<String, Texture> TEXTURES = new ConcurrentHashMap<>();
+  private static final ConcurrentLinkedQueue<Texture> READY = new ConcurrentLinkedQueue<>();
+  private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "texture-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static long frame = 0;
+  private static long residentBytes = 0;
+  private static ScheduledTask uploads = null;
+  private static ScheduledTask evictions = null;
+
+  /**
+   * Get the shared texture for an image file, without loading it. Safe to call from any thread.
+   * @param path the image file path
+   * @return the texture
+   */
+  public static Texture get(String path) {
+    return TEXTURES.computeIfAbsent(path, Texture::new);
+  }
+
+  /**
+   * Mark a texture as needed this frame, starting a background read if it is not loaded
+   * @param texture the texture
+   */
+  static void request(Texture texture) {
+    texture.setLastRequestedFrame(frame);
+    if (texture.getState() == Texture.State.UNLOADED) {
+      texture.setState(Texture.State.LOADING);
+      LOADER.execute(() -> {
+        try {
+          // Pulls the file into the OS cache, so creating the image on the main thread does not wait on the disk
+          Files.readAllBytes(Paths.get(texture.getPath()));
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        READY.offer(texture);
+      });
+    }
+  }
+
+  /**
+   * Start a new frame: schedule creating the textures that finished reading, and evicting textures over the budget.
+   * Called once per frame before anything is drawn.
+   * @param scheduler the scheduler that runs the work in the time left at the end of the frame
+   */
+  public static void update(FrameScheduler scheduler) {
+    if (!READY.isEmpty() && (uploads == null || !uploads.isPending())) {
+      uploads = scheduler.submit("texture uploads", FrameScheduler.PRIORITY_HIGH, UPLOAD_DEADLINE_FRAMES, TextureCache::uploadNext);
+    }
+    if (residentBytes > BUDGET_BYTES && (evictions == null || !evictions.isPending())) {
+      evictions = scheduler.submit("texture evictions", FrameScheduler.PRIORITY_LOW, EVICTION_DEADLINE_FRAMES, TextureCache::evictOldest);
+    }
+    frame++;
+  }
+
+  /**
+   * Create one texture that finished reading
+   * @return true if there are no more textures to create
+   */
+  private static boolean uploadNext() {
+    Texture texture = READY.poll();
+    if (texture == null) {
+      return true;
+    }
+
+    // Skip textures that moved out of range while they were being read
+    if (texture.getLastRequestedFrame() >= frame - 1) {
+      texture.upload();
+      residentBytes += texture.getBytes();
+    } else {
+      texture.setState(Texture.State.UNLOADED);
+    }
+    return READY.isEmpty();
+  }
+
+  /**
+   * Evict the least recently requested texture that was not requested this frame
+   * @return true if resident textures are within the budget, or nothing more can be evicted
+   */
+  private static boolean evictOldest() {
+    if (residentBytes <= BUDGET_BYTES) {
+      return true;
+    }
+
+    Texture oldest = null;
+    for (Texture texture : TEXTURES.values()) {
+      if (texture.isResident() && texture.getLastRequestedFrame() < frame
+          && (oldest == null || texture.getLastRequestedFrame() < oldest.getLastRequestedFrame())) {
+        oldest = texture;
+      }
+    }
+    if (oldest == null) {
+      return true;
+    }
+    oldest.evict();
+    residentBytes -= oldest.getBytes();
+    return residentBytes <= BUDGET_BYTES;
+  }
+
+  /**
+   * Get the distance outside the camera's view at which textures are requested
+   * @return margin in pixels
+   */
+  public static double getPrefetchMargin() {
+    return PREFETCH_MARGIN;
+  }
+
+  /**
+   * Count the resident textures
+   * @return number of textures
+   */
+  public static int getResidentCount() {
+    int count = 0;
+    for (Texture texture : TEXTURES.values()) {
+      if (texture.isResident()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the estimated size of the resident textures, counted against the budget
+   * @return size in bytes, assuming 4 bytes per pixel
+   */
+  public static long getResidentBytes() {
+    return residentBytes;
+  }
+}
@@ -0,0 +1,66 @@
+package timer;
+
+/**
+ * A timer that runs a callback on a chosen level tick. Owners create their timers once and reschedule them,
+ * so scheduling never allocates. A timer is scheduled at most once at a time: scheduling it again moves it.
+ * @author Michael Ren
+ */
+public class GameTimer {
+  private final TimerWheel wheel;
+  private final Runnable callback;
+
+  // Position in the wheel, managed by the wheel
+  long expiry = -1;
+  GameTimer previous = null;
+  GameTimer next = null;
+  GameTimer[] bucket = null;
+  int slot = -1;
+
+  /**
+   * Create a new timer, which is not scheduled
+   * @param wheel the wheel the timer is scheduled on
+   * @param callback called on the thread advancing the wheel when the timer expires
+   */
+  GameTimer(TimerWheel wheel, Runnable callback) {
+    this.wheel = wheel;
+    this.callback = callback;
+  }
+
+  /**
+   * Schedule the timer, replacing any earlier schedule
+   * @param tick the tick to expire on. Ticks that have already been reached expire on the next advance.
+   */
+  public void schedule(long tick) {
+    wheel.schedule(this, tick);
+  }
+
+  /**
+   * Cancel the timer if it is scheduled
+   */
+  public void cancel() {
+    wheel.cancel(this);
+  }
+
+  /**
+   * Check if the timer is waiting to expire
+   * @return true if scheduled
+   */
+  public boolean isScheduled() {
+    return bucket != null;
+  }
+
+  /**
+   * Get the tick the timer expires on
+   * @return the tick, or the last tick it was scheduled for if it is not scheduled
+   */
+  public long getExpiry() {
+    return expiry;
+  }
+
+  /**
+   * Run the callback
+   */
+  void fire() {
+    callback.run();
+  }
+}
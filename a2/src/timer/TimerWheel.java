@@ -0,0 +1,208 @@
+package timer;
+
+/**
+ * Hierarchical timing wheel for timers counted in level ticks.
+ * The wheel has levels of 64 slots. Level 0 holds timers due within the current 64 tick block, one slot per tick,
+ * and each higher level holds timers due in later blocks 64 times as long, one slot per block of the level below.
+ * Scheduling and cancelling only link or unlink the timer from a slot's list, so both take constant time
+ * however many timers are waiting. When a block of a higher level starts, its timers are moved down to
+ * the level below, so every timer reaches level 0 by the block it is due in, and fires on its exact tick.
+ * Advancing a tick only looks at one slot, plus one slot per level whose block starts on that tick,
+ * rather than at every timer. Timers due further out than the top level can cover wait in an overflow list.
+ * Only used by the thread updating the level.
+ * @author Michael Ren
+ */
+public class TimerWheel {
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 4;
+
+  // Heads of the timer lists of each slot of each level
+  private final GameTimer[][] levels = new GameTimer[LEVELS][SLOTS];
+  // Timers due beyond the top level, in slot 0
+  private final GameTimer[] overflow = new GameTimer[1];
+  // The next tick to be advanced through
+  private long now = 0;
+  private int scheduledCount = 0;
+
+  /**
+   * Create a timer on this wheel
+   * @param callback called when the timer expires
+   * @return the timer, which is not scheduled
+   */
+  public GameTimer createTimer(Runnable callback) {
+    return new GameTimer(this, callback);
+  }
+
+  /**
+   * Schedule a timer, unlinking it from its old slot first
+   * @param timer the timer
+   * @param tick the tick to expire on
+   */
+  void schedule(GameTimer timer, long tick) {
+    cancel(timer);
+    timer.expiry = tick;
+    add(timer);
+    scheduledCount++;
+  }
+
+  /**
+   * Unlink a timer from its slot, if it is scheduled
+   * @param timer the timer
+   */
+  void cancel(GameTimer timer) {
+    if (timer.bucket == null) {
+      return;
+    }
+    if (timer.previous != null) {
+      timer.previous.next = timer.next;
+    } else {
+      timer.bucket[timer.slot] = timer.next;
+    }
+    if (timer.next != null) {
+      timer.next.previous = timer.previous;
+    }
+    timer.previous = null;
+    timer.next = null;
+    timer.bucket = null;
+    scheduledCount--;
+  }
+
+  /**
+   * Link a timer into the slot for its expiry. The level is the highest 6 bit group in which the expiry and
+   * the current tick differ, so the timer's slot is always ahead of the level's current slot.
+   * @param timer the timer, which must not be linked
+   */
+  private void add(GameTimer timer) {
+    long due = Math.max(timer.expiry, now);
+    long differing = due ^ now;
+    int level = differing == 0 ? 0 : (63 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+    if (level >= LEVELS) {
+      link(timer, overflow, 0);
+    } else {
+      link(timer, levels[level], (int) ((due >>> (level * SLOT_BITS)) & SLOT_MASK));
+    }
+  }
+
+  /**
+   * Link a timer at the head of a slot's list
+   * @param timer the timer
+   * @param bucket the slots of a level
+   * @param slot the slot index
+   */
+  private static void link(GameTimer timer, GameTimer[] bucket, int slot) {
+    GameTimer head = bucket[slot];
+    timer.next = head;
+    timer.previous = null;
+    if (head != null) {
+      head.previous = timer;
+    }
+    bucket[slot] = timer;
+    timer.bucket = bucket;
+    timer.slot = slot;
+  }
+
+  /**
+   * Advance through every tick up to and including a tick, firing timers on the tick they are due.
+   * Callbacks may schedule and cancel timers, including the one that fired.
+   * @param tick the last tick to advance through
+   */
+  public void advanceTo(long tick) {
+    while (now <= tick) {
+      if (scheduledCount == 0) {
+        now = tick + 1;
+        return;
+      }
+      cascade();
+      fireSlot();
+      now++;
+    }
+  }
+
+  /**
+   * Move the timers of every higher level whose block starts at the current tick down a level,
+   * starting from the top so timers can move down more than one level in one tick
+   */
+  private void cascade() {
+    if ((now & ((1L << (LEVELS * SLOT_BITS)) - 1)) == 0) {
+      relink(overflow, 0);
+    }
+    for (int level = LEVELS - 1; level > 0; level--) {
+      long blockMask = (1L << (level * SLOT_BITS)) - 1;
+      if ((now & blockMask) == 0) {
+        relink(levels[level], (int) ((now >>> (level * SLOT_BITS)) & SLOT_MASK));
+      }
+    }
+  }
+
+  /**
+   * Take every timer out of a slot and link it again for the current tick
+   * @param bucket the slots of a level
+   * @param slot the slot index
+   */
+  private void relink(GameTimer[] bucket, int slot) {
+    GameTimer timer = bucket[slot];
+    bucket[slot] = null;
+    while (timer != null) {
+      GameTimer next = timer.next;
+      add(timer);
+      timer = next;
+    }
+  }
+
+  /**
+   * Fire every timer in the current tick's level 0 slot, including timers scheduled for this tick by callbacks
+   */
+  private void fireSlot() {
+    GameTimer[] bucket = levels[0];
+    int slot = (int) (now & SLOT_MASK);
+    GameTimer timer;
+    while ((timer = bucket[slot]) != null) {
+      cancel(timer);
+      timer.fire();
+    }
+  }
+
+  /**
+   * Unschedule every timer and move to a tick, e.g. after the level state has been restored.
+   * Owners then schedule their timers again from the restored state.
+   * @param tick the next tick to advance through
+   */
+  public void reset(long tick) {
+    for (GameTimer[] bucket : levels) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        unlinkAll(bucket, slot);
+      }
+    }
+    unlinkAll(overflow, 0);
+    now = tick;
+  }
+
+  /**
+   * Unschedule every timer in a slot
+   * @param bucket the slots of a level
+   * @param slot the slot index
+   */
+  private void unlinkAll(GameTimer[] bucket, int slot) {
+    while (bucket[slot] != null) {
+      cancel(bucket[slot]);
+    }
+  }
+
+  /**
+   * Get the number of scheduled timers
+   * @return number of timers
+   */
+  public int getScheduledCount() {
+    return scheduledCount;
+  }
+
+  /**
+   * Get the next tick to be advanced through
+   * @return the tick
+   */
+  public long getTick() {
+    return now;
+  }
+}
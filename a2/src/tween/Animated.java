@@ -0,0 +1,17 @@
+package tween;
+
+import level.Level;
+
+/**
+ * An object whose animations run on a tween engine. Tweens are not saved or rewound themselves:
+ * the object keeps the tick and values each animation started with in its own state, and starts
+ * the animation again part way through whenever the level state is restored.
+ * @author Michael Ren
+ */
+public interface Animated {
+  /**
+   * Start any animation that was running in the restored state again, on the tick it had reached
+   * @param level the level, whose tween engine has just been reset to the restored tick
+   */
+  void restoreTweens(Level level);
+}
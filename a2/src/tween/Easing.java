@@ -0,0 +1,68 @@
+package tween;
+
+/**
+ * Easing curves, mapping the fraction of a tween's duration that has passed to the fraction of the way
+ * from its start value to its end value. Every curve starts at 0 and ends at 1.
+ * @author Michael Ren
+ */
+public enum Easing {
+  LINEAR,
+  EASE_IN_QUAD,
+  EASE_OUT_QUAD,
+  EASE_IN_OUT_QUAD,
+  EASE_IN_CUBIC,
+  EASE_OUT_CUBIC,
+  EASE_OUT_BACK,
+  EASE_OUT_BOUNCE;
+
+  private static final double BACK = 1.70158;
+
+  /**
+   * Apply the curve
+   * @param t fraction of the duration that has passed, from 0 to 1
+   * @return fraction of the way to the end value
+   */
+  public double apply(double t) {
+    switch (this) {
+      case EASE_IN_QUAD:
+        return t * t;
+      case EASE_OUT_QUAD:
+        return t * (2 - t);
+      case EASE_IN_OUT_QUAD:
+        return t < 0.5 ? 2 * t * t : -1 + (4 - 2 * t) * t;
+      case EASE_IN_CUBIC:
+        return t * t * t;
+      case EASE_OUT_CUBIC: {
+        double u = t - 1;
+        return u * u * u + 1;
+      }
+      case EASE_OUT_BACK: {
+        double u = t - 1;
+        return u * u * ((BACK + 1) * u + BACK) + 1;
+      }
+      case EASE_OUT_BOUNCE:
+        return bounce(t);
+      default:
+        return t;
+    }
+  }
+
+  /**
+   * Bounce towards the end value, like a ball dropped onto it
+   * @param t fraction of the duration that has passed
+   * @return fraction of the way to the end value
+   */
+  private static double bounce(double t) {
+    if (t < 1 / 2.75) {
+      return 7.5625 * t * t;
+    } else if (t < 2 / 2.75) {
+      t -= 1.5 / 2.75;
+      return 7.5625 * t * t + 0.75;
+    } else if (t < 2.5 / 2.75) {
+      t -= 2.25 / 2.75;
+      return 7.5625 * t * t + 0.9375;
+    }
+    t -= 2.625 / 2.75;
+    return 7.5625 * t * t + 0.984375;
+  }
+}
@@ -0,0 +1,405 @@
+package tween;
+
+import java.util.Arrays;
+
+/**
+ * Runs every tween of a level, such as items flying away when collected and entities falling when they die.
+ * A tween moves one property of a target from a start value to an end value over a number of ticks,
+ * along an easing curve. Tweens can be chained into sequences, where each one starts when the one before it ends,
+ * and can run a callback when they end.
+ * Tweens are stored as parallel primitive arrays indexed by slot, and the slots of running tweens are packed
+ * at the start of a separate array, so each tick is one loop over the running tweens with no allocation.
+ * Slots are reused, and the arrays only grow when more tweens are alive at once than ever before.
+ * Tweens are referred to by handles, which combine the slot with a count of how many times it has been reused,
+ * so a handle to a tween that has ended never refers to a later tween in the same slot.
+ * Only used by the thread updating the level.
+ * @author Michael Ren
+ */
+public class TweenEngine {
+  /** Handle that never refers to a tween */
+  public static final int NONE = -1;
+
+  private static final int SLOT_BITS = 20;
+  private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+  private static final int MAX_SLOTS = 1 << SLOT_BITS;
+  private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+  private static final byte FREE = 0;
+  private static final byte WAITING = 1;
+  private static final byte RUNNING = 2;
+
+  // Tweens, by slot
+  private TweenTarget[] targets;
+  private int[] properties;
+  private double[] from;
+  private double[] to;
+  private int[] duration;
+  private int[] elapsed;
+  private Easing[] easings;
+  private Runnable[] callbacks;
+  private int[] previous;
+  private int[] next;
+  private int[] generations;
+  private byte[] states;
+  private int[] runningIndex;
+
+  // Slots of running tweens are [0, runningCount)
+  private int[] running;
+  private int runningCount = 0;
+  // Unused slots are [0, freeCount)
+  private int[] freeSlots;
+  private int freeCount = 0;
+  // Slots of tweens that ended during the current advance
+  private int[] ended;
+  private int aliveCount = 0;
+  // The next tick to be advanced through
+  private long now = 0;
+
+  /**
+   * Create an engine with room for some tweens
+   * @param capacity number of tweens that can be alive before the arrays grow
+   */
+  public TweenEngine(int capacity) {
+    capacity = Math.max(1, Math.min(capacity, MAX_SLOTS));
+    targets = new TweenTarget[capacity];
+    properties = new int[capacity];
+    from = new double[capacity];
+    to = new double[capacity];
+    duration = new int[capacity];
+    elapsed = new int[capacity];
+    easings = new Easing[capacity];
+    callbacks = new Runnable[capacity];
+    previous = new int[capacity];
+    next = new int[capacity];
+    generations = new int[capacity];
+    states = new byte[capacity];
+    runningIndex = new int[capacity];
+    running = new int[capacity];
+    ended = new int[capacity];
+    freeSlots = new int[capacity];
+    for (int slot = capacity - 1; slot >= 0; slot--) {
+      freeSlots[freeCount++] = slot;
+    }
+  }
+
+  /**
+   * Start a tween from its first tick
+   * @param target the object to drive
+   * @param property the property of the target, such as TweenTarget.Y
+   * @param start value at the start
+   * @param end value at the end
+   * @param ticks duration in ticks, at least 1
+   * @param easing the easing curve
+   * @param onComplete called after the end value is set, or null
+   * @return handle to the tween
+   */
+  public int start(TweenTarget target, int property, double start, double end, int ticks, Easing easing,
+      Runnable onComplete) {
+    return start(target, property, start, end, ticks, 0, easing, onComplete);
+  }
+
+  /**
+   * Start a tween part way through, e.g. to continue an animation after the level state is restored.
+   * The target is set to the tween's value for the ticks already passed.
+   * @param target the object to drive
+   * @param property the property of the target, such as TweenTarget.Y
+   * @param start value at the start
+   * @param end value at the end
+   * @param ticks duration in ticks, at least 1
+   * @param passed ticks of the duration already passed, less than the duration
+   * @param easing the easing curve
+   * @param onComplete called after the end value is set, or null
+   * @return handle to the tween
+   */
+  public int start(TweenTarget target, int property, double start, double end, int ticks, int passed,
+      Easing easing, Runnable onComplete) {
+    int slot = allocate(target, property, start, end, ticks, easing, onComplete);
+    elapsed[slot] = Math.max(0, Math.min(passed, duration[slot] - 1));
+    if (elapsed[slot] > 0) {
+      apply(slot);
+    }
+    run(slot);
+    return handle(slot);
+  }
+
+  /**
+   * Add a tween to the end of a sequence, to start once every tween before it has ended.
+   * If the sequence has already ended, the tween starts straight away.
+   * @param after handle to any tween in the sequence
+   * @param target the object to drive
+   * @param property the property of the target, such as TweenTarget.Y
+   * @param start value at the start
+   * @param end value at the end
+   * @param ticks duration in ticks, at least 1
+   * @param easing the easing curve
+   * @param onComplete called after the end value is set, or null
+   * @return handle to the new tween
+   */
+  public int then(int after, TweenTarget target, int property, double start, double end, int ticks,
+      Easing easing, Runnable onComplete) {
+    int slot = allocate(target, property, start, end, ticks, easing, onComplete);
+    int last = slotOf(after);
+    if (last < 0) {
+      run(slot);
+      return handle(slot);
+    }
+    while (next[last] >= 0) {
+      last = next[last];
+    }
+    next[last] = slot;
+    previous[slot] = last;
+    states[slot] = WAITING;
+    return handle(slot);
+  }
+
+  /**
+   * Stop a tween and every tween after it in its sequence, leaving their targets where they are
+   * and without calling their callbacks. Tweens before it in the sequence are not affected.
+   * @param handle the tween, which may already have ended
+   */
+  public void cancel(int handle) {
+    int slot = slotOf(handle);
+    if (slot < 0) {
+      return;
+    }
+    if (previous[slot] >= 0) {
+      next[previous[slot]] = -1;
+    }
+    while (slot >= 0) {
+      int following = next[slot];
+      if (states[slot] == RUNNING) {
+        removeRunning(slot);
+      }
+      free(slot);
+      slot = following;
+    }
+  }
+
+  /**
+   * Check if a tween is running or waiting for the tweens before it in its sequence
+   * @param handle the tween
+   * @return true if the tween has not ended or been cancelled
+   */
+  public boolean isAlive(int handle) {
+    return slotOf(handle) >= 0;
+  }
+
+  /**
+   * Advance through every tick up to and including a tick
+   * @param tick the last tick to advance through
+   */
+  public void advanceTo(long tick) {
+    while (now <= tick) {
+      if (aliveCount == 0) {
+        now = tick + 1;
+        return;
+      }
+      advance();
+      now++;
+    }
+  }
+
+  /**
+   * Advance every running tween by one tick, in one pass over the packed arrays.
+   * Tweens that reach their end are removed, the tweens after them in their sequences start,
+   * and then their callbacks are called, so callbacks may start and cancel tweens freely.
+   */
+  private void advance() {
+    int endedCount = 0;
+    // Backwards, so the running tween swapped into an ended tween's place has already been advanced
+    for (int i = runningCount - 1; i >= 0; i--) {
+      int slot = running[i];
+      elapsed[slot]++;
+      apply(slot);
+      if (elapsed[slot] >= duration[slot]) {
+        removeRunning(slot);
+        ended[endedCount++] = slot;
+      }
+    }
+
+    for (int i = 0; i < endedCount; i++) {
+      int slot = ended[i];
+      Runnable callback = callbacks[slot];
+      int following = next[slot];
+      free(slot);
+      if (following >= 0) {
+        previous[following] = -1;
+        run(following);
+      }
+      if (callback != null) {
+        callback.run();
+      }
+    }
+  }
+
+  /**
+   * Stop every tween without calling callbacks and move to a tick, e.g. before the level state is restored.
+   * Owners then start their animations again from the restored state.
+   * @param tick the next tick to advance through
+   */
+  public void reset(long tick) {
+    now = tick;
+    runningCount = 0;
+    for (int slot = 0; slot < states.length; slot++) {
+      if (states[slot] != FREE) {
+        next[slot] = -1;
+        free(slot);
+      }
+    }
+  }
+
+  /**
+   * Get the next tick to be advanced through. A tween started now has its first tick on this tick.
+   * @return the tick
+   */
+  public long getTick() {
+    return now;
+  }
+
+  /**
+   * Get the number of running tweens, not counting ones waiting in a sequence
+   * @return number of tweens
+   */
+  public int getRunningCount() {
+    return runningCount;
+  }
+
+  /**
+   * Get the number of tweens running or waiting in a sequence
+   * @return number of tweens
+   */
+  public int getAliveCount() {
+    return aliveCount;
+  }
+
+  /**
+   * Set a tween's target property to its value for the ticks passed
+   * @param slot the tween's slot
+   */
+  private void apply(int slot) {
+    int passed = elapsed[slot];
+    int ticks = duration[slot];
+    double fraction = passed >= ticks ? 1 : easings[slot].apply((double) passed / ticks);
+    targets[slot].applyTween(properties[slot], from[slot] + (to[slot] - from[slot]) * fraction);
+  }
+
+  /**
+   * Take a free slot, growing the arrays if there is none, and fill it in
+   * @param target the object to drive
+   * @param property the property of the target
+   * @param start value at the start
+   * @param end value at the end
+   * @param ticks duration in ticks
+   * @param easing the easing curve
+   * @param onComplete called when the tween ends, or null
+   * @return the slot, which is neither running nor waiting yet
+   */
+  private int allocate(TweenTarget target, int property, double start, double end, int ticks, Easing easing,
+      Runnable onComplete) {
+    if (freeCount == 0) {
+      grow();
+    }
+    int slot = freeSlots[--freeCount];
+    targets[slot] = target;
+    properties[slot] = property;
+    from[slot] = start;
+    to[slot] = end;
+    duration[slot] = Math.max(1, ticks);
+    elapsed[slot] = 0;
+    easings[slot] = easing;
+    callbacks[slot] = onComplete;
+    previous[slot] = -1;
+    next[slot] = -1;
+    aliveCount++;
+    return slot;
+  }
+
+  /**
+   * Add a slot to the running tweens
+   * @param slot the slot
+   */
+  private void run(int slot) {
+    states[slot] = RUNNING;
+    runningIndex[slot] = runningCount;
+    running[runningCount++] = slot;
+  }
+
+  /**
+   * Remove a slot from the running tweens, moving the last running tween into its place
+   * @param slot the slot, which must be running
+   */
+  private void removeRunning(int slot) {
+    int index = runningIndex[slot];
+    int last = running[--runningCount];
+    running[index] = last;
+    runningIndex[last] = index;
+  }
+
+  /**
+   * Return a slot to the free list, so handles to it no longer refer to it
+   * @param slot the slot
+   */
+  private void free(int slot) {
+    states[slot] = FREE;
+    targets[slot] = null;
+    callbacks[slot] = null;
+    generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+    freeSlots[freeCount++] = slot;
+    aliveCount--;
+  }
+
+  /**
+   * Double the size of every array
+   */
+  private void grow() {
+    int oldCapacity = states.length;
+    if (oldCapacity >= MAX_SLOTS) {
+      throw new IllegalStateException("Too many tweens: " + oldCapacity);
+    }
+    int capacity = Math.min(oldCapacity * 2, MAX_SLOTS);
+    targets = Arrays.copyOf(targets, capacity);
+    properties = Arrays.copyOf(properties, capacity);
+    from = Arrays.copyOf(from, capacity);
+    to = Arrays.copyOf(to, capacity);
+    duration = Arrays.copyOf(duration, capacity);
+    elapsed = Arrays.copyOf(elapsed, capacity);
+    easings = Arrays.copyOf(easings, capacity);
+    callbacks = Arrays.copyOf(callbacks, capacity);
+    previous = Arrays.copyOf(previous, capacity);
+    next = Arrays.copyOf(next, capacity);
+    generations = Arrays.copyOf(generations, capacity);
+    states = Arrays.copyOf(states, capacity);
+    runningIndex = Arrays.copyOf(runningIndex, capacity);
+    running = Arrays.copyOf(running, capacity);
+    ended = Arrays.copyOf(ended, capacity);
+    freeSlots = Arrays.copyOf(freeSlots, capacity);
+    for (int slot = capacity - 1; slot >= oldCapacity; slot--) {
+      freeSlots[freeCount++] = slot;
+    }
+  }
+
+  /**
+   * Make the handle for a slot
+   * @param slot the slot
+   * @return the handle
+   */
+  private int handle(int slot) {
+    return generations[slot] << SLOT_BITS | slot;
+  }
+
+  /**
+   * Find the slot a handle refers to
+   * @param handle the handle
+   * @return the slot, or -1 if the tween has ended or been cancelled
+   */
+  private int slotOf(int handle) {
+    if (handle < 0) {
+      return -1;
+    }
+    int slot = handle & SLOT_MASK;
+    if (slot >= states.length || states[slot] == FREE || generations[slot] != handle >>> SLOT_BITS) {
+      return -1;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,19 @@
+package tween;
+
+/**
+ * Something with numeric properties a tween can drive, such as a game object's position.
+ * @author Michael Ren
+ */
+public interface TweenTarget {
+  /** The x position */
+  int X = 0;
+  /** The y position */
+  int Y = 1;
+
+  /**
+   * Set a property to the tween's current value
+   * @param property the property, such as X or Y
+   * @param value the new value
+   */
+  void applyTween(int property, double value);
+}
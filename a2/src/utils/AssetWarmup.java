@@ -0,0 +1,134 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepares assets on worker threads while the main thread opens the window.
+ * The workers parse the properties files, run the static initialisers of the game classes
+ * (most of which read properties), and read every image and font in res/ so the files are in memory
+ * when the main thread creates them. Bagel decodes and uploads images and fonts in one call
+ * on the window's thread, so that last step stays on the main thread.
+ * Nothing needs to wait for the warmup: a class being initialised by a worker simply blocks
+ * the main thread until it is ready, and reading a file early only makes the later read faster.
+ * @author Michael Ren
+ */
+public class AssetWarmup {
+  private static final String RESOURCE_DIRECTORY = "res";
+
+  // Classes whose static initialisers only read properties, so they are safe to run before the window opens
+  private static final String[] CLASSES = {
+    "level.Level", "level.Level1", "level.Level2", "level.Level3",
+    "entity.Entity", "entity.Player", "entity.Slime", "entity.Boss", "entity.Fireball",
+    "collectable.Item", "collectable.Coin", "collectable.DoubleScorePowerUp", "collectable.InvinciblePowerUp",
+    "platform.Platform", "platform.FlyingPlatform", "flag.Flag",
+    "scene.SceneManager", "scene.StartScene", "scene.EndScene", "text.Text", "texture.TextureCache"
+  };
+
+  private final ExecutorService workers;
+  private final AtomicInteger remaining = new AtomicInteger();
+  private final long startNanos = System.nanoTime();
+  private volatile long finishNanos = 0;
+
+  /**
+   * Start warming up on a pool of daemon threads
+   */
+  private AssetWarmup() {
+    workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+      Thread thread = new Thread(runnable, "asset-warmup");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    Path[] files = listResources();
+    remaining.set(2 + CLASSES.length + files.length);
+    submit(PropertiesLoader::getGameProperties);
+    submit(PropertiesLoader::getMessageProperties);
+    for (String name : CLASSES) {
+      submit(() -> initialise(name));
+    }
+    for (Path file : files) {
+      submit(() -> read(file));
+    }
+    workers.shutdown();
+  }
+
+  /**
+   * Start warming up assets in the background
+   * @return the warmup, which can be used to report how long it took
+   */
+  public static AssetWarmup start() {
+    return new AssetWarmup();
+  }
+
+  /**
+   * Run a task on the workers, counting it down when it finishes
+   * @param task the task
+   */
+  private void submit(Runnable task) {
+    workers.execute(() -> {
+      try {
+        task.run();
+      } finally {
+        if (remaining.decrementAndGet() == 0) {
+          finishNanos = System.nanoTime();
+        }
+      }
+    });
+  }
+
+  /**
+   * List the images and fonts to read
+   * @return the files
+   */
+  private static Path[] listResources() {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(RESOURCE_DIRECTORY), "*.{png,TTF,ttf}")) {
+      ArrayList<Path> files = new ArrayList<>();
+      stream.forEach(files::add);
+      return files.toArray(new Path[0]);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return new Path[0];
+    }
+  }
+
+  /**
+   * Load and initialise a class
+   * @param name the class name
+   */
+  private static void initialise(String name) {
+    try {
+      Class.forName(name, true, AssetWarmup.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Read a file so it is in memory for the main thread
+   * @param file the file
+   */
+  private static void read(Path file) {
+    try {
+      Files.readAllBytes(file);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Get how long the warmup took
+   * @return time in milliseconds, or -1 if it is still running
+   */
+  public double getMillis() {
+    long finish = finishNanos;
+    return finish == 0 ? -1 : (finish - startNanos) / 1e6;
+  }
+}
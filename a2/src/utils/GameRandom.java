@@ -0,0 +1,57 @@
+package utils;
+
+/**
+ * The random numbers used by game objects, such as the direction enemies start patrolling in
+ * and whether the boss shoots. Every level has its own generator, seeded by the scene manager,
+ * and saves its state with the level, so a level restored from a checkpoint or a snapshot
+ * plays out exactly like the original given the same inputs.
+ * The generator is a SplitMix64 sequence over a single long, so it is cheap to save and copy.
+ * @author Michael Ren
+ */
+public class GameRandom {
+  private long state;
+
+  /**
+   * Create a new generator
+   * @param seed the seed, generators with the same seed give the same numbers
+   */
+  public GameRandom(long seed) {
+    state = seed;
+  }
+
+  /**
+   * Get a random long
+   * @return any long with equal chance
+   */
+  public long nextLong() {
+    state += 0x9E3779B97F4A7C15L;
+    long z = state;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Get a random boolean
+   * @return true or false with equal chance
+   */
+  public boolean nextBoolean() {
+    return (nextLong() & 1) != 0;
+  }
+
+  /**
+   * Get the generator's state, to save it
+   * @return the state
+   */
+  public long getState() {
+    return state;
+  }
+
+  /**
+   * Restore a saved state, or reseed the generator
+   * @param state the state or seed
+   */
+  public void setState(long state) {
+    this.state = state;
+  }
+}
@@ -1,6 +1,7 @@
 package utils;
 
 import java.util.Properties;
+import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileReader;
@@ -51,4 +52,25 @@ public class IO {
 
         return appProps;
     }
+
+    /***
+     * Method that reads the width and height of a PNG image from its header,
+     * without decoding the image
+     * @param imageFile: the path to the PNG file
+     * @return int array of {width, height}
+     */
+    public static int[] readImageSize(String imageFile) {
+        int[] size = new int[2];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(imageFile))) {
+            // Skip the 8 byte signature, 4 byte chunk length and 4 byte IHDR chunk type
+            in.skipBytes(16);
+            size[0] = in.readInt();
+            size[1] = in.readInt();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(-1);
+        }
+
+        return size;
+    }
 }
\ No newline at end of file
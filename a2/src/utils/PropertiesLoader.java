@@ -5,20 +5,30 @@ import java.util.Properties;
 /**
  * A class that loads properties files and provides access to the properties.
  * Property files are only loaded once and are stored in memory for the lifetime of the program.
+ * Each file is loaded by a holder class on first use, so the first access is thread safe.
  * @author Michael Ren
  */
 public class PropertiesLoader {
-  private static Properties gameProps;
-  private static Properties messageProps;
+  /**
+   * Holds the game properties, loaded when the class is first used
+   */
+  private static class GameProperties {
+    private static final Properties PROPS = IO.readPropertiesFile("res/app.properties");
+  }
+
+  /**
+   * Holds the message properties, loaded when the class is first used
+   */
+  private static class MessageProperties {
+    private static final Properties PROPS = IO.readPropertiesFile("res/message_en.properties");
+  }
 
   /**
    * Get all game properties
    * @return Properties object containing all game properties
    */
   public static Properties getGameProperties() {
-    if (gameProps == null)
-      gameProps = IO.readPropertiesFile("res/app.properties");
-    return gameProps;
+    return GameProperties.PROPS;
   }
   
   /**
@@ -26,9 +36,7 @@ public class PropertiesLoader {
    * @return Properties object containing all message properties
    */
   public static Properties getMessageProperties() {
-    if (messageProps == null)
-      messageProps = IO.readPropertiesFile("res/message_en.properties");
-    return messageProps;
+    return MessageProperties.PROPS;
   }
 
   /**